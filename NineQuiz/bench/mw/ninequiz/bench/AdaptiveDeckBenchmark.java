@@ -0,0 +1,78 @@
+package mw.ninequiz.bench;
+
+import mw.ninequiz.src.AdaptiveDeck;
+import mw.ninequiz.src.DifficultyIndex;
+import mw.ninequiz.src.JudgeType;
+import mw.ninequiz.src.Question;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 大きな問題バンクに対する{@link AdaptiveDeck}の問題選択を計測します。
+ * 問題バンクは同じ問題を並べたもので、難易度だけを乱数で与えます。
+ *
+ * @author Getaji
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class AdaptiveDeckBenchmark {
+
+    private static final int SESSION_LENGTH = 50;
+
+    @Param({"2000000"})
+    public int bankSize;
+
+    @Param({"4", "4096"})
+    public int tagCount;
+
+    private DifficultyIndex index;
+
+    /**
+     * スレッドごとの乱数です。
+     */
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        final List<Question> bank = Collections.nCopies(bankSize,
+                BenchmarkQuestions.create(1, 3).get(0));
+        final double[] difficulties = new SplittableRandom(1).doubles(bankSize).toArray();
+        index = DifficultyIndex.build(bank, i -> difficulties[i], i -> i % tagCount);
+    }
+
+    /**
+     * 1セッション分の問題を選び、無作為な正誤を伝えます。1問あたりの時間は結果をセッションの問題数で割ってください。
+     */
+    @Benchmark
+    public double session(ThreadState state) {
+        final AdaptiveDeck deck = AdaptiveDeck.of(index, SESSION_LENGTH);
+        double sum = 0;
+        for (int i = 0; i < SESSION_LENGTH; ++i) {
+            sum += deck.get(i).getAnswerIndex();
+            deck.onJudged(i, state.random.nextBoolean() ? JudgeType.CORRECT : JudgeType.INCORRECT);
+        }
+        return sum + deck.getTargetDifficulty();
+    }
+}
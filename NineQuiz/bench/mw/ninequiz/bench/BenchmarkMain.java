@@ -0,0 +1,24 @@
+package mw.ninequiz.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * すべてのベンチマークをGCプロファイラ付きで実行します。
+ * 引数に正規表現を渡すと、一致するベンチマークのみを実行します。
+ *
+ * @author Getaji
+ */
+public class BenchmarkMain {
+
+    public static void main(String[] args) throws RunnerException {
+        final Options options = new OptionsBuilder()
+                .include((args.length > 0) ? args[0] : "mw\\.ninequiz\\.bench\\..*")
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,94 @@
+package mw.ninequiz.bench;
+
+import mw.ninequiz.src.Question;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * ベンチマークで用いる問題を生成するクラスです。
+ *
+ * @author Getaji
+ */
+final class BenchmarkQuestions {
+
+    private BenchmarkQuestions() {}
+
+    /**
+     * 問題のリストを生成します。
+     *
+     * @param count 問題数
+     * @param choiceCount 1問あたりの選択肢の数
+     * @return 問題のリスト
+     */
+    static List<Question> create(int count, int choiceCount) {
+        final List<Question> questions = new ArrayList<>(count);
+        final Question.QuestionBuilder builder = Question.builder();
+        for (int i = 0; i < count; ++i) {
+            builder.reset().setStatement("ベンチマーク問題" + i + "の答えはどれですか？");
+            for (int c = 1; c <= choiceCount; ++c) {
+                builder.addChoice("選択肢" + c);
+            }
+            questions.add(builder.setAnswerIndex(1 + i % choiceCount).build());
+        }
+        return questions;
+    }
+
+    /**
+     * 問題文の異なる問題のリストを生成します。問題文は漢字と語句を無作為に並べたもので、
+     * 約1%は既存の問題文に句点を加えた、ほぼ重複する問題になります。
+     *
+     * @param count 問題数
+     * @param seed 乱数の種
+     * @return 問題のリスト
+     */
+    static List<Question> createVaried(int count, long seed) {
+        final String[] words = {"日本", "首都", "歴史", "江戸", "幕府", "将軍", "時代", "明治", "鎌倉",
+                "平安", "京都", "神社", "人口", "面積", "最大", "最初", "作家", "小説", "映画", "科学"};
+        final SplittableRandom random = new SplittableRandom(seed);
+        final List<Question> questions = new ArrayList<>(count);
+        final Question.QuestionBuilder builder = Question.builder();
+        final StringBuilder statement = new StringBuilder();
+        for (int i = 0; i < count; ++i) {
+            statement.setLength(0);
+            if (0 < i && random.nextInt(100) == 0) {
+                statement.append(questions.get(random.nextInt(i)).getQuestionStatement()).append('。');
+            } else {
+                final int length = 6 + random.nextInt(6);
+                for (int k = 0; k < length; ++k) {
+                    if (random.nextInt(3) == 0) {
+                        statement.append(words[random.nextInt(words.length)]);
+                    } else {
+                        statement.append((char) (0x4E00 + random.nextInt(2500)))
+                                .append((char) (0x4E00 + random.nextInt(2500)));
+                    }
+                }
+                statement.append("は何ですか？");
+            }
+            builder.reset().setStatement(statement.toString())
+                    .addChoice(words[random.nextInt(words.length)])
+                    .addChoice(words[random.nextInt(words.length)] + (i % 7))
+                    .addChoice("その他");
+            questions.add(builder.setAnswerIndex(1 + i % 3).build());
+        }
+        return questions;
+    }
+
+    /**
+     * 問題を順に解答する入力を生成します。奇数番目の問題は正解、偶数番目は不正解になります。
+     *
+     * @param questions 問題のリスト
+     * @return 改行区切りの解答
+     */
+    static String answers(List<Question> questions) {
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < questions.size(); ++i) {
+            final Question question = questions.get(i);
+            final int answer = (i % 2 == 0) ?
+                    question.getAnswerIndex() : question.getAnswerIndex() % question.getChoiceCount() + 1;
+            builder.append(answer).append('\n');
+        }
+        return builder.toString();
+    }
+}
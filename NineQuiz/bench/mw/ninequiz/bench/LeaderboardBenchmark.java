@@ -0,0 +1,72 @@
+package mw.ninequiz.bench;
+
+import mw.ninequiz.src.Leaderboard;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Leaderboard}の更新と順位の問い合わせを複数スレッドから計測します。
+ *
+ * @author Getaji
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@Threads(4)
+public class LeaderboardBenchmark {
+
+    @Param({"100000"})
+    public int playerCount;
+
+    private Leaderboard leaderboard;
+
+    /**
+     * スレッドごとの乱数です。
+     */
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        leaderboard = new Leaderboard();
+        final SplittableRandom random = new SplittableRandom(1);
+        for (int id = 0; id < playerCount; ++id) {
+            leaderboard.add(id, random.nextInt(10), random.nextInt(1_000_000));
+        }
+    }
+
+    @Benchmark
+    public void update(ThreadState state) {
+        leaderboard.add(state.random.nextInt(playerCount), state.random.nextInt(2),
+                state.random.nextInt(1_000_000));
+    }
+
+    @Benchmark
+    public int rank(ThreadState state) {
+        return leaderboard.getRank(state.random.nextInt(playerCount));
+    }
+
+    @Benchmark
+    public int top10() {
+        return leaderboard.top(10).size();
+    }
+}
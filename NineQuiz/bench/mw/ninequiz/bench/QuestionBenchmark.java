@@ -0,0 +1,81 @@
+package mw.ninequiz.bench;
+
+import mw.ninequiz.src.Question;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link Question}の構築と選択肢の取得を計測します。
+ *
+ * @author Getaji
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuestionBenchmark {
+
+    @Param({"3", "100"})
+    public int choiceCount;
+
+    private String[] choices;
+    private Question question;
+    private final Question.QuestionBuilder reusedBuilder = Question.builder();
+
+    @Setup
+    public void setUp() {
+        choices = new String[choiceCount];
+        for (int i = 0; i < choiceCount; ++i) {
+            choices[i] = "選択肢" + i;
+        }
+        question = build();
+    }
+
+    @Benchmark
+    public Question builderBuild() {
+        return build();
+    }
+
+    @Benchmark
+    public Question reusedBuilderBuild() {
+        return reusedBuilder.reset()
+                .setStatement("Javaの型付けは何ですか？")
+                .addChoiceAll(choices)
+                .setAnswerIndex(1)
+                .build();
+    }
+
+    @Benchmark
+    public Object getQuestionChoices() {
+        return question.getQuestionChoices();
+    }
+
+    @Benchmark
+    public void getChoiceByIndex(Blackhole blackhole) {
+        for (int i = 1, count = question.getChoiceCount(); i <= count; ++i) {
+            blackhole.consume(question.getChoice(i));
+        }
+    }
+
+    private Question build() {
+        return Question.builder()
+                .setStatement("Javaの型付けは何ですか？")
+                .addChoiceAll(choices)
+                .setAnswerIndex(1)
+                .build();
+    }
+}
@@ -0,0 +1,92 @@
+package mw.ninequiz.bench;
+
+import mw.ninequiz.src.ImportFormat;
+import mw.ninequiz.src.QuestionBankWriter;
+import mw.ninequiz.src.QuestionImporter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 数百万行のCSVを{@link QuestionImporter}で取り込む時間を計測します。
+ * 約1%の行は契約に違反しており、エラーとして記録されます。
+ *
+ * @author Getaji
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class QuestionImporterBenchmark {
+
+    @Param({"1000000", "4000000"})
+    public int rowCount;
+
+    private Path directory;
+    private Path csv;
+    private Path bank;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("ninequiz-import");
+        csv = directory.resolve("questions.csv");
+        bank = directory.resolve("questions.nqb");
+
+        try (BufferedWriter writer = Files.newBufferedWriter(csv, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < rowCount; ++i) {
+                if (i % 100 == 99) {
+                    // 正解のインデックスが範囲外
+                    writer.write("ベンチマーク問題" + i + "の答えはどれですか？,9,選択肢1,選択肢2");
+                } else {
+                    writer.write("\"ベンチマーク問題" + i + "の答えは、どれですか？\"," + (1 + i % 4)
+                            + ",選択肢1,選択肢2,選択肢3,\"選択肢\"\"4\"\"\"");
+                }
+                writer.newLine();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(bank);
+        Files.deleteIfExists(csv);
+        Files.deleteIfExists(directory);
+    }
+
+    /**
+     * CSVを問題バンクへ書き出します。問題はメモリ上に保持されません。
+     */
+    @Benchmark
+    public long importToBank() throws IOException {
+        try (QuestionBankWriter writer = QuestionBankWriter.create(bank)) {
+            return QuestionImporter.importToBank(csv, ImportFormat.CSV, writer).getImportedCount();
+        }
+    }
+
+    /**
+     * CSVをメモリ上のリストへ取り込みます。
+     */
+    @Benchmark
+    public long importQuestions() throws IOException {
+        return QuestionImporter.importQuestions(csv, ImportFormat.CSV).getImportedCount();
+    }
+}
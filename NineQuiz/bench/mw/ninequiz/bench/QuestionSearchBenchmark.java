@@ -0,0 +1,84 @@
+package mw.ninequiz.bench;
+
+import mw.ninequiz.src.Question;
+import mw.ninequiz.src.QuestionMatch;
+import mw.ninequiz.src.QuestionSearchIndex;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 大きな問題バンクに対する{@link QuestionSearchIndex}の構築と問い合わせを計測します。
+ *
+ * @author Getaji
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class QuestionSearchBenchmark {
+
+    @Param({"1000000"})
+    public int bankSize;
+
+    private List<Question> bank;
+    private QuestionSearchIndex index;
+
+    /**
+     * スレッドごとの乱数です。
+     */
+    @State(Scope.Thread)
+    public static class ThreadState {
+        private final SplittableRandom random = new SplittableRandom();
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        bank = BenchmarkQuestions.createVaried(bankSize, 1);
+        index = QuestionSearchIndex.build(bank);
+    }
+
+    /**
+     * 問題バンク全体の索引を作ります。
+     */
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 1)
+    @Measurement(iterations = 3)
+    public long build() {
+        return QuestionSearchIndex.build(bank).getPostingBytes();
+    }
+
+    /**
+     * 問題文の一部を含む問題を探します。
+     */
+    @Benchmark
+    public int search(ThreadState state) {
+        final String statement = bank.get(state.random.nextInt(bankSize)).getQuestionStatement();
+        return index.search(statement.substring(0, Math.min(6, statement.length()))).length;
+    }
+
+    /**
+     * 無作為な問題に似た問題を探します。
+     */
+    @Benchmark
+    public List<QuestionMatch> findSimilar(ThreadState state) {
+        return index.findSimilar(state.random.nextInt(bankSize), 0.8, 10);
+    }
+}
@@ -0,0 +1,108 @@
+package mw.ninequiz.bench;
+
+import mw.ninequiz.src.JudgeRecord;
+import mw.ninequiz.src.JudgeType;
+import mw.ninequiz.src.NumberTemplate;
+import mw.ninequiz.src.QuizLogicData;
+import mw.ninequiz.src.QuizLogicHelper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link QuizLogicHelper}の書式化と{@link JudgeType}の文字列化を計測します。
+ *
+ * @author Getaji
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuizLogicHelperBenchmark {
+
+    private static final int JUDGE_COUNT = 9;
+
+    private static final JudgeType[] JUDGES = JudgeType.values();
+
+    private final QuizLogicData data = new QuizLogicData();
+    private final StringBuilder builder = new StringBuilder();
+    private final List<JudgeType> judgeList = new ArrayList<>();
+    private final JudgeRecord judgeRecord = new JudgeRecord(JUDGE_COUNT);
+    private final Object[] joined = {"○", "☓", "○", "○", "☓", "○", "○", "○", "☓"};
+
+    private NumberTemplate statementTemplate;
+    private NumberTemplate choiceTemplate;
+    private int number;
+
+    @Setup
+    public void setUp() {
+        for (int i = 0; i < JUDGE_COUNT; ++i) {
+            final JudgeType judge = (i % 3 == 0) ? JudgeType.INCORRECT : JudgeType.CORRECT;
+            judgeList.add(judge);
+            judgeRecord.record(judge, 1);
+        }
+        statementTemplate = NumberTemplate.compile(data.getQuestionNumberText());
+        choiceTemplate = NumberTemplate.compile(data.getQuestionChoiceNumberText());
+    }
+
+    @Benchmark
+    public String formatStatementNumber() {
+        return QuizLogicHelper.formatStatementNumber(nextNumber(), data.getQuestionNumberText());
+    }
+
+    @Benchmark
+    public String formatChoiceNumber() {
+        return QuizLogicHelper.formatChoiceNumber(nextNumber(), data.getQuestionChoiceNumberText());
+    }
+
+    @Benchmark
+    public StringBuilder templateStatementNumber() {
+        builder.setLength(0);
+        return statementTemplate.appendTo(builder, nextNumber());
+    }
+
+    @Benchmark
+    public StringBuilder templateChoiceNumber() {
+        builder.setLength(0);
+        return choiceTemplate.appendTo(builder, nextNumber());
+    }
+
+    @Benchmark
+    public String formatJudgesList() {
+        return QuizLogicHelper.formatJudges(judgeList, data);
+    }
+
+    @Benchmark
+    public String formatJudgesRecord() {
+        return QuizLogicHelper.formatJudges(judgeRecord, data);
+    }
+
+    @Benchmark
+    public String join() {
+        return QuizLogicHelper.join(", ", joined);
+    }
+
+    @Benchmark
+    public String judgeTypeToString() {
+        return JUDGES[number++ & 1].toString(data);
+    }
+
+    private int nextNumber() {
+        // 問題番号としてありうる1から9を巡回する
+        number = number % 9 + 1;
+        return number;
+    }
+}
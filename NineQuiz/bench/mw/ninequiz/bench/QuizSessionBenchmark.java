@@ -0,0 +1,111 @@
+package mw.ninequiz.bench;
+
+import mw.ninequiz.src.AnswerScript;
+import mw.ninequiz.src.JudgeType;
+import mw.ninequiz.src.MemoryQuizOutput;
+import mw.ninequiz.src.Question;
+import mw.ninequiz.src.QuizEngine;
+import mw.ninequiz.src.QuizLogic;
+import mw.ninequiz.src.QuizLogicData;
+import mw.ninequiz.src.QuizSession;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 1セッション分のクイズの進行を、入出力をメモリ上で行って計測します。
+ * {@code -prof gc}を付けて実行すると1セッションあたりの割り当て量が分かります。
+ *
+ * @author Getaji
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class QuizSessionBenchmark {
+
+    private static final int SCRIPT_SESSIONS = 1000;
+
+    @Param({"9", "100"})
+    public int questionCount;
+
+    private List<Question> questions;
+    private QuizLogicData data;
+    private int[] answers;
+    private AnswerScript script;
+    private QuizEngine engine;
+    private final MemoryQuizOutput output = MemoryQuizOutput.discarding();
+
+    @Setup
+    public void setUp() {
+        questions = BenchmarkQuestions.create(questionCount, 3);
+        data = new QuizLogicData();
+
+        final String answerText = BenchmarkQuestions.answers(questions);
+        answers = new int[questionCount];
+        final String[] lines = answerText.split("\n");
+        for (int i = 0; i < questionCount; ++i) {
+            answers[i] = Integer.parseInt(lines[i]);
+        }
+
+        // 1行1セッションで1000セッション分のスクリプト
+        final String line = String.join(" ", lines) + "\n";
+        final StringBuilder scriptText = new StringBuilder(line.length() * SCRIPT_SESSIONS);
+        for (int i = 0; i < SCRIPT_SESSIONS; ++i) {
+            scriptText.append(line);
+        }
+        script = AnswerScript.parse(ByteBuffer.wrap(
+                scriptText.toString().getBytes(StandardCharsets.US_ASCII)));
+        engine = QuizEngine.of(questions, data);
+    }
+
+    /**
+     * {@link QuizLogic}で1セッションを通して実行します。
+     */
+    @Benchmark
+    public int quizLogicSession() {
+        final QuizLogic logic = QuizLogic.of(questions, data, script.asAnswerSource(0), output);
+        logic.start();
+        return output.getFlushCount();
+    }
+
+    /**
+     * {@link QuizEngine}のセッションを共有フレームを描画しながら通して実行します。
+     */
+    @Benchmark
+    public void engineSession(Blackhole blackhole) {
+        final QuizSession session = engine.openSession();
+        for (int i = 0; !session.isFinished(); ++i) {
+            output.write(engine.getCurrentFrame(session));
+            final JudgeType judge = session.submitAnswer(answers[i]);
+            output.println(judge.toString(data));
+        }
+        blackhole.consume(session.getRecord().getCorrectCount());
+        engine.closeSession(session.getId());
+    }
+
+    /**
+     * 解答スクリプトの全セッションを{@link QuizEngine}上で実行します。
+     * 1回の呼び出しで{@value #SCRIPT_SESSIONS}セッション分の解答を判定します。
+     */
+    @Benchmark
+    public long scriptReplay() {
+        return script.replay(engine, false).getCorrectCount();
+    }
+}
@@ -0,0 +1,6 @@
+/**
+ * クイズの主要な処理を計測するJMHベンチマーク群です。
+ * {@code mvn -Pbench package}でビルドし、{@code java -jar target/benchmarks.jar -prof gc}で実行します。
+ * @author Getaji
+ */
+package mw.ninequiz.bench;
@@ -0,0 +1,175 @@
+package mw.ninequiz.src;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * プレイヤーの正誤に応じて次の問題を選ぶ、1セッション分の出題順を表すリストです。
+ *
+ * <p>目標の難易度を持ち、正解すると難しく、不正解だと易しくなるよう目標を動かします。
+ * 動かす幅は解答するごとに小さくなり、プレイヤーの実力付近に落ち着きます。
+ * 次の問題は{@link DifficultyIndex}から目標に最も近い未出題の問題が選ばれます。
+ *
+ * <p>問題は{@link #get(int)}で初めて要求されたときに選ばれます。
+ * 正誤は{@link DeckListener}として{@link QuizSession}から自動で伝えられるため、
+ * {@link QuizLogic}や{@link QuizEngine#openSession(java.util.List)}にそのまま渡して使えます。
+ * 選ばれた問題は記録され、以降は同じ問題が返されます。
+ *
+ * <p>このクラスはスレッドセーフではありません。1つのセッションでのみ使用してください。
+ *
+ * @author Getaji
+ */
+public class AdaptiveDeck extends AbstractList<Question>
+        implements RandomAccess, BankIndexedList, DeckListener {
+
+    /** 目標の難易度の既定の初期値。 */
+    public static final double DEFAULT_START_DIFFICULTY = 0.5;
+
+    /** 目標を動かす幅の既定の初期値。 */
+    public static final double DEFAULT_STEP = 0.2;
+
+    /** 目標を動かす幅の下限。 */
+    private static final double MIN_STEP = 0.02;
+
+    /**
+     * すべてのタグからk問を出題するデッキを返します。
+     *
+     * @param index 索引
+     * @param k 出題する問題数
+     * @throws IllegalArgumentException kが負または問題数より大きい場合に送出
+     * @return デッキ
+     */
+    public static AdaptiveDeck of(DifficultyIndex index, int k) {
+        return of(index, k, DifficultyIndex.ANY_TAG, DEFAULT_START_DIFFICULTY);
+    }
+
+    /**
+     * タグと目標の難易度の初期値を指定してk問を出題するデッキを返します。
+     *
+     * @param index 索引
+     * @param k 出題する問題数
+     * @param tag タグ。{@link DifficultyIndex#ANY_TAG}の場合はすべてのタグから選ぶ
+     * @param startDifficulty 目標の難易度の初期値
+     * @throws NullPointerException 索引がnullの場合に送出
+     * @throws IllegalArgumentException kが負またはタグの問題数より大きい場合に送出
+     * @return デッキ
+     */
+    public static AdaptiveDeck of(DifficultyIndex index, int k, int tag, double startDifficulty) {
+        if (index == null) {
+            throw new NullPointerException("take index is null");
+        }
+
+        if (k < 0 || index.countOf(tag) < k) {
+            throw new IllegalArgumentException("take k is out of range: " + k);
+        }
+        return new AdaptiveDeck(index, k, tag, startDifficulty);
+    }
+
+    private final DifficultyIndex index;
+    private final int tag;
+    private final SeenBitmap seen;
+    private final int[] positions;
+    private final Question[] chosen;
+    private int chosenCount;
+    private int judgedCount;
+    private double target;
+
+    private AdaptiveDeck(DifficultyIndex index, int k, int tag, double startDifficulty) {
+        this.index = index;
+        this.tag = tag;
+        this.seen = new SeenBitmap(index.size());
+        this.positions = new int[k];
+        this.chosen = new Question[k];
+        this.target = Math.max(0.0, Math.min(1.0, startDifficulty));
+    }
+
+    /**
+     * 指定した位置の問題を返します。まだ選ばれていない場合は、現在の目標に従って選ばれます。
+     *
+     * @param i 位置
+     * @throws IndexOutOfBoundsException 位置が範囲外の場合に送出
+     * @return 問題
+     */
+    @Override
+    public Question get(int i) {
+        if (i < 0 || chosen.length <= i) {
+            throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + chosen.length);
+        }
+
+        while (chosenCount <= i) {
+            final int position = index.nearest(target, tag, seen);
+            seen.set(position);
+            positions[chosenCount] = position;
+            chosen[chosenCount] = index.getQuestion(position);
+            ++chosenCount;
+        }
+        return chosen[i];
+    }
+
+    /**
+     * 判定結果を伝え、目標の難易度を動かします。
+     * {@link QuizSession}で使用している場合は自動で呼ばれるため、呼び出す必要はありません。
+     * 既に伝えた位置や、選ばれていない位置の結果は無視されます。
+     *
+     * @param i 判定した問題の位置
+     * @param judge 判定結果
+     */
+    @Override
+    public void onJudged(int i, JudgeType judge) {
+        if (i != judgedCount || chosenCount <= i) {
+            return;
+        }
+
+        final double step = Math.max(MIN_STEP, DEFAULT_STEP / Math.sqrt(judgedCount + 1));
+        final double moved = (judge == JudgeType.CORRECT) ? target + step : target - step;
+        target = Math.max(0.0, Math.min(1.0, moved));
+        ++judgedCount;
+    }
+
+    /**
+     * 現在の目標の難易度を返します。
+     *
+     * @return 難易度
+     */
+    public double getTargetDifficulty() {
+        return target;
+    }
+
+    /**
+     * 指定した位置の問題の、問題バンクのインデックスを返します。
+     *
+     * @param i 位置
+     * @throws IndexOutOfBoundsException 位置が範囲外の場合に送出
+     * @return 問題バンクのインデックス
+     */
+    @Override
+    public int getBankIndex(int i) {
+        get(i);
+        return index.getBankIndex(positions[i]);
+    }
+
+    /**
+     * 問題を選んだ元の問題バンクを返します。
+     *
+     * @return 問題バンク
+     */
+    @Override
+    public List<Question> getBank() {
+        return index.getBank();
+    }
+
+    /**
+     * 使用している索引を返します。
+     *
+     * @return 索引
+     */
+    public DifficultyIndex getIndex() {
+        return index;
+    }
+
+    @Override
+    public int size() {
+        return chosen.length;
+    }
+}
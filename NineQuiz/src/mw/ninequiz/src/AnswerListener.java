@@ -0,0 +1,50 @@
+package mw.ninequiz.src;
+
+/**
+ * 解答が判定されたときに通知を受け取るインターフェースです。
+ * 通知は解答を判定したスレッドで、{@link QuizSession}が次の問題へ進んだ後に行われます。
+ *
+ * <p>解答の処理を遅らせないよう、実装は素早く戻りロックを取らないようにしてください。
+ *
+ * @author Getaji
+ */
+@FunctionalInterface
+public interface AnswerListener {
+
+    /** 何もしないリスナー。 */
+    AnswerListener NONE = (session, questionIndex, question, userAnswer, judge, thinkNanos) -> {};
+
+    /**
+     * 解答が判定されたときに呼ばれます。
+     *
+     * @param session セッション
+     * @param questionIndex 解答した問題のインデックス。0から始まる
+     * @param question 解答した問題
+     * @param userAnswer 解答
+     * @param judge 判定結果
+     * @param thinkNanos 問題が表示されてから解答されるまでのナノ秒。表示時刻が不明な場合は負の値
+     */
+    void onAnswer(QuizSession session, int questionIndex, Question question,
+                  int userAnswer, JudgeType judge, long thinkNanos);
+
+    /**
+     * 2つのリスナーに順に通知するリスナーを返します。
+     *
+     * @param first 先に通知するリスナー
+     * @param second 後に通知するリスナー
+     * @return 合成したリスナー
+     */
+    static AnswerListener both(AnswerListener first, AnswerListener second) {
+        if (first == NONE) {
+            return second;
+        }
+
+        if (second == NONE) {
+            return first;
+        }
+        return (session, questionIndex, question, userAnswer, judge, thinkNanos) -> {
+            first.onAnswer(session, questionIndex, question, userAnswer, judge, thinkNanos);
+            second.onAnswer(session, questionIndex, question, userAnswer, judge, thinkNanos);
+        };
+    }
+}
@@ -0,0 +1,284 @@
+package mw.ninequiz.src;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 解答の記録ファイルへレコードをまとめて書き込むクラスです。
+ *
+ * <p>レコードはロックの中でバッファに追加されるだけで、書き込みは専用のスレッドが行います。
+ * 書き込み中に追加されたレコードは次の書き込みにまとめられるため、
+ * 同期を待つ間もレコードの追加は止まりません。
+ * バッファが一杯になった場合、追加は書き込みが追いつくまで待ちます。
+ *
+ * @author Getaji
+ * @see SessionJournal
+ */
+final class AnswerLogWriter implements Closeable {
+
+    private static final int BATCH_CAPACITY = JournalFormat.RECORD_SIZE * 4096;
+
+    private final FsyncPolicy policy;
+    private final long syncIntervalNanos;
+    private final Object lock = new Object();
+    private final Thread flusher;
+
+    // 以下はlockで保護される
+    private ByteBuffer filling = ByteBuffer.allocateDirect(BATCH_CAPACITY);
+    private ByteBuffer spare = ByteBuffer.allocateDirect(BATCH_CAPACITY);
+    private CompletableFuture<Void> fillingDone = new CompletableFuture<>();
+    private FileChannel nextChannel;
+    private CompletableFuture<Void> rotated;
+    private boolean closed;
+    private IOException failure;
+
+    // 以下は書き込みスレッドのみが操作する
+    private FileChannel channel;
+    private long lastSync = System.nanoTime();
+    private boolean dirty;
+
+    /**
+     * インスタンスを生成し、書き込みスレッドを開始します。
+     *
+     * @param channel 書き込み先。ヘッダは書き込み済みである必要がある
+     * @param policy 同期の方針
+     * @param syncInterval {@link FsyncPolicy#INTERVAL}の場合の同期の間隔
+     * @param unit 間隔の単位
+     */
+    AnswerLogWriter(FileChannel channel, FsyncPolicy policy, long syncInterval, TimeUnit unit) {
+        this.channel = channel;
+        this.policy = policy;
+        this.syncIntervalNanos = unit.toNanos(syncInterval);
+        this.flusher = new Thread(this::flushLoop, "answer-log-writer");
+        flusher.setDaemon(true);
+        flusher.start();
+    }
+
+    /**
+     * レコードを追加します。
+     *
+     * @param type 種類
+     * @param sessionId セッションID
+     * @param questionIndex 問題のインデックス
+     * @param answer 解答
+     * @param judge 判定結果の序数
+     * @return レコードを含む書き込みが終わると完了するFuture。
+     *         {@link FsyncPolicy#ALWAYS}の場合は同期後に完了する
+     */
+    CompletableFuture<Void> append(byte type, long sessionId, int questionIndex, int answer,
+                                   byte judge) {
+        synchronized (lock) {
+            while (filling.remaining() < JournalFormat.RECORD_SIZE && !closed) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return failed(new IOException("Interrupted while waiting for the answer log"));
+                }
+            }
+
+            if (closed) {
+                return failed((failure != null) ? failure
+                        : new IOException("Answer log is closed"));
+            }
+
+            filling.putLong(sessionId)
+                    .putInt(questionIndex)
+                    .putInt(answer)
+                    .put(type)
+                    .put(judge)
+                    .putShort((short) 0)
+                    .putInt(JournalFormat.check(sessionId, questionIndex, answer, type, judge));
+            if (filling.position() == JournalFormat.RECORD_SIZE) {
+                lock.notifyAll();
+            }
+            return fillingDone;
+        }
+    }
+
+    /**
+     * 書き込み先を切り替えます。
+     * このメソッドが返した後に追加されたレコードは、新しい書き込み先に書き込まれます。
+     *
+     * @param next 新しい書き込み先。ヘッダは書き込み済みである必要がある
+     * @return 古い書き込み先へのすべての書き込みと同期が終わり、閉じられると完了するFuture
+     */
+    CompletableFuture<Void> rotate(FileChannel next) {
+        synchronized (lock) {
+            if (closed) {
+                return failed((failure != null) ? failure
+                        : new IOException("Answer log is closed"));
+            }
+
+            final CompletableFuture<Void> future = new CompletableFuture<>();
+            nextChannel = next;
+            rotated = future;
+            lock.notifyAll();
+
+            // 書き込みスレッドが切り替えを引き受けるまで待つ
+            while (nextChannel != null && !closed) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+            return future;
+        }
+    }
+
+    /**
+     * 残りのレコードを書き込んで同期し、書き込み先を閉じます。
+     *
+     * @throws IOException 書き込みに失敗していた場合に送出
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (lock) {
+            closed = true;
+            lock.notifyAll();
+        }
+
+        try {
+            flusher.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        synchronized (lock) {
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            final ByteBuffer batch;
+            final CompletableFuture<Void> done;
+            final FileChannel switchTo;
+            final CompletableFuture<Void> switched;
+            final boolean closing;
+            synchronized (lock) {
+                while (filling.position() == 0 && nextChannel == null && !closed) {
+                    final long wait = waitNanos();
+                    if (wait == 0) {
+                        break;
+                    }
+                    try {
+                        if (wait < 0) {
+                            lock.wait();
+                        } else {
+                            TimeUnit.NANOSECONDS.timedWait(lock, wait);
+                        }
+                    } catch (InterruptedException e) {
+                        // 閉じられるまで書き込みを続ける
+                    }
+                }
+
+                batch = filling;
+                filling = spare;
+                spare = null;
+                done = fillingDone;
+                fillingDone = new CompletableFuture<>();
+                switchTo = nextChannel;
+                switched = rotated;
+                nextChannel = null;
+                rotated = null;
+                closing = closed;
+                lock.notifyAll();
+            }
+
+            try {
+                batch.flip();
+                if (batch.hasRemaining()) {
+                    dirty = true;
+                }
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                batch.clear();
+
+                final long now = System.nanoTime();
+                if (dirty && (policy == FsyncPolicy.ALWAYS
+                        || (policy == FsyncPolicy.INTERVAL && now - lastSync >= syncIntervalNanos)
+                        || switchTo != null || closing)) {
+                    channel.force(false);
+                    lastSync = now;
+                    dirty = false;
+                }
+                done.complete(null);
+
+                if (switchTo != null) {
+                    channel.close();
+                    channel = switchTo;
+                    switched.complete(null);
+                }
+
+                if (closing) {
+                    channel.close();
+                    return;
+                }
+            } catch (IOException e) {
+                fail(e, done, switched, switchTo);
+                return;
+            }
+
+            synchronized (lock) {
+                spare = batch;
+            }
+        }
+    }
+
+    /**
+     * 書き込むものがない場合に待つ時間を返します。
+     *
+     * @return 待つナノ秒。すぐに同期する場合は0、通知まで待つ場合は負の値
+     */
+    private long waitNanos() {
+        if (!dirty || policy != FsyncPolicy.INTERVAL) {
+            return -1;
+        }
+        return Math.max(0, lastSync + syncIntervalNanos - System.nanoTime());
+    }
+
+    private void fail(IOException e, CompletableFuture<Void> done,
+                      CompletableFuture<Void> switched, FileChannel switchTo) {
+        final CompletableFuture<Void> pending;
+        synchronized (lock) {
+            failure = e;
+            closed = true;
+            pending = fillingDone;
+            lock.notifyAll();
+        }
+
+        done.completeExceptionally(e);
+        pending.completeExceptionally(e);
+        if (switched != null) {
+            switched.completeExceptionally(e);
+        }
+        closeQuietly(channel);
+        if (switchTo != null) {
+            closeQuietly(switchTo);
+        }
+    }
+
+    private static void closeQuietly(FileChannel fileChannel) {
+        try {
+            fileChannel.close();
+        } catch (IOException ignored) {
+            // 閉じる際の失敗は無視する
+        }
+    }
+
+    private static CompletableFuture<Void> failed(IOException e) {
+        final CompletableFuture<Void> future = new CompletableFuture<>();
+        future.completeExceptionally(e);
+        return future;
+    }
+}
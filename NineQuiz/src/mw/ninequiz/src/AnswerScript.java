@@ -0,0 +1,267 @@
+package mw.ninequiz.src;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+
+/**
+ * 解答スクリプトを表すクラスです。このクラスは読み込み後は不変です。
+ * スクリプトは1行が1セッションに対応し、解答を空白かカンマで区切って並べます。
+ * 負荷試験や再現のため、{@link #replay(QuizEngine, boolean)}でまとめて実行できます。
+ *
+ * <p>解答はすべて1つの{@code int}配列に詰めて保持し、行ごとには開始位置のみを持ちます。
+ * 数値として読み取れなかった解答は{@link AsciiIntParser#INVALID}として保持され、不正解になります。
+ *
+ * @author Getaji
+ */
+public class AnswerScript {
+
+    /**
+     * スクリプトの実行結果です。このクラスは不変です。
+     */
+    public static final class ReplayResult {
+        private final int sessionCount;
+        private final long answerCount;
+        private final long correctCount;
+        private final long elapsedNanos;
+
+        private ReplayResult(int sessionCount, long answerCount, long correctCount,
+                             long elapsedNanos) {
+            this.sessionCount = sessionCount;
+            this.answerCount = answerCount;
+            this.correctCount = correctCount;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * 実行したセッション数を返します。
+         *
+         * @return セッション数
+         */
+        public int getSessionCount() {
+            return sessionCount;
+        }
+
+        /**
+         * 判定した解答数を返します。
+         *
+         * @return 解答数
+         */
+        public long getAnswerCount() {
+            return answerCount;
+        }
+
+        /**
+         * 正解数を返します。
+         *
+         * @return 正解数
+         */
+        public long getCorrectCount() {
+            return correctCount;
+        }
+
+        /**
+         * 実行にかかった時間をナノ秒で返します。
+         *
+         * @return ナノ秒
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * 1秒あたりの解答数を返します。
+         *
+         * @return 1秒あたりの解答数
+         */
+        public double getAnswersPerSecond() {
+            return (elapsedNanos == 0) ? 0 : answerCount * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("ReplayResult{sessions:%d answers:%d correct:%d answers/s:%.0f}",
+                    sessionCount, answerCount, correctCount, getAnswersPerSecond());
+        }
+    }
+
+    /**
+     * ファイルからスクリプトを読み込みます。ファイルはメモリマップして解析されます。
+     *
+     * @param path ファイル
+     * @throws IOException 読み込みに失敗した場合に送出
+     * @return スクリプト
+     */
+    public static AnswerScript load(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Answer script is too large to map: " + size + " bytes");
+            }
+            return parse(channel.map(FileChannel.MapMode.READ_ONLY, 0, size));
+        }
+    }
+
+    /**
+     * バッファの位置から上限までをスクリプトとして解析します。バッファの位置は上限まで進みます。
+     * 空行はセッションとして扱いません。
+     *
+     * @param buffer バッファ
+     * @return スクリプト
+     */
+    public static AnswerScript parse(ByteBuffer buffer) {
+        int[] answers = new int[1024];
+        int[] lineStarts = new int[64];
+        int answerCount = 0;
+        int lineCount = 0;
+
+        final int limit = buffer.limit();
+        while (buffer.hasRemaining()) {
+            final int lineStart = buffer.position();
+            int lineEnd = lineStart;
+            while (lineEnd < limit && buffer.get(lineEnd) != '\n') {
+                ++lineEnd;
+            }
+
+            final int firstAnswer = answerCount;
+            buffer.limit(lineEnd);
+            int answer;
+            while ((answer = AsciiIntParser.parseNext(buffer)) != AsciiIntParser.END) {
+                if (answerCount == answers.length) {
+                    answers = Arrays.copyOf(answers, answerCount * 2);
+                }
+                answers[answerCount++] = answer;
+            }
+            buffer.limit(limit);
+            buffer.position(Math.min(limit, lineEnd + 1));
+
+            if (answerCount == firstAnswer) {
+                continue;
+            }
+
+            if (lineCount + 1 >= lineStarts.length) {
+                lineStarts = Arrays.copyOf(lineStarts, lineStarts.length * 2);
+            }
+            lineStarts[lineCount++] = firstAnswer;
+        }
+        lineStarts[lineCount] = answerCount;
+
+        return new AnswerScript(Arrays.copyOf(answers, answerCount),
+                Arrays.copyOf(lineStarts, lineCount + 1));
+    }
+
+    private final int[] answers;
+
+    // 各セッションの最初の解答の位置。最後の要素は解答の総数
+    private final int[] sessionStarts;
+
+    private AnswerScript(int[] answers, int[] sessionStarts) {
+        this.answers = answers;
+        this.sessionStarts = sessionStarts;
+    }
+
+    /**
+     * すべてのセッションをエンジン上で実行します。
+     * 各セッションは問題数か解答数の少ない方まで進められ、終わると閉じられます。
+     *
+     * @param engine エンジン
+     * @param parallel セッションを並列に実行する場合はtrue
+     * @return 実行結果
+     */
+    public ReplayResult replay(QuizEngine engine, boolean parallel) {
+        final LongAdder answered = new LongAdder();
+        final LongAdder corrects = new LongAdder();
+        final long start = System.nanoTime();
+
+        IntStream range = IntStream.range(0, getSessionCount());
+        if (parallel) {
+            range = range.parallel();
+        }
+        range.forEach(scriptIndex -> {
+            final QuizSession session = engine.openSession();
+            int at = sessionStarts[scriptIndex];
+            final int end = sessionStarts[scriptIndex + 1];
+            while (at < end && !session.isFinished()) {
+                session.submitAnswer(answers[at++]);
+            }
+            answered.add(at - sessionStarts[scriptIndex]);
+            corrects.add(session.getRecord().getCorrectCount());
+            engine.closeSession(session.getId());
+        });
+
+        return new ReplayResult(getSessionCount(), answered.sum(), corrects.sum(),
+                System.nanoTime() - start);
+    }
+
+    /**
+     * 1セッション分の解答を順に返す入力元を返します。
+     * 解答はすぐに完了し、解答が尽きると{@link EOFException}で完了します。
+     *
+     * @param scriptIndex セッションのインデックス。0から始まる
+     * @throws IndexOutOfBoundsException インデックスが範囲外の場合に送出
+     * @return 入力元
+     */
+    public AnswerSource asAnswerSource(int scriptIndex) {
+        final int end = sessionStarts[scriptIndex + 1];
+        final int[] next = {sessionStarts[scriptIndex]};
+        return new AnswerSource() {
+            @Override
+            public CompletableFuture<Integer> requestAnswer(QuizSession session, Question question) {
+                final CompletableFuture<Integer> future = new CompletableFuture<>();
+                if (next[0] < end) {
+                    future.complete(answers[next[0]++]);
+                } else {
+                    future.completeExceptionally(new EOFException("Answer script is ended"));
+                }
+                return future;
+            }
+
+            @Override
+            public void close() {
+                next[0] = end;
+            }
+        };
+    }
+
+    /**
+     * セッション数を返します。
+     *
+     * @return セッション数
+     */
+    public int getSessionCount() {
+        return sessionStarts.length - 1;
+    }
+
+    /**
+     * セッションの解答数を返します。
+     *
+     * @param scriptIndex セッションのインデックス。0から始まる
+     * @throws IndexOutOfBoundsException インデックスが範囲外の場合に送出
+     * @return 解答数
+     */
+    public int getAnswerCount(int scriptIndex) {
+        return sessionStarts[scriptIndex + 1] - sessionStarts[scriptIndex];
+    }
+
+    /**
+     * セッションの解答を返します。
+     *
+     * @param scriptIndex セッションのインデックス。0から始まる
+     * @param answerIndex 解答のインデックス。0から始まる
+     * @throws IndexOutOfBoundsException インデックスが範囲外の場合に送出
+     * @return 解答
+     */
+    public int getAnswer(int scriptIndex, int answerIndex) {
+        if (answerIndex < 0 || getAnswerCount(scriptIndex) <= answerIndex) {
+            throw new IndexOutOfBoundsException("Answer index is out of bounds: " + answerIndex);
+        }
+        return answers[sessionStarts[scriptIndex] + answerIndex];
+    }
+}
@@ -0,0 +1,48 @@
+package mw.ninequiz.src;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 解答の入力元を表すインターフェースです。
+ * 解答は非同期に要求され、{@link CompletableFuture}で受け取ります。
+ *
+ * <p>入力が数値として読み取れなかった場合は{@link AsciiIntParser#INVALID}、
+ * 時間切れなどで解答がなかった場合は{@link #NO_ANSWER}で完了します。
+ * 入力が終端に達した場合は{@link java.io.EOFException}で例外的に完了します。
+ *
+ * @author Getaji
+ */
+public interface AnswerSource extends AutoCloseable {
+
+    /**
+     * 解答がなかったことを表す値。どの選択肢とも一致しないため不正解として判定される。
+     * {@link AsciiIntParser}はこの値を返さないため、入力された数値と取り違えることはない。
+     */
+    int NO_ANSWER = AsciiIntParser.RESERVED_MAX;
+
+    /**
+     * 出題中の問題への解答を要求します。
+     *
+     * @param session セッション
+     * @param question 問題
+     * @return 解答のFuture
+     */
+    CompletableFuture<Integer> requestAnswer(QuizSession session, Question question);
+
+    /**
+     * 入力元を閉じます。
+     */
+    @Override
+    void close();
+
+    /**
+     * 解答が問題の選択肢の範囲内かどうかを返します。
+     *
+     * @param question 問題
+     * @param answer 解答
+     * @return 選択肢の範囲内であればtrue
+     */
+    static boolean isValidAnswer(Question question, int answer) {
+        return 1 <= answer && answer <= question.getChoiceCount();
+    }
+}
@@ -0,0 +1,112 @@
+package mw.ninequiz.src;
+
+import java.nio.ByteBuffer;
+
+/**
+ * ASCIIで書かれた10進数の整数をバイト列から直接読み取るクラスです。
+ * 文字列やオブジェクトを生成しません。
+ *
+ * <p>数値は空白、タブ、カンマ、改行で区切られます。
+ * 読み取れなかった場合は例外を送出せず、{@link #INVALID}や{@link #END}を返します。
+ * {@link Integer#MIN_VALUE}から{@link #RESERVED_MAX}までの値は、これらと{@link AnswerSource#NO_ANSWER}のために予約されており、
+ * 数値としては返されません。
+ *
+ * @author Getaji
+ */
+public class AsciiIntParser {
+
+    /** 予約された値の最大値。これ以下の数値は範囲外として扱う。 */
+    public static final int RESERVED_MAX = Integer.MIN_VALUE + 2;
+
+    /** 数値として読み取れなかったことを表す値。 */
+    public static final int INVALID = Integer.MIN_VALUE;
+
+    /** 読み取る数値がなかったことを表す値。 */
+    public static final int END = Integer.MIN_VALUE + 1;
+
+    private AsciiIntParser() {}
+
+    /**
+     * バッファの位置から次の数値を読み取り、位置を数値の直後へ進めます。
+     * 先頭の区切り文字は読み飛ばします。
+     * 数字以外を含む語は読み飛ばして{@link #INVALID}を返します。
+     *
+     * @param buffer バッファ
+     * @return 数値。数値でなければ{@link #INVALID}、残りがなければ{@link #END}
+     */
+    public static int parseNext(ByteBuffer buffer) {
+        int position = buffer.position();
+        final int limit = buffer.limit();
+        while (position < limit && isSeparator(buffer.get(position))) {
+            ++position;
+        }
+
+        if (position == limit) {
+            buffer.position(position);
+            return END;
+        }
+
+        int end = position;
+        while (end < limit && !isSeparator(buffer.get(end))) {
+            ++end;
+        }
+        buffer.position(end);
+        return parse(buffer, position, end);
+    }
+
+    /**
+     * バッファの指定した範囲を1つの数値として読み取ります。
+     * 範囲の前後の空白とタブ、末尾の{@code '\r'}は無視します。バッファの位置は変わりません。
+     *
+     * @param buffer バッファ
+     * @param from 開始位置
+     * @param to 終了位置。この位置は含まない
+     * @return 数値。数値でなければ{@link #INVALID}、空であれば{@link #END}
+     */
+    public static int parse(ByteBuffer buffer, int from, int to) {
+        int start = from;
+        int end = to;
+        while (start < end && isBlank(buffer.get(start))) {
+            ++start;
+        }
+        while (start < end && (isBlank(buffer.get(end - 1)) || buffer.get(end - 1) == '\r')) {
+            --end;
+        }
+
+        if (start == end) {
+            return END;
+        }
+
+        boolean negative = false;
+        final byte sign = buffer.get(start);
+        if (sign == '-' || sign == '+') {
+            negative = sign == '-';
+            if (++start == end) {
+                return INVALID;
+            }
+        }
+
+        long value = 0;
+        for (int i = start; i < end; ++i) {
+            final int digit = buffer.get(i) - '0';
+            if (digit < 0 || 9 < digit) {
+                return INVALID;
+            }
+
+            value = value * 10 + digit;
+            // 予約された値は数値として使えないため、それらと重なる値も範囲外とする
+            if (value > Integer.MAX_VALUE || (negative && -value <= RESERVED_MAX)) {
+                return INVALID;
+            }
+        }
+        return (int) (negative ? -value : value);
+    }
+
+    private static boolean isSeparator(byte b) {
+        return isBlank(b) || b == ',' || b == '\n' || b == '\r';
+    }
+
+    private static boolean isBlank(byte b) {
+        return b == ' ' || b == '\t';
+    }
+}
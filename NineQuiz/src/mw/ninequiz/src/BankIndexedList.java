@@ -0,0 +1,30 @@
+package mw.ninequiz.src;
+
+import java.util.List;
+
+/**
+ * 共有の問題バンクから問題を選んで並べたリストが実装するインターフェースです。
+ * 並べた位置から問題バンク上のインデックスを引けるため、
+ * 問題のインスタンスが毎回作られる場合でも問題を区別できます。
+ *
+ * @author Getaji
+ * @see QuizSession#getBankIndex(int)
+ */
+interface BankIndexedList {
+
+    /**
+     * 問題を選んだ元の問題バンクを返します。
+     *
+     * @return 問題バンク
+     */
+    List<Question> getBank();
+
+    /**
+     * 出題する問題の問題バンク上のインデックスを返します。
+     *
+     * @param index 出題順のインデックス。0から始まる
+     * @throws IndexOutOfBoundsException インデックスが範囲外の場合に送出
+     * @return 問題バンク上のインデックス
+     */
+    int getBankIndex(int index);
+}
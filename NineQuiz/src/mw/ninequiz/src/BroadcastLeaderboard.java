@@ -0,0 +1,132 @@
+package mw.ninequiz.src;
+
+import java.util.Arrays;
+
+/**
+ * {@link BroadcastQuiz}のある時点の順位表を表すクラスです。このクラスは不変です。
+ * 順位は得点の高い順で、同じ得点の参加者は同じ順位になります。
+ *
+ * <p>得点は出題数を超えないため、得点ごとの人数を数えて作ります。
+ * 作成は参加者数に比例する時間で終わり、順位の取得は定数時間です。
+ *
+ * @author Getaji
+ */
+public final class BroadcastLeaderboard {
+
+    /** 上位として保持する参加者の既定の数。 */
+    public static final int DEFAULT_TOP_COUNT = 10;
+
+    /**
+     * 得点の配列から順位表を作ります。
+     * 上位の参加者は得点の高い順で、同じ得点の場合は参加した順です。
+     *
+     * @param scores 参加者ごとの得点。コピーされる
+     * @param participantCount 参加者数
+     * @param maxScore 得点の上限
+     * @param topCount 上位として保持する参加者の数
+     * @return 順位表
+     */
+    static BroadcastLeaderboard of(int[] scores, int participantCount, int maxScore,
+                                   int topCount) {
+        final int[] copied = Arrays.copyOf(scores, participantCount);
+
+        // higherCounts[s]は得点がsより高い参加者の数
+        final int[] higherCounts = new int[maxScore + 1];
+        for (int score : copied) {
+            ++higherCounts[score];
+        }
+        int above = 0;
+        for (int score = maxScore; score >= 0; --score) {
+            final int count = higherCounts[score];
+            higherCounts[score] = above;
+            above += count;
+        }
+
+        final int top = Math.min(topCount, participantCount);
+        final int[] topParticipants = new int[top];
+        if (top > 0) {
+            final int[] next = Arrays.copyOf(higherCounts, higherCounts.length);
+            for (int id = 0; id < participantCount; ++id) {
+                final int slot = next[copied[id]]++;
+                if (slot < top) {
+                    topParticipants[slot] = id;
+                }
+            }
+        }
+        return new BroadcastLeaderboard(copied, higherCounts, topParticipants);
+    }
+
+    private final int[] scores;
+    private final int[] higherCounts;
+    private final int[] topParticipants;
+
+    private BroadcastLeaderboard(int[] scores, int[] higherCounts, int[] topParticipants) {
+        this.scores = scores;
+        this.higherCounts = higherCounts;
+        this.topParticipants = topParticipants;
+    }
+
+    /**
+     * 参加者数を返します。
+     *
+     * @return 参加者数
+     */
+    public int getParticipantCount() {
+        return scores.length;
+    }
+
+    /**
+     * 参加者の得点を返します。
+     *
+     * @param participantId 参加者ID
+     * @throws IndexOutOfBoundsException IDが範囲外の場合に送出
+     * @return 得点
+     */
+    public int getScore(int participantId) {
+        return scores[participantId];
+    }
+
+    /**
+     * 参加者の順位を返します。
+     *
+     * @param participantId 参加者ID
+     * @throws IndexOutOfBoundsException IDが範囲外の場合に送出
+     * @return 順位。1から始まる
+     */
+    public int getRank(int participantId) {
+        return higherCounts[scores[participantId]] + 1;
+    }
+
+    /**
+     * 保持している上位の参加者の数を返します。
+     *
+     * @return 上位の参加者の数
+     */
+    public int getTopCount() {
+        return topParticipants.length;
+    }
+
+    /**
+     * 上位の参加者のIDを返します。
+     *
+     * @param index 上位から数えたインデックス。0から始まる
+     * @throws IndexOutOfBoundsException インデックスが範囲外の場合に送出
+     * @return 参加者ID
+     */
+    public int getTopParticipant(int index) {
+        return topParticipants[index];
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder builder = new StringBuilder("BroadcastLeaderboard{");
+        for (int i = 0; i < topParticipants.length; ++i) {
+            if (i > 0) {
+                builder.append(", ");
+            }
+            final int id = topParticipants[i];
+            builder.append(getRank(id)).append(':').append(id).append('=').append(scores[id]);
+        }
+        return builder.append('}').toString();
+    }
+}
@@ -0,0 +1,61 @@
+package mw.ninequiz.src;
+
+/**
+ * {@link BroadcastQuiz}のラウンドの開始と終了の通知を受け取るインターフェースです。
+ * 通知はラウンドを開始または終了したスレッドで行われます。
+ *
+ * <p>開始の通知で渡されるフレームはすべての参加者で共有されます。
+ * 参加者への配信は実装側で行ってください。
+ *
+ * @author Getaji
+ */
+public interface BroadcastListener {
+
+    /** 何もしないリスナー。 */
+    BroadcastListener NONE = new BroadcastListener() {};
+
+    /**
+     * ラウンドが開始され、解答の受け付けが始まったときに呼ばれます。
+     *
+     * @param round ラウンドのインデックス。0から始まる
+     * @param frame 出題する問題のフレーム
+     */
+    default void onRoundOpen(int round, QuestionFrame frame) {}
+
+    /**
+     * ラウンドが終了し、解答がすべて判定されたときに呼ばれます。
+     *
+     * @param result ラウンドの結果
+     */
+    default void onRoundClose(RoundResult result) {}
+
+    /**
+     * 2つのリスナーに順に通知するリスナーを返します。
+     *
+     * @param first 先に通知するリスナー
+     * @param second 後に通知するリスナー
+     * @return 合成したリスナー
+     */
+    static BroadcastListener both(BroadcastListener first, BroadcastListener second) {
+        if (first == NONE) {
+            return second;
+        }
+
+        if (second == NONE) {
+            return first;
+        }
+        return new BroadcastListener() {
+            @Override
+            public void onRoundOpen(int round, QuestionFrame frame) {
+                first.onRoundOpen(round, frame);
+                second.onRoundOpen(round, frame);
+            }
+
+            @Override
+            public void onRoundClose(RoundResult result) {
+                first.onRoundClose(result);
+                second.onRoundClose(result);
+            }
+        };
+    }
+}
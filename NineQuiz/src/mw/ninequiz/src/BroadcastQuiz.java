@@ -0,0 +1,342 @@
+package mw.ninequiz.src;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * すべての参加者に同じ問題を同時に出題する生放送形式のクイズです。
+ * 問題は1ラウンドに1問ずつ出題され、ラウンドのフレームは1度だけ描画されて全員で共有されます。
+ *
+ * <p>解答は{@link #submit(int, int)}でどのスレッドからでもロックなしで受け付けます。
+ * 各参加者の解答はラウンド番号と合わせて1つの{@code long}に詰めて保持し、
+ * 最初の解答だけがCASで書き込まれます。
+ * ラウンドを閉じると全参加者の解答をまとめて判定し、{@link RoundResult}と順位表を公開します。
+ *
+ * <p>ラウンドの開始と終了は{@link #openNextRound()}と{@link #closeRound()}で行うか、
+ * {@link #start(ScheduledExecutorService, long, TimeUnit)}で一定間隔に任せます。
+ *
+ * @author Getaji
+ */
+public class BroadcastQuiz {
+
+    /**
+     * 問題のコレクションとロジックデータ、参加者数の上限を受け取りインスタンスを生成します。
+     *
+     * @param questions 問題のコレクション
+     * @param data ロジックデータ
+     * @param maxParticipants 参加者数の上限
+     * @throws NullPointerException 問題のコレクションかロジックデータがnullの場合に送出
+     * @throws IllegalArgumentException 参加者数の上限が正でない場合に送出
+     * @return インスタンス
+     */
+    public static BroadcastQuiz of(Collection<Question> questions, QuizLogicData data,
+                                   int maxParticipants) {
+        if (questions == null) {
+            throw new NullPointerException("take questions is null");
+        }
+
+        if (data == null) {
+            throw new NullPointerException("take data is null");
+        }
+
+        if (maxParticipants <= 0) {
+            throw new IllegalArgumentException("take max participants is not positive");
+        }
+        return new BroadcastQuiz(QuizLogicHelper.toSharedList(questions), data, maxParticipants);
+    }
+
+    /**
+     * 受け付け中のラウンドです。
+     */
+    private static final class OpenRound {
+        private final int round;
+        private final Question question;
+
+        private OpenRound(int round, Question question) {
+            this.round = round;
+            this.question = question;
+        }
+    }
+
+    private final List<Question> questions;
+    private final QuizLogicData data;
+    private final QuestionFrameCache frameCache;
+    private final int maxParticipants;
+    private final AtomicInteger participantCount = new AtomicInteger();
+
+    // 上位32bitがラウンド番号+1、下位32bitが解答。ラウンドを閉じると解答は0で封印される
+    private final AtomicLongArray answers;
+
+    // ラウンドを閉じるスレッドだけが書き込む
+    private final int[] scores;
+    private int nextRound;
+
+    private volatile OpenRound openRound;
+    private volatile RoundResult latestResult;
+    private volatile BroadcastListener listener = BroadcastListener.NONE;
+    private int topCount = BroadcastLeaderboard.DEFAULT_TOP_COUNT;
+
+    private BroadcastQuiz(List<Question> questions, QuizLogicData data, int maxParticipants) {
+        this.questions = questions;
+        this.data = data;
+        this.frameCache = new QuestionFrameCache(data);
+        this.maxParticipants = maxParticipants;
+        this.answers = new AtomicLongArray(maxParticipants);
+        this.scores = new int[maxParticipants];
+    }
+
+    /**
+     * 参加者を追加します。ラウンドの途中でも参加でき、得点は0から始まります。
+     *
+     * @throws IllegalStateException 参加者数が上限に達している場合に送出
+     * @return 参加者ID。0から順に割り当てられる
+     */
+    public int join() {
+        while (true) {
+            final int id = participantCount.get();
+            if (id >= maxParticipants) {
+                throw new IllegalStateException("Participants are full: " + maxParticipants);
+            }
+            if (participantCount.compareAndSet(id, id + 1)) {
+                return id;
+            }
+        }
+    }
+
+    /**
+     * 次のラウンドを開始し、問題を出題します。
+     *
+     * @throws IllegalStateException ラウンドが受け付け中の場合か、問題が残っていない場合に送出
+     * @return 出題した問題のフレーム
+     */
+    public synchronized QuestionFrame openNextRound() {
+        if (openRound != null) {
+            throw new IllegalStateException("Round " + openRound.round + " is still open");
+        }
+
+        if (!hasNextRound()) {
+            throw new IllegalStateException("No more questions");
+        }
+
+        final int round = nextRound++;
+        final Question question = questions.get(round);
+        final QuestionFrame frame = frameCache.getFrame(round + 1, questions, round);
+        openRound = new OpenRound(round, question);
+        listener.onRoundOpen(round, frame);
+        return frame;
+    }
+
+    /**
+     * 解答を受け付けます。このメソッドはロックを取りません。
+     * 受け付けるのはラウンドごとに最初の解答だけです。
+     *
+     * @param participantId 参加者ID
+     * @param answer 解答
+     * @throws IllegalArgumentException 参加していないIDを指定した場合に送出
+     * @return 受け付けた場合はtrue。受け付け中のラウンドがない場合や、既に解答している場合、
+     *         選択肢の範囲外の場合はfalse
+     */
+    public boolean submit(int participantId, int answer) {
+        if (participantId < 0 || participantCount.get() <= participantId) {
+            throw new IllegalArgumentException("Participant is not found: " + participantId);
+        }
+
+        final OpenRound current = openRound;
+        if (current == null || !AnswerSource.isValidAnswer(current.question, answer)) {
+            return false;
+        }
+
+        final long tag = (long) (current.round + 1) << 32;
+        final long packed = tag | (answer & 0xFFFFFFFFL);
+        while (true) {
+            final long previous = answers.get(participantId);
+            if ((previous & 0xFFFFFFFF00000000L) == tag) {
+                // 解答済みか、既に締め切られている
+                return false;
+            }
+            if (answers.compareAndSet(participantId, previous, packed)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 受け付け中のラウンドを締め切り、すべての解答を判定します。
+     * 締め切り後に届いた解答は受け付けられません。
+     *
+     * @throws IllegalStateException 受け付け中のラウンドがない場合に送出
+     * @return ラウンドの結果
+     */
+    public synchronized RoundResult closeRound() {
+        final OpenRound current = openRound;
+        if (current == null) {
+            throw new IllegalStateException("No round is open");
+        }
+        openRound = null;
+
+        final long start = System.nanoTime();
+        final long tag = (long) (current.round + 1) << 32;
+        final int answerIndex = current.question.getAnswerIndex();
+        final int[] choiceCounts = new int[current.question.getChoiceCount() + 1];
+        final int participants = participantCount.get();
+        int answerCount = 0;
+        int correctCount = 0;
+        for (int id = 0; id < participants; ++id) {
+            // 封印することで、締め切りと競合した解答のCASを失敗させる
+            final long value = answers.getAndSet(id, tag);
+            if ((value & 0xFFFFFFFF00000000L) != tag) {
+                continue;
+            }
+
+            final int answer = (int) value;
+            ++choiceCounts[answer];
+            ++answerCount;
+            if (answer == answerIndex) {
+                ++scores[id];
+                ++correctCount;
+            }
+        }
+        final long judgeNanos = System.nanoTime() - start;
+
+        final BroadcastLeaderboard leaderboard = BroadcastLeaderboard.of(
+                scores, participants, nextRound, topCount);
+        final RoundResult result = new RoundResult(current.round, current.question,
+                answerCount, correctCount, choiceCounts, judgeNanos, leaderboard);
+        latestResult = result;
+        listener.onRoundClose(result);
+        return result;
+    }
+
+    /**
+     * 一定間隔でラウンドを開始と締め切りを繰り返し、すべての問題を出題します。
+     * 締め切ると同時に次のラウンドが開始されます。
+     *
+     * @param scheduler ラウンドの時計に用いるスケジューラ
+     * @param roundTime 1ラウンドの解答時間
+     * @param unit 解答時間の単位
+     * @throws NullPointerException スケジューラか単位がnullの場合に送出
+     * @return 最後のラウンドの結果のFuture。リスナーが例外を送出した場合は例外で完了する
+     */
+    public CompletableFuture<RoundResult> start(ScheduledExecutorService scheduler,
+                                                long roundTime, TimeUnit unit) {
+        if (scheduler == null || unit == null) {
+            throw new NullPointerException("take parameter is null");
+        }
+
+        final CompletableFuture<RoundResult> finished = new CompletableFuture<>();
+        final long roundNanos = unit.toNanos(roundTime);
+        scheduler.execute(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    if (openRound != null) {
+                        final RoundResult result = closeRound();
+                        if (!hasNextRound()) {
+                            finished.complete(result);
+                            return;
+                        }
+                    }
+                    openNextRound();
+                    scheduler.schedule(this, roundNanos, TimeUnit.NANOSECONDS);
+                } catch (RuntimeException e) {
+                    finished.completeExceptionally(e);
+                }
+            }
+        });
+        return finished;
+    }
+
+    /**
+     * ラウンドの通知先を追加します。
+     *
+     * @param broadcastListener 通知先
+     * @throws NullPointerException パラメータがnullの場合に送出
+     */
+    public synchronized void addBroadcastListener(BroadcastListener broadcastListener) {
+        if (broadcastListener == null) {
+            throw new NullPointerException("take listener is null");
+        }
+        listener = BroadcastListener.both(listener, broadcastListener);
+    }
+
+    /**
+     * 順位表で上位として保持する参加者の数を設定します。
+     *
+     * @param count 上位の参加者の数
+     * @throws IllegalArgumentException 数が負の場合に送出
+     */
+    public synchronized void setTopCount(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("take count is negative");
+        }
+        topCount = count;
+    }
+
+    /**
+     * まだ出題していない問題があるかどうかを返します。
+     *
+     * @return 残っていればtrue
+     */
+    public synchronized boolean hasNextRound() {
+        return nextRound < questions.size();
+    }
+
+    /**
+     * ラウンドが受け付け中かどうかを返します。
+     *
+     * @return 受け付け中であればtrue
+     */
+    public boolean isRoundOpen() {
+        return openRound != null;
+    }
+
+    /**
+     * 最後に締め切ったラウンドの結果を返します。
+     *
+     * @return 結果。まだ締め切っていない場合はnull
+     */
+    public RoundResult getLatestResult() {
+        return latestResult;
+    }
+
+    /**
+     * 参加者数を返します。
+     *
+     * @return 参加者数
+     */
+    public int getParticipantCount() {
+        return participantCount.get();
+    }
+
+    /**
+     * 参加者数の上限を返します。
+     *
+     * @return 上限
+     */
+    public int getMaxParticipants() {
+        return maxParticipants;
+    }
+
+    /**
+     * 問題数、つまりラウンド数を返します。
+     *
+     * @return 問題数
+     */
+    public int getQuestionCount() {
+        return questions.size();
+    }
+
+    /**
+     * 保持するデータクラスを返します。
+     *
+     * @return データ
+     */
+    public QuizLogicData getData() {
+        return data;
+    }
+}
@@ -0,0 +1,49 @@
+package mw.ninequiz.src;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+
+/**
+ * 出力を溜めて{@link #flush()}でまとめてストリームへ書き出す出力先です。
+ * 行ごとに同期と書き出しを行う{@link java.io.PrintStream#println(String)}の代わりに使用します。
+ *
+ * @author Getaji
+ */
+public class BufferedQuizOutput extends EncodingQuizOutput {
+
+    /**
+     * 標準出力へ書き出すインスタンスを返します。
+     * 文字コードはプラットフォームの既定値です。
+     *
+     * @return インスタンス
+     */
+    public static BufferedQuizOutput ofSystemOut() {
+        return new BufferedQuizOutput(System.out, Charset.defaultCharset());
+    }
+
+    private final OutputStream out;
+
+    /**
+     * 書き出し先と文字コードを受け取りインスタンスを生成します。
+     *
+     * @param out 書き出し先
+     * @param charset 文字コード
+     * @throws NullPointerException パラメータがnullの場合に送出
+     */
+    public BufferedQuizOutput(OutputStream out, Charset charset) {
+        super(charset);
+        if (out == null) {
+            throw new NullPointerException("take output stream is null");
+        }
+
+        this.out = out;
+    }
+
+    @Override
+    protected void writeBytes(ByteBuffer bytes) throws IOException {
+        out.write(bytes.array(), bytes.arrayOffset() + bytes.position(), bytes.remaining());
+        out.flush();
+    }
+}
@@ -0,0 +1,41 @@
+package mw.ninequiz.src;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 出力を溜めて{@link #flush()}でまとめてチャネルへ書き出す出力先です。
+ * 文字コードはUTF-8で、{@link QuestionFrame}は符号化済みのバイト列がそのまま使われます。
+ *
+ * <p>チャネルはブロッキングモードである必要があります。
+ *
+ * @author Getaji
+ */
+public class ChannelQuizOutput extends EncodingQuizOutput {
+
+    private final WritableByteChannel channel;
+
+    /**
+     * 書き出し先のチャネルを受け取りインスタンスを生成します。
+     *
+     * @param channel 書き出し先
+     * @throws NullPointerException パラメータがnullの場合に送出
+     */
+    public ChannelQuizOutput(WritableByteChannel channel) {
+        super(StandardCharsets.UTF_8);
+        if (channel == null) {
+            throw new NullPointerException("take channel is null");
+        }
+
+        this.channel = channel;
+    }
+
+    @Override
+    protected void writeBytes(ByteBuffer bytes) throws IOException {
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package mw.ninequiz.src;
+
+/**
+ * 出題順のリストが、自身の問題の判定結果を受け取るためのインターフェースです。
+ * {@link QuizSession}は出題順のリストがこのインターフェースを実装している場合、
+ * 解答を判定するたびに、または判定済みの結果を復元するたびに通知します。
+ * 正誤に応じて次の問題を選ぶ{@link AdaptiveDeck}のようなリストが実装します。
+ *
+ * <p>通知は判定したスレッドで、通知先への{@link AnswerListener}の通知より前に行われます。
+ *
+ * @author Getaji
+ */
+@FunctionalInterface
+public interface DeckListener {
+
+    /**
+     * 問題が判定されたときに呼ばれます。
+     *
+     * @param questionIndex 判定した問題の出題順のインデックス。0から始まる
+     * @param judge 判定結果
+     */
+    void onJudged(int questionIndex, JudgeType judge);
+}
@@ -0,0 +1,312 @@
+package mw.ninequiz.src;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.IntToDoubleFunction;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * 問題バンクを難易度とタグで並べた索引です。このクラスは不変で、多数のセッションから共有できます。
+ *
+ * <p>難易度は0.0（易しい）から1.0（難しい）の値で、{@value #LEVELS}段階に丸めて扱います。
+ * 問題はタグごと、難易度の段階ごと、問題バンクのインデックスの順に1本の配列に並べられ、
+ * 各段階の開始位置を表で持つため、指定した難易度の位置はO(1)で求まります。
+ * そこから{@link SeenBitmap}で出題済みの問題を読み飛ばしながら前後に探すため、
+ * 問題バンクが大きくても近い難易度の未出題の問題をすぐに見つけられます。
+ *
+ * <p>タグが複数ある場合は、すべてのタグの問題を難易度の段階順に並べた位置の配列も持ちます。
+ * {@link #ANY_TAG}の検索はこの配列を目標の段階から前後に辿るため、タグの数によらず、
+ * 読み飛ばす出題済みの問題の数（セッションの問題数以下）に比例する時間で終わります。
+ *
+ * <p>構築は計数ソートで行い、問題数に比例する時間で終わります。
+ *
+ * @author Getaji
+ * @see AdaptiveDeck
+ */
+public final class DifficultyIndex {
+
+    /** 難易度の段階の数。 */
+    public static final int LEVELS = 1024;
+
+    /** すべてのタグを表す値。 */
+    public static final int ANY_TAG = -1;
+
+    /** 集計のない問題に用いる難易度。 */
+    public static final double DEFAULT_DIFFICULTY = 0.5;
+
+    /**
+     * 問題バンクとその集計から索引を構築します。難易度は不正解の割合で、タグはすべて0になります。
+     * 集計は問題バンク上のインデックスで引くため、集計に用いたセッションと同じ問題バンクを渡してください。
+     *
+     * @param bank 問題バンク
+     * @param analytics 集計
+     * @throws NullPointerException パラメータがnullの場合に送出
+     * @return 索引
+     */
+    public static DifficultyIndex build(List<Question> bank, QuestionAnalytics analytics) {
+        if (analytics == null) {
+            throw new NullPointerException("take analytics is null");
+        }
+        return build(bank, index -> {
+            final QuestionStatsSnapshot stats = analytics.getStats(index);
+            return (stats == null || stats.getAnswerCount() == 0) ? DEFAULT_DIFFICULTY
+                    : 1.0 - stats.getCorrectRate();
+        }, index -> 0);
+    }
+
+    /**
+     * 問題バンクと問題ごとの難易度、タグから索引を構築します。
+     *
+     * @param bank 問題バンク
+     * @param difficultyOf 問題バンクのインデックスから難易度を返す関数。範囲外の値は丸められ、NaNは{@link #DEFAULT_DIFFICULTY}になる
+     * @param tagOf 問題バンクのインデックスからタグを返す関数。タグは0以上
+     * @throws NullPointerException パラメータがnullの場合に送出
+     * @throws IllegalArgumentException 負のタグがある場合に送出
+     * @return 索引
+     */
+    public static DifficultyIndex build(List<Question> bank, IntToDoubleFunction difficultyOf,
+                                        IntUnaryOperator tagOf) {
+        if (bank == null) {
+            throw new NullPointerException("take bank is null");
+        }
+
+        if (difficultyOf == null || tagOf == null) {
+            throw new NullPointerException("take function is null");
+        }
+
+        final int size = bank.size();
+        final short[] levelOf = new short[size];
+        final int[] rawTags = new int[size];
+        for (int i = 0; i < size; ++i) {
+            levelOf[i] = (short) toLevel(difficultyOf.applyAsDouble(i));
+            final int tag = tagOf.applyAsInt(i);
+            if (tag < 0) {
+                throw new IllegalArgumentException("take tag is negative: " + tag + " at " + i);
+            }
+            rawTags[i] = tag;
+        }
+
+        // タグを詰めた番号に置き換える
+        final int[] tags = Arrays.stream(rawTags).distinct().sorted().toArray();
+        final int[] denseTagOf = new int[size];
+        for (int i = 0; i < size; ++i) {
+            denseTagOf[i] = Arrays.binarySearch(tags, rawTags[i]);
+        }
+
+        // (タグ, 段階)ごとに数えて開始位置を求め、問題バンクのインデックス順に置く
+        final int[] bucketStarts = new int[tags.length * LEVELS + 1];
+        for (int i = 0; i < size; ++i) {
+            ++bucketStarts[denseTagOf[i] * LEVELS + levelOf[i] + 1];
+        }
+        for (int i = 1; i < bucketStarts.length; ++i) {
+            bucketStarts[i] += bucketStarts[i - 1];
+        }
+
+        // タグが1つなら位置の並びがそのまま段階順になる
+        final boolean multiTag = tags.length > 1;
+        final int[] levelStarts = new int[LEVELS + 1];
+        if (multiTag) {
+            for (int i = 0; i < size; ++i) {
+                ++levelStarts[levelOf[i] + 1];
+            }
+            for (int i = 1; i < levelStarts.length; ++i) {
+                levelStarts[i] += levelStarts[i - 1];
+            }
+        }
+
+        final int[] cursor = Arrays.copyOf(bucketStarts, bucketStarts.length - 1);
+        final int[] levelCursor = Arrays.copyOf(levelStarts, LEVELS);
+        final int[] order = new int[size];
+        final short[] levels = new short[size];
+        final int[] byLevel = multiTag ? new int[size] : null;
+        for (int i = 0; i < size; ++i) {
+            final int position = cursor[denseTagOf[i] * LEVELS + levelOf[i]]++;
+            order[position] = i;
+            levels[position] = levelOf[i];
+            if (multiTag) {
+                byLevel[levelCursor[levelOf[i]]++] = position;
+            }
+        }
+        return new DifficultyIndex(bank, tags, order, levels, bucketStarts, byLevel, levelStarts);
+    }
+
+    /**
+     * 難易度を段階に丸めて返します。
+     *
+     * @param difficulty 難易度
+     * @return 段階
+     */
+    static int toLevel(double difficulty) {
+        if (Double.isNaN(difficulty)) {
+            difficulty = DEFAULT_DIFFICULTY;
+        }
+        final int level = (int) (difficulty * LEVELS);
+        return Math.max(0, Math.min(LEVELS - 1, level));
+    }
+
+    private final List<Question> bank;
+    private final int[] tags;
+    private final int[] order;
+    private final short[] levels;
+    private final int[] bucketStarts;
+
+    // すべてのタグの位置を段階、問題バンクのインデックスの順に並べたもの。タグが1つ以下ならnull
+    private final int[] byLevel;
+    private final int[] levelStarts;
+
+    private DifficultyIndex(List<Question> bank, int[] tags, int[] order, short[] levels,
+                            int[] bucketStarts, int[] byLevel, int[] levelStarts) {
+        this.bank = bank;
+        this.tags = tags;
+        this.order = order;
+        this.levels = levels;
+        this.bucketStarts = bucketStarts;
+        this.byLevel = byLevel;
+        this.levelStarts = levelStarts;
+    }
+
+    /**
+     * 難易度が最も近い未出題の問題の位置を返します。
+     * 同じ段階に複数の問題がある場合は、問題バンクのインデックスの小さいものから選ばれます。
+     *
+     * @param difficulty 目標の難易度
+     * @param tag タグ。{@link #ANY_TAG}の場合はすべてのタグから選ぶ
+     * @param seen 出題済みの位置。大きさは{@link #size()}である必要がある
+     * @throws IllegalArgumentException 出題済みの位置の大きさが合わない場合に送出
+     * @return 索引上の位置。未出題の問題がない場合は-1
+     */
+    public int nearest(double difficulty, int tag, SeenBitmap seen) {
+        if (seen.size() != order.length) {
+            throw new IllegalArgumentException("take seen bitmap does not match this index");
+        }
+
+        final int level = toLevel(difficulty);
+        if (tag != ANY_TAG) {
+            final int dense = Arrays.binarySearch(tags, tag);
+            return (dense < 0) ? -1 : nearestInTag(dense, level, seen);
+        }
+
+        if (byLevel == null) {
+            return (tags.length == 0) ? -1 : nearestInTag(0, level, seen);
+        }
+        return nearestInAll(level, seen);
+    }
+
+    private int nearestInAll(int level, SeenBitmap seen) {
+        // 出題済みの問題は1つずつ読み飛ばすが、その数はセッションの問題数を超えない
+        int above = levelStarts[level];
+        while (above < byLevel.length && seen.get(byLevel[above])) {
+            ++above;
+        }
+
+        int below = levelStarts[level] - 1;
+        while (below >= 0 && seen.get(byLevel[below])) {
+            --below;
+        }
+
+        if (above == byLevel.length) {
+            return (below < 0) ? -1 : byLevel[below];
+        }
+
+        if (below < 0) {
+            return byLevel[above];
+        }
+        final int abovePosition = byLevel[above];
+        final int belowPosition = byLevel[below];
+        return (levels[abovePosition] - level <= level - levels[belowPosition])
+                ? abovePosition : belowPosition;
+    }
+
+    private int nearestInTag(int dense, int level, SeenBitmap seen) {
+        final int tagStart = bucketStarts[dense * LEVELS];
+        final int tagEnd = bucketStarts[(dense + 1) * LEVELS];
+        final int pivot = bucketStarts[dense * LEVELS + level];
+
+        final int above = seen.nextClear(pivot, tagEnd);
+        final int below = seen.previousClear(pivot - 1, tagStart);
+        if (above < 0) {
+            return below;
+        }
+
+        if (below < 0) {
+            return above;
+        }
+        return (levels[above] - level <= level - levels[below]) ? above : below;
+    }
+
+    /**
+     * 索引上の位置にある問題を返します。
+     *
+     * @param position 索引上の位置
+     * @throws IndexOutOfBoundsException 位置が範囲外の場合に送出
+     * @return 問題
+     */
+    public Question getQuestion(int position) {
+        return bank.get(order[position]);
+    }
+
+    /**
+     * 索引上の位置にある問題の、問題バンクのインデックスを返します。
+     *
+     * @param position 索引上の位置
+     * @throws IndexOutOfBoundsException 位置が範囲外の場合に送出
+     * @return 問題バンクのインデックス
+     */
+    public int getBankIndex(int position) {
+        return order[position];
+    }
+
+    /**
+     * 索引上の位置にある問題の難易度を返します。値は段階の下限に丸められています。
+     *
+     * @param position 索引上の位置
+     * @throws IndexOutOfBoundsException 位置が範囲外の場合に送出
+     * @return 難易度
+     */
+    public double getDifficulty(int position) {
+        return (double) levels[position] / LEVELS;
+    }
+
+    /**
+     * タグの問題数を返します。
+     *
+     * @param tag タグ。{@link #ANY_TAG}の場合はすべての問題数
+     * @return 問題数
+     */
+    public int countOf(int tag) {
+        if (tag == ANY_TAG) {
+            return order.length;
+        }
+
+        final int dense = Arrays.binarySearch(tags, tag);
+        return (dense < 0) ? 0
+                : bucketStarts[(dense + 1) * LEVELS] - bucketStarts[dense * LEVELS];
+    }
+
+    /**
+     * 索引に含まれるタグを昇順に返します。
+     *
+     * @return タグの配列
+     */
+    public int[] getTags() {
+        return tags.clone();
+    }
+
+    /**
+     * 問題数を返します。
+     *
+     * @return 問題数
+     */
+    public int size() {
+        return order.length;
+    }
+
+    /**
+     * 索引のもとになった問題バンクを返します。
+     *
+     * @return 問題バンク
+     */
+    public List<Question> getBank() {
+        return bank;
+    }
+}
@@ -0,0 +1,118 @@
+package mw.ninequiz.src;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 出力を符号化してバッファに溜め、{@link #flush()}でまとめて書き出す出力先の基底クラスです。
+ * バッファは再利用され、足りなくなった場合のみ拡張されます。
+ *
+ * <p>文字コードがUTF-8の場合、{@link QuestionFrame}は符号化済みのバイト列がそのままコピーされます。
+ * このクラスはスレッドセーフではありません。
+ *
+ * @author Getaji
+ */
+public abstract class EncodingQuizOutput implements QuizOutput {
+
+    private static final int INITIAL_CAPACITY = 8192;
+
+    private final CharsetEncoder encoder;
+    private final boolean utf8;
+    private ByteBuffer pending = ByteBuffer.allocate(INITIAL_CAPACITY);
+
+    /**
+     * 文字コードを受け取り初期化します。
+     * 符号化できない文字は置換文字に置き換えられます。
+     *
+     * @param charset 文字コード
+     * @throws NullPointerException パラメータがnullの場合に送出
+     */
+    protected EncodingQuizOutput(Charset charset) {
+        if (charset == null) {
+            throw new NullPointerException("take charset is null");
+        }
+
+        this.encoder = charset.newEncoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        this.utf8 = StandardCharsets.UTF_8.equals(charset);
+    }
+
+    @Override
+    public QuizOutput print(CharSequence text) {
+        final CharBuffer chars = CharBuffer.wrap(text);
+
+        encoder.reset();
+        CoderResult result = encoder.encode(chars, pending, true);
+        while (result.isOverflow()) {
+            grow(pending.capacity());
+            result = encoder.encode(chars, pending, true);
+        }
+
+        result = encoder.flush(pending);
+        while (result.isOverflow()) {
+            grow(pending.capacity());
+            result = encoder.flush(pending);
+        }
+        return this;
+    }
+
+    @Override
+    public QuizOutput write(QuestionFrame frame) {
+        if (!utf8) {
+            return print(frame.getText());
+        }
+
+        if (pending.remaining() < frame.length()) {
+            grow(frame.length());
+        }
+        pending.put(frame.asByteBuffer());
+        return this;
+    }
+
+    @Override
+    public void flush() {
+        pending.flip();
+        try {
+            if (pending.hasRemaining()) {
+                writeBytes(pending);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            pending.clear();
+        }
+    }
+
+    /**
+     * 書き出されていないバイト数を返します。
+     *
+     * @return 書き出されていないバイト数
+     */
+    public int getPendingBytes() {
+        return pending.position();
+    }
+
+    /**
+     * 溜めていたバイト列を出力先へ書き込みます。
+     * バッファの位置から上限までのすべてを書き込む必要があります。
+     *
+     * @param bytes 書き込むバイト列
+     * @throws IOException 書き込みに失敗した場合に送出
+     */
+    protected abstract void writeBytes(ByteBuffer bytes) throws IOException;
+
+    private void grow(int minimumGrowth) {
+        final ByteBuffer grown = ByteBuffer.allocate(pending.capacity() + minimumGrowth);
+        pending.flip();
+        grown.put(pending);
+        pending = grown;
+    }
+}
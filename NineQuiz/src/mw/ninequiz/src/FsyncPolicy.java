@@ -0,0 +1,19 @@
+package mw.ninequiz.src;
+
+/**
+ * {@link SessionJournal}が解答の記録をディスクへ同期する方針を表す列挙クラスです。
+ * 同期を減らすほどスループットは上がりますが、VMやOSが落ちた際に失われる記録が増えます。
+ *
+ * @author Getaji
+ */
+public enum FsyncPolicy {
+
+    /** まとめて書き込むたびに同期する。書き込みのFutureは同期後に完了する。 */
+    ALWAYS,
+
+    /** 一定間隔ごとに同期する。OSが落ちた場合は最後の間隔の記録が失われうる。 */
+    INTERVAL,
+
+    /** 同期をOSに任せる。VMが落ちても記録は失われないが、OSが落ちた場合は失われうる。 */
+    NEVER,
+}
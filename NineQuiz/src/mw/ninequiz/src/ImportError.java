@@ -0,0 +1,53 @@
+package mw.ninequiz.src;
+
+/**
+ * 取り込みに失敗した行を表すクラスです。このクラスは不変です。
+ *
+ * @author Getaji
+ */
+public final class ImportError {
+
+    private final long lineNumber;
+    private final String message;
+
+    /**
+     * インスタンスを生成します。
+     *
+     * @param lineNumber 行番号。1から始まる
+     * @param message 失敗の理由
+     */
+    public ImportError(long lineNumber, String message) {
+        this.lineNumber = lineNumber;
+        this.message = message;
+    }
+
+    /**
+     * 行番号を返します。行番号は1から始まります。
+     *
+     * @return 行番号
+     */
+    public long getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * 失敗の理由を返します。
+     *
+     * @return 失敗の理由
+     */
+    public String getMessage() {
+        return message;
+    }
+
+    /**
+     * このクラスの文字列表現を返します。
+     *
+     * <p>例：{@code "line 12: Choices are duplicated"}
+     *
+     * @return 文字列表現
+     */
+    @Override
+    public String toString() {
+        return "line " + lineNumber + ": " + message;
+    }
+}
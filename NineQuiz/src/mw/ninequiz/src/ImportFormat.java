@@ -0,0 +1,128 @@
+package mw.ninequiz.src;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@link QuestionImporter}が読み込める行形式の列挙クラスです。
+ * どちらの形式も1行が1問に対応し、空行と{@code #}で始まる行は無視されます。
+ *
+ * @author Getaji
+ */
+public enum ImportFormat {
+
+    /**
+     * カンマ区切り形式。{@code 問題文,正解のインデックス,選択肢1,選択肢2,...}の順に並べる。
+     * 値はダブルクォートで囲むことができ、囲まれた中の{@code ""}はダブルクォート1つを表す。
+     * 値の中に改行を含めることはできない。
+     */
+    CSV {
+        @Override
+        Question parse(String line) {
+            final List<String> fields = splitCsv(line);
+            if (fields.size() < 3) {
+                throw new IllegalArgumentException(
+                        "Row needs statement, answer index and at least one choice");
+            }
+
+            final List<String> choices = fields.subList(2, fields.size());
+            return buildQuestion(fields.get(0), parseAnswerIndex(fields.get(1).trim()), choices);
+        }
+    },
+
+    /**
+     * JSON Lines形式。{@code {"statement":"...","answer":1,"choices":["...","..."]}}を1行に1つ並べる。
+     * その他のキーは無視される。
+     */
+    JSON_LINES {
+        @Override
+        Question parse(String line) {
+            final JsonQuestionParser parser = new JsonQuestionParser(line);
+            parser.parse();
+            if (parser.getStatement() == null) {
+                throw new IllegalArgumentException("\"statement\" is missing");
+            }
+
+            if (parser.getAnswer() == null) {
+                throw new IllegalArgumentException("\"answer\" is missing");
+            }
+
+            if (parser.getChoices() == null) {
+                throw new IllegalArgumentException("\"choices\" is missing");
+            }
+            return buildQuestion(parser.getStatement(),
+                    parseAnswerIndex(parser.getAnswer()), parser.getChoices());
+        }
+    },
+    ;
+
+    // 並列に解析するためスレッドごとにビルダーを使い回す
+    private static final ThreadLocal<Question.QuestionBuilder> BUILDERS =
+            ThreadLocal.withInitial(Question::builder);
+
+    /**
+     * 1行を解析し、{@link Question}の契約を検査して問題を生成します。
+     *
+     * @param line 行
+     * @throws RuntimeException 行の形式や問題の契約に違反している場合に送出
+     * @return 問題
+     */
+    abstract Question parse(String line);
+
+    private static Question buildQuestion(String statement, int answerIndex,
+                                          List<String> choices) {
+        final Question.QuestionBuilder builder = BUILDERS.get().reset()
+                .setStatement(statement);
+        for (String choice : choices) {
+            builder.addChoice(choice);
+        }
+        final Question question = builder.setAnswerIndex(answerIndex).build();
+
+        // ビルダーは重複を黙って取り除くため、取り込み時は誤りとして扱う
+        if (question.getChoiceCount() != choices.size()) {
+            throw new IllegalArgumentException("Choices are duplicated");
+        }
+        return question;
+    }
+
+    private static int parseAnswerIndex(String value) {
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Answer index is not a number: " + value);
+        }
+    }
+
+    private static List<String> splitCsv(String line) {
+        final List<String> fields = new ArrayList<>();
+        final StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+
+        for (int i = 0; i < line.length(); ++i) {
+            final char c = line.charAt(i);
+            if (quoted) {
+                if (c != '"') {
+                    field.append(c);
+                } else if (i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    ++i;
+                } else {
+                    quoted = false;
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+
+        if (quoted) {
+            throw new IllegalArgumentException("Quoted value is not closed");
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
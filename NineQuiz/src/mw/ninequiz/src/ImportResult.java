@@ -0,0 +1,59 @@
+package mw.ninequiz.src;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * {@link QuestionImporter}による取り込みの結果を表すクラスです。このクラスは不変です。
+ *
+ * @author Getaji
+ */
+public final class ImportResult {
+
+    private final List<Question> questions;
+    private final List<ImportError> errors;
+    private final long importedCount;
+
+    ImportResult(List<Question> questions, List<ImportError> errors, long importedCount) {
+        this.questions = Collections.unmodifiableList(questions);
+        this.errors = Collections.unmodifiableList(errors);
+        this.importedCount = importedCount;
+    }
+
+    /**
+     * 取り込んだ問題をファイルの順に返します。
+     * 問題バンクへ書き出した場合は空のリストを返します。
+     *
+     * @return 問題のリスト
+     */
+    public List<Question> getQuestions() {
+        return questions;
+    }
+
+    /**
+     * 取り込みに失敗した行を行番号の順に返します。
+     *
+     * @return 失敗した行のリスト
+     */
+    public List<ImportError> getErrors() {
+        return errors;
+    }
+
+    /**
+     * 取り込みに成功した問題数を返します。
+     *
+     * @return 問題数
+     */
+    public long getImportedCount() {
+        return importedCount;
+    }
+
+    /**
+     * 失敗した行がないかどうかを返します。
+     *
+     * @return 失敗した行がなければtrue
+     */
+    public boolean isSuccessful() {
+        return errors.isEmpty();
+    }
+}
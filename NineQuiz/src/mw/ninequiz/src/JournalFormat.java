@@ -0,0 +1,116 @@
+package mw.ninequiz.src;
+
+/**
+ * {@link SessionJournal}のファイル形式の定数をまとめたクラスです。
+ * 数値はすべてビッグエンディアンで格納されます。
+ *
+ * <pre>
+ * 記録ファイル   : answers-{seq}.log
+ *   ヘッダ       : magic(int) version(int) seq(long)
+ *   レコード     : sessionId(long) questionIndex(int) answer(int) type(byte) judge(byte)
+ *                  reserved(short) check(int)
+ * スナップショット : snapshot-{seq}.bin
+ *   ヘッダ       : magic(int) version(int) seq(long)
+ *   セッション   : sessionId(long) answerCount(int) (answer(int) judge(byte)) * answerCount
+ *   トレーラ     : lastSessionId(long) sessionCount(int) crc32(int)
+ * </pre>
+ *
+ * <p>スナップショットseqは、seq未満の記録ファイルのすべての記録を反映した状態です。
+ * lastSessionIdは終了したセッションのIDを使い回さないために保持します。
+ * レコードのcheckは書き込みが途中で途切れたレコードを見分けるためのものです。
+ * judgeは{@link JudgeType#ordinal()}で、復元時は解答を判定し直さずにこの判定結果を用います。
+ *
+ * @author Getaji
+ * @see SessionJournal
+ */
+final class JournalFormat {
+
+    /** 記録ファイルの先頭に置かれる識別子。"NQLG"。 */
+    static final int LOG_MAGIC = 0x4E514C47;
+
+    /** スナップショットの先頭に置かれる識別子。"NQSS"。 */
+    static final int SNAPSHOT_MAGIC = 0x4E515353;
+
+    /** 形式のバージョン。 */
+    static final int VERSION = 2;
+
+    /** ヘッダのバイト数。 */
+    static final int HEADER_SIZE = 16;
+
+    /** 記録のレコードのバイト数。 */
+    static final int RECORD_SIZE = 24;
+
+    /** スナップショットのトレーラのバイト数。 */
+    static final int TRAILER_SIZE = 16;
+
+    /** セッションの開始を表すレコードの種類。 */
+    static final byte TYPE_OPEN = 1;
+
+    /** 解答を表すレコードの種類。 */
+    static final byte TYPE_ANSWER = 2;
+
+    /** セッションの終了を表すレコードの種類。 */
+    static final byte TYPE_CLOSE = 3;
+
+    private JournalFormat() {}
+
+    /**
+     * 記録ファイルの名前を返します。
+     *
+     * @param seq 通し番号
+     * @return ファイル名
+     */
+    static String logFileName(long seq) {
+        return String.format("answers-%016x.log", seq);
+    }
+
+    /**
+     * スナップショットの名前を返します。
+     *
+     * @param seq 通し番号
+     * @return ファイル名
+     */
+    static String snapshotFileName(long seq) {
+        return String.format("snapshot-%016x.bin", seq);
+    }
+
+    /**
+     * ファイル名から通し番号を取り出します。
+     *
+     * @param fileName ファイル名
+     * @param prefix 接頭辞
+     * @param suffix 接尾辞
+     * @return 通し番号。形式が異なる場合は-1
+     */
+    static long parseSeq(String fileName, String prefix, String suffix) {
+        if (!fileName.startsWith(prefix) || !fileName.endsWith(suffix)
+                || fileName.length() != prefix.length() + 16 + suffix.length()) {
+            return -1;
+        }
+
+        try {
+            return Long.parseUnsignedLong(
+                    fileName.substring(prefix.length(), prefix.length() + 16), 16);
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * レコードの検査値を計算します。
+     *
+     * @param sessionId セッションID
+     * @param questionIndex 問題のインデックス
+     * @param answer 解答
+     * @param type 種類
+     * @param judge 判定結果の序数
+     * @return 検査値
+     */
+    static int check(long sessionId, int questionIndex, int answer, byte type, byte judge) {
+        long hash = sessionId ^ 0x6A09E667F3BCC909L;
+        hash = (hash ^ ((long) questionIndex << 32 | (answer & 0xFFFFFFFFL))) * 0xFF51AFD7ED558CCDL;
+        hash = (hash ^ (type << 8 | (judge & 0xFF))) * 0xC4CEB9FE1A85EC53L;
+        hash ^= hash >>> 33;
+        return (int) hash;
+    }
+}
@@ -0,0 +1,77 @@
+package mw.ninequiz.src;
+
+/**
+ * {@link SessionJournal}による復元の結果を表すクラスです。このクラスは不変です。
+ *
+ * @author Getaji
+ */
+public final class JournalRecovery {
+
+    private final int snapshotSessionCount;
+    private final long replayedRecordCount;
+    private final long discardedBytes;
+    private final int restoredSessionCount;
+    private final long elapsedNanos;
+
+    JournalRecovery(int snapshotSessionCount, long replayedRecordCount, long discardedBytes,
+                    int restoredSessionCount, long elapsedNanos) {
+        this.snapshotSessionCount = snapshotSessionCount;
+        this.replayedRecordCount = replayedRecordCount;
+        this.discardedBytes = discardedBytes;
+        this.restoredSessionCount = restoredSessionCount;
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    /**
+     * スナップショットから読み込んだセッションの数を返します。
+     *
+     * @return セッションの数
+     */
+    public int getSnapshotSessionCount() {
+        return snapshotSessionCount;
+    }
+
+    /**
+     * 記録ファイルから再生したレコードの数を返します。
+     *
+     * @return レコードの数
+     */
+    public long getReplayedRecordCount() {
+        return replayedRecordCount;
+    }
+
+    /**
+     * 書き込みが途中で途切れていたため捨てたバイト数を返します。
+     *
+     * @return バイト数
+     */
+    public long getDiscardedBytes() {
+        return discardedBytes;
+    }
+
+    /**
+     * エンジンに復元したセッションの数を返します。
+     *
+     * @return セッションの数
+     */
+    public int getRestoredSessionCount() {
+        return restoredSessionCount;
+    }
+
+    /**
+     * 復元にかかった時間をナノ秒で返します。
+     *
+     * @return ナノ秒
+     */
+    public long getElapsedNanos() {
+        return elapsedNanos;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "JournalRecovery{snapshot:%d replayed:%d discarded:%dB restored:%d time:%.1fms}",
+                snapshotSessionCount, replayedRecordCount, discardedBytes,
+                restoredSessionCount, elapsedNanos / 1e6);
+    }
+}
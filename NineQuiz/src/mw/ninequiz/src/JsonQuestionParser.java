@@ -0,0 +1,222 @@
+package mw.ninequiz.src;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * JSON Lines形式の1行から問題の項目を取り出す簡易パーサです。
+ * 最上位のオブジェクトの{@code statement}、{@code answer}、{@code choices}のみを解釈し、
+ * その他のキーの値は読み飛ばします。
+ *
+ * @author Getaji
+ */
+final class JsonQuestionParser {
+
+    private final String line;
+    private int position;
+
+    private String statement;
+    private String answer;
+    private List<String> choices;
+
+    JsonQuestionParser(String line) {
+        this.line = line;
+    }
+
+    /**
+     * 行を解析します。
+     *
+     * @throws IllegalArgumentException 形式が正しくない場合に送出
+     */
+    void parse() {
+        expect('{');
+        if (peek() != '}') {
+            do {
+                final String key = readString();
+                expect(':');
+                readValue(key);
+            } while (consumeIf(','));
+        }
+        expect('}');
+
+        skipWhitespace();
+        if (position != line.length()) {
+            throw error("Unexpected trailing characters");
+        }
+    }
+
+    String getStatement() {
+        return statement;
+    }
+
+    String getAnswer() {
+        return answer;
+    }
+
+    List<String> getChoices() {
+        return choices;
+    }
+
+    private void readValue(String key) {
+        switch (key) {
+            case "statement":
+                statement = readString();
+                break;
+            case "answer":
+                answer = readNumber();
+                break;
+            case "choices":
+                choices = readStringArray();
+                break;
+            default:
+                skipValue();
+                break;
+        }
+    }
+
+    private List<String> readStringArray() {
+        final List<String> values = new ArrayList<>();
+        expect('[');
+        if (peek() != ']') {
+            do {
+                values.add(readString());
+            } while (consumeIf(','));
+        }
+        expect(']');
+        return values;
+    }
+
+    private void skipValue() {
+        final char c = peek();
+        if (c == '"') {
+            readString();
+        } else if (c == '[' || c == '{') {
+            skipNested();
+        } else {
+            while (position < line.length() && ",}] \t".indexOf(line.charAt(position)) < 0) {
+                ++position;
+            }
+        }
+    }
+
+    private void skipNested() {
+        int depth = 0;
+        do {
+            final char c = peek();
+            if (c == '"') {
+                readString();
+                continue;
+            }
+
+            if (c == '[' || c == '{') {
+                ++depth;
+            } else if (c == ']' || c == '}') {
+                --depth;
+            }
+            ++position;
+        } while (depth > 0);
+    }
+
+    private String readNumber() {
+        skipWhitespace();
+        final int start = position;
+        while (position < line.length() && "-+0123456789".indexOf(line.charAt(position)) >= 0) {
+            ++position;
+        }
+
+        if (start == position) {
+            throw error("Number is expected");
+        }
+        return line.substring(start, position);
+    }
+
+    private String readString() {
+        expect('"');
+        final StringBuilder value = new StringBuilder();
+        while (true) {
+            if (position >= line.length()) {
+                throw error("String is not closed");
+            }
+
+            final char c = line.charAt(position++);
+            if (c == '"') {
+                return value.toString();
+            }
+
+            if (c != '\\') {
+                value.append(c);
+                continue;
+            }
+
+            if (position >= line.length()) {
+                throw error("Escape is not closed");
+            }
+            final char escaped = line.charAt(position++);
+            switch (escaped) {
+                case 'b':
+                    value.append('\b');
+                    break;
+                case 'f':
+                    value.append('\f');
+                    break;
+                case 'n':
+                    value.append('\n');
+                    break;
+                case 'r':
+                    value.append('\r');
+                    break;
+                case 't':
+                    value.append('\t');
+                    break;
+                case 'u':
+                    if (position + 4 > line.length()) {
+                        throw error("Unicode escape is truncated");
+                    }
+                    try {
+                        value.append((char) Integer.parseInt(
+                                line.substring(position, position + 4), 16));
+                    } catch (NumberFormatException e) {
+                        throw error("Unicode escape is invalid");
+                    }
+                    position += 4;
+                    break;
+                default:
+                    value.append(escaped);
+                    break;
+            }
+        }
+    }
+
+    private void expect(char expected) {
+        if (peek() != expected) {
+            throw error("'" + expected + "' is expected");
+        }
+        ++position;
+    }
+
+    private boolean consumeIf(char expected) {
+        if (peek() == expected) {
+            ++position;
+            return true;
+        }
+        return false;
+    }
+
+    private char peek() {
+        skipWhitespace();
+        if (position >= line.length()) {
+            throw error("Unexpected end of line");
+        }
+        return line.charAt(position);
+    }
+
+    private void skipWhitespace() {
+        while (position < line.length() && Character.isWhitespace(line.charAt(position))) {
+            ++position;
+        }
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException(message + " at column " + (position + 1));
+    }
+}
@@ -0,0 +1,238 @@
+package mw.ninequiz.src;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.RandomAccess;
+
+/**
+ * 判定結果を1問1ビットで記録するリストです。
+ * 正解を1、不正解を0として{@code long}の配列に詰めて保持し、
+ * 正解数や連続正解数はビット演算で直接求めます。
+ * 解答そのものも1問1バイトで記録できます。
+ *
+ * <p>{@link java.util.List}としては読み取り専用で、{@link #add(JudgeType)}などは使用できません。
+ * 記録には{@link #record(JudgeType, int)}を使用します。
+ * このクラスはスレッドセーフではありません。
+ *
+ * @author Getaji
+ */
+public class JudgeRecord extends AbstractList<JudgeType> implements RandomAccess {
+
+    /** 記録できなかった解答を表す値。 */
+    public static final int UNKNOWN_ANSWER = 0;
+
+    private static final int MAX_RECORDED_ANSWER = 0xFF;
+
+    private long[] bits;
+    private byte[] answers;
+    private int size;
+
+    /**
+     * 判定結果のみを記録するインスタンスを生成します。
+     *
+     * @param expectedSize 想定する問題数
+     */
+    public JudgeRecord(int expectedSize) {
+        this(expectedSize, false);
+    }
+
+    /**
+     * インスタンスを生成します。
+     * 解答を記録する場合、1から255までの解答が保持され、それ以外は{@link #UNKNOWN_ANSWER}になります。
+     *
+     * @param expectedSize 想定する問題数
+     * @param recordAnswers 解答も記録する場合はtrue
+     * @throws IllegalArgumentException 想定する問題数が負の場合に送出
+     */
+    public JudgeRecord(int expectedSize, boolean recordAnswers) {
+        if (expectedSize < 0) {
+            throw new IllegalArgumentException("take expected size is negative");
+        }
+
+        this.bits = new long[wordCount(expectedSize)];
+        this.answers = recordAnswers ? new byte[expectedSize] : null;
+    }
+
+    /**
+     * 判定結果と解答を末尾に記録します。
+     *
+     * @param judge 判定結果
+     * @param userAnswer 解答。解答を記録しない場合は無視される
+     */
+    public void record(JudgeType judge, int userAnswer) {
+        if (size == bits.length * Long.SIZE) {
+            bits = Arrays.copyOf(bits, Math.max(1, bits.length * 2));
+        }
+
+        if (judge == JudgeType.CORRECT) {
+            bits[size >>> 6] |= 1L << size;
+        }
+
+        if (answers != null) {
+            if (size == answers.length) {
+                answers = Arrays.copyOf(answers, Math.max(Long.SIZE, size * 2));
+            }
+            answers[size] = (byte) ((0 < userAnswer && userAnswer <= MAX_RECORDED_ANSWER) ?
+                    userAnswer : UNKNOWN_ANSWER);
+        }
+        ++size;
+    }
+
+    /**
+     * 判定結果を返します。
+     *
+     * @param index インデックス。0から始まる
+     * @throws IndexOutOfBoundsException インデックスが範囲外の場合に送出
+     * @return 判定結果
+     */
+    @Override
+    public JudgeType get(int index) {
+        return isCorrect(index) ? JudgeType.CORRECT : JudgeType.INCORRECT;
+    }
+
+    /**
+     * 正解したかどうかを返します。
+     *
+     * @param index インデックス。0から始まる
+     * @throws IndexOutOfBoundsException インデックスが範囲外の場合に送出
+     * @return 正解ならtrue
+     */
+    public boolean isCorrect(int index) {
+        checkIndex(index);
+        return (bits[index >>> 6] & (1L << index)) != 0;
+    }
+
+    /**
+     * 記録した解答を返します。
+     *
+     * @param index インデックス。0から始まる
+     * @throws IndexOutOfBoundsException インデックスが範囲外の場合に送出
+     * @return 解答。記録していない場合は{@link #UNKNOWN_ANSWER}
+     */
+    public int getAnswer(int index) {
+        checkIndex(index);
+        return (answers != null) ? answers[index] & MAX_RECORDED_ANSWER : UNKNOWN_ANSWER;
+    }
+
+    /**
+     * 正解数を返します。
+     *
+     * @return 正解数
+     */
+    public int getCorrectCount() {
+        int count = 0;
+        for (int i = 0, words = wordCount(size); i < words; ++i) {
+            count += Long.bitCount(bits[i]);
+        }
+        return count;
+    }
+
+    /**
+     * 最も長い連続正解数を返します。
+     *
+     * @return 最も長い連続正解数
+     */
+    public int getLongestStreak() {
+        int longest = 0;
+        int carried = 0;
+        for (int i = 0, words = wordCount(size); i < words; ++i) {
+            final long word = bits[i];
+            final boolean fullWord = size - i * Long.SIZE >= Long.SIZE;
+
+            if (fullWord && word == -1L) {
+                carried += Long.SIZE;
+                continue;
+            }
+
+            // 前のワードから続く連続正解は下位ビットに続いている
+            longest = Math.max(longest, carried + Long.numberOfTrailingZeros(~word));
+            longest = Math.max(longest, longestRun(word));
+
+            // 上位ビットで終わる連続正解は次のワードへ続く
+            carried = fullWord ? Long.numberOfLeadingZeros(~word) : 0;
+        }
+        return Math.max(longest, carried);
+    }
+
+    /**
+     * 最後の問題から遡った連続正解数を返します。
+     *
+     * @return 現在の連続正解数
+     */
+    public int getCurrentStreak() {
+        int streak = 0;
+        for (int i = wordCount(size) - 1; i >= 0; --i) {
+            final int validBits = Math.min(Long.SIZE, size - i * Long.SIZE);
+            // 有効なビットを上位に詰めてから先頭の1を数える
+            final long aligned = bits[i] << (Long.SIZE - validBits);
+            final int run = Long.numberOfLeadingZeros(~aligned);
+            if (run < validBits) {
+                return streak + run;
+            }
+            streak += validBits;
+        }
+        return streak;
+    }
+
+    /**
+     * 判定結果の短い文字列表現をカンマ区切りでビルダーに追加します。
+     *
+     * @param builder 追加先
+     * @param data データ
+     * @return 渡されたビルダー
+     */
+    public StringBuilder appendSummary(StringBuilder builder, QuizLogicData data) {
+        return appendSummary(builder, JudgeType.CORRECT.toShortString(data),
+                JudgeType.INCORRECT.toShortString(data));
+    }
+
+    /**
+     * 判定結果の短い文字列表現をカンマ区切りでビルダーに追加します。
+     *
+     * @param builder 追加先
+     * @param profile プロファイル
+     * @return 渡されたビルダー
+     */
+    public StringBuilder appendSummary(StringBuilder builder, QuizProfile profile) {
+        return appendSummary(builder, JudgeType.CORRECT.toShortString(profile),
+                JudgeType.INCORRECT.toShortString(profile));
+    }
+
+    private StringBuilder appendSummary(StringBuilder builder, String correct, String incorrect) {
+        for (int i = 0; i < size; ++i) {
+            if (i != 0) {
+                builder.append(", ");
+            }
+            builder.append(isCorrect(i) ? correct : incorrect);
+        }
+        return builder;
+    }
+
+    /**
+     * 記録した問題数を返します。
+     *
+     * @return 問題数
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || size <= index) {
+            throw new IndexOutOfBoundsException("Index is out of record bounds: " + index);
+        }
+    }
+
+    private static int wordCount(int bitCount) {
+        return (bitCount + Long.SIZE - 1) >>> 6;
+    }
+
+    private static int longestRun(long word) {
+        int run = 0;
+        for (long rest = word; rest != 0; rest &= rest >>> 1) {
+            ++run;
+        }
+        return run;
+    }
+}
@@ -27,6 +27,17 @@ public enum JudgeType {
         this.toShortStringFunc = toShortStringFunc;
     }
 
+    /**
+     * 解答を判定して結果を返す。
+     *
+     * @param question 問題
+     * @param userAnswer 解答
+     * @return 判定結果
+     */
+    public static JudgeType judge(Question question, int userAnswer) {
+        return (userAnswer == question.getAnswerIndex()) ? CORRECT : INCORRECT;
+    }
+
     /**
      * 受け取ったデータからこのインスタンスに応じた文字列表現を返す。
      *
@@ -46,4 +57,24 @@ public enum JudgeType {
     public String toShortString(QuizLogicData quizLogicData) {
         return toShortStringFunc.apply(quizLogicData);
     }
+
+    /**
+     * 受け取ったプロファイルからこのインスタンスに応じた文字列表現を返す。
+     *
+     * @param profile 用いるプロファイル
+     * @return 文字列表現
+     */
+    public String toString(QuizProfile profile) {
+        return profile.getJudgeMessage(this);
+    }
+
+    /**
+     * 受け取ったプロファイルからこのインスタンスに応じた短い文字列表現を返す。
+     *
+     * @param profile 用いるプロファイル
+     * @return 短い文字列表現
+     */
+    public String toShortString(QuizProfile profile) {
+        return profile.getShortJudgeMessage(this);
+    }
 }
\ No newline at end of file
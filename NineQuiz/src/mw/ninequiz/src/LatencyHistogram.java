@@ -0,0 +1,166 @@
+package mw.ninequiz.src;
+
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 所要時間の分布を記録するヒストグラムです。
+ * 2の累乗ごとの区間をさらに4分割したバケットに{@link LongAdder}で数えるため、
+ * 多数のスレッドから同時に記録しても競合しません。
+ * 百分位数の誤差は最大で25%です。
+ *
+ * @author Getaji
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 2;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKET_COUNT = Long.SIZE * SUB_BUCKETS;
+
+    /**
+     * ある時点のヒストグラムの内容です。このクラスは不変です。
+     */
+    public static final class Snapshot {
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long sum, long max) {
+            long total = 0;
+            for (long bucketCount : counts) {
+                total += bucketCount;
+            }
+            this.counts = counts;
+            this.count = total;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        /**
+         * 記録した回数を返します。
+         *
+         * @return 回数
+         */
+        public long getCount() {
+            return count;
+        }
+
+        /**
+         * 平均値を返します。記録がない場合は0を返します。
+         *
+         * @return 平均値
+         */
+        public double getMean() {
+            return (count == 0) ? 0 : (double) sum / count;
+        }
+
+        /**
+         * 最大値を返します。記録がない場合は0を返します。
+         *
+         * @return 最大値
+         */
+        public long getMax() {
+            return max;
+        }
+
+        /**
+         * 百分位数を返します。値は該当するバケットの上限で、最大値を超えません。
+         * 記録がない場合は0を返します。
+         *
+         * @param percentile 0から100までの百分位
+         * @throws IllegalArgumentException 百分位が範囲外の場合に送出
+         * @return 百分位数
+         */
+        public long getPercentile(double percentile) {
+            if (percentile < 0 || 100 < percentile) {
+                throw new IllegalArgumentException("take percentile is out of bounds: " + percentile);
+            }
+
+            if (count == 0) {
+                return 0;
+            }
+
+            final long rank = Math.max(1, (long) Math.ceil(count * percentile / 100));
+            long seen = 0;
+            for (int i = 0; i < counts.length; ++i) {
+                seen += counts[i];
+                if (seen >= rank) {
+                    return Math.min(max, upperBound(i));
+                }
+            }
+            return max;
+        }
+    }
+
+    private final LongAdder[] buckets = new LongAdder[BUCKET_COUNT];
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    /**
+     * 空のヒストグラムを生成します。
+     */
+    public LatencyHistogram() {
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+    /**
+     * 値を記録します。負の値は0として記録されます。
+     *
+     * @param value 値
+     */
+    public void record(long value) {
+        final long clamped = Math.max(0, value);
+        buckets[bucketOf(clamped)].increment();
+        sum.add(clamped);
+        max.accumulate(clamped);
+    }
+
+    /**
+     * 現時点の内容を返します。記録中の値が一部だけ反映されることがあります。
+     *
+     * @return 内容
+     */
+    public Snapshot snapshot() {
+        final long[] counts = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; ++i) {
+            counts[i] = buckets[i].sum();
+        }
+        return new Snapshot(counts, sum.sum(), max.get());
+    }
+
+    /**
+     * 記録をすべて消去します。記録中の値が消去されずに残ることがあります。
+     */
+    public void reset() {
+        for (LongAdder bucket : buckets) {
+            bucket.reset();
+        }
+        sum.reset();
+        max.reset();
+    }
+
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+
+        final int exponent = Long.SIZE - 1 - Long.numberOfLeadingZeros(value);
+        final int sub = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return exponent * SUB_BUCKETS + sub;
+    }
+
+    static long upperBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+
+        final int shift = bucket / SUB_BUCKETS - SUB_BUCKET_BITS;
+        final long next = (SUB_BUCKETS | (bucket % SUB_BUCKETS)) + 1;
+        // 最上位付近のバケットでは上限がlongを超える
+        return (shift >= Long.SIZE - SUB_BUCKET_BITS - 2) ?
+                Long.MAX_VALUE : (next << shift) - 1;
+    }
+}
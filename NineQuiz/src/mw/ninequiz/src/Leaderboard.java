@@ -0,0 +1,531 @@
+package mw.ninequiz.src;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * 判定された解答から随時更新される順位表です。
+ * 順位は得点の高い順で、同じ得点の場合は解答にかかった時間の合計が短い順、
+ * それも同じ場合はプレイヤーIDの小さい順です。
+ *
+ * <p>プレイヤーはIDのハッシュで複数のシャードに振り分けられ、
+ * 各シャードは部分木の大きさを持つTreapで順序を保ちます。
+ * 更新はそのプレイヤーのシャードだけをロックしてO(log n)で終わります。
+ * 既存のプレイヤーの更新は同じノードを入れ直すだけで、オブジェクトを生成しません。
+ * プレイヤーIDからノードを引く表はIDを箱詰めしない開番地法のハッシュ表で、
+ * 新しいプレイヤーの追加時にノードを、表が埋まってきたときに拡張した配列を確保します。
+ * 順位はシャードごとに自分より上の人数を数えて足すためO(S log n)、
+ * 上位K人は各シャードの上位K人を併合して求めます。
+ *
+ * <p>シャードをまたぐ問い合わせは全体を止めずにシャードを順にロックするため、
+ * 同時に行われた更新の一部だけが反映されることがあります。
+ *
+ * <p>{@link AnswerListener}として登録すると、セッションIDをプレイヤーIDとして集計します。
+ *
+ * @author Getaji
+ */
+public class Leaderboard implements AnswerListener {
+
+    /**
+     * 順位表の1人分のノードです。更新時は同じノードを取り外し、キーを変えて入れ直します。
+     */
+    private static final class Node {
+        private final long playerId;
+        private final int priority;
+        private int score;
+        private long timeNanos;
+        private int size = 1;
+        private Node left;
+        private Node right;
+
+        private Node(long playerId, int priority) {
+            this.playerId = playerId;
+            this.priority = priority;
+        }
+    }
+
+    /**
+     * 1つのシャードです。すべての操作はシャード自身をロックして行います。
+     */
+    private static final class Shard {
+        private final SplittableRandom random;
+        // 分割の結果を受け取る配列。ロック中だけ使うため使い回す
+        private final Node[] split = new Node[2];
+        private Node[] table = new Node[INITIAL_TABLE_SIZE];
+        private int tableShift = Long.SIZE - Integer.numberOfTrailingZeros(INITIAL_TABLE_SIZE);
+        private int count;
+        private Node root;
+
+        private Shard(long seed) {
+            this.random = new SplittableRandom(seed);
+        }
+
+        private synchronized void add(long playerId, int score, long timeNanos) {
+            Node node = find(playerId);
+            if (node == null) {
+                node = new Node(playerId, random.nextInt());
+                put(node);
+            } else {
+                root = erase(root, node);
+                node.left = null;
+                node.right = null;
+                node.size = 1;
+            }
+            node.score += score;
+            node.timeNanos += timeNanos;
+            root = insert(root, node, split);
+        }
+
+        private synchronized boolean remove(long playerId) {
+            final Node node = delete(playerId);
+            if (node == null) {
+                return false;
+            }
+            root = erase(root, node);
+            return true;
+        }
+
+        private synchronized LeaderboardEntry take(long playerId) {
+            final Node node = delete(playerId);
+            if (node == null) {
+                return null;
+            }
+            root = erase(root, node);
+            return new LeaderboardEntry(node.playerId, node.score, node.timeNanos, 0);
+        }
+
+        private synchronized LeaderboardEntry get(long playerId) {
+            final Node node = find(playerId);
+            return (node == null) ? null : new LeaderboardEntry(node.playerId, node.score,
+                    node.timeNanos, 0);
+        }
+
+        private synchronized int countAbove(int score, long timeNanos, long playerId) {
+            int count = 0;
+            Node node = root;
+            while (node != null) {
+                if (compare(node, score, timeNanos, playerId) < 0) {
+                    count += size(node.left) + 1;
+                    node = node.right;
+                } else {
+                    node = node.left;
+                }
+            }
+            return count;
+        }
+
+        private synchronized void collectTop(int count, List<LeaderboardEntry> into) {
+            // 中間順に辿り、先頭からcount人を取り出す
+            final List<Node> stack = new ArrayList<>();
+            Node node = root;
+            int taken = 0;
+            while ((node != null || !stack.isEmpty()) && taken < count) {
+                while (node != null) {
+                    stack.add(node);
+                    node = node.left;
+                }
+                node = stack.remove(stack.size() - 1);
+                into.add(new LeaderboardEntry(node.playerId, node.score, node.timeNanos, 0));
+                ++taken;
+                node = node.right;
+            }
+        }
+
+        private synchronized int playerCount() {
+            return count;
+        }
+
+        private synchronized void clear() {
+            Arrays.fill(table, null);
+            count = 0;
+            root = null;
+        }
+
+        // ================================================================
+        // プレイヤーIDからノードを引く表
+        // ================================================================
+
+        private int slotOf(long playerId) {
+            // シャードの振り分けとは別の乗数で混ぜ、上位ビットを使う
+            return (int) ((playerId * 0xC2B2AE3D27D4EB4FL) >>> tableShift);
+        }
+
+        private Node find(long playerId) {
+            final int mask = table.length - 1;
+            for (int slot = slotOf(playerId); ; slot = (slot + 1) & mask) {
+                final Node node = table[slot];
+                if (node == null || node.playerId == playerId) {
+                    return node;
+                }
+            }
+        }
+
+        private void put(Node node) {
+            if ((count + 1) * 2 > table.length) {
+                final Node[] old = table;
+                table = new Node[old.length * 2];
+                --tableShift;
+                for (Node moved : old) {
+                    if (moved != null) {
+                        place(moved);
+                    }
+                }
+            }
+            place(node);
+            ++count;
+        }
+
+        private void place(Node node) {
+            final int mask = table.length - 1;
+            int slot = slotOf(node.playerId);
+            while (table[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = node;
+        }
+
+        private Node delete(long playerId) {
+            final int mask = table.length - 1;
+            int slot = slotOf(playerId);
+            Node node;
+            while ((node = table[slot]) != null && node.playerId != playerId) {
+                slot = (slot + 1) & mask;
+            }
+
+            if (node == null) {
+                return null;
+            }
+
+            // 後ろに続くノードを詰めて、探索が途切れないようにする
+            int hole = slot;
+            for (int next = (hole + 1) & mask; table[next] != null; next = (next + 1) & mask) {
+                final int home = slotOf(table[next].playerId);
+                if (((next - home) & mask) >= ((next - hole) & mask)) {
+                    table[hole] = table[next];
+                    hole = next;
+                }
+            }
+            table[hole] = null;
+            --count;
+            return node;
+        }
+    }
+
+    // シャードごとの表の初期の大きさ。2の累乗
+    private static final int INITIAL_TABLE_SIZE = 16;
+
+    /** 既定のシャード数。 */
+    public static final int DEFAULT_SHARD_COUNT = defaultShardCount();
+
+    private final Shard[] shards;
+    private final int shardMask;
+
+    /**
+     * 既定のシャード数でインスタンスを生成します。
+     */
+    public Leaderboard() {
+        this(DEFAULT_SHARD_COUNT);
+    }
+
+    /**
+     * シャード数を指定してインスタンスを生成します。
+     * シャード数は2の累乗に切り上げられます。
+     *
+     * @param shardCount シャード数
+     * @throws IllegalArgumentException シャード数が正でないか、大きすぎる場合に送出
+     */
+    public Leaderboard(int shardCount) {
+        if (shardCount <= 0 || (1 << 16) < shardCount) {
+            throw new IllegalArgumentException("take shard count is out of range: " + shardCount);
+        }
+
+        final int count = Integer.highestOneBit(shardCount - 1) << 1;
+        this.shards = new Shard[Math.max(1, count)];
+        this.shardMask = shards.length - 1;
+        for (int i = 0; i < shards.length; ++i) {
+            shards[i] = new Shard(0x9E3779B97F4A7C15L * (i + 1));
+        }
+    }
+
+    @Override
+    public void onAnswer(QuizSession session, int questionIndex, Question question,
+                         int userAnswer, JudgeType judge, long thinkNanos) {
+        record(session.getId(), judge, thinkNanos);
+    }
+
+    /**
+     * 判定結果を記録します。正解であれば得点が1増え、解答にかかった時間が加算されます。
+     *
+     * @param playerId プレイヤーID
+     * @param judge 判定結果
+     * @param thinkNanos 解答にかかったナノ秒。負の場合は加算しない
+     * @throws NullPointerException 判定結果がnullの場合に送出
+     */
+    public void record(long playerId, JudgeType judge, long thinkNanos) {
+        if (judge == null) {
+            throw new NullPointerException("take judge is null");
+        }
+        add(playerId, (judge == JudgeType.CORRECT) ? 1 : 0, thinkNanos);
+    }
+
+    /**
+     * プレイヤーの得点と時間を加算します。まだいないプレイヤーは追加されます。
+     *
+     * @param playerId プレイヤーID
+     * @param score 加算する得点
+     * @param timeNanos 加算するナノ秒。負の場合は加算しない
+     */
+    public void add(long playerId, int score, long timeNanos) {
+        shardOf(playerId).add(playerId, score, Math.max(0, timeNanos));
+    }
+
+    /**
+     * プレイヤーを順位表から取り除きます。
+     *
+     * @param playerId プレイヤーID
+     * @return 取り除いた場合はtrue
+     */
+    public boolean remove(long playerId) {
+        return shardOf(playerId).remove(playerId);
+    }
+
+    /**
+     * プレイヤーの順位を返します。
+     *
+     * @param playerId プレイヤーID
+     * @return 順位。1から始まる。プレイヤーがいない場合は-1
+     */
+    public int getRank(long playerId) {
+        final LeaderboardEntry entry = getEntry(playerId);
+        return (entry == null) ? -1 : entry.getRank();
+    }
+
+    /**
+     * プレイヤーの得点と順位を返します。
+     *
+     * @param playerId プレイヤーID
+     * @return 順位。プレイヤーがいない場合はnull
+     */
+    public LeaderboardEntry getEntry(long playerId) {
+        final LeaderboardEntry entry = shardOf(playerId).get(playerId);
+        if (entry == null) {
+            return null;
+        }
+
+        final int above = countAbove(entry.getScore(), entry.getTimeNanos(), playerId);
+        return new LeaderboardEntry(playerId, entry.getScore(), entry.getTimeNanos(), above + 1);
+    }
+
+    /**
+     * 指定した得点と時間、プレイヤーIDより上位のプレイヤー数を返します。
+     * 複数の順位表をまたいで順位を求める{@link QuizCluster}から使用されます。
+     *
+     * @param score 得点
+     * @param timeNanos 時間
+     * @param playerId プレイヤーID
+     * @return 上位のプレイヤー数
+     */
+    int countAbove(int score, long timeNanos, long playerId) {
+        int above = 0;
+        for (Shard shard : shards) {
+            above += shard.countAbove(score, timeNanos, playerId);
+        }
+        return above;
+    }
+
+    /**
+     * プレイヤーを取り除き、その得点と時間を返します。返される順位は0です。
+     * プレイヤーを他の順位表へ移す{@link QuizCluster}から使用されます。
+     *
+     * @param playerId プレイヤーID
+     * @return 取り除いたプレイヤーの得点と時間。プレイヤーがいない場合はnull
+     */
+    LeaderboardEntry take(long playerId) {
+        return shardOf(playerId).take(playerId);
+    }
+
+    /**
+     * 上位のプレイヤーを順位の順に返します。
+     *
+     * @param count 取得する人数
+     * @throws IllegalArgumentException 人数が負の場合に送出
+     * @return 上位のプレイヤーのリスト。人数が足りない場合は全員
+     */
+    public List<LeaderboardEntry> top(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("take count is negative");
+        }
+
+        final List<LeaderboardEntry> candidates = new ArrayList<>();
+        for (Shard shard : shards) {
+            shard.collectTop(count, candidates);
+        }
+        candidates.sort(Leaderboard::compare);
+
+        final int size = Math.min(count, candidates.size());
+        final List<LeaderboardEntry> top = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            final LeaderboardEntry entry = candidates.get(i);
+            top.add(new LeaderboardEntry(entry.getPlayerId(), entry.getScore(),
+                    entry.getTimeNanos(), i + 1));
+        }
+        return top;
+    }
+
+    /**
+     * プレイヤー数を返します。
+     *
+     * @return プレイヤー数
+     */
+    public int size() {
+        int size = 0;
+        for (Shard shard : shards) {
+            size += shard.playerCount();
+        }
+        return size;
+    }
+
+    /**
+     * すべてのプレイヤーを取り除きます。
+     */
+    public void clear() {
+        for (Shard shard : shards) {
+            shard.clear();
+        }
+    }
+
+    /**
+     * シャード数を返します。
+     *
+     * @return シャード数
+     */
+    public int getShardCount() {
+        return shards.length;
+    }
+
+    private Shard shardOf(long playerId) {
+        // 連番のIDが偏らないよう混ぜてから振り分ける
+        long hash = playerId * 0x9E3779B97F4A7C15L;
+        hash ^= hash >>> 32;
+        return shards[(int) hash & shardMask];
+    }
+
+    private static int defaultShardCount() {
+        final int processors = Runtime.getRuntime().availableProcessors();
+        return Math.min(64, Integer.highestOneBit(Math.max(1, processors * 2 - 1)) << 1);
+    }
+
+    // ================================================================
+    // Treap
+    // ================================================================
+
+    private static int compare(int scoreA, long timeA, long idA, int scoreB, long timeB, long idB) {
+        if (scoreA != scoreB) {
+            return (scoreA > scoreB) ? -1 : 1;
+        }
+
+        if (timeA != timeB) {
+            return (timeA < timeB) ? -1 : 1;
+        }
+        return Long.compare(idA, idB);
+    }
+
+    /**
+     * 2人の順位を比べます。
+     *
+     * @return aが上位なら負、bが上位なら正、同じプレイヤーなら0
+     */
+    static int compare(LeaderboardEntry a, LeaderboardEntry b) {
+        return compare(a.getScore(), a.getTimeNanos(), a.getPlayerId(),
+                b.getScore(), b.getTimeNanos(), b.getPlayerId());
+    }
+
+    private static int compare(Node node, int score, long timeNanos, long playerId) {
+        return compare(node.score, node.timeNanos, node.playerId, score, timeNanos, playerId);
+    }
+
+    private static int size(Node node) {
+        return (node == null) ? 0 : node.size;
+    }
+
+    private static Node update(Node node) {
+        node.size = size(node.left) + size(node.right) + 1;
+        return node;
+    }
+
+    private static Node insert(Node root, Node node, Node[] split) {
+        if (root == null) {
+            return node;
+        }
+
+        if (node.priority > root.priority) {
+            // nodeを根として、rootの木をnodeのキーで分割する
+            split(root, node, split);
+            node.left = split[0];
+            node.right = split[1];
+            split[0] = null;
+            split[1] = null;
+            return update(node);
+        }
+
+        if (compare(node, root.score, root.timeNanos, root.playerId) < 0) {
+            root.left = insert(root.left, node, split);
+        } else {
+            root.right = insert(root.right, node, split);
+        }
+        return update(root);
+    }
+
+    /**
+     * 木をキーより前と後に分割します。
+     */
+    private static void split(Node root, Node key, Node[] out) {
+        if (root == null) {
+            out[0] = null;
+            out[1] = null;
+            return;
+        }
+
+        if (compare(root, key.score, key.timeNanos, key.playerId) < 0) {
+            split(root.right, key, out);
+            root.right = out[0];
+            out[0] = update(root);
+        } else {
+            split(root.left, key, out);
+            root.left = out[1];
+            out[1] = update(root);
+        }
+    }
+
+    private static Node erase(Node root, Node node) {
+        if (root == node) {
+            return merge(node.left, node.right);
+        }
+
+        if (compare(node, root.score, root.timeNanos, root.playerId) < 0) {
+            root.left = erase(root.left, node);
+        } else {
+            root.right = erase(root.right, node);
+        }
+        return update(root);
+    }
+
+    private static Node merge(Node left, Node right) {
+        if (left == null) {
+            return right;
+        }
+
+        if (right == null) {
+            return left;
+        }
+
+        if (left.priority > right.priority) {
+            left.right = merge(left.right, right);
+            return update(left);
+        }
+        right.left = merge(left, right.left);
+        return update(right);
+    }
+}
@@ -0,0 +1,62 @@
+package mw.ninequiz.src;
+
+/**
+ * {@link Leaderboard}のある時点の1人分の順位を表すクラスです。このクラスは不変です。
+ *
+ * @author Getaji
+ */
+public final class LeaderboardEntry {
+
+    private final long playerId;
+    private final int score;
+    private final long timeNanos;
+    private final int rank;
+
+    LeaderboardEntry(long playerId, int score, long timeNanos, int rank) {
+        this.playerId = playerId;
+        this.score = score;
+        this.timeNanos = timeNanos;
+        this.rank = rank;
+    }
+
+    /**
+     * プレイヤーIDを返します。
+     *
+     * @return プレイヤーID
+     */
+    public long getPlayerId() {
+        return playerId;
+    }
+
+    /**
+     * 得点を返します。
+     *
+     * @return 得点
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * 解答にかかった時間の合計をナノ秒で返します。
+     *
+     * @return ナノ秒
+     */
+    public long getTimeNanos() {
+        return timeNanos;
+    }
+
+    /**
+     * 順位を返します。
+     *
+     * @return 順位。1から始まる
+     */
+    public int getRank() {
+        return rank;
+    }
+
+    @Override
+    public String toString() {
+        return rank + ":" + playerId + "=" + score + "(" + (timeNanos / 1_000_000) + "ms)";
+    }
+}
@@ -11,7 +11,18 @@ import java.util.List;
 public class Main {
 
     public static void main(String[] args) {
-        final List<Question> questions = Arrays.asList(
+        final QuizLogicData quizData = new QuizLogicData();
+        final QuizLogic quizLogic = QuizLogic.of(sampleQuestions(), quizData);
+        quizLogic.start();
+    }
+
+    /**
+     * さんぷるの問題を返します。
+     *
+     * @return 問題のリスト
+     */
+    static List<Question> sampleQuestions() {
+        return Arrays.asList(
                 Question.builder().setStatement("Javaの型付けは何ですか？")
                         .addChoiceAll("静的型付け", "動的型付け", "性的型付け")
                         .setAnswerIndex(1)
@@ -21,8 +32,5 @@ public class Main {
                         .setAnswerIndex(2)
                         .build()
         );
-        final QuizLogicData quizData = new QuizLogicData();
-        final QuizLogic quizLogic = QuizLogic.of(questions, quizData);
-        quizLogic.start();
     }
 }
@@ -0,0 +1,76 @@
+package mw.ninequiz.src;
+
+/**
+ * 出力をメモリ上に保持する出力先です。
+ * ベンチマークや出力内容の確認に使用します。
+ *
+ * <p>{@link #discarding()}で生成したインスタンスは出力をすべて捨て、書き出し回数のみを数えます。
+ *
+ * @author Getaji
+ */
+public class MemoryQuizOutput implements QuizOutput {
+
+    /**
+     * 出力を捨てるインスタンスを生成して返します。
+     *
+     * @return インスタンス
+     */
+    public static MemoryQuizOutput discarding() {
+        return new MemoryQuizOutput(null);
+    }
+
+    private final StringBuilder text;
+    private int flushCount;
+
+    /**
+     * 出力を保持するインスタンスを生成します。
+     */
+    public MemoryQuizOutput() {
+        this(new StringBuilder());
+    }
+
+    private MemoryQuizOutput(StringBuilder text) {
+        this.text = text;
+    }
+
+    @Override
+    public QuizOutput print(CharSequence text) {
+        if (this.text != null) {
+            this.text.append(text);
+        }
+        return this;
+    }
+
+    @Override
+    public void flush() {
+        ++flushCount;
+    }
+
+    /**
+     * これまでの出力を返します。出力を捨てるインスタンスの場合は空文字を返します。
+     *
+     * @return 出力
+     */
+    public String getText() {
+        return (text != null) ? text.toString() : "";
+    }
+
+    /**
+     * これまでの出力と書き出し回数を消去します。
+     */
+    public void clear() {
+        if (text != null) {
+            text.setLength(0);
+        }
+        flushCount = 0;
+    }
+
+    /**
+     * {@link #flush()}が呼ばれた回数を返します。
+     *
+     * @return 書き出し回数
+     */
+    public int getFlushCount() {
+        return flushCount;
+    }
+}
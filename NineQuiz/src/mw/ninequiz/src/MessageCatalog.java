@@ -0,0 +1,309 @@
+package mw.ninequiz.src;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * ロケールごとの{@link QuizProfile}をまとめたカタログです。このクラスは不変です。
+ *
+ * <p>文言はUTF-8のプロパティファイルから読み込みます。
+ * ファイル名は{@code messages.properties}が既定のロケール、
+ * {@code messages_en.properties}や{@code messages_en_US.properties}がそれぞれのロケールを表します。
+ * ファイルにないキーは、言語だけのファイル、既定のファイル、{@link QuizLogicData}の初期値の順に補われます。
+ *
+ * <p>読み込みは起動時に一度だけ行い、各ロケールの書式のコンパイルと文言のUTF-8への変換もその時に済ませます。
+ * セッションには{@link #get(Locale)}で得たプロファイルを渡すため、
+ * 既定以外のロケールでも表示のたびに余計な処理は発生しません。
+ *
+ * <p>使用できるキーは次のとおりです。
+ * <ul>
+ *     <li>{@code start} 開始時の文言</li>
+ *     <li>{@code question.number} 問題番号の書式</li>
+ *     <li>{@code question.choice.number} 選択肢番号の書式</li>
+ *     <li>{@code judge.correct} 正解時の文言</li>
+ *     <li>{@code judge.incorrect} 不正解時の文言</li>
+ *     <li>{@code judge.correct.short} 正解の短い文言</li>
+ *     <li>{@code judge.incorrect.short} 不正解の短い文言</li>
+ *     <li>{@code prompt} 解答の入力欄の文言</li>
+ *     <li>{@code result.header} 結果の見出し</li>
+ * </ul>
+ *
+ * @author Getaji
+ */
+public final class MessageCatalog {
+
+    /** 同梱している文言のリソース名。拡張子とロケールを除く。 */
+    public static final String BASE_NAME = "mw/ninequiz/src/messages";
+
+    /** 同梱している文言のロケール。既定のロケールは含まない。 */
+    private static final Locale[] BUNDLED_LOCALES = {Locale.ENGLISH};
+
+    private static final String FILE_PREFIX = "messages";
+    private static final String FILE_SUFFIX = ".properties";
+
+    private static volatile MessageCatalog bundled;
+
+    /**
+     * 同梱している文言のカタログを返します。初回の呼び出しで読み込まれます。
+     *
+     * @throws IllegalStateException 同梱の文言が読み込めなかった場合に送出
+     * @return カタログ
+     */
+    public static MessageCatalog getDefault() {
+        MessageCatalog catalog = bundled;
+        if (catalog == null) {
+            synchronized (MessageCatalog.class) {
+                catalog = bundled;
+                if (catalog == null) {
+                    try {
+                        catalog = load(BUNDLED_LOCALES);
+                    } catch (IOException e) {
+                        throw new IllegalStateException("Failed to load bundled messages", e);
+                    }
+                    bundled = catalog;
+                }
+            }
+        }
+        return catalog;
+    }
+
+    /**
+     * 同梱している文言から、指定したロケールのカタログを読み込みます。
+     * 既定のロケールは常に読み込まれ、対応するファイルがないロケールは無視されます。
+     *
+     * @param locales ロケール
+     * @throws IOException 読み込みに失敗した場合に送出
+     * @return カタログ
+     */
+    public static MessageCatalog load(Locale... locales) throws IOException {
+        final ClassLoader loader = MessageCatalog.class.getClassLoader();
+        final Map<Locale, Properties> sources = new HashMap<>();
+        for (Locale locale : withParents(locales)) {
+            final String name = BASE_NAME + suffixOf(locale) + FILE_SUFFIX;
+            try (InputStream stream = loader.getResourceAsStream(name)) {
+                if (stream != null) {
+                    sources.put(locale, read(stream));
+                }
+            }
+        }
+        return new MessageCatalog(sources);
+    }
+
+    /**
+     * ディレクトリにある{@code messages*.properties}をすべて読み込みます。
+     *
+     * @param directory ディレクトリ
+     * @throws NoSuchFileException ディレクトリが存在しない場合に送出
+     * @throws IOException 読み込みに失敗した場合に送出
+     * @return カタログ
+     */
+    public static MessageCatalog load(Path directory) throws IOException {
+        final Map<Locale, Properties> sources = new HashMap<>();
+        try (DirectoryStream<Path> files =
+                     Files.newDirectoryStream(directory, FILE_PREFIX + "*" + FILE_SUFFIX)) {
+            for (Path file : files) {
+                final String name = file.getFileName().toString();
+                final String suffix = name.substring(FILE_PREFIX.length(),
+                        name.length() - FILE_SUFFIX.length());
+                final Locale locale = localeOf(suffix);
+                if (locale == null) {
+                    continue;
+                }
+                try (InputStream stream = Files.newInputStream(file)) {
+                    sources.put(locale, read(stream));
+                }
+            }
+        }
+        return new MessageCatalog(sources);
+    }
+
+    private static Properties read(InputStream stream) throws IOException {
+        final Properties properties = new Properties();
+        try (Reader reader = new InputStreamReader(stream, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        return properties;
+    }
+
+    /**
+     * ロケールに言語だけのロケールと既定のロケールを加えて返します。
+     */
+    private static Set<Locale> withParents(Locale[] locales) {
+        final Set<Locale> result = new LinkedHashSet<>();
+        result.add(Locale.ROOT);
+        for (Locale locale : locales) {
+            result.add(new Locale(locale.getLanguage()));
+            result.add(new Locale(locale.getLanguage(), locale.getCountry()));
+        }
+        return result;
+    }
+
+    private static String suffixOf(Locale locale) {
+        if (locale.getLanguage().isEmpty()) {
+            return "";
+        }
+        return locale.getCountry().isEmpty() ? "_" + locale.getLanguage()
+                : "_" + locale.getLanguage() + "_" + locale.getCountry();
+    }
+
+    /**
+     * ファイル名のロケールの部分からロケールを返します。
+     *
+     * @return ロケール。ロケールを表していない場合はnull
+     */
+    private static Locale localeOf(String suffix) {
+        if (suffix.isEmpty()) {
+            return Locale.ROOT;
+        }
+
+        final String[] parts = suffix.split("_", -1);
+        if (!parts[0].isEmpty() || parts.length < 2 || 3 < parts.length || parts[1].isEmpty()) {
+            return null;
+        }
+        return (parts.length == 2) ? new Locale(parts[1]) : new Locale(parts[1], parts[2]);
+    }
+
+    /**
+     * プロパティの文言をビルダーに設定します。
+     *
+     * @throws IllegalArgumentException 不明なキーがある場合に送出
+     */
+    private static void apply(QuizProfile.Builder builder, Properties properties, Locale locale) {
+        for (String key : properties.stringPropertyNames()) {
+            final String value = properties.getProperty(key);
+            switch (key) {
+                case "start":
+                    builder.startMessage(value);
+                    break;
+                case "question.number":
+                    builder.questionNumberText(value);
+                    break;
+                case "question.choice.number":
+                    builder.questionChoiceNumberText(value);
+                    break;
+                case "judge.correct":
+                    builder.correctMessage(value);
+                    break;
+                case "judge.incorrect":
+                    builder.incorrectMessage(value);
+                    break;
+                case "judge.correct.short":
+                    builder.simpleCorrectMessage(value);
+                    break;
+                case "judge.incorrect.short":
+                    builder.simpleIncorrectMessage(value);
+                    break;
+                case "prompt":
+                    builder.promptText(value);
+                    break;
+                case "result.header":
+                    builder.resultHeaderText(value);
+                    break;
+                default:
+                    throw new IllegalArgumentException(
+                            "unknown message key '" + key + "' for locale '" + locale + "'");
+            }
+        }
+    }
+
+    // ================================================================
+    // MessageCatalog
+    // ================================================================
+
+    // ロケールの言語と国をつないだ文字列からプロファイルを引く
+    private final Map<String, QuizProfile> profiles;
+    private final QuizProfile defaultProfile;
+    private final List<Locale> locales;
+
+    private MessageCatalog(Map<Locale, Properties> sources) {
+        final Properties rootSource = sources.get(Locale.ROOT);
+        final Map<String, QuizProfile> table = new HashMap<>(sources.size() * 2);
+        final List<Locale> loaded = new ArrayList<>(sources.size());
+        for (Locale locale : sources.keySet()) {
+            final QuizProfile.Builder builder = QuizProfile.builder();
+            if (rootSource != null) {
+                apply(builder, rootSource, Locale.ROOT);
+            }
+            if (!locale.getCountry().isEmpty()) {
+                final Properties languageSource = sources.get(new Locale(locale.getLanguage()));
+                if (languageSource != null) {
+                    apply(builder, languageSource, locale);
+                }
+            }
+            apply(builder, sources.get(locale), locale);
+
+            table.put(keyOf(locale.getLanguage(), locale.getCountry()), builder.build());
+            if (!locale.getLanguage().isEmpty()) {
+                loaded.add(locale);
+            }
+        }
+
+        final QuizProfile root = table.get(keyOf("", ""));
+        this.defaultProfile = (root != null) ? root : QuizProfile.DEFAULT;
+        this.profiles = table;
+        loaded.sort((a, b) -> a.toString().compareTo(b.toString()));
+        this.locales = Collections.unmodifiableList(loaded);
+    }
+
+    private static String keyOf(String language, String country) {
+        return country.isEmpty() ? language : language + '_' + country;
+    }
+
+    /**
+     * ロケールのプロファイルを返します。
+     * 言語と国の両方が一致するものがなければ言語が一致するもの、それもなければ既定のプロファイルを返します。
+     *
+     * @param locale ロケール。nullの場合は既定のプロファイル
+     * @return プロファイル
+     */
+    public QuizProfile get(Locale locale) {
+        if (locale == null) {
+            return defaultProfile;
+        }
+
+        final String language = locale.getLanguage();
+        if (!locale.getCountry().isEmpty()) {
+            final QuizProfile exact = profiles.get(keyOf(language, locale.getCountry()));
+            if (exact != null) {
+                return exact;
+            }
+        }
+
+        final QuizProfile profile = profiles.get(language);
+        return (profile != null) ? profile : defaultProfile;
+    }
+
+    /**
+     * 既定のロケールのプロファイルを返します。
+     *
+     * @return プロファイル
+     */
+    public QuizProfile getDefaultProfile() {
+        return defaultProfile;
+    }
+
+    /**
+     * 読み込んだロケールを返します。既定のロケールは含みません。返されるリストは変更できません。
+     *
+     * @return ロケールのリスト
+     */
+    public List<Locale> getLocales() {
+        return locales;
+    }
+}
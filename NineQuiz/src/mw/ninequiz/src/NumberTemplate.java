@@ -0,0 +1,185 @@
+package mw.ninequiz.src;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * {@code "{num}"}を番号に置換する書式をコンパイルしたクラスです。このクラスは不変です。
+ * {@link QuizLogicData#getQuestionNumberText()}などの書式を一度だけ解析し、
+ * 以降は呼び出し元が用意した{@link StringBuilder}や{@link ByteBuffer}へ直接書き込みます。
+ *
+ * <p>1からキャッシュサイズまでの番号は、文字列とUTF-8のバイト列を事前に生成して保持します。
+ *
+ * @author Getaji
+ */
+public final class NumberTemplate {
+
+    /** 番号に置換されるプレースホルダ。 */
+    public static final String PLACEHOLDER = "{num}";
+
+    /** 事前に生成する番号の既定の上限。 */
+    public static final int DEFAULT_CACHE_SIZE = 32;
+
+    /**
+     * 書式をコンパイルして返します。
+     * 1から{@link #DEFAULT_CACHE_SIZE}までの番号は事前に生成されます。
+     *
+     * @param source 書式
+     * @throws NullPointerException パラメータがnullの場合に送出
+     * @return コンパイルされた書式
+     */
+    public static NumberTemplate compile(String source) {
+        return new NumberTemplate(source, DEFAULT_CACHE_SIZE);
+    }
+
+    /**
+     * 書式をコンパイルして返します。
+     *
+     * @param source 書式
+     * @param cacheSize 事前に生成する番号の上限
+     * @throws NullPointerException 書式がnullの場合に送出
+     * @throws IllegalArgumentException キャッシュサイズが負の場合に送出
+     * @return コンパイルされた書式
+     */
+    public static NumberTemplate compile(String source, int cacheSize) {
+        return new NumberTemplate(source, cacheSize);
+    }
+
+    private final String source;
+
+    // プレースホルダで区切られた固定部分。プレースホルダの数はliterals.length - 1
+    private final String[] literals;
+    private final byte[][] literalBytes;
+
+    // 番号1から順に事前生成したもの
+    private final String[] rendered;
+    private final byte[][] renderedBytes;
+
+    /**
+     * 初期化
+     *
+     * @param source 書式
+     * @param cacheSize 事前に生成する番号の上限
+     */
+    private NumberTemplate(String source, int cacheSize) {
+        if (source == null) {
+            throw new NullPointerException("take template source is null");
+        }
+
+        if (cacheSize < 0) {
+            throw new IllegalArgumentException("take cache size is negative");
+        }
+
+        this.source = source;
+
+        final List<String> parts = new ArrayList<>();
+        int from = 0;
+        for (int at = source.indexOf(PLACEHOLDER); at >= 0;
+             at = source.indexOf(PLACEHOLDER, from)) {
+            parts.add(source.substring(from, at));
+            from = at + PLACEHOLDER.length();
+        }
+        parts.add(source.substring(from));
+
+        this.literals = parts.toArray(new String[parts.size()]);
+        this.literalBytes = new byte[literals.length][];
+        for (int i = 0; i < literals.length; ++i) {
+            literalBytes[i] = literals[i].getBytes(StandardCharsets.UTF_8);
+        }
+
+        this.rendered = new String[cacheSize];
+        this.renderedBytes = new byte[cacheSize][];
+        final StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < cacheSize; ++i) {
+            builder.setLength(0);
+            rendered[i] = appendUncached(builder, i + 1).toString();
+            renderedBytes[i] = rendered[i].getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * 番号を埋め込んだ文字列を返します。
+     * 事前生成された番号の場合は新たな文字列を生成しません。
+     *
+     * @param number 番号
+     * @return 書式化された文字列
+     */
+    public String render(int number) {
+        if (isCached(number)) {
+            return rendered[number - 1];
+        }
+        return appendUncached(new StringBuilder(), number).toString();
+    }
+
+    /**
+     * 番号を埋め込んだ文字列をビルダーに追加します。
+     *
+     * @param builder 追加先
+     * @param number 番号
+     * @return 渡されたビルダー
+     */
+    public StringBuilder appendTo(StringBuilder builder, int number) {
+        if (isCached(number)) {
+            return builder.append(rendered[number - 1]);
+        }
+        return appendUncached(builder, number);
+    }
+
+    /**
+     * 番号を埋め込んだ文字列をUTF-8でバッファに書き込みます。
+     *
+     * @param buffer 書き込み先
+     * @param number 番号
+     * @throws java.nio.BufferOverflowException バッファの残りが足りない場合に送出
+     * @return 渡されたバッファ
+     */
+    public ByteBuffer writeTo(ByteBuffer buffer, int number) {
+        if (isCached(number)) {
+            return buffer.put(renderedBytes[number - 1]);
+        }
+
+        buffer.put(literalBytes[0]);
+        for (int i = 1; i < literalBytes.length; ++i) {
+            QuizLogicHelper.putAsciiInt(buffer, number);
+            buffer.put(literalBytes[i]);
+        }
+        return buffer;
+    }
+
+    /**
+     * コンパイル元の書式を返します。
+     *
+     * @return 書式
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * 事前に生成された番号の上限を返します。
+     *
+     * @return 事前に生成された番号の上限
+     */
+    public int getCacheSize() {
+        return rendered.length;
+    }
+
+    private boolean isCached(int number) {
+        return 0 < number && number <= rendered.length;
+    }
+
+    private StringBuilder appendUncached(StringBuilder builder, int number) {
+        builder.append(literals[0]);
+        for (int i = 1; i < literals.length; ++i) {
+            builder.append(number).append(literals[i]);
+        }
+        return builder;
+    }
+
+    @Override
+    public String toString() {
+        return "NumberTemplate{" + source + "}";
+    }
+}
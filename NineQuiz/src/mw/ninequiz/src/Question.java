@@ -26,17 +26,55 @@ public class Question {
     /**
      * {@link Question}のインスタンスを構築するビルダークラスです。
      * このクラスは{@link Question}の契約を保証します。
+     *
+     * <p>{@link #reset()}を呼ぶと同じインスタンスで別の問題を構築できます。
+     * 大量の問題を構築する場合はビルダーを使い回してください。
      */
     public static class QuestionBuilder {
 
         private static final int ANSWER_INDEX_INITIAL_VALUE = -1;
 
+        private static final int INITIAL_CAPACITY = 4;
+
+        // これ以下の選択肢数では配列を走査したほうがハッシュより速い
+        private static final int LINEAR_SCAN_LIMIT = 8;
+
         private String questionStatement;
         private int answerIndex = ANSWER_INDEX_INITIAL_VALUE;
-        private final List<String> questionChoices = new ArrayList<>();
+
+        // 挿入順の選択肢。build()でそのままQuestionへ渡すことがある
+        private String[] questionChoices = new String[INITIAL_CAPACITY];
+        private int choiceCount;
+
+        // 重複検査用。選択肢がLINEAR_SCAN_LIMITを超えてから使う
+        private final Set<String> choiceSet = new HashSet<>();
+
+        // questionChoicesをQuestionへ渡したかどうか。渡した配列は書き換えてはいけない
+        private boolean choicesHandedOver;
 
         private QuestionBuilder() {}
 
+        /**
+         * ビルダーを初期状態に戻します。
+         * 以前に構築した{@link Question}には影響しません。
+         *
+         * @return return this
+         */
+        public QuestionBuilder reset() {
+            questionStatement = null;
+            answerIndex = ANSWER_INDEX_INITIAL_VALUE;
+
+            if (choicesHandedOver) {
+                questionChoices = new String[Math.max(INITIAL_CAPACITY, choiceCount)];
+                choicesHandedOver = false;
+            } else {
+                Arrays.fill(questionChoices, 0, choiceCount, null);
+            }
+            choiceCount = 0;
+            choiceSet.clear();
+            return this;
+        }
+
         /**
          * 複数の選択肢を追加します。
          * 内部では{@link #addChoice(String)}を使用しています。詳細はそちらを参照ください。
@@ -77,12 +115,43 @@ public class Question {
             }
 
             // すでになければ格納
-            if (!questionChoices.contains(questionChoice)) {
-                questionChoices.add(questionChoice);
+            if (!containsChoice(questionChoice)) {
+                appendChoice(questionChoice);
             }
             return this;
         }
 
+        private boolean containsChoice(String questionChoice) {
+            if (choiceCount > LINEAR_SCAN_LIMIT) {
+                return choiceSet.contains(questionChoice);
+            }
+
+            for (int i = 0; i < choiceCount; ++i) {
+                if (questionChoices[i].equals(questionChoice)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        private void appendChoice(String questionChoice) {
+            if (choicesHandedOver || choiceCount == questionChoices.length) {
+                questionChoices = Arrays.copyOf(questionChoices,
+                        Math.max(INITIAL_CAPACITY, choiceCount * 2));
+                choicesHandedOver = false;
+            }
+            questionChoices[choiceCount++] = questionChoice;
+
+            if (choiceCount > LINEAR_SCAN_LIMIT) {
+                if (choiceSet.isEmpty()) {
+                    // しきい値を超えたのでそれまでの選択肢もまとめて登録する
+                    choiceSet.addAll(Arrays.asList(questionChoices).subList(0, choiceCount));
+                } else {
+                    choiceSet.add(questionChoice);
+                }
+            }
+        }
+
         /**
          * 問題文をセットします。
          * 空文字かnullが渡されると例外を送出します。
@@ -109,7 +178,9 @@ public class Question {
 
         /**
          * 正解のインデックスをセットします。インデックスは1から始まります。
-         * 選択肢の範囲外のインデックスが渡されると例外を送出します。
+         * 次に追加する選択肢までを指せるため、最後の選択肢を追加する前にセットできます。
+         * それより後ろのインデックスが渡されると例外を送出します。
+         * 最終的に選択肢の範囲内にあるかどうかは{@link #build()}で検査されます。
          *
          * @param answerIndex 正解のインデックス
          * @throws IndexOutOfBoundsException パラメータが範囲外の場合に送出
@@ -117,7 +188,7 @@ public class Question {
          */
         public QuestionBuilder setAnswerIndex(int answerIndex) {
             // 正当性検査
-            if (answerIndex < 1 || questionChoices.size() + 1 < answerIndex) {
+            if (answerIndex < 1 || choiceCount + 1 < answerIndex) {
                 throw new IndexOutOfBoundsException("Answer index is out of choices bounds");
             }
 
@@ -135,6 +206,7 @@ public class Question {
          *     <li>問題文がセットされている</li>
          *     <li>正解のインデックスがセットされている</li>
          *     <li>選択肢が1以上セットされている</li>
+         *     <li>正解のインデックスが選択肢の数以下である</li>
          * </ul>
          *
          * @throws IllegalStateException 上記の契約に違反した場合に送出
@@ -150,12 +222,24 @@ public class Question {
                 throw new IllegalStateException("Answer index is not set");
             }
 
-            if (questionChoices.size() == 0) {
+            if (choiceCount == 0) {
                 throw new IllegalStateException("Question choice is not set");
             }
 
+            if (choiceCount < answerIndex) {
+                throw new IllegalStateException("Answer index is out of choices bounds: " + answerIndex);
+            }
+
             // 発行
-            return new Question(questionStatement, answerIndex, questionChoices);
+            // 配列がちょうどの大きさならコピーせずに渡し、以降の変更時に複製する
+            final String[] choices;
+            if (choiceCount == questionChoices.length) {
+                choices = questionChoices;
+                choicesHandedOver = true;
+            } else {
+                choices = Arrays.copyOf(questionChoices, choiceCount);
+            }
+            return new Question(questionStatement, answerIndex, choices);
         }
     }
 
@@ -176,10 +260,18 @@ public class Question {
 
     // Q.なぜSetではなくListなのか
     // A.イテレート以外で値を取得する必要があるから
-    private final List<String> questionChoices;
+    // ビルダーから渡された配列で、書き換えられないことが保証されている
+    private final String[] questionChoices;
+
+    // 共有可能な変更不可のビュー
+    private final List<String> questionChoicesView;
 
     private final int answerIndex;
 
+    // 選択肢を並べ替えて作られた場合の元の問題と、元の選択肢の0から始まるインデックス
+    private final Question origin;
+    private final int[] originChoiceOrder;
+
     // ================================================================
     // Constructors
     // ================================================================
@@ -188,17 +280,34 @@ public class Question {
      *
      * @param questionStatement 問題文
      * @param answerIndex 正解
-     * @param questionChoices 選択肢
+     * @param questionChoices 選択肢。呼び出し元はこの配列を以降書き換えてはならない
      */
     private Question(String questionStatement, int answerIndex,
-                    Collection<String> questionChoices) {
+                    String[] questionChoices) {
+        this(questionStatement, answerIndex, questionChoices, null, null);
+    }
+
+    /**
+     * 元の問題を持つインスタンスを生成する。
+     *
+     * @param questionStatement 問題文
+     * @param answerIndex 正解
+     * @param questionChoices 選択肢。呼び出し元はこの配列を以降書き換えてはならない
+     * @param origin 元の問題。元がない場合はnull
+     * @param originChoiceOrder 各選択肢の元の問題でのインデックス。元がない場合はnull
+     */
+    private Question(String questionStatement, int answerIndex, String[] questionChoices,
+                     Question origin, int[] originChoiceOrder) {
+        this.origin = (origin != null) ? origin : this;
+        this.originChoiceOrder = originChoiceOrder;
+
         // 正当性はBuilderで検査されている。
         this.questionStatement = questionStatement;
         this.answerIndex = answerIndex;
 
-        // 防御的コピー
-        this.questionChoices = new ArrayList<>();
-        this.questionChoices.addAll(questionChoices);
+        // 配列はビルダーから引き渡されたもので、コピーはしない
+        this.questionChoices = questionChoices;
+        this.questionChoicesView = Collections.unmodifiableList(Arrays.asList(questionChoices));
     }
 
     // ================================================================
@@ -219,18 +328,53 @@ public class Question {
      * 選択肢のセットを返します。
      * クラスの不変性を保証するため、このメソッドは呼び出されると選択肢のセットのコピーを生成して返します。
      * キャッシュは行いません。
+     * 繰り返し呼び出す場合はコピーを生成しない{@link #getChoiceList()}や{@link #getChoice(int)}を使用してください。
      *
      * <p>選択肢は1つ以上でnullや空文字が入っておらず不変であることが保証されています。
      *
      * @return 選択肢のリスト
      */
     public Set<String> getQuestionChoices() {
-        final Set<String> defencedChoices = new LinkedHashSet<>();
-        defencedChoices.addAll(questionChoices);
+        final Set<String> defencedChoices = new LinkedHashSet<>(questionChoicesView);
 
         return defencedChoices;
     }
 
+    /**
+     * 選択肢のリストを返します。
+     * 返されるリストは変更できないビューで、呼び出しごとにコピーを生成しません。
+     *
+     * <p>選択肢は1つ以上でnullや空文字が入っておらず不変であることが保証されています。
+     *
+     * @return 選択肢の変更不可のリスト
+     */
+    public List<String> getChoiceList() {
+        return questionChoicesView;
+    }
+
+    /**
+     * 指定した番号の選択肢を返します。番号は正解のインデックスと同じく1から始まります。
+     *
+     * @param number 選択肢の番号
+     * @throws IndexOutOfBoundsException 番号が選択肢の範囲外の場合に送出
+     * @return 選択肢
+     */
+    public String getChoice(int number) {
+        if (number < 1 || questionChoices.length < number) {
+            throw new IndexOutOfBoundsException("Choice number is out of choices bounds: " + number);
+        }
+        return questionChoices[number - 1];
+    }
+
+    /**
+     * 正解の選択肢を返します。
+     *
+     * @return 正解の選択肢
+     */
+    public String getAnswerText() {
+        return questionChoices[answerIndex - 1];
+    }
+
     /**
      * 選択肢の数を返します。
      *
@@ -239,7 +383,7 @@ public class Question {
      * @return 選択肢の数
      */
     public int getChoiceCount() {
-        return questionChoices.size();
+        return questionChoices.length;
     }
 
     /**
@@ -254,6 +398,60 @@ public class Question {
         return answerIndex;
     }
 
+    /**
+     * 選択肢を並べ替えた問題を生成して返します。
+     * 新しい問題の{@code i}番目の選択肢はこの問題の{@code order[i]}番目の選択肢になり、
+     * 正解のインデックスは並べ替え後の位置に付け替えられます。
+     * 選択肢の文字列はコピーされません。
+     *
+     * @param order 0から始まる選択肢のインデックスの順列
+     * @return 選択肢を並べ替えた問題
+     */
+    Question permuteChoices(int[] order) {
+        final String[] permuted = new String[questionChoices.length];
+        int permutedAnswerIndex = answerIndex;
+        for (int i = 0; i < order.length; ++i) {
+            permuted[i] = questionChoices[order[i]];
+            if (order[i] == answerIndex - 1) {
+                permutedAnswerIndex = i + 1;
+            }
+        }
+        if (originChoiceOrder == null) {
+            return new Question(questionStatement, permutedAnswerIndex, permuted,
+                    this, order.clone());
+        }
+
+        // 並べ替えを重ねた場合も最初の問題を元とする
+        final int[] composed = new int[order.length];
+        for (int i = 0; i < order.length; ++i) {
+            composed[i] = originChoiceOrder[order[i]];
+        }
+        return new Question(questionStatement, permutedAnswerIndex, permuted, origin, composed);
+    }
+
+    /**
+     * 選択肢を並べ替えて作られた問題の場合は元の問題を、そうでなければこの問題を返します。
+     *
+     * @return 元の問題
+     */
+    Question getOrigin() {
+        return origin;
+    }
+
+    /**
+     * この問題の選択肢の番号を元の問題での番号に変換します。
+     * 範囲外の番号はそのまま返します。
+     *
+     * @param number 選択肢の番号。1から始まる
+     * @return 元の問題での選択肢の番号
+     */
+    int toOriginChoiceNumber(int number) {
+        if (originChoiceOrder == null || number < 1 || originChoiceOrder.length < number) {
+            return number;
+        }
+        return originChoiceOrder[number - 1] + 1;
+    }
+
     /**
      * このクラスの文字列表現を返します。
      *
@@ -266,8 +464,8 @@ public class Question {
     public String toString() {
         return String.format("Question{state:\"%s\" choices:%d　answer-index:%d answer:\"%s\"}",
                 questionStatement,
-                questionChoices.size(),
+                questionChoices.length,
                 answerIndex,
-                questionChoices.get(answerIndex - 1));
+                getAnswerText());
     }
 }
@@ -0,0 +1,182 @@
+package mw.ninequiz.src;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * すべてのセッションの解答を問題ごとに集計するクラスです。
+ * {@link AnswerListener}として{@link QuizEngine}などに登録して使用します。
+ *
+ * <p>選ばれた選択肢の分布、正解率、解答までの時間を集計します。
+ * 集計には{@link LongAdder}を用いるため、解答の処理はロックを取らず、
+ * 参照した時点でスレッドごとの値がまとめられます。
+ * 集計は最初の解答があったときに作られ、問題は問題バンク上のインデックスで区別されます。
+ * そのため{@link QuestionBank}のように取得のたびに問題を生成するリストでも、1問に1つの集計にまとまります。
+ * {@link QuestionDeck}から出題した問題は元の問題バンクのインデックスと元の選択肢の番号で集計されます。
+ * 1つのインスタンスは1つの問題バンクを共有するセッションにのみ登録してください。
+ *
+ * @author Getaji
+ */
+public class QuestionAnalytics implements AnswerListener {
+
+    /**
+     * 1問分の集計。
+     */
+    private static final class QuestionStats {
+        private final Question question;
+
+        // 0番目は範囲外の解答
+        private final LongAdder[] choiceCounts;
+        private final LongAdder correctCount = new LongAdder();
+        private final LongAdder timedCount = new LongAdder();
+        private final LongAdder latencySum = new LongAdder();
+        private final LongAccumulator latencyMax = new LongAccumulator(Math::max, 0);
+
+        // 前回の差分出力から更新されたかどうか
+        private volatile boolean dirty;
+
+        private QuestionStats(Question question) {
+            this.question = question;
+            this.choiceCounts = new LongAdder[question.getChoiceCount() + 1];
+            for (int i = 0; i < choiceCounts.length; ++i) {
+                choiceCounts[i] = new LongAdder();
+            }
+        }
+
+        private void record(int originChoice, boolean correct, long latencyNanos) {
+            final int slot = (0 < originChoice && originChoice < choiceCounts.length) ?
+                    originChoice : 0;
+            choiceCounts[slot].increment();
+            if (correct) {
+                correctCount.increment();
+            }
+
+            if (latencyNanos >= 0) {
+                timedCount.increment();
+                latencySum.add(latencyNanos);
+                latencyMax.accumulate(latencyNanos);
+            }
+
+            // 多くの場合は読むだけで済ませ、書き込みの競合を避ける
+            if (!dirty) {
+                dirty = true;
+            }
+        }
+
+        private QuestionStatsSnapshot snapshot() {
+            final long[] counts = new long[choiceCounts.length];
+            long answers = 0;
+            for (int i = 0; i < counts.length; ++i) {
+                counts[i] = choiceCounts[i].sum();
+                answers += counts[i];
+            }
+            return new QuestionStatsSnapshot(question, answers, correctCount.sum(), counts,
+                    timedCount.sum(), latencySum.sum(), latencyMax.get());
+        }
+    }
+
+    // 問題バンク上のインデックスで引く。作成と拡張はロックを取って行い、読み出しはロックを取らない
+    private volatile QuestionStats[] statsTable = new QuestionStats[0];
+    private volatile int questionCount;
+
+    @Override
+    public void onAnswer(QuizSession session, int questionIndex, Question question,
+                         int userAnswer, JudgeType judge, long thinkNanos) {
+        final int bankIndex = session.getBankIndex(questionIndex);
+        final QuestionStats[] table = statsTable;
+        QuestionStats stats = (bankIndex < table.length) ? table[bankIndex] : null;
+        if (stats == null) {
+            stats = createStats(bankIndex, question.getOrigin());
+        }
+        stats.record(question.toOriginChoiceNumber(userAnswer),
+                judge == JudgeType.CORRECT, thinkNanos);
+    }
+
+    private synchronized QuestionStats createStats(int bankIndex, Question origin) {
+        QuestionStats[] table = statsTable;
+        if (table.length <= bankIndex) {
+            table = Arrays.copyOf(table, Math.max(bankIndex + 1, table.length * 2));
+        } else if (table[bankIndex] != null) {
+            return table[bankIndex];
+        }
+
+        final QuestionStats stats = new QuestionStats(origin);
+        table[bankIndex] = stats;
+        ++questionCount;
+        // 配列を書き直してから公開し直すことで、ロックを取らない読み出しにも見えるようにする
+        statsTable = table;
+        return stats;
+    }
+
+    /**
+     * 問題の現時点の集計を返します。
+     *
+     * @param bankIndex 問題バンク上のインデックス
+     * @return 集計。解答がない場合はnull
+     */
+    public QuestionStatsSnapshot getStats(int bankIndex) {
+        final QuestionStats[] table = statsTable;
+        final QuestionStats stats = (0 <= bankIndex && bankIndex < table.length) ?
+                table[bankIndex] : null;
+        return (stats != null) ? stats.snapshot() : null;
+    }
+
+    /**
+     * 解答があったすべての問題の現時点の集計を、問題バンク上のインデックスの順に返します。
+     *
+     * @return 集計のリスト
+     */
+    public List<QuestionStatsSnapshot> getAllStats() {
+        final List<QuestionStatsSnapshot> snapshots = new ArrayList<>(questionCount);
+        for (QuestionStats stats : statsTable) {
+            if (stats != null) {
+                snapshots.add(stats.snapshot());
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * 前回の呼び出しから解答があった問題の集計のみを出力先に渡します。
+     * 集計は累計で、差分ではありません。
+     * 複数のスレッドから同時に呼び出すと、同じ集計がどちらか一方にしか渡されないことがあります。
+     *
+     * @param sink 出力先
+     * @return 出力した問題数
+     */
+    public int exportChanges(Consumer<QuestionStatsSnapshot> sink) {
+        int exported = 0;
+        for (QuestionStats stats : statsTable) {
+            if (stats == null || !stats.dirty) {
+                continue;
+            }
+
+            // 先に印を消すことで、集計中に届いた解答は次回に出力される
+            stats.dirty = false;
+            sink.accept(stats.snapshot());
+            ++exported;
+        }
+        return exported;
+    }
+
+    /**
+     * 解答があった問題数を返します。
+     *
+     * @return 問題数
+     */
+    public int getQuestionCount() {
+        return questionCount;
+    }
+
+    /**
+     * すべての集計を破棄します。
+     */
+    public synchronized void clear() {
+        statsTable = new QuestionStats[0];
+        questionCount = 0;
+    }
+}
@@ -0,0 +1,254 @@
+package mw.ninequiz.src;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * 問題バンクのファイルをメモリマップして読み出すクラスです。
+ * 起動時にファイル全体を解析せず、{@link #get(int)}が呼ばれたときに初めて{@link Question}を生成します。
+ * 問題IDから索引を引いて読み出すため、任意の問題をO(1)で取得できます。
+ *
+ * <p>{@link java.util.List}として振る舞うため、そのまま{@link QuizLogic}や{@link QuizEngine}に渡せます。
+ * 生成した{@link Question}はキャッシュしません。
+ * このクラスはスレッドセーフで、複数のスレッドから同時に読み出せます。
+ *
+ * <p>レコードが壊れている場合、読み出し時に{@link IOException}を原因とする{@link UncheckedIOException}が送出されます。
+ *
+ * <p>マップできるファイルの大きさは{@link Integer#MAX_VALUE}バイトまでです。
+ * マップは{@link #close()}後もガベージコレクションされるまで解放されません。
+ *
+ * @author Getaji
+ * @see QuestionBankWriter
+ */
+public class QuestionBank extends AbstractList<Question> implements RandomAccess, Closeable {
+
+    /**
+     * 問題バンクのファイルを開きます。
+     *
+     * @param path 問題バンクのファイル
+     * @throws IOException ファイルを読み出せない場合や形式が正しくない場合に送出
+     * @return インスタンス
+     */
+    public static QuestionBank open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Question bank is too large to map: " + size + " bytes");
+            }
+
+            if (size < QuestionBankFormat.HEADER_SIZE) {
+                throw new IOException("Question bank is truncated: " + path);
+            }
+            return new QuestionBank(channel.map(FileChannel.MapMode.READ_ONLY, 0, size), path);
+        }
+    }
+
+    private final MappedByteBuffer mapped;
+    private final LongBuffer index;
+    private final int count;
+
+    private QuestionBank(MappedByteBuffer mapped, Path path) throws IOException {
+        if (mapped.getInt(0) != QuestionBankFormat.MAGIC) {
+            throw new IOException("Not a question bank: " + path);
+        }
+
+        if (mapped.getInt(4) != QuestionBankFormat.VERSION) {
+            throw new IOException("Unsupported question bank version: " + mapped.getInt(4));
+        }
+
+        this.mapped = mapped;
+        this.count = mapped.getInt(QuestionBankFormat.COUNT_POSITION);
+
+        final long indexOffset = mapped.getLong(QuestionBankFormat.INDEX_OFFSET_POSITION);
+        if (count < 0 || indexOffset < QuestionBankFormat.HEADER_SIZE
+                || indexOffset + (long) count * Long.BYTES > mapped.capacity()) {
+            throw new IOException("Question bank index is broken: " + path);
+        }
+
+        final ByteBuffer indexBytes = mapped.duplicate();
+        indexBytes.position((int) indexOffset).limit((int) indexOffset + count * Long.BYTES);
+        this.index = indexBytes.slice().asLongBuffer();
+    }
+
+    /**
+     * 問題IDに対応する問題を読み出して返します。呼び出しごとに新しいインスタンスを生成します。
+     *
+     * @param questionId 問題ID
+     * @throws IndexOutOfBoundsException 問題IDが範囲外の場合に送出
+     * @throws UncheckedIOException レコードが壊れている場合に送出
+     * @return 問題
+     */
+    @Override
+    public Question get(int questionId) {
+        try {
+            final ByteBuffer record = record(questionId);
+            final int answerIndex = readInt(record);
+            final int choiceCount = readInt(record);
+            checkCounts(answerIndex, choiceCount, record.remaining() / Integer.BYTES, questionId);
+
+            final String statement = readString(record);
+            final String[] choices = new String[choiceCount];
+            for (int i = 0; i < choiceCount; ++i) {
+                choices[i] = readString(record);
+            }
+
+            final Question question;
+            try {
+                question = Question.builder()
+                        .setStatement(statement)
+                        .addChoiceAll(choices)
+                        .setAnswerIndex(answerIndex)
+                        .build();
+            } catch (IllegalArgumentException | IllegalStateException | IndexOutOfBoundsException e) {
+                throw new IOException("Question record is broken at " + questionId + ": " + e, e);
+            }
+
+            // 重複した選択肢はビルダーで読み飛ばされ、正解の位置がずれるため壊れているとみなす
+            if (question.getChoiceCount() != choiceCount) {
+                throw new IOException("Question record is broken: duplicate choices at " + questionId);
+            }
+            return question;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 問題を生成せずに問題文だけを読み出して返します。
+     *
+     * @param questionId 問題ID
+     * @throws IndexOutOfBoundsException 問題IDが範囲外の場合に送出
+     * @throws UncheckedIOException レコードが壊れている場合に送出
+     * @return 問題文
+     */
+    public String getStatement(int questionId) {
+        try {
+            final ByteBuffer record = record(questionId);
+            readInt(record);
+            readInt(record);
+            return readString(record);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 問題を生成せずに選択肢の数だけを読み出して返します。
+     *
+     * @param questionId 問題ID
+     * @throws IndexOutOfBoundsException 問題IDが範囲外の場合に送出
+     * @throws UncheckedIOException レコードが壊れている場合に送出
+     * @return 選択肢の数
+     */
+    public int getChoiceCount(int questionId) {
+        try {
+            final int offset = offset(questionId);
+            final int choiceCount = mapped.getInt(offset + Integer.BYTES);
+            checkCounts(mapped.getInt(offset), choiceCount, Integer.MAX_VALUE, questionId);
+            return choiceCount;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 問題を生成せずに正解のインデックスだけを読み出して返します。
+     *
+     * @param questionId 問題ID
+     * @throws IndexOutOfBoundsException 問題IDが範囲外の場合に送出
+     * @throws UncheckedIOException レコードが壊れている場合に送出
+     * @return 正解のインデックス
+     */
+    public int getAnswerIndex(int questionId) {
+        try {
+            final int offset = offset(questionId);
+            final int answerIndex = mapped.getInt(offset);
+            checkCounts(answerIndex, mapped.getInt(offset + Integer.BYTES), Integer.MAX_VALUE,
+                    questionId);
+            return answerIndex;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 問題数を返します。
+     *
+     * @return 問題数
+     */
+    @Override
+    public int size() {
+        return count;
+    }
+
+    /**
+     * 何もしません。マップはガベージコレクションにより解放されます。
+     */
+    @Override
+    public void close() {
+        // MappedByteBufferを明示的に解放する標準APIはない
+    }
+
+    private int offset(int questionId) throws IOException {
+        if (questionId < 0 || count <= questionId) {
+            throw new IndexOutOfBoundsException("Question id is out of bank bounds: " + questionId);
+        }
+
+        final long offset = index.get(questionId);
+        if (offset < QuestionBankFormat.HEADER_SIZE || mapped.capacity() - Integer.BYTES * 2 < offset) {
+            throw new IOException("Question record offset is broken: " + offset + " at " + questionId);
+        }
+        return (int) offset;
+    }
+
+    /**
+     * 選択肢の数が1以上で残りのバイト数に収まり、正解のインデックスが選択肢の範囲内であることを検査します。
+     */
+    private static void checkCounts(int answerIndex, int choiceCount, int maxChoiceCount,
+                                    int questionId) throws IOException {
+        if (choiceCount < 1 || maxChoiceCount < choiceCount) {
+            throw new IOException("Question record is broken: choice count " + choiceCount
+                    + " at " + questionId);
+        }
+
+        if (answerIndex < 1 || choiceCount < answerIndex) {
+            throw new IOException("Question record is broken: answer index " + answerIndex
+                    + " at " + questionId);
+        }
+    }
+
+    private ByteBuffer record(int questionId) throws IOException {
+        final ByteBuffer record = mapped.duplicate();
+        record.position(offset(questionId));
+        return record;
+    }
+
+    private static int readInt(ByteBuffer record) throws IOException {
+        if (record.remaining() < Integer.BYTES) {
+            throw new IOException("Question record is truncated at " + record.position());
+        }
+        return record.getInt();
+    }
+
+    private static String readString(ByteBuffer record) throws IOException {
+        final int length = readInt(record);
+        if (length < 0 || record.remaining() < length) {
+            throw new IOException("Question record is broken: string length " + length
+                    + " at " + (record.position() - Integer.BYTES));
+        }
+
+        final byte[] bytes = new byte[length];
+        record.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
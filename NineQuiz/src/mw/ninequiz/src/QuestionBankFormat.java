@@ -0,0 +1,36 @@
+package mw.ninequiz.src;
+
+/**
+ * 問題バンクのバイナリ形式の定数をまとめたクラスです。
+ * 数値はすべてビッグエンディアン、文字列はUTF-8で格納されます。
+ *
+ * <pre>
+ * ヘッダ   : magic(int) version(int) count(int) reserved(int) indexOffset(long)
+ * レコード : answerIndex(int) choiceCount(int) statement(string) choice(string) * choiceCount
+ * 索引     : recordOffset(long) * count
+ * string   : byteLength(int) bytes
+ * </pre>
+ *
+ * @author Getaji
+ * @see QuestionBankWriter
+ * @see QuestionBank
+ */
+final class QuestionBankFormat {
+
+    /** ファイルの先頭に置かれる識別子。"NQBK"。 */
+    static final int MAGIC = 0x4E51424B;
+
+    /** 形式のバージョン。 */
+    static final int VERSION = 1;
+
+    /** ヘッダのバイト数。 */
+    static final int HEADER_SIZE = 24;
+
+    /** ヘッダ中の問題数の位置。 */
+    static final int COUNT_POSITION = 8;
+
+    /** ヘッダ中の索引の位置を格納する位置。 */
+    static final int INDEX_OFFSET_POSITION = 16;
+
+    private QuestionBankFormat() {}
+}
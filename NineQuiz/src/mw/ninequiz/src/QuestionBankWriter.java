@@ -0,0 +1,163 @@
+package mw.ninequiz.src;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * 問題を問題バンクのバイナリ形式で書き出すクラスです。
+ * 問題は{@link #write(Question)}で順に追記され、{@link #close()}で索引とヘッダが書き込まれます。
+ * 書き込まれた順に0から始まる問題IDが割り当てられます。
+ *
+ * <p>このクラスはスレッドセーフではありません。
+ *
+ * @author Getaji
+ * @see QuestionBank
+ */
+public class QuestionBankWriter implements Closeable {
+
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * ファイルを作成し、書き出しを開始します。既存のファイルは上書きされます。
+     *
+     * @param path 書き出し先
+     * @throws IOException ファイルを開けなかった場合に送出
+     * @return インスタンス
+     */
+    public static QuestionBankWriter create(Path path) throws IOException {
+        final FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+        return new QuestionBankWriter(channel);
+    }
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private long[] offsets = new long[1024];
+    private int count;
+    // 書き込んだバイト数を含めたファイル上の位置
+    private long position = QuestionBankFormat.HEADER_SIZE;
+    // バッファの先頭に対応するファイル上の位置
+    private long flushed = QuestionBankFormat.HEADER_SIZE;
+    private boolean closed;
+
+    private QuestionBankWriter(FileChannel channel) {
+        this.channel = channel;
+    }
+
+    /**
+     * 問題を追記し、割り当てた問題IDを返します。
+     *
+     * @param question 問題
+     * @throws IOException 書き込みに失敗した場合に送出
+     * @throws IllegalStateException すでに閉じられている場合に送出
+     * @return 問題ID
+     */
+    public int write(Question question) throws IOException {
+        if (closed) {
+            throw new IllegalStateException("Writer is already closed");
+        }
+
+        if (count == offsets.length) {
+            offsets = Arrays.copyOf(offsets, count * 2);
+        }
+        offsets[count] = position;
+
+        putInt(question.getAnswerIndex());
+        putInt(question.getChoiceCount());
+        putString(question.getQuestionStatement());
+        for (String choice : question.getChoiceList()) {
+            putString(choice);
+        }
+        return count++;
+    }
+
+    /**
+     * これまでに書き込んだ問題数を返します。
+     *
+     * @return 問題数
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * 索引とヘッダを書き込み、ファイルを閉じます。
+     *
+     * @throws IOException 書き込みに失敗した場合に送出
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+
+        try {
+            final long indexOffset = position;
+            for (int i = 0; i < count; ++i) {
+                putLong(offsets[i]);
+            }
+            drain();
+
+            final ByteBuffer header = ByteBuffer.allocate(QuestionBankFormat.HEADER_SIZE);
+            header.putInt(QuestionBankFormat.MAGIC)
+                    .putInt(QuestionBankFormat.VERSION)
+                    .putInt(count)
+                    .putInt(0)
+                    .putLong(indexOffset)
+                    .flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void putInt(int value) throws IOException {
+        ensure(Integer.BYTES);
+        buffer.putInt(value);
+        position += Integer.BYTES;
+    }
+
+    private void putLong(long value) throws IOException {
+        ensure(Long.BYTES);
+        buffer.putLong(value);
+        position += Long.BYTES;
+    }
+
+    private void putString(String value) throws IOException {
+        final byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        putInt(bytes.length);
+
+        int written = 0;
+        while (written < bytes.length) {
+            ensure(1);
+            final int length = Math.min(buffer.remaining(), bytes.length - written);
+            buffer.put(bytes, written, length);
+            written += length;
+        }
+        position += bytes.length;
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            flushed += channel.write(buffer, flushed);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,149 @@
+package mw.ninequiz.src;
+
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+import java.util.SplittableRandom;
+
+/**
+ * 共有の問題バンクから1セッション分の出題順を表すリストです。
+ * 問題バンクはコピーせず、出題する問題のインデックスだけを保持します。
+ *
+ * <p>乱数の種を指定して生成するため、同じ種からは同じ出題順と選択肢の順が得られます。
+ * 選択肢を並べ替える場合、正解のインデックスは並べ替え後の位置に付け替えられます。
+ * 並べ替えた問題は初回の取得時に生成され、以降は同じインスタンスが返されます。
+ *
+ * <p>このクラスはスレッドセーフではありません。
+ *
+ * @author Getaji
+ * @see QuestionSampler
+ */
+public class QuestionDeck extends AbstractList<Question> implements RandomAccess, BankIndexedList {
+
+    /**
+     * 問題バンクからk問を重複なく無作為に選んだデッキを返します。
+     * 使用するメモリはkに比例し、問題バンクの大きさには依存しません。
+     *
+     * @param bank 問題バンク
+     * @param k 出題する問題数
+     * @param seed 乱数の種
+     * @throws IllegalArgumentException kが負または問題数より大きい場合に送出
+     * @return デッキ
+     */
+    public static QuestionDeck sample(List<Question> bank, int k, long seed) {
+        final SplittableRandom random = new SplittableRandom(seed);
+        return new QuestionDeck(bank, QuestionSampler.sample(bank.size(), k, random),
+                random.nextLong(), false);
+    }
+
+    /**
+     * 問題バンクのすべての問題を無作為な順に並べたデッキを返します。
+     * 使用するメモリは問題数に比例するため、大きな問題バンクには{@link #sample(List, int, long)}を使用してください。
+     *
+     * @param bank 問題バンク
+     * @param seed 乱数の種
+     * @return デッキ
+     */
+    public static QuestionDeck shuffle(List<Question> bank, long seed) {
+        final SplittableRandom random = new SplittableRandom(seed);
+        return new QuestionDeck(bank, QuestionSampler.permutation(bank.size(), random),
+                random.nextLong(), false);
+    }
+
+    private final List<Question> bank;
+    private final int[] order;
+    private final long choiceSeed;
+    private final boolean choiceShuffled;
+
+    // 選択肢を並べ替えた問題。並べ替えない場合はnull
+    private final Question[] shuffledQuestions;
+
+    private QuestionDeck(List<Question> bank, int[] order, long choiceSeed,
+                         boolean choiceShuffled) {
+        this.bank = bank;
+        this.order = order;
+        this.choiceSeed = choiceSeed;
+        this.choiceShuffled = choiceShuffled;
+        this.shuffledQuestions = choiceShuffled ? new Question[order.length] : null;
+    }
+
+    /**
+     * 同じ出題順で、各問題の選択肢を無作為に並べ替えるデッキを返します。
+     *
+     * @return 選択肢を並べ替えるデッキ
+     */
+    public QuestionDeck withShuffledChoices() {
+        if (choiceShuffled) {
+            return this;
+        }
+        return new QuestionDeck(bank, order, choiceSeed, true);
+    }
+
+    /**
+     * 出題する問題を返します。
+     *
+     * @param index 出題順のインデックス。0から始まる
+     * @throws IndexOutOfBoundsException インデックスが範囲外の場合に送出
+     * @return 問題
+     */
+    @Override
+    public Question get(int index) {
+        final Question question = bank.get(order[index]);
+        if (!choiceShuffled) {
+            return question;
+        }
+
+        Question shuffled = shuffledQuestions[index];
+        if (shuffled == null) {
+            // 問題ごとに種を変えて、取得順に依存しない並びにする
+            final SplittableRandom random = new SplittableRandom(
+                    choiceSeed + 0x9E3779B97F4A7C15L * (index + 1));
+            shuffled = question.permuteChoices(
+                    QuestionSampler.permutation(question.getChoiceCount(), random));
+            shuffledQuestions[index] = shuffled;
+        }
+        return shuffled;
+    }
+
+    /**
+     * 出題する問題の問題バンク上のインデックスを返します。
+     *
+     * @param index 出題順のインデックス。0から始まる
+     * @throws IndexOutOfBoundsException インデックスが範囲外の場合に送出
+     * @return 問題バンク上のインデックス
+     */
+    @Override
+    public int getBankIndex(int index) {
+        return order[index];
+    }
+
+    /**
+     * 問題を選んだ元の問題バンクを返します。
+     *
+     * @return 問題バンク
+     */
+    @Override
+    public List<Question> getBank() {
+        return bank;
+    }
+
+    /**
+     * 選択肢を並べ替えるかどうかを返します。
+     * 並べ替える場合、{@link #get(int)}が返す問題はこのデッキ固有のインスタンスです。
+     *
+     * @return 選択肢を並べ替える場合はtrue
+     */
+    public boolean isChoiceShuffled() {
+        return choiceShuffled;
+    }
+
+    /**
+     * 出題する問題数を返します。
+     *
+     * @return 問題数
+     */
+    @Override
+    public int size() {
+        return order.length;
+    }
+}
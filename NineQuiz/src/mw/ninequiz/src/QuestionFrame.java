@@ -0,0 +1,120 @@
+package mw.ninequiz.src;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 書式化済みの問題1問分の出力を表すクラスです。このクラスは不変です。
+ * 問題文と選択肢をすべて含んだ文字列と、それをUTF-8で符号化したバイト列を保持します。
+ *
+ * <p>同じフレームを多数の出力先へ書き込む場合、書式化と符号化は一度しか行われません。
+ * バイト列はヒープ上に保持されるため、キャッシュせずに毎回生成してもネイティブメモリを消費しません。
+ *
+ * @author Getaji
+ * @see QuestionFrameCache
+ */
+public final class QuestionFrame {
+
+    /**
+     * 問題を書式化してフレームを生成します。
+     *
+     * @param number 問題番号
+     * @param question 問題
+     * @param templates コンパイル済みの書式
+     * @return フレーム
+     */
+    public static QuestionFrame render(int number, Question question, QuizTemplates templates) {
+        final String text = QuizLogicHelper.appendQuestion(
+                new StringBuilder(), number, question, templates).toString();
+        return new QuestionFrame(number, question, text);
+    }
+
+    private final int number;
+    private final Question question;
+    private final String text;
+    private final byte[] bytes;
+
+    private QuestionFrame(int number, Question question, String text) {
+        this.number = number;
+        this.question = question;
+        this.text = text;
+        this.bytes = text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * フレームの内容を読み取り専用のバッファとして返します。
+     * バッファは呼び出しごとに位置が独立しており、内容はコピーされません。
+     *
+     * @return 読み取り専用のヒープバッファ
+     */
+    public ByteBuffer asByteBuffer() {
+        return ByteBuffer.wrap(bytes).asReadOnlyBuffer();
+    }
+
+    /**
+     * フレームの内容をストリームへ書き込みます。
+     *
+     * @param out 書き込み先
+     * @throws IOException 書き込みに失敗した場合に送出
+     */
+    public void writeTo(OutputStream out) throws IOException {
+        out.write(bytes);
+    }
+
+    /**
+     * フレームの内容をチャネルへすべて書き込みます。
+     *
+     * @param channel 書き込み先
+     * @throws IOException 書き込みに失敗した場合に送出
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        final ByteBuffer buffer = asByteBuffer();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * 書式化された文字列を返します。
+     *
+     * @return 書式化された文字列
+     */
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * UTF-8で符号化した長さを返します。
+     *
+     * @return バイト数
+     */
+    public int length() {
+        return bytes.length;
+    }
+
+    /**
+     * 問題番号を返します。
+     *
+     * @return 問題番号
+     */
+    public int getNumber() {
+        return number;
+    }
+
+    /**
+     * 問題を返します。
+     *
+     * @return 問題
+     */
+    public Question getQuestion() {
+        return question;
+    }
+
+    @Override
+    public String toString() {
+        return text;
+    }
+}
@@ -0,0 +1,165 @@
+package mw.ninequiz.src;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * {@link QuestionFrame}のキャッシュクラスです。
+ * キャッシュは1つの{@link QuizLogicData}に結び付き、問題番号と、問題のリストとその中のインデックスの組ごとにフレームを保持します。
+ * リストは同一性で比較されるため、{@link QuestionBank}のように取得のたびに問題を生成するリストでもキャッシュが効きます。
+ * 同じインデックスに対しては常に同じ内容の問題を返すリストを渡してください。
+ *
+ * <p>{@link QuizLogicData}の書式が変更されると、次の取得時にすべてのフレームが破棄されます。
+ * このクラスはスレッドセーフで、多数のセッションから共有できます。
+ *
+ * @author Getaji
+ */
+public class QuestionFrameCache {
+
+    /** 保持するフレーム数の既定の上限。 */
+    public static final int DEFAULT_MAX_FRAMES = 65536;
+
+    /**
+     * 書式とそれを用いて生成したフレームの組。
+     * 書式が変わったときは組ごと差し替える。
+     */
+    private static final class Generation {
+        private final QuizTemplates templates;
+        private final ConcurrentMap<FrameKey, QuestionFrame> frames = new ConcurrentHashMap<>();
+
+        private Generation(QuizTemplates templates) {
+            this.templates = templates;
+        }
+    }
+
+    private static final class FrameKey {
+        private final int number;
+        private final List<Question> questions;
+        private final int index;
+
+        private FrameKey(int number, List<Question> questions, int index) {
+            this.number = number;
+            this.questions = questions;
+            this.index = index;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof FrameKey)) {
+                return false;
+            }
+            final FrameKey other = (FrameKey) obj;
+            return number == other.number && index == other.index && questions == other.questions;
+        }
+
+        @Override
+        public int hashCode() {
+            return (31 * System.identityHashCode(questions) + index) * 31 + number;
+        }
+    }
+
+    private final QuizLogicData data;
+    private final int maxFrames;
+    private volatile Generation generation;
+
+    /**
+     * データを受け取りインスタンスを生成します。
+     *
+     * @param data データ
+     */
+    public QuestionFrameCache(QuizLogicData data) {
+        this(data, DEFAULT_MAX_FRAMES);
+    }
+
+    /**
+     * データと保持するフレーム数の上限を受け取りインスタンスを生成します。
+     * 上限を超えるとすべてのフレームが破棄されます。
+     *
+     * @param data データ
+     * @param maxFrames 保持するフレーム数の上限
+     * @throws NullPointerException データがnullの場合に送出
+     * @throws IllegalArgumentException 上限が1未満の場合に送出
+     */
+    public QuestionFrameCache(QuizLogicData data, int maxFrames) {
+        if (data == null) {
+            throw new NullPointerException("take data is null");
+        }
+
+        if (maxFrames < 1) {
+            throw new IllegalArgumentException("take max frames is less than 1");
+        }
+
+        this.data = data;
+        this.maxFrames = maxFrames;
+        this.generation = new Generation(QuizTemplates.compile(data));
+    }
+
+    /**
+     * 問題のフレームを返します。キャッシュになければリストから問題を取得し、生成して格納します。
+     *
+     * @param number 問題番号
+     * @param questions 問題のリスト
+     * @param index リスト上の問題のインデックス
+     * @throws IndexOutOfBoundsException インデックスが範囲外の場合に送出
+     * @return フレーム
+     */
+    public QuestionFrame getFrame(int number, List<Question> questions, int index) {
+        Generation current = generation;
+        if (!current.templates.isCompiledFrom(data)) {
+            // 競合して複数回コンパイルされても結果は同じなので問題ない
+            current = new Generation(QuizTemplates.compile(data));
+            generation = current;
+        }
+
+        final FrameKey key = new FrameKey(number, questions, index);
+        final QuestionFrame cached = current.frames.get(key);
+        if (cached != null) {
+            return cached;
+        }
+
+        if (current.frames.size() >= maxFrames) {
+            current.frames.clear();
+        }
+        final QuizTemplates templates = current.templates;
+        return current.frames.computeIfAbsent(key,
+                k -> QuestionFrame.render(number, questions.get(index), templates));
+    }
+
+    /**
+     * 問題のフレームをキャッシュを使わずに生成して返します。
+     * 他のセッションと共有しない問題を描画する場合に使用します。
+     *
+     * @param number 問題番号
+     * @param question 問題
+     * @return フレーム
+     */
+    public QuestionFrame render(int number, Question question) {
+        return QuestionFrame.render(number, question, QuizTemplates.refresh(generation.templates, data));
+    }
+
+    /**
+     * すべてのフレームを破棄します。
+     */
+    public void invalidate() {
+        generation = new Generation(QuizTemplates.compile(data));
+    }
+
+    /**
+     * 保持しているフレーム数を返します。
+     *
+     * @return フレーム数
+     */
+    public int size() {
+        return generation.frames.size();
+    }
+
+    /**
+     * 結び付いているデータを返します。
+     *
+     * @return データ
+     */
+    public QuizLogicData getData() {
+        return data;
+    }
+}
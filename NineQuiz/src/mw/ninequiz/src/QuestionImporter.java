@@ -0,0 +1,148 @@
+package mw.ninequiz.src;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+/**
+ * CSVやJSON Lines形式のファイルから問題を取り込むクラスです。
+ *
+ * <p>ファイルは一定の行数ずつ読み込まれ、各行の解析と検査は並列に行われます。
+ * 契約に違反した行は{@link ImportError}として記録され、取り込みは中断されません。
+ * 取り込んだ問題の順番はファイルの行の順番と同じです。
+ *
+ * @author Getaji
+ */
+public class QuestionImporter {
+
+    /** 一度に読み込んで並列に処理する行数。 */
+    private static final int CHUNK_LINES = 1 << 14;
+
+    private static final char BYTE_ORDER_MARK = '\uFEFF';
+
+    /**
+     * 取り込んだ問題の受け取り先。
+     */
+    @FunctionalInterface
+    private interface QuestionSink {
+        void accept(Question question) throws IOException;
+    }
+
+    private QuestionImporter() {}
+
+    /**
+     * UTF-8のファイルから問題を取り込み、メモリ上のリストとして返します。
+     *
+     * @param path ファイル
+     * @param format 行形式
+     * @throws IOException ファイルを読み込めなかった場合に送出
+     * @return 取り込みの結果
+     */
+    public static ImportResult importQuestions(Path path, ImportFormat format) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            return importQuestions(reader, format);
+        }
+    }
+
+    /**
+     * 文字ストリームから問題を取り込み、メモリ上のリストとして返します。
+     * ストリームは閉じられません。
+     *
+     * @param reader 文字ストリーム
+     * @param format 行形式
+     * @throws IOException 読み込みに失敗した場合に送出
+     * @return 取り込みの結果
+     */
+    public static ImportResult importQuestions(Reader reader, ImportFormat format)
+            throws IOException {
+        final List<Question> questions = new ArrayList<>();
+        final List<ImportError> errors = new ArrayList<>();
+        final long count = importTo(reader, format, questions::add, errors);
+        return new ImportResult(questions, errors, count);
+    }
+
+    /**
+     * UTF-8のファイルから問題を取り込み、問題バンクへ書き出します。
+     * 問題はメモリ上に保持されません。
+     *
+     * @param path ファイル
+     * @param format 行形式
+     * @param writer 書き出し先
+     * @throws IOException 読み込みや書き出しに失敗した場合に送出
+     * @return 取り込みの結果
+     */
+    public static ImportResult importToBank(Path path, ImportFormat format,
+                                            QuestionBankWriter writer) throws IOException {
+        final List<ImportError> errors = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            final long count = importTo(reader, format, writer::write, errors);
+            return new ImportResult(new ArrayList<>(), errors, count);
+        }
+    }
+
+    private static long importTo(Reader source, ImportFormat format, QuestionSink sink,
+                                 List<ImportError> errors) throws IOException {
+        if (format == null) {
+            throw new NullPointerException("take format is null");
+        }
+
+        final BufferedReader reader = (source instanceof BufferedReader) ?
+                (BufferedReader) source : new BufferedReader(source);
+        final String[] lines = new String[CHUNK_LINES];
+        final Question[] parsed = new Question[CHUNK_LINES];
+        final String[] failures = new String[CHUNK_LINES];
+
+        long firstLineNumber = 1;
+        long imported = 0;
+        boolean first = true;
+
+        while (true) {
+            int size = 0;
+            String line;
+            while (size < CHUNK_LINES && (line = reader.readLine()) != null) {
+                if (first && !line.isEmpty() && line.charAt(0) == BYTE_ORDER_MARK) {
+                    line = line.substring(1);
+                }
+                first = false;
+                lines[size++] = line;
+            }
+
+            if (size == 0) {
+                return imported;
+            }
+
+            IntStream.range(0, size).parallel().forEach(i -> {
+                parsed[i] = null;
+                failures[i] = null;
+
+                final String row = lines[i];
+                if (row.trim().isEmpty() || row.startsWith("#")) {
+                    return;
+                }
+
+                try {
+                    parsed[i] = format.parse(row);
+                } catch (RuntimeException e) {
+                    // メッセージのない例外でも行を落とさないよう例外の種類で記録する
+                    failures[i] = (e.getMessage() != null) ? e.getMessage() : e.toString();
+                }
+            });
+
+            for (int i = 0; i < size; ++i) {
+                if (parsed[i] != null) {
+                    sink.accept(parsed[i]);
+                    ++imported;
+                } else if (failures[i] != null) {
+                    errors.add(new ImportError(firstLineNumber + i, failures[i]));
+                }
+            }
+            firstLineNumber += size;
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package mw.ninequiz.src;
+
+/**
+ * {@link QuestionSearchIndex}で見つかった似た問題を表すクラスです。このクラスは不変です。
+ *
+ * @author Getaji
+ */
+public final class QuestionMatch {
+
+    private final int sourceId;
+    private final int questionId;
+    private final double similarity;
+
+    QuestionMatch(int sourceId, int questionId, double similarity) {
+        this.sourceId = sourceId;
+        this.questionId = questionId;
+        this.similarity = similarity;
+    }
+
+    /**
+     * 比較のもとになった問題のIDを返します。
+     *
+     * @return 問題ID。文字列で問い合わせた場合は-1
+     */
+    public int getSourceId() {
+        return sourceId;
+    }
+
+    /**
+     * 見つかった問題のIDを返します。
+     *
+     * @return 問題ID
+     */
+    public int getQuestionId() {
+        return questionId;
+    }
+
+    /**
+     * 類似度を返します。n-gramの集合のJaccard係数で、1.0は完全に一致することを表します。
+     *
+     * @return 類似度
+     */
+    public double getSimilarity() {
+        return similarity;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d~%d(%.3f)", sourceId, questionId, similarity);
+    }
+}
@@ -0,0 +1,114 @@
+package mw.ninequiz.src;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * 問題バンクから問題のインデックスを無作為に選ぶクラスです。
+ * 問題そのものは扱わず、インデックスの配列だけを生成します。
+ *
+ * @author Getaji
+ * @see QuestionDeck
+ */
+public class QuestionSampler {
+
+    private QuestionSampler() {}
+
+    /**
+     * 0以上n未満の整数から重複なくk個を選び、無作為な順に並べて返します。
+     * Floydのアルゴリズムを用いるため、使用するメモリはkに比例しnには依存しません。
+     *
+     * @param n 母集団の大きさ
+     * @param k 選ぶ個数
+     * @param random 乱数生成器
+     * @throws IllegalArgumentException kが負またはnより大きい場合に送出
+     * @return 選んだインデックスの配列
+     */
+    public static int[] sample(int n, int k, SplittableRandom random) {
+        if (k < 0 || n < k) {
+            throw new IllegalArgumentException("take sample size is out of bounds: " + k);
+        }
+
+        final int[] chosen = new int[k];
+        final IntSet seen = new IntSet(k);
+        int size = 0;
+        for (int j = n - k; j < n; ++j) {
+            final int candidate = random.nextInt(j + 1);
+            if (seen.add(candidate)) {
+                chosen[size++] = candidate;
+            } else {
+                seen.add(j);
+                chosen[size++] = j;
+            }
+        }
+
+        // Floydのアルゴリズムは順序が偏るので並べ替える
+        shuffle(chosen, random);
+        return chosen;
+    }
+
+    /**
+     * 0以上n未満の整数を無作為な順に並べて返します。
+     *
+     * @param n 個数
+     * @param random 乱数生成器
+     * @return 並べ替えたインデックスの配列
+     */
+    public static int[] permutation(int n, SplittableRandom random) {
+        final int[] order = new int[n];
+        for (int i = 0; i < n; ++i) {
+            order[i] = i;
+        }
+        shuffle(order, random);
+        return order;
+    }
+
+    /**
+     * 配列をFisher-Yatesのアルゴリズムでその場で並べ替えます。
+     *
+     * @param values 配列
+     * @param random 乱数生成器
+     */
+    public static void shuffle(int[] values, SplittableRandom random) {
+        for (int i = values.length - 1; i > 0; --i) {
+            final int j = random.nextInt(i + 1);
+            final int swap = values[i];
+            values[i] = values[j];
+            values[j] = swap;
+        }
+    }
+
+    /**
+     * 0以上の整数のみを扱うオープンアドレス法のハッシュ集合。
+     */
+    private static final class IntSet {
+        private static final int EMPTY = -1;
+
+        private final int[] slots;
+        private final int mask;
+
+        private IntSet(int expected) {
+            final int capacity = Integer.highestOneBit(Math.max(2, expected * 2 - 1)) << 1;
+            this.slots = new int[capacity];
+            this.mask = capacity - 1;
+            Arrays.fill(slots, EMPTY);
+        }
+
+        private boolean add(int value) {
+            int slot = mix(value) & mask;
+            while (slots[slot] != EMPTY) {
+                if (slots[slot] == value) {
+                    return false;
+                }
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = value;
+            return true;
+        }
+
+        private static int mix(int value) {
+            final int h = value * 0x9E3779B9;
+            return h ^ (h >>> 16);
+        }
+    }
+}
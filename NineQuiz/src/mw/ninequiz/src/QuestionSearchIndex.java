@@ -0,0 +1,882 @@
+package mw.ninequiz.src;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * 問題文と選択肢を文字のbi-gramで引く転置索引です。
+ * 日本語の問題文は単語で区切られていないため、連続する2文字を単位として索引を作ります。
+ * 1文字だけの問い合わせにも答えられるよう、各文字も1文字のn-gramとして索引に加えます。
+ * 1文字のn-gramは検索にだけ使い、類似度の計算には含めません。
+ * 問題は問題バンクのインデックスを問題IDとして扱います。
+ *
+ * <p>n-gramごとの問題IDの並びは差分を可変長整数で符号化したバイト列で持ち、
+ * 1件あたり1〜2バイト程度で収まります。
+ * 索引は問題バンクを区間に分けて並列に作った後、区間の順につなげて作ります。
+ * 問題バンクに問題が追加された場合は{@link #refresh()}で追加分だけを新しい区画として索引に加えます。
+ *
+ * <p>似た問題は、n-gramの集合のJaccard係数で判定します。
+ * 候補は問い合わせのn-gramのうち出現の少ないものだけから集め、残りのn-gramの並びで共有数を数えます。
+ * 候補が十分に少ない場合は、長い並びを読む代わりに問題バンクから読み出して共有数を求めます。
+ * 最後にn-gramの数から係数を求めて絞り込みます。
+ *
+ * <p>問い合わせはスレッドセーフで、{@link #refresh()}と同時に行えます。
+ *
+ * @author Getaji
+ */
+public final class QuestionSearchIndex {
+
+    /** 1つの区間で並列に処理する問題数。 */
+    private static final int CHUNK_SIZE = 16384;
+
+    /** 1つの区画に含める最大の問題数。 */
+    private static final int SEGMENT_SIZE = 1 << 22;
+
+    /** 1文字しかない欄の2文字目に用いる値。 */
+    private static final int PAD = 0xFFFF;
+
+    /** 1文字のn-gramの上位16ビット。bi-gramと重ならないよう、1文字目に用いない値にします。 */
+    private static final int UNIGRAM = PAD << 16;
+
+    /** 問題から直接共有数を求める手間を、並びの1件を読む手間の何倍と見積もるか。 */
+    private static final int VERIFY_COST = 256;
+
+    private static final ThreadLocal<Accumulator> ACCUMULATOR =
+            ThreadLocal.withInitial(Accumulator::new);
+
+    /**
+     * 問題バンクのすべての問題の索引を作ります。
+     *
+     * @param bank 問題バンク。追加のみが許される
+     * @throws NullPointerException 問題バンクがnullの場合に送出
+     * @return 索引
+     */
+    public static QuestionSearchIndex build(List<Question> bank) {
+        final QuestionSearchIndex index = new QuestionSearchIndex(bank);
+        index.refresh();
+        return index;
+    }
+
+    // ================================================================
+    // N-gram
+    // ================================================================
+
+    /**
+     * 問題の問題文と選択肢のn-gramを、昇順で重複のない配列にして返します。
+     *
+     * @param question 問題
+     * @return n-gramの配列
+     */
+    static int[] gramsOf(Question question) {
+        final GramBuffer buffer = new GramBuffer();
+        buffer.addField(question.getQuestionStatement());
+        for (String choice : question.getChoiceList()) {
+            buffer.addField(choice);
+        }
+        return buffer.toSortedSet();
+    }
+
+    /**
+     * 文字列のn-gramを、昇順で重複のない配列にして返します。
+     *
+     * @param text 文字列
+     * @return n-gramの配列
+     */
+    static int[] gramsOf(String text) {
+        final GramBuffer buffer = new GramBuffer();
+        buffer.addField(text);
+        return buffer.toSortedSet();
+    }
+
+    /**
+     * 問題の問題文と選択肢に含まれる文字の1文字のn-gramを、昇順で重複のない配列にして返します。
+     *
+     * @param question 問題
+     * @return n-gramの配列
+     */
+    static int[] unigramsOf(Question question) {
+        final GramBuffer buffer = new GramBuffer();
+        buffer.addUnigrams(question.getQuestionStatement());
+        for (String choice : question.getChoiceList()) {
+            buffer.addUnigrams(choice);
+        }
+        return buffer.toSortedSet();
+    }
+
+    /**
+     * 検索に用いる文字列のn-gramを、昇順で重複のない配列にして返します。
+     * 空白を除いて2文字以上の場合はbi-gram、1文字の場合はその文字の1文字のn-gramです。
+     *
+     * @param text 文字列
+     * @return n-gramの配列
+     */
+    static int[] searchGramsOf(String text) {
+        final GramBuffer buffer = new GramBuffer();
+        if (buffer.addField(text) == 1) {
+            buffer.size = 0;
+            buffer.addUnigrams(text);
+        }
+        return buffer.toSortedSet();
+    }
+
+    /**
+     * 昇順の2つの配列に共通する値の数を返します。
+     */
+    private static int intersectionSize(int[] a, int[] b) {
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                ++i;
+            } else if (a[i] > b[j]) {
+                ++j;
+            } else {
+                ++count;
+                ++i;
+                ++j;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * n-gramを集めるバッファです。
+     */
+    private static final class GramBuffer {
+        private int[] grams = new int[64];
+        private int size;
+
+        /**
+         * 欄のbi-gramを加えます。
+         *
+         * @return 空白を除いた文字数
+         */
+        private int addField(String text) {
+            int previous = -1;
+            int kept = 0;
+            for (int i = 0; i < text.length(); ++i) {
+                final int c = normalize(text.charAt(i));
+                if (c < 0) {
+                    continue;
+                }
+                if (previous >= 0) {
+                    add((previous << 16) | c);
+                }
+                previous = c;
+                ++kept;
+            }
+
+            if (kept == 1) {
+                add((previous << 16) | PAD);
+            }
+            return kept;
+        }
+
+        /**
+         * 欄の各文字を1文字のn-gramとして加えます。
+         */
+        private void addUnigrams(String text) {
+            for (int i = 0; i < text.length(); ++i) {
+                final int c = normalize(text.charAt(i));
+                if (c >= 0) {
+                    add(UNIGRAM | c);
+                }
+            }
+        }
+
+        /**
+         * 全角英数字を半角に、英字を小文字にそろえます。
+         *
+         * @return そろえた文字。空白の場合は-1
+         */
+        private static int normalize(char c) {
+            if (Character.isWhitespace(c) || c == '　') {
+                return -1;
+            }
+
+            if ('！' <= c && c <= '～') {
+                c = (char) (c - 0xFEE0);
+            }
+            return Character.toLowerCase(c);
+        }
+
+        private void add(int gram) {
+            if (size == grams.length) {
+                grams = Arrays.copyOf(grams, size * 2);
+            }
+            grams[size++] = gram;
+        }
+
+        private int[] toSortedSet() {
+            Arrays.sort(grams, 0, size);
+            int distinct = 0;
+            for (int i = 0; i < size; ++i) {
+                if (i == 0 || grams[i] != grams[i - 1]) {
+                    grams[distinct++] = grams[i];
+                }
+            }
+            return Arrays.copyOf(grams, distinct);
+        }
+    }
+
+    // ================================================================
+    // Posting
+    // ================================================================
+
+    /**
+     * 可変長整数を書き込む伸長可能なバイト列です。
+     */
+    private static final class ByteSink {
+        private byte[] bytes;
+        private int length;
+
+        private ByteSink(int capacity) {
+            this.bytes = new byte[Math.max(16, capacity)];
+        }
+
+        private void writeVarint(int value) {
+            if (bytes.length - length < 5) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + 5));
+            }
+            while ((value & ~0x7F) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+    }
+
+    private static int varintLength(int value) {
+        int length = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            ++length;
+        }
+        return length;
+    }
+
+    private static int readVarint(byte[] data, int position) {
+        int value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = data[position++];
+            value |= (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * 符号化された問題IDの並びを配列に展開します。
+     * 並びは区画内の問題IDの昇順で、最初のIDはそのまま、以降は直前のIDとの差分を可変長整数で持ちます。
+     *
+     * @param data 並びを含むバイト列
+     * @param position 並びの開始位置
+     * @param base 区画の先頭の問題ID
+     * @param into 展開先。足りない場合は新たに確保される
+     * @param offset 展開先の開始位置
+     * @param count 並びの件数
+     * @return 展開先
+     */
+    private static int[] decode(byte[] data, int position, int base, int[] into, int offset,
+                                int count) {
+        if (into.length < offset + count) {
+            into = Arrays.copyOf(into, Math.max(into.length * 2, offset + count));
+        }
+
+        int local = 0;
+        for (int n = 0; n < count; ++n) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = data[position++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            local = (n == 0) ? value : local + value;
+            into[offset + n] = base + local;
+        }
+        return into;
+    }
+
+    /**
+     * 問い合わせごとに問題が共有するn-gramの数を数えるクラスです。スレッドごとに使い回します。
+     */
+    private static final class Accumulator {
+        private int[] counts = new int[0];
+        private int[] touched = new int[256];
+        private int size;
+
+        private Accumulator reset(int capacity) {
+            if (counts.length < capacity) {
+                counts = new int[capacity];
+            }
+            size = 0;
+            return this;
+        }
+
+        /**
+         * 並びに含まれる問題の数を1つ増やします。
+         *
+         * @param addNew まだ数えていない問題も加える場合はtrue
+         */
+        private void add(byte[] data, int position, int count, boolean addNew) {
+            int local = 0;
+            for (int n = 0; n < count; ++n) {
+                int value = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[position++];
+                    value |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                local = (n == 0) ? value : local + value;
+
+                if (counts[local] != 0) {
+                    ++counts[local];
+                } else if (addNew) {
+                    counts[local] = 1;
+                    if (size == touched.length) {
+                        touched = Arrays.copyOf(touched, size * 2);
+                    }
+                    touched[size++] = local;
+                }
+            }
+        }
+    }
+
+    // ================================================================
+    // Segment
+    // ================================================================
+
+    /**
+     * 区間ごとに作った索引です。n-gramは昇順で、各n-gramの並びは1つのバイト列に続けて置きます。
+     */
+    private static final class Chunk {
+        private final int[] grams;
+        private final int[] offsets;
+        private final int[] counts;
+        private final int[] lasts;
+        private final byte[] data;
+
+        private Chunk(int[] grams, int[] offsets, int[] counts, int[] lasts, byte[] data) {
+            this.grams = grams;
+            this.offsets = offsets;
+            this.counts = counts;
+            this.lasts = lasts;
+            this.data = data;
+        }
+
+        /**
+         * 区間の問題から索引を作ります。(n-gram, 問題ID)の組を1つのlongにして並べ替え、先頭から符号化します。
+         * 問題ごとのn-gramの数には、類似度に用いるbi-gramだけを数えます。
+         */
+        private static Chunk build(List<Question> bank, int from, int start, int end,
+                                   int[] gramCounts) {
+            long[] pairs = new long[(end - start) * 32];
+            int pairCount = 0;
+            for (int id = start; id < end; ++id) {
+                final Question question = bank.get(id);
+                final int[] grams = gramsOf(question);
+                final int[] unigrams = unigramsOf(question);
+                gramCounts[id - from] = grams.length;
+                final int gramTotal = grams.length + unigrams.length;
+                if (pairs.length - pairCount < gramTotal) {
+                    pairs = Arrays.copyOf(pairs, Math.max(pairs.length * 2, pairCount + gramTotal));
+                }
+                for (int gram : grams) {
+                    pairs[pairCount++] = ((long) gram << 32) | (id - from);
+                }
+                for (int gram : unigrams) {
+                    pairs[pairCount++] = ((long) gram << 32) | (id - from);
+                }
+            }
+            Arrays.sort(pairs, 0, pairCount);
+
+            int distinct = 0;
+            for (int i = 0; i < pairCount; ++i) {
+                if (i == 0 || (pairs[i] >>> 32) != (pairs[i - 1] >>> 32)) {
+                    ++distinct;
+                }
+            }
+
+            final int[] grams = new int[distinct];
+            final int[] offsets = new int[distinct + 1];
+            final int[] counts = new int[distinct];
+            final int[] lasts = new int[distinct];
+            final ByteSink sink = new ByteSink(pairCount * 2);
+            int slot = -1;
+            int last = 0;
+            for (int i = 0; i < pairCount; ++i) {
+                final int gram = (int) (pairs[i] >>> 32);
+                final int local = (int) pairs[i];
+                if (slot < 0 || grams[slot] != gram) {
+                    ++slot;
+                    grams[slot] = gram;
+                    offsets[slot] = sink.length;
+                    sink.writeVarint(local);
+                } else {
+                    sink.writeVarint(local - last);
+                }
+                ++counts[slot];
+                lasts[slot] = local;
+                last = local;
+            }
+            offsets[distinct] = sink.length;
+            return new Chunk(grams, offsets, counts, lasts, Arrays.copyOf(sink.bytes, sink.length));
+        }
+    }
+
+    /**
+     * 問題バンクの連続した範囲の索引です。作られた後は変更されません。
+     */
+    private static final class Segment {
+        private final int base;
+        private final int[] grams;
+        private final int[] offsets;
+        private final int[] documentFrequencies;
+        private final byte[] data;
+        private final int[] gramCounts;
+
+        private Segment(int base, int[] grams, int[] offsets, int[] documentFrequencies,
+                        byte[] data, int[] gramCounts) {
+            this.base = base;
+            this.grams = grams;
+            this.offsets = offsets;
+            this.documentFrequencies = documentFrequencies;
+            this.data = data;
+            this.gramCounts = gramCounts;
+        }
+
+        /**
+         * 問題バンクの範囲の索引を作ります。
+         * 区間ごとの索引を並列に作り、n-gramの範囲ごとに並列に区間の順でつなげます。
+         * つなげる際は、各区間の並びの先頭のIDだけを直前の区間の最後のIDとの差分に書き直します。
+         */
+        private static Segment build(List<Question> bank, int from, int to) {
+            final int chunkCount = (to - from + CHUNK_SIZE - 1) / CHUNK_SIZE;
+            final int[] gramCounts = new int[to - from];
+            final Chunk[] chunks = IntStream.range(0, chunkCount)
+                    .parallel()
+                    .mapToObj(chunk -> {
+                        final int start = from + chunk * CHUNK_SIZE;
+                        return Chunk.build(bank, from, start, Math.min(to, start + CHUNK_SIZE),
+                                gramCounts);
+                    })
+                    .toArray(Chunk[]::new);
+
+            final int[] grams = Arrays.stream(chunks)
+                    .flatMapToInt(chunk -> Arrays.stream(chunk.grams))
+                    .parallel()
+                    .distinct()
+                    .sorted()
+                    .toArray();
+
+            // n-gramの範囲ごとに、まず長さを求めてから書き込む
+            final int partitionCount = Math.max(1, Math.min(grams.length / 4096 + 1, 256));
+            final int[] documentFrequencies = new int[grams.length];
+            final int[] lengths = new int[grams.length];
+            IntStream.range(0, partitionCount).parallel()
+                    .forEach(p -> merge(chunks, grams, partition(grams, p, partitionCount),
+                            partition(grams, p + 1, partitionCount), documentFrequencies, lengths,
+                            null, null));
+
+            final int[] offsets = new int[grams.length + 1];
+            for (int i = 0; i < grams.length; ++i) {
+                final long next = (long) offsets[i] + lengths[i];
+                if (next > Integer.MAX_VALUE - 8) {
+                    throw new IllegalStateException("Posting lists exceed the segment capacity");
+                }
+                offsets[i + 1] = (int) next;
+            }
+
+            final byte[] data = new byte[offsets[grams.length]];
+            IntStream.range(0, partitionCount).parallel()
+                    .forEach(p -> merge(chunks, grams, partition(grams, p, partitionCount),
+                            partition(grams, p + 1, partitionCount), null, null, offsets, data));
+            return new Segment(from, grams, offsets, documentFrequencies, data, gramCounts);
+        }
+
+        private static int partition(int[] grams, int p, int partitionCount) {
+            return (int) ((long) grams.length * p / partitionCount);
+        }
+
+        /**
+         * n-gramの範囲[begin, end)について、区間の並びをつなげます。
+         * 書き込み先がnullの場合は件数と長さだけを求めます。
+         */
+        private static void merge(Chunk[] chunks, int[] grams, int begin, int end,
+                                  int[] documentFrequencies, int[] lengths, int[] offsets,
+                                  byte[] data) {
+            if (begin >= end) {
+                return;
+            }
+
+            final int[] cursors = new int[chunks.length];
+            for (int c = 0; c < chunks.length; ++c) {
+                final int found = Arrays.binarySearch(chunks[c].grams, grams[begin]);
+                cursors[c] = (found < 0) ? -found - 1 : found;
+            }
+
+            final ByteSink prefix = new ByteSink(5);
+            for (int i = begin; i < end; ++i) {
+                final int gram = grams[i];
+                int count = 0;
+                int length = 0;
+                int position = (offsets == null) ? 0 : offsets[i];
+                int last = -1;
+                for (int c = 0; c < chunks.length; ++c) {
+                    final Chunk chunk = chunks[c];
+                    final int slot = cursors[c];
+                    if (slot >= chunk.grams.length || chunk.grams[slot] != gram) {
+                        continue;
+                    }
+                    cursors[c] = slot + 1;
+
+                    final int start = chunk.offsets[slot];
+                    final int size = chunk.offsets[slot + 1] - start;
+                    int skip = 0;
+                    prefix.length = 0;
+                    if (last >= 0) {
+                        final int first = readVarint(chunk.data, start);
+                        skip = varintLength(first);
+                        prefix.writeVarint(first - last);
+                    }
+
+                    if (data != null) {
+                        System.arraycopy(prefix.bytes, 0, data, position, prefix.length);
+                        position += prefix.length;
+                        System.arraycopy(chunk.data, start + skip, data, position, size - skip);
+                        position += size - skip;
+                    }
+                    length += prefix.length + size - skip;
+                    count += chunk.counts[slot];
+                    last = chunk.lasts[slot];
+                }
+
+                if (documentFrequencies != null) {
+                    documentFrequencies[i] = count;
+                    lengths[i] = length;
+                }
+            }
+        }
+
+        private int find(int gram) {
+            return Arrays.binarySearch(grams, gram);
+        }
+
+        private int size() {
+            return gramCounts.length;
+        }
+    }
+
+    // ================================================================
+    // QuestionSearchIndex
+    // ================================================================
+
+    private final List<Question> bank;
+    private volatile Segment[] segments = new Segment[0];
+    private int indexedCount;
+
+    private QuestionSearchIndex(List<Question> bank) {
+        if (bank == null) {
+            throw new NullPointerException("take bank is null");
+        }
+        this.bank = bank;
+    }
+
+    /**
+     * 前回から問題バンクに追加された問題を索引に加えます。
+     *
+     * @return 加えた問題数
+     */
+    public synchronized int refresh() {
+        final int from = indexedCount;
+        final int to = bank.size();
+        if (to <= from) {
+            return 0;
+        }
+
+        for (int start = from; start < to; start += SEGMENT_SIZE) {
+            final Segment segment = Segment.build(bank, start, Math.min(to, start + SEGMENT_SIZE));
+            final Segment[] current = segments;
+            final Segment[] next = Arrays.copyOf(current, current.length + 1);
+            next[current.length] = segment;
+            segments = next;
+            indexedCount = segment.base + segment.size();
+        }
+        return to - from;
+    }
+
+    /**
+     * 文字列のすべてのn-gramを含む問題のIDを返します。
+     * n-gramの並びまでは確認しないため、文字列をそのまま含まない問題が含まれることがあります。
+     * 1文字の文字列の場合は、その文字を含む問題をすべて返します。
+     *
+     * @param text 文字列
+     * @return 問題IDの昇順の配列
+     */
+    public int[] search(String text) {
+        final int[] query = searchGramsOf(text);
+        if (query.length == 0) {
+            return new int[0];
+        }
+
+        int[] result = new int[0];
+        int resultSize = 0;
+        for (Segment segment : segments) {
+            final Integer[] order = new Integer[query.length];
+            boolean missing = false;
+            for (int i = 0; i < query.length; ++i) {
+                order[i] = segment.find(query[i]);
+                if (order[i] < 0) {
+                    missing = true;
+                    break;
+                }
+            }
+            if (missing) {
+                continue;
+            }
+
+            // 出現の少ないn-gramから絞り込む
+            Arrays.sort(order, Comparator.comparingInt(i -> segment.documentFrequencies[i]));
+            int[] matches = decode(segment.data, segment.offsets[order[0]], segment.base,
+                    new int[0], 0, segment.documentFrequencies[order[0]]);
+            int matchCount = segment.documentFrequencies[order[0]];
+            int[] other = new int[0];
+            for (int k = 1; k < order.length && matchCount > 0; ++k) {
+                final int count = segment.documentFrequencies[order[k]];
+                other = decode(segment.data, segment.offsets[order[k]], segment.base, other, 0,
+                        count);
+                matchCount = retainAll(matches, matchCount, other, count);
+            }
+
+            if (result.length < resultSize + matchCount) {
+                result = Arrays.copyOf(result, resultSize + matchCount);
+            }
+            System.arraycopy(matches, 0, result, resultSize, matchCount);
+            resultSize += matchCount;
+        }
+        return Arrays.copyOf(result, resultSize);
+    }
+
+    /**
+     * 昇順の配列aのうち、昇順の配列bにも含まれる値だけを前に詰めて残します。
+     *
+     * @return 残った数
+     */
+    private static int retainAll(int[] a, int aCount, int[] b, int bCount) {
+        int kept = 0;
+        int j = 0;
+        for (int i = 0; i < aCount; ++i) {
+            while (j < bCount && b[j] < a[i]) {
+                ++j;
+            }
+            if (j < bCount && b[j] == a[i]) {
+                a[kept++] = a[i];
+            }
+        }
+        return kept;
+    }
+
+    /**
+     * 文字列に似た問題を類似度の高い順に返します。
+     *
+     * @param text 文字列
+     * @param threshold 類似度の下限。0より大きく1以下
+     * @param limit 返す最大の件数
+     * @throws IllegalArgumentException 下限が範囲外か、件数が負の場合に送出
+     * @return 似た問題のリスト
+     */
+    public List<QuestionMatch> findSimilar(String text, double threshold, int limit) {
+        checkThreshold(threshold);
+        return top(collectSimilar(gramsOf(text), -1, -1, threshold), limit);
+    }
+
+    /**
+     * 問題に似た他の問題を類似度の高い順に返します。
+     *
+     * @param questionId 問題ID
+     * @param threshold 類似度の下限。0より大きく1以下
+     * @param limit 返す最大の件数
+     * @throws IndexOutOfBoundsException 問題IDが範囲外の場合に送出
+     * @throws IllegalArgumentException 下限が範囲外か、件数が負の場合に送出
+     * @return 似た問題のリスト
+     */
+    public List<QuestionMatch> findSimilar(int questionId, double threshold, int limit) {
+        checkThreshold(threshold);
+        return top(collectSimilar(gramsOf(bank.get(questionId)), questionId, -1, threshold),
+                limit);
+    }
+
+    /**
+     * 索引に含まれるすべての問題から、互いに似ている問題の組を並列に探して返します。
+     * 各組は問題IDの小さい方を{@link QuestionMatch#getSourceId()}として1度だけ含まれます。
+     *
+     * @param threshold 類似度の下限。0より大きく1以下
+     * @throws IllegalArgumentException 下限が範囲外の場合に送出
+     * @return 似ている問題の組のリスト。問題IDの順
+     */
+    public List<QuestionMatch> findNearDuplicates(double threshold) {
+        checkThreshold(threshold);
+        final int count;
+        synchronized (this) {
+            count = indexedCount;
+        }
+        return IntStream.range(0, count)
+                .parallel()
+                .mapToObj(id -> collectSimilar(gramsOf(bank.get(id)), id, id, threshold))
+                .flatMap(List::stream)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * 似た問題を集めます。
+     *
+     * @param query 問い合わせのn-gram
+     * @param sourceId 問い合わせのもとになった問題ID。結果から除かれる
+     * @param minId この値以下の問題IDは除かれる
+     * @param threshold 類似度の下限
+     * @return 似た問題の問題IDの順のリスト
+     */
+    private List<QuestionMatch> collectSimilar(int[] query, int sourceId, int minId,
+                                               double threshold) {
+        final List<QuestionMatch> matches = new ArrayList<>();
+        if (query.length == 0) {
+            return matches;
+        }
+
+        // 係数がthreshold以上なら、少なくともrequired個のn-gramを共有する。
+        // そのため出現の少ない方からprefix個のどれも含まない問題は候補にならない
+        final int required = Math.max(1, (int) Math.ceil(threshold * query.length - 1e-9));
+        final int prefix = query.length - required + 1;
+        final double minGrams = threshold * query.length;
+        final double maxGrams = query.length / threshold;
+
+        for (Segment segment : segments) {
+            if (segment.base + segment.size() - 1 <= minId) {
+                continue;
+            }
+
+            final long[] keys = new long[query.length];
+            for (int i = 0; i < query.length; ++i) {
+                final int slot = segment.find(query[i]);
+                final int frequency = (slot < 0) ? 0 : segment.documentFrequencies[slot];
+                keys[i] = ((long) frequency << 32) | (slot & 0xFFFFFFFFL);
+            }
+            Arrays.sort(keys);
+
+            // 出現の少ないprefix個で候補を集め、残りは候補に対してだけ共有数を数える
+            final Accumulator accumulator = ACCUMULATOR.get().reset(segment.size());
+            long remaining = 0;
+            for (int k = 0; k < query.length; ++k) {
+                final int frequency = (int) (keys[k] >>> 32);
+                if (k < prefix) {
+                    if (frequency > 0) {
+                        accumulator.add(segment.data, segment.offsets[(int) keys[k]], frequency,
+                                true);
+                    }
+                } else {
+                    remaining += frequency;
+                }
+            }
+
+            // 候補が少なければ、長い並びを読むより問題から直接求める方が速い
+            final boolean verify = (long) accumulator.size * VERIFY_COST < remaining;
+            if (!verify) {
+                for (int k = prefix; k < query.length; ++k) {
+                    final int frequency = (int) (keys[k] >>> 32);
+                    if (frequency > 0) {
+                        accumulator.add(segment.data, segment.offsets[(int) keys[k]], frequency,
+                                false);
+                    }
+                }
+            }
+
+            final int[] touched = accumulator.touched;
+            Arrays.sort(touched, 0, accumulator.size);
+            for (int i = 0; i < accumulator.size; ++i) {
+                final int local = touched[i];
+                final int count = accumulator.counts[local];
+                accumulator.counts[local] = 0;
+
+                final int id = segment.base + local;
+                if (id <= minId || id == sourceId) {
+                    continue;
+                }
+
+                final int gramCount = segment.gramCounts[local];
+                if (gramCount < minGrams || maxGrams < gramCount) {
+                    continue;
+                }
+
+                final int shared = verify ? intersectionSize(query, gramsOf(bank.get(id))) : count;
+                final double similarity = (double) shared / (query.length + gramCount - shared);
+                if (similarity >= threshold) {
+                    matches.add(new QuestionMatch(sourceId, id, similarity));
+                }
+            }
+            accumulator.size = 0;
+        }
+        return matches;
+    }
+
+    private static List<QuestionMatch> top(List<QuestionMatch> matches, int limit) {
+        if (limit < 0) {
+            throw new IllegalArgumentException("take limit is negative");
+        }
+
+        matches.sort(Comparator.comparingDouble(QuestionMatch::getSimilarity).reversed()
+                .thenComparingInt(QuestionMatch::getQuestionId));
+        return (matches.size() <= limit) ? matches : new ArrayList<>(matches.subList(0, limit));
+    }
+
+    private static void checkThreshold(double threshold) {
+        if (!(0 < threshold && threshold <= 1)) {
+            throw new IllegalArgumentException("take threshold is out of range: " + threshold);
+        }
+    }
+
+    /**
+     * 索引に含まれる問題数を返します。
+     *
+     * @return 問題数
+     */
+    public synchronized int size() {
+        return indexedCount;
+    }
+
+    /**
+     * 索引に含まれる異なるn-gramの数を区画ごとに足して返します。
+     *
+     * @return n-gramの数
+     */
+    public long getGramCount() {
+        long count = 0;
+        for (Segment segment : segments) {
+            count += segment.grams.length;
+        }
+        return count;
+    }
+
+    /**
+     * 問題IDの並びに使っているバイト数を返します。
+     *
+     * @return バイト数
+     */
+    public long getPostingBytes() {
+        long bytes = 0;
+        for (Segment segment : segments) {
+            bytes += segment.data.length;
+        }
+        return bytes;
+    }
+}
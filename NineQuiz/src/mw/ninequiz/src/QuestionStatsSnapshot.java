@@ -0,0 +1,119 @@
+package mw.ninequiz.src;
+
+/**
+ * ある時点の1問分の解答の集計を表すクラスです。このクラスは不変です。
+ *
+ * @author Getaji
+ * @see QuestionAnalytics
+ */
+public final class QuestionStatsSnapshot {
+
+    private final Question question;
+    private final long answerCount;
+    private final long correctCount;
+    private final long[] choiceCounts;
+    private final long timedCount;
+    private final long latencySum;
+    private final long latencyMax;
+
+    QuestionStatsSnapshot(Question question, long answerCount, long correctCount,
+                          long[] choiceCounts, long timedCount, long latencySum, long latencyMax) {
+        this.question = question;
+        this.answerCount = answerCount;
+        this.correctCount = correctCount;
+        this.choiceCounts = choiceCounts;
+        this.timedCount = timedCount;
+        this.latencySum = latencySum;
+        this.latencyMax = latencyMax;
+    }
+
+    /**
+     * 集計した問題を返します。
+     *
+     * @return 問題
+     */
+    public Question getQuestion() {
+        return question;
+    }
+
+    /**
+     * 解答数を返します。
+     *
+     * @return 解答数
+     */
+    public long getAnswerCount() {
+        return answerCount;
+    }
+
+    /**
+     * 正解数を返します。
+     *
+     * @return 正解数
+     */
+    public long getCorrectCount() {
+        return correctCount;
+    }
+
+    /**
+     * 正解率を返します。解答がない場合は{@link Double#NaN}を返します。
+     *
+     * @return 正解率
+     */
+    public double getCorrectRate() {
+        return (answerCount == 0) ? Double.NaN : (double) correctCount / answerCount;
+    }
+
+    /**
+     * 選択肢ごとの選ばれた回数を返します。
+     *
+     * @param number 選択肢の番号。1から始まる
+     * @throws IndexOutOfBoundsException 番号が選択肢の範囲外の場合に送出
+     * @return 選ばれた回数
+     */
+    public long getChoiceCount(int number) {
+        if (number < 1 || choiceCounts.length <= number) {
+            throw new IndexOutOfBoundsException("Choice number is out of choices bounds: " + number);
+        }
+        return choiceCounts[number];
+    }
+
+    /**
+     * 選択肢の範囲外の解答の数を返します。
+     *
+     * @return 範囲外の解答の数
+     */
+    public long getInvalidAnswerCount() {
+        return choiceCounts[0];
+    }
+
+    /**
+     * 解答までの平均時間をナノ秒で返します。計測した解答がない場合は0を返します。
+     *
+     * @return 平均時間
+     */
+    public double getMeanLatencyNanos() {
+        return (timedCount == 0) ? 0 : (double) latencySum / timedCount;
+    }
+
+    /**
+     * 解答までの最大時間をナノ秒で返します。
+     *
+     * @return 最大時間
+     */
+    public long getMaxLatencyNanos() {
+        return latencyMax;
+    }
+
+    /**
+     * このクラスの文字列表現を返します。
+     *
+     * <p>例：{@code "QuestionStats{state:"弦楽器はどれ?" answers:120 correct-rate:0.75}"}
+     *
+     * @return 文字列表現
+     */
+    @Override
+    public String toString() {
+        return String.format("QuestionStats{state:\"%s\" answers:%d correct-rate:%.4f}",
+                question.getQuestionStatement(), answerCount, getCorrectRate());
+    }
+}
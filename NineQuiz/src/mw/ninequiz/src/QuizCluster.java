@@ -0,0 +1,762 @@
+package mw.ninequiz.src;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiFunction;
+
+/**
+ * セッションを複数の{@link QuizEngine}に振り分けるクラスです。
+ * 1つのエンジンを1つのノードとして扱い、1台に収まらない数のセッションを分けて持ちます。
+ *
+ * <p>セッションIDはこのクラスが割り当て、IDのハッシュによるコンシステントハッシュで担当のノードを決めます。
+ * 各ノードはハッシュ環の上に{@value #DEFAULT_VIRTUAL_NODES}個の点を持つため、
+ * ノードを加えたり取り除いたりしても、担当が変わるのはおよそ1/ノード数のセッションだけです。
+ *
+ * <p>担当が変わったセッションは、セッションをロックして新しいノードへ解答ごと引き継がれます。
+ * 順位表の得点と時間、{@link SessionJournal}の記録も一緒に移るため、
+ * 引き継ぎの最中も解答は止まらず、引き継いだ後も同じIDで続けられます。
+ * {@link SessionJournal}で記録するノードを置く場合、独自の出題順やプロファイルを持つセッションは開始できません。
+ *
+ * <p>各ノードは{@link Leaderboard}を持ち、自分が担当したセッションの得点を集計します。
+ * {@link #top(int)}と{@link #getEntry(long)}はすべてのノードの順位表を併合した順位を返します。
+ *
+ * <p>ノードはすべて同じプロセス内のエンジンです。
+ * {@link #main(String[])}は1台のマシン上で複数のノードを立ち上げ、負荷をかけながらノードを増減させます。
+ *
+ * @author Getaji
+ */
+public class QuizCluster {
+
+    /** 1つのノードがハッシュ環の上に持つ点の数。 */
+    public static final int DEFAULT_VIRTUAL_NODES = 128;
+
+    /** {@link #main(String[])}で1人のプレイヤーが同時に進めるセッション数。 */
+    private static final int PLAYER_SESSIONS = 256;
+
+    /**
+     * 問題のコレクションとプロファイルを受け取り、ノードのないインスタンスを生成します。
+     * 判定は{@link ForkJoinPool#commonPool()}上で行われます。
+     *
+     * @param questions 問題のコレクション
+     * @param profile {@link #addNode(String)}で作るノードの既定のプロファイル
+     * @return インスタンス
+     */
+    public static QuizCluster of(Collection<Question> questions, QuizProfile profile) {
+        return of(questions, profile, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 問題のコレクションとプロファイル、判定に用いる{@link Executor}を受け取り、ノードのないインスタンスを生成します。
+     *
+     * @param questions 問題のコレクション
+     * @param profile {@link #addNode(String)}で作るノードの既定のプロファイル
+     * @param executor 判定に用いるExecutor
+     * @throws NullPointerException パラメータがnullの場合に送出
+     * @return インスタンス
+     */
+    public static QuizCluster of(Collection<Question> questions, QuizProfile profile,
+                                 Executor executor) {
+        if (profile == null || executor == null) {
+            throw new NullPointerException("take parameter is null");
+        }
+        return new QuizCluster(QuizLogicHelper.toSharedList(questions), profile, executor);
+    }
+
+    /**
+     * 1台のマシン上で複数のノードを立ち上げ、プレイヤーにセッションを遊ばせながらノードを増減させます。
+     * セッションが半分終わったところでノードを1つ加え、最初のノードを取り除きます。
+     * 引数はノード数、プレイヤー数、セッション数の順で、すべて省略できます。
+     *
+     * @param args 引数
+     */
+    public static void main(String[] args) {
+        final int nodeCount = (args.length > 0) ? Integer.parseInt(args[0]) : 3;
+        final int playerCount = (args.length > 1) ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+        final int sessionCount = (args.length > 2) ? Integer.parseInt(args[2]) : 100000;
+        if (nodeCount <= 0 || playerCount <= 0) {
+            throw new IllegalArgumentException("take count is not positive");
+        }
+
+        final QuizCluster cluster = of(Main.sampleQuestions(), QuizProfile.DEFAULT);
+        for (int i = 1; i <= nodeCount; ++i) {
+            cluster.addNode("node-" + i);
+        }
+
+        final QuizSimulator.AnswerModel answerModel = QuizSimulator.AnswerModel.accuracy(0.7);
+        final AtomicInteger remaining = new AtomicInteger(sessionCount);
+        final SplittableRandom seed = new SplittableRandom(1);
+        final List<Thread> threads = new ArrayList<>(playerCount);
+        for (int i = 0; i < playerCount; ++i) {
+            final SplittableRandom random = seed.split();
+            threads.add(new Thread(() -> {
+                // 引き継ぎが起こるよう、1つのスレッドで複数のセッションを交互に進める
+                final long[] sessionIds = new long[PLAYER_SESSIONS];
+                int live = 0;
+                while (live < sessionIds.length && remaining.getAndDecrement() > 0) {
+                    sessionIds[live++] = cluster.openSession().getId();
+                }
+
+                while (live > 0) {
+                    for (int s = 0; s < live; ++s) {
+                        final QuizSession session = cluster.getSession(sessionIds[s]);
+                        if (!session.isFinished()) {
+                            cluster.judge(sessionIds[s],
+                                    answerModel.answer(session.getCurrentQuestion(), random));
+                            continue;
+                        }
+
+                        cluster.closeSession(sessionIds[s]);
+                        if (remaining.getAndDecrement() > 0) {
+                            sessionIds[s] = cluster.openSession().getId();
+                        } else {
+                            sessionIds[s--] = sessionIds[--live];
+                        }
+                    }
+                }
+            }, "quiz-cluster-player-" + i));
+        }
+
+        final long start = System.nanoTime();
+        threads.forEach(Thread::start);
+        while (remaining.get() > sessionCount / 2 && threads.stream().anyMatch(Thread::isAlive)) {
+            LockSupport.parkNanos(1000000);
+        }
+        final int added = cluster.addNode("node-" + (nodeCount + 1));
+        final int removed = cluster.removeNode("node-1");
+
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        final long elapsed = System.nanoTime() - start;
+
+        System.out.printf("nodes %s%n", cluster.getNodeIds());
+        System.out.printf("sessions_per_second %.0f%n", sessionCount * 1e9 / elapsed);
+        System.out.printf("handoff_on_add %d%n", added);
+        System.out.printf("handoff_on_remove %d%n", removed);
+        for (String nodeId : cluster.getNodeIds()) {
+            System.out.printf("players{node=\"%s\"} %d%n", nodeId, cluster.getPlayerCount(nodeId));
+        }
+        System.out.printf("players_total %d%n", cluster.getPlayerCount());
+        for (LeaderboardEntry entry : cluster.top(5)) {
+            System.out.println(entry);
+        }
+    }
+
+    // ================================================================
+    // Ring
+    // ================================================================
+
+    /**
+     * 1つのノードです。
+     */
+    private static final class Node {
+        private final String id;
+        private final QuizEngine engine;
+        private final Leaderboard leaderboard = new Leaderboard();
+
+        private Node(String id, QuizEngine engine) {
+            this.id = id;
+            this.engine = engine;
+        }
+    }
+
+    /**
+     * ハッシュ環です。作られた後は変更されず、ノードの増減時には作り直して差し替えます。
+     */
+    private static final class Ring {
+        private static final Ring EMPTY = new Ring(new Node[0], new Node[0], 0);
+
+        // セッションを担当するノード
+        private final Node[] owners;
+
+        // セッションを持っている可能性のあるノード。取り除く途中のノードを含む
+        private final Node[] nodes;
+
+        private final long[] points;
+        private final Node[] pointOwners;
+
+        private Ring(Node[] owners, Node[] nodes, int virtualNodeCount) {
+            this.owners = owners;
+            this.nodes = nodes;
+
+            final int count = owners.length * virtualNodeCount;
+            final long[] keys = new long[count];
+            final Integer[] order = new Integer[count];
+            for (int n = 0; n < owners.length; ++n) {
+                final long base = hashOf(owners[n].id);
+                for (int v = 0; v < virtualNodeCount; ++v) {
+                    final int i = n * virtualNodeCount + v;
+                    keys[i] = mix(base + v);
+                    order[i] = i;
+                }
+            }
+            Arrays.sort(order, (a, b) -> Long.compare(keys[a], keys[b]));
+
+            this.points = new long[count];
+            this.pointOwners = new Node[count];
+            for (int i = 0; i < count; ++i) {
+                points[i] = keys[order[i]];
+                pointOwners[i] = owners[order[i] / virtualNodeCount];
+            }
+        }
+
+        /**
+         * セッションを担当するノードを返します。ノードがない場合はnullを返します。
+         */
+        private Node ownerOf(long sessionId) {
+            if (points.length == 0) {
+                return null;
+            }
+
+            final int found = Arrays.binarySearch(points, mix(sessionId));
+            final int index = (found < 0) ? -found - 1 : found;
+            return pointOwners[(index == points.length) ? 0 : index];
+        }
+
+        private Node find(String nodeId) {
+            for (Node node : nodes) {
+                if (node.id.equals(nodeId)) {
+                    return node;
+                }
+            }
+            return null;
+        }
+    }
+
+    /**
+     * 64ビットの値をよく混ぜて返します。連番のIDもハッシュ環の上に散らばります。
+     */
+    private static long mix(long value) {
+        long z = value + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * ノードIDの64ビットのハッシュを返します。
+     */
+    private static long hashOf(String nodeId) {
+        long hash = 0xCBF29CE484222325L;
+        for (int i = 0; i < nodeId.length(); ++i) {
+            hash = (hash ^ nodeId.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(hash);
+    }
+
+    private static Node[] append(Node[] nodes, Node node) {
+        final Node[] appended = Arrays.copyOf(nodes, nodes.length + 1);
+        appended[nodes.length] = node;
+        return appended;
+    }
+
+    private static Node[] without(Node[] nodes, Node node) {
+        return Arrays.stream(nodes).filter(n -> n != node).toArray(Node[]::new);
+    }
+
+    // ================================================================
+    // QuizCluster
+    // ================================================================
+
+    private final List<Question> questions;
+    private final QuizProfile profile;
+    private final Executor executor;
+    private final AtomicLong idSequence = new AtomicLong();
+    private final AtomicLong handoffCount = new AtomicLong();
+
+    // セッションの開始とハッシュ環の差し替えが重ならないようにする
+    private final ReentrantReadWriteLock ringLock = new ReentrantReadWriteLock();
+
+    private volatile Ring ring = Ring.EMPTY;
+
+    private QuizCluster(List<Question> questions, QuizProfile profile, Executor executor) {
+        this.questions = questions;
+        this.profile = profile;
+        this.executor = executor;
+    }
+
+    /**
+     * 新しいエンジンをノードとして加え、担当が変わったセッションを引き継がせます。
+     *
+     * @param nodeId ノードID
+     * @return 引き継いだセッション数
+     */
+    public int addNode(String nodeId) {
+        return addNode(nodeId, QuizEngine.of(questions, profile, executor));
+    }
+
+    /**
+     * エンジンをノードとして加え、担当が変わったセッションを引き継がせます。
+     * エンジンにはこのクラスと同じ問題を渡し、セッションを開始する前である必要があります。
+     * 計測値や記録先は加える前にエンジンへ設定してください。
+     *
+     * @param nodeId ノードID
+     * @param engine エンジン
+     * @throws NullPointerException パラメータがnullの場合に送出
+     * @throws IllegalArgumentException 同じIDのノードがあるか、エンジンが条件を満たさない場合に送出
+     * @return 引き継いだセッション数
+     */
+    public synchronized int addNode(String nodeId, QuizEngine engine) {
+        if (nodeId == null || engine == null) {
+            throw new NullPointerException("take parameter is null");
+        }
+
+        final Ring current = ring;
+        if (current.find(nodeId) != null) {
+            throw new IllegalArgumentException("Node already exists: " + nodeId);
+        }
+
+        for (Node node : current.nodes) {
+            if (node.engine == engine) {
+                throw new IllegalArgumentException("take engine is already a node: " + node.id);
+            }
+        }
+
+        if (engine.getQuestions().size() != questions.size() || engine.getSessionCount() != 0) {
+            throw new IllegalArgumentException("take engine does not match this cluster");
+        }
+
+        final Node node = new Node(nodeId, engine);
+        engine.addAnswerListener(node.leaderboard);
+        publish(new Ring(append(current.owners, node), append(current.nodes, node),
+                DEFAULT_VIRTUAL_NODES));
+        return rebalance();
+    }
+
+    /**
+     * ノードを取り除き、そのセッションと順位表を残りのノードへ引き継がせます。
+     * 取り除いたエンジンは閉じられず、それ以降このクラスから使われることはありません。
+     *
+     * @param nodeId ノードID
+     * @throws IllegalArgumentException ノードが存在しない場合に送出
+     * @throws IllegalStateException 最後のノードを取り除こうとした場合に送出
+     * @return 引き継いだセッション数
+     */
+    public synchronized int removeNode(String nodeId) {
+        final Ring current = ring;
+        final Node node = current.find(nodeId);
+        if (node == null) {
+            throw new IllegalArgumentException("Node is not found: " + nodeId);
+        }
+
+        if (current.owners.length == 1) {
+            throw new IllegalStateException("Cannot remove the last node: " + nodeId);
+        }
+
+        // 引き継ぎが終わるまでは、取り除くノードもセッションを探す対象に残す
+        final Node[] owners = without(current.owners, node);
+        publish(new Ring(owners, current.nodes, DEFAULT_VIRTUAL_NODES));
+        final int moved = rebalance();
+
+        final Ring next = ring;
+        for (LeaderboardEntry entry : node.leaderboard.top(node.leaderboard.size())) {
+            final LeaderboardEntry taken = node.leaderboard.take(entry.getPlayerId());
+            if (taken != null) {
+                next.ownerOf(taken.getPlayerId()).leaderboard
+                        .add(taken.getPlayerId(), taken.getScore(), taken.getTimeNanos());
+            }
+        }
+        publish(new Ring(owners, owners, DEFAULT_VIRTUAL_NODES));
+        return moved;
+    }
+
+    private void publish(Ring next) {
+        final Lock lock = ringLock.writeLock();
+        lock.lock();
+        try {
+            ring = next;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 担当のノード以外にあるセッションをすべて担当のノードへ引き継がせます。
+     * ハッシュ環を差し替えた後に呼ばれるため、これ以降に開始するセッションは初めから担当のノードに置かれます。
+     */
+    private int rebalance() {
+        final Ring current = ring;
+        int moved = 0;
+        for (Node from : current.nodes) {
+            for (QuizSession session : new ArrayList<>(from.engine.getSessions())) {
+                final Node to = current.ownerOf(session.getId());
+                if (to != from && handOff(from, to, session)) {
+                    ++moved;
+                }
+            }
+        }
+        return moved;
+    }
+
+    /**
+     * セッションを引き継がせます。引き継ぎ中の解答はセッションのロックで待たされ、引き継ぎ先で処理されます。
+     * 引き継ぎの数は元のノードから取り除く前に数えるため、{@link #locate(long)}は走査中の引き継ぎに気付けます。
+     */
+    private boolean handOff(Node from, Node to, QuizSession session) {
+        final long sessionId = session.getId();
+        synchronized (session) {
+            if (from.engine.getSession(sessionId) != session) {
+                return false;
+            }
+            to.engine.adoptSession(from.engine, session);
+
+            final LeaderboardEntry entry = from.leaderboard.take(sessionId);
+            if (entry != null) {
+                to.leaderboard.add(sessionId, entry.getScore(), entry.getTimeNanos());
+            }
+            handoffCount.incrementAndGet();
+            from.engine.closeSession(sessionId);
+        }
+        return true;
+    }
+
+    // ================================================================
+    // Session
+    // ================================================================
+
+    /**
+     * 担当のノードで新しいセッションを開始して返します。
+     *
+     * @throws IllegalStateException ノードがない場合に送出
+     * @return セッション
+     */
+    public QuizSession openSession() {
+        return openSession(null, null);
+    }
+
+    /**
+     * 表示に用いるプロファイルを指定して、担当のノードで新しいセッションを開始して返します。
+     *
+     * @param sessionProfile 表示に用いるプロファイル。nullの場合はノードの既定
+     * @throws IllegalStateException ノードがない場合に送出
+     * @return セッション
+     */
+    public QuizSession openSession(QuizProfile sessionProfile) {
+        return openSession(null, sessionProfile);
+    }
+
+    /**
+     * 独自の出題順と表示に用いるプロファイルを持つ新しいセッションを、担当のノードで開始して返します。
+     *
+     * @param deck このセッションで出題する問題のリスト。nullの場合はノードが共有する問題のリスト
+     * @param sessionProfile 表示に用いるプロファイル。nullの場合はノードの既定
+     * @throws IllegalStateException ノードがない場合に送出
+     * @return セッション
+     */
+    public QuizSession openSession(List<Question> deck, QuizProfile sessionProfile) {
+        final Lock lock = ringLock.readLock();
+        lock.lock();
+        try {
+            final long sessionId = idSequence.incrementAndGet();
+            final Node owner = ring.ownerOf(sessionId);
+            if (owner == null) {
+                throw new IllegalStateException("Cluster has no nodes");
+            }
+
+            final QuizEngine engine = owner.engine;
+            return engine.openSession(sessionId, (deck != null) ? deck : engine.getQuestions(),
+                    sessionProfile);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * セッションを返します。引き継ぎの後は、引き継ぎ先のセッションが返されます。
+     *
+     * @param sessionId セッションID
+     * @return セッション。存在しない場合はnull
+     */
+    public QuizSession getSession(long sessionId) {
+        final Node node = locate(sessionId);
+        return (node == null) ? null : node.engine.getSession(sessionId);
+    }
+
+    /**
+     * セッションを持っているノードのIDを返します。
+     *
+     * @param sessionId セッションID
+     * @return ノードID。セッションが存在しない場合はnull
+     */
+    public String getNodeOf(long sessionId) {
+        final Node node = locate(sessionId);
+        return (node == null) ? null : node.id;
+    }
+
+    /**
+     * セッションを終了し、ノードから取り除きます。順位表の得点は残ります。
+     *
+     * @param sessionId セッションID
+     * @return 取り除かれたセッション。存在しない場合はnull
+     */
+    public QuizSession closeSession(long sessionId) {
+        return route(sessionId, (engine, session) -> engine.closeSession(sessionId));
+    }
+
+    /**
+     * 呼び出したスレッド上で、セッションを持っているノードで解答を判定します。
+     *
+     * @param sessionId セッションID
+     * @param userAnswer 解答
+     * @throws IllegalArgumentException セッションが存在しない場合に送出
+     * @throws IllegalStateException セッションが終了している場合に送出
+     * @return 判定結果
+     */
+    public JudgeType judge(long sessionId, int userAnswer) {
+        final JudgeType judge = route(sessionId,
+                (engine, session) -> engine.judge(session, userAnswer));
+        if (judge == null) {
+            throw new IllegalArgumentException("Session is not found: " + sessionId);
+        }
+        return judge;
+    }
+
+    /**
+     * 解答を非同期に判定します。
+     * 存在しないセッションや終了したセッションを指定した場合、返されるFutureは例外で完了します。
+     *
+     * @param sessionId セッションID
+     * @param userAnswer 解答
+     * @return 判定結果のFuture
+     */
+    public CompletableFuture<JudgeType> submitAnswer(long sessionId, int userAnswer) {
+        return CompletableFuture.supplyAsync(() -> judge(sessionId, userAnswer), executor);
+    }
+
+    /**
+     * セッションで出題中の問題のフレームを、セッションを持っているノードで返します。
+     *
+     * @param sessionId セッションID
+     * @throws IllegalArgumentException セッションが存在しない場合に送出
+     * @throws IllegalStateException セッションが終了している場合に送出
+     * @return フレーム
+     */
+    public QuestionFrame getCurrentFrame(long sessionId) {
+        final QuestionFrame frame = route(sessionId, QuizEngine::getCurrentFrame);
+        if (frame == null) {
+            throw new IllegalArgumentException("Session is not found: " + sessionId);
+        }
+        return frame;
+    }
+
+    /**
+     * セッションを持っているノードを返します。
+     * まず担当のノードを調べ、引き継ぎの途中で見つからない場合はすべてのノードを調べます。
+     * ノードを順に調べる間に、まだ調べていないノードから調べ終えたノードへ引き継がれると見落とすため、
+     * 走査中に引き継ぎがなかった場合にだけ存在しないとみなします。
+     */
+    private Node locate(long sessionId) {
+        while (true) {
+            final long handoffs = handoffCount.get();
+            final Ring current = ring;
+            final Node owner = current.ownerOf(sessionId);
+            if (owner != null && owner.engine.getSession(sessionId) != null) {
+                return owner;
+            }
+
+            for (Node node : current.nodes) {
+                if (node != owner && node.engine.getSession(sessionId) != null) {
+                    return node;
+                }
+            }
+
+            if (handoffCount.get() == handoffs) {
+                return null;
+            }
+        }
+    }
+
+    /**
+     * セッションをロックし、まだそのノードにある場合に処理を行います。
+     * 引き継ぎでノードから取り除かれていた場合は、引き継ぎ先で処理し直します。
+     *
+     * @return 処理の結果。セッションが存在しない場合はnull
+     */
+    private <T> T route(long sessionId, BiFunction<QuizEngine, QuizSession, T> action) {
+        while (true) {
+            final Node node = locate(sessionId);
+            if (node == null) {
+                return null;
+            }
+
+            final QuizSession session = node.engine.getSession(sessionId);
+            if (session == null) {
+                continue;
+            }
+
+            synchronized (session) {
+                if (node.engine.getSession(sessionId) == session) {
+                    return action.apply(node.engine, session);
+                }
+            }
+        }
+    }
+
+    // ================================================================
+    // 結果
+    // ================================================================
+
+    /**
+     * すべてのノードの順位表を併合し、上位のセッションを順位の順に返します。
+     *
+     * @param count 取得する数
+     * @throws IllegalArgumentException 数が負の場合に送出
+     * @return 上位のセッションのリスト。プレイヤーIDはセッションID
+     */
+    public List<LeaderboardEntry> top(int count) {
+        if (count < 0) {
+            throw new IllegalArgumentException("take count is negative");
+        }
+
+        final List<LeaderboardEntry> candidates = new ArrayList<>();
+        for (Node node : ring.nodes) {
+            candidates.addAll(node.leaderboard.top(count));
+        }
+        candidates.sort(Leaderboard::compare);
+
+        final int size = Math.min(count, candidates.size());
+        final List<LeaderboardEntry> top = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            final LeaderboardEntry entry = candidates.get(i);
+            top.add(new LeaderboardEntry(entry.getPlayerId(), entry.getScore(),
+                    entry.getTimeNanos(), i + 1));
+        }
+        return top;
+    }
+
+    /**
+     * セッションの得点と、すべてのノードをまたいだ順位を返します。
+     *
+     * @param sessionId セッションID
+     * @return 順位。得点の記録がない場合はnull
+     */
+    public LeaderboardEntry getEntry(long sessionId) {
+        final Node[] nodes = ring.nodes;
+        LeaderboardEntry entry = null;
+        for (Node node : nodes) {
+            entry = node.leaderboard.getEntry(sessionId);
+            if (entry != null) {
+                break;
+            }
+        }
+
+        if (entry == null) {
+            return null;
+        }
+
+        int above = 0;
+        for (Node node : nodes) {
+            above += node.leaderboard.countAbove(entry.getScore(), entry.getTimeNanos(), sessionId);
+        }
+        return new LeaderboardEntry(sessionId, entry.getScore(), entry.getTimeNanos(), above + 1);
+    }
+
+    /**
+     * すべてのノードの順位表に載っているセッション数の合計を返します。
+     *
+     * @return セッション数
+     */
+    public int getPlayerCount() {
+        int count = 0;
+        for (Node node : ring.nodes) {
+            count += node.leaderboard.size();
+        }
+        return count;
+    }
+
+    /**
+     * ノードの順位表に載っているセッション数を返します。
+     *
+     * @param nodeId ノードID
+     * @return セッション数。ノードが存在しない場合は0
+     */
+    public int getPlayerCount(String nodeId) {
+        final Node node = ring.find(nodeId);
+        return (node == null) ? 0 : node.leaderboard.size();
+    }
+
+    /**
+     * すべてのノードで進行中のセッション数の合計を返します。
+     *
+     * @return セッション数
+     */
+    public int getSessionCount() {
+        int count = 0;
+        for (Node node : ring.nodes) {
+            count += node.engine.getSessionCount();
+        }
+        return count;
+    }
+
+    /**
+     * ノードで進行中のセッション数を返します。
+     *
+     * @param nodeId ノードID
+     * @return セッション数。ノードが存在しない場合は0
+     */
+    public int getSessionCount(String nodeId) {
+        final Node node = ring.find(nodeId);
+        return (node == null) ? 0 : node.engine.getSessionCount();
+    }
+
+    /**
+     * これまでに引き継いだセッション数の合計を返します。
+     *
+     * @return セッション数
+     */
+    public long getHandoffCount() {
+        return handoffCount.get();
+    }
+
+    /**
+     * セッションを担当するノードのIDを、加えた順に返します。返されるリストは変更できません。
+     *
+     * @return ノードIDのリスト
+     */
+    public List<String> getNodeIds() {
+        final Node[] owners = ring.owners;
+        final List<String> ids = new ArrayList<>(owners.length);
+        for (Node node : owners) {
+            ids.add(node.id);
+        }
+        return Collections.unmodifiableList(ids);
+    }
+
+    /**
+     * ノードのエンジンを返します。
+     *
+     * @param nodeId ノードID
+     * @return エンジン。ノードが存在しない場合はnull
+     */
+    public QuizEngine getEngine(String nodeId) {
+        final Node node = ring.find(nodeId);
+        return (node == null) ? null : node.engine;
+    }
+
+    /**
+     * 共有する問題のリストを返します。
+     *
+     * @return 問題のリスト
+     */
+    public List<Question> getQuestions() {
+        return questions;
+    }
+}
@@ -0,0 +1,542 @@
+package mw.ninequiz.src;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多数の{@link QuizSession}を同時に管理するエンジンクラスです。
+ * 問題のコレクションと{@link QuizLogicData}はすべてのセッションで共有されます。
+ *
+ * <p>解答は{@link #submitAnswer(long, int)}で非同期に受け付け、
+ * 渡された{@link Executor}上で判定されます。
+ * 同じセッションへの解答は順に処理されます。
+ *
+ * <p>{@link #addAnswerListener(AnswerListener)}で登録したリスナーには、
+ * このエンジンが開始したすべてのセッションの解答が通知されます。
+ *
+ * @author Getaji
+ */
+public class QuizEngine {
+
+    /**
+     * 問題のコレクションとロジックデータを受け取りインスタンスを生成します。
+     * 判定は{@link ForkJoinPool#commonPool()}上で行われます。
+     *
+     * @param questions 問題のコレクション
+     * @param data ロジックデータ
+     * @return インスタンス
+     */
+    public static QuizEngine of(Collection<Question> questions, QuizLogicData data) {
+        return new QuizEngine(questions, data, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 問題のコレクションとロジックデータ、判定に用いる{@link Executor}を受け取りインスタンスを生成します。
+     *
+     * @param questions 問題のコレクション
+     * @param data ロジックデータ
+     * @param executor 判定に用いるExecutor
+     * @return インスタンス
+     */
+    public static QuizEngine of(Collection<Question> questions, QuizLogicData data,
+                                Executor executor) {
+        return new QuizEngine(questions, data, executor);
+    }
+
+    /**
+     * 問題のコレクションとプロファイルを受け取りインスタンスを生成します。
+     * 判定は{@link ForkJoinPool#commonPool()}上で行われます。
+     *
+     * @param questions 問題のコレクション
+     * @param profile プロファイル
+     * @return インスタンス
+     */
+    public static QuizEngine of(Collection<Question> questions, QuizProfile profile) {
+        return of(questions, profile, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * 問題のコレクションとプロファイル、判定に用いる{@link Executor}を受け取りインスタンスを生成します。
+     * {@link #getData()}はプロファイルと同じ内容の新しいデータを返します。
+     *
+     * @param questions 問題のコレクション
+     * @param profile プロファイル
+     * @param executor 判定に用いるExecutor
+     * @return インスタンス
+     */
+    public static QuizEngine of(Collection<Question> questions, QuizProfile profile,
+                                Executor executor) {
+        final QuizEngine engine = new QuizEngine(questions, profile.toData(), executor);
+        engine.profile = profile;
+        return engine;
+    }
+
+    private final List<Question> questions;
+    private final QuizLogicData data;
+    private final QuestionFrameCache frameCache;
+    private final ConcurrentMap<QuizProfile, QuestionFrameCache> profileFrameCaches =
+            new ConcurrentHashMap<>();
+    private final Executor executor;
+    private final ConcurrentMap<Long, QuizSession> sessions = new ConcurrentHashMap<>();
+    private final AtomicLong idSequence = new AtomicLong();
+    private final AnswerListener dispatcher = this::dispatchAnswer;
+    private volatile AnswerListener listener = AnswerListener.NONE;
+    private volatile QuizMetrics metrics;
+    private volatile SessionJournal journal;
+    private volatile QuizProfile profile;
+
+    /**
+     * 初期化
+     *
+     * @param questions 問題
+     * @param data ロジックデータ
+     * @param executor 判定に用いるExecutor
+     */
+    private QuizEngine(Collection<Question> questions, QuizLogicData data, Executor executor) {
+        if (executor == null) {
+            throw new NullPointerException("take executor is null");
+        }
+
+        this.questions = QuizLogicHelper.toSharedList(questions);
+        this.data = data;
+        this.frameCache = new QuestionFrameCache(data);
+        this.executor = executor;
+    }
+
+    /**
+     * 新しいセッションを開始して返します。
+     *
+     * @return セッション
+     */
+    public QuizSession openSession() {
+        return openSession(questions);
+    }
+
+    /**
+     * 表示に用いるプロファイルを指定して新しいセッションを開始して返します。
+     * プロファイルは{@link MessageCatalog#get(java.util.Locale)}などで得たものを渡してください。
+     *
+     * @param profile 表示に用いるプロファイル。nullの場合はエンジンの既定
+     * @throws IllegalStateException {@link SessionJournal}で記録中にプロファイルを指定した場合に送出
+     * @return セッション
+     */
+    public QuizSession openSession(QuizProfile profile) {
+        return openSession(questions, profile);
+    }
+
+    /**
+     * 独自の出題順を持つ新しいセッションを開始して返します。
+     * 出題順には{@link QuestionDeck}などの問題バンクを共有するリストを渡してください。
+     *
+     * @param deck このセッションで出題する問題のリスト
+     * @throws IllegalStateException {@link SessionJournal}で記録中の場合に送出
+     * @return セッション
+     */
+    public QuizSession openSession(List<Question> deck) {
+        return openSession(deck, null);
+    }
+
+    /**
+     * 独自の出題順と表示に用いるプロファイルを持つ新しいセッションを開始して返します。
+     *
+     * @param deck このセッションで出題する問題のリスト
+     * @param profile 表示に用いるプロファイル。nullの場合はエンジンの既定
+     * @throws IllegalStateException {@link SessionJournal}で記録中に独自の出題順かプロファイルを指定した場合に送出
+     * @return セッション
+     */
+    public QuizSession openSession(List<Question> deck, QuizProfile profile) {
+        return openSession(idSequence.incrementAndGet(), deck, profile);
+    }
+
+    /**
+     * IDを指定して新しいセッションを開始して返します。
+     * IDを外部で割り当てる{@link QuizCluster}から使用されます。
+     *
+     * @param sessionId セッションID
+     * @param deck このセッションで出題する問題のリスト
+     * @param profile 表示に用いるプロファイル。nullの場合はエンジンの既定
+     * @throws IllegalStateException 同じIDのセッションがすでにある場合や、記録できないセッションの場合に送出
+     * @return セッション
+     */
+    QuizSession openSession(long sessionId, List<Question> deck, QuizProfile profile) {
+        final SessionJournal currentJournal = journal;
+        checkRecordable(currentJournal, deck, profile);
+
+        final QuizSession session = new QuizSession(sessionId, deck, dispatcher, profile);
+        if (sessions.putIfAbsent(sessionId, session) != null) {
+            throw new IllegalStateException("Session already exists: " + sessionId);
+        }
+        reserveSessionId(sessionId);
+
+        if (currentJournal != null) {
+            currentJournal.sessionOpened(session);
+        }
+
+        final QuizMetrics currentMetrics = metrics;
+        if (currentMetrics != null) {
+            currentMetrics.sessionOpened();
+        }
+        return session;
+    }
+
+    /**
+     * 記録された解答と判定結果からセッションを復元します。通知先には通知しません。
+     * 解答は判定し直さず、記録された判定結果をそのまま用います。
+     * 以降に開始するセッションのIDは、復元したIDより大きくなります。
+     *
+     * @param sessionId セッションID
+     * @param answers 解答の配列
+     * @param judges 判定結果の配列
+     * @param count 復元する解答の数。問題数を超える分は無視される
+     * @return 復元したセッション
+     */
+    QuizSession restoreSession(long sessionId, int[] answers, JudgeType[] judges, int count) {
+        final QuizSession session = new QuizSession(sessionId, questions, dispatcher);
+        final int restored = Math.min(count, questions.size());
+        for (int i = 0; i < restored; ++i) {
+            session.restore(judges[i], answers[i]);
+        }
+        sessions.put(sessionId, session);
+        reserveSessionId(sessionId);
+
+        final QuizMetrics currentMetrics = metrics;
+        if (currentMetrics != null) {
+            currentMetrics.sessionOpened();
+        }
+        return session;
+    }
+
+    /**
+     * 他のエンジンのセッションを、同じIDと解答のまま引き継ぎます。通知先には通知しません。
+     * 元のセッションはそのまま残るため、呼び出し側で元のエンジンから閉じてください。
+     * 元のエンジンの問題のリストで出題するセッションは、このエンジンの問題のリストで出題します。
+     *
+     * @param source 元のエンジン
+     * @param session 引き継ぐセッション。呼び出し側でロックしておく必要がある
+     * @throws IllegalStateException 同じIDのセッションがすでにある場合や、記録できないセッションの場合に送出
+     * @return 引き継いだセッション
+     */
+    QuizSession adoptSession(QuizEngine source, QuizSession session) {
+        final List<Question> deck = (session.getQuestions() == source.questions)
+                ? questions : session.getQuestions();
+        final SessionJournal currentJournal = journal;
+        checkRecordable(currentJournal, deck, session.getProfile());
+
+        final QuizSession adopted = new QuizSession(session.getId(), deck, dispatcher,
+                session.getProfile());
+        final JudgeRecord record = session.getRecord();
+        for (int i = 0; i < record.size(); ++i) {
+            adopted.restore(record.get(i), record.getAnswer(i));
+        }
+
+        if (sessions.putIfAbsent(adopted.getId(), adopted) != null) {
+            throw new IllegalStateException("Session already exists: " + adopted.getId());
+        }
+        reserveSessionId(adopted.getId());
+
+        if (currentJournal != null) {
+            currentJournal.sessionAdopted(adopted);
+        }
+
+        final QuizMetrics currentMetrics = metrics;
+        if (currentMetrics != null) {
+            currentMetrics.sessionOpened();
+        }
+        return adopted;
+    }
+
+    /**
+     * 記録中のエンジンでは、記録できないセッションを黙って記録から漏らさないよう例外を送出します。
+     */
+    private static void checkRecordable(SessionJournal currentJournal, List<Question> deck,
+                                        QuizProfile profile) {
+        if (currentJournal != null && !currentJournal.canRecord(deck, profile)) {
+            throw new IllegalStateException(
+                    "Journaled engine only accepts sessions with the shared questions and default profile");
+        }
+    }
+
+    /**
+     * 以降に開始するセッションのIDが、指定したIDより大きくなるようにします。
+     *
+     * @param sessionId 使用済みのセッションID
+     */
+    void reserveSessionId(long sessionId) {
+        idSequence.accumulateAndGet(sessionId, Math::max);
+    }
+
+    /**
+     * 最後に割り当てたセッションIDを返します。
+     *
+     * @return セッションID。まだ割り当てていない場合は0
+     */
+    long getLastSessionId() {
+        return idSequence.get();
+    }
+
+    /**
+     * セッションの記録先を設定し、解答の通知先に加えます。
+     *
+     * @param sessionJournal 記録先
+     * @throws IllegalStateException すでに記録先が設定されている場合に送出
+     */
+    synchronized void attachJournal(SessionJournal sessionJournal) {
+        if (journal != null) {
+            throw new IllegalStateException("Journal is already attached");
+        }
+        addAnswerListener(sessionJournal);
+        journal = sessionJournal;
+    }
+
+    /**
+     * 進行中のすべてのセッションを返します。返されるコレクションは変更できません。
+     *
+     * @return セッションのコレクション
+     */
+    Collection<QuizSession> getSessions() {
+        return Collections.unmodifiableCollection(sessions.values());
+    }
+
+    /**
+     * セッションを返します。
+     *
+     * @param sessionId セッションID
+     * @return セッション。存在しない場合はnull
+     */
+    public QuizSession getSession(long sessionId) {
+        return sessions.get(sessionId);
+    }
+
+    /**
+     * セッションを終了し、エンジンから取り除きます。
+     *
+     * @param sessionId セッションID
+     * @return 取り除かれたセッション。存在しない場合はnull
+     */
+    public QuizSession closeSession(long sessionId) {
+        final QuizSession session = sessions.remove(sessionId);
+
+        final SessionJournal currentJournal = journal;
+        if (currentJournal != null && session != null
+                && currentJournal.canRecord(session.getQuestions(), session.getProfile())) {
+            currentJournal.sessionClosed(session);
+        }
+
+        final QuizMetrics currentMetrics = metrics;
+        if (session != null && currentMetrics != null) {
+            currentMetrics.sessionClosed();
+        }
+        return session;
+    }
+
+    /**
+     * 解答を非同期に判定します。
+     * 存在しないセッションや終了したセッションを指定した場合、返されるFutureは例外で完了します。
+     *
+     * @param sessionId セッションID
+     * @param userAnswer 解答
+     * @return 判定結果のFuture
+     */
+    public CompletableFuture<JudgeType> submitAnswer(long sessionId, int userAnswer) {
+        return CompletableFuture.supplyAsync(() -> {
+            final QuizSession session = sessions.get(sessionId);
+            if (session == null) {
+                throw new IllegalArgumentException("Session is not found: " + sessionId);
+            }
+            return judge(session, userAnswer);
+        }, executor);
+    }
+
+    /**
+     * 呼び出したスレッド上で解答を判定します。
+     * 自前のスレッドでセッションを進めるフロントエンドから使用します。
+     *
+     * @param session セッション
+     * @param userAnswer 解答
+     * @throws IllegalStateException セッションが終了している場合に送出
+     * @return 判定結果
+     */
+    public JudgeType judge(QuizSession session, int userAnswer) {
+        final QuizMetrics currentMetrics = metrics;
+        final long start = (currentMetrics != null) ? System.nanoTime() : 0;
+        final JudgeType judge;
+        synchronized (session) {
+            judge = session.submitAnswer(userAnswer);
+        }
+
+        if (currentMetrics != null) {
+            currentMetrics.recordJudge(System.nanoTime() - start);
+        }
+        return judge;
+    }
+
+    /**
+     * セッションで出題中の問題のフレームを返します。
+     * フレームはすべてのセッションで共有されます。
+     * 呼び出した時刻が問題を表示した時刻としてセッションに記録されます。
+     *
+     * @param session セッション
+     * @throws IllegalStateException セッションが終了している場合に送出
+     * @return フレーム
+     */
+    public QuestionFrame getCurrentFrame(QuizSession session) {
+        final QuizMetrics currentMetrics = metrics;
+        final long start = System.nanoTime();
+        final int index = session.getCurrentIndex();
+        final int number = index + 1;
+
+        // 選択肢を並べ替えた問題はセッション固有なので共有のキャッシュに入れない
+        final List<Question> deck = session.getQuestions();
+        final QuestionFrameCache cache = getFrameCache(session.getProfile());
+        final QuestionFrame frame;
+        if (deck instanceof QuestionDeck && ((QuestionDeck) deck).isChoiceShuffled()) {
+            frame = cache.render(number, session.getCurrentQuestion());
+        } else {
+            // 問題バンク上のインデックスで引くため、同じ問題を出題するデッキ同士でフレームを共有できる
+            if (session.isFinished()) {
+                throw new IllegalStateException("Session is already finished");
+            }
+            frame = cache.getFrame(number, session.getBank(), session.getBankIndex(index));
+        }
+
+        final long end = System.nanoTime();
+        if (currentMetrics != null) {
+            currentMetrics.recordRender(end - start);
+        }
+        session.markPresented(end);
+        return frame;
+    }
+
+    /**
+     * 解答の通知先を追加します。
+     *
+     * @param answerListener 通知先
+     * @throws NullPointerException パラメータがnullの場合に送出
+     */
+    public synchronized void addAnswerListener(AnswerListener answerListener) {
+        if (answerListener == null) {
+            throw new NullPointerException("take listener is null");
+        }
+        listener = AnswerListener.both(listener, answerListener);
+    }
+
+    /**
+     * 計測を開始します。計測値は渡されたインスタンスに記録されます。
+     * 計測値は解答の通知先としても登録されます。
+     *
+     * @param quizMetrics 計測値の記録先
+     * @throws NullPointerException パラメータがnullの場合に送出
+     * @throws IllegalStateException すでに計測している場合に送出
+     */
+    public synchronized void enableMetrics(QuizMetrics quizMetrics) {
+        if (quizMetrics == null) {
+            throw new NullPointerException("take metrics is null");
+        }
+
+        if (metrics != null) {
+            throw new IllegalStateException("Metrics is already enabled");
+        }
+        addAnswerListener(quizMetrics);
+        metrics = quizMetrics;
+    }
+
+    /**
+     * 計測値の記録先を返します。
+     *
+     * @return 記録先。計測していない場合はnull
+     */
+    public QuizMetrics getMetrics() {
+        return metrics;
+    }
+
+    private void dispatchAnswer(QuizSession session, int questionIndex, Question question,
+                                int userAnswer, JudgeType judge, long thinkNanos) {
+        listener.onAnswer(session, questionIndex, question, userAnswer, judge, thinkNanos);
+    }
+
+    /**
+     * 進行中のセッション数を返します。
+     *
+     * @return セッション数
+     */
+    public int getSessionCount() {
+        return sessions.size();
+    }
+
+    /**
+     * 保持するデータクラスを返します。
+     *
+     * @return データ
+     */
+    public QuizLogicData getData() {
+        return data;
+    }
+
+    /**
+     * データの現在の内容に対応するプロファイルを返します。
+     * データが変更されていなければ前回と同じインスタンスを返します。
+     *
+     * @return プロファイル
+     */
+    public QuizProfile getProfile() {
+        final QuizProfile current = QuizProfile.refresh(profile, data);
+        profile = current;
+        return current;
+    }
+
+    /**
+     * 問題のフレームのキャッシュを返します。
+     *
+     * @return フレームのキャッシュ
+     */
+    public QuestionFrameCache getFrameCache() {
+        return frameCache;
+    }
+
+    /**
+     * プロファイルごとの問題のフレームのキャッシュを返します。
+     * キャッシュは初めて要求されたときに作られ、以降はそのプロファイルのセッションで共有されます。
+     *
+     * @param profile プロファイル。nullの場合はエンジンの既定
+     * @return フレームのキャッシュ
+     */
+    public QuestionFrameCache getFrameCache(QuizProfile profile) {
+        if (profile == null) {
+            return frameCache;
+        }
+
+        final QuestionFrameCache cache = profileFrameCaches.get(profile);
+        if (cache != null) {
+            return cache;
+        }
+        return profileFrameCaches.computeIfAbsent(profile,
+                key -> new QuestionFrameCache(key.toData()));
+    }
+
+    /**
+     * セッションの表示に用いるプロファイルを返します。
+     *
+     * @param session セッション
+     * @return セッションのプロファイル。指定されていない場合は{@link #getProfile()}
+     */
+    public QuizProfile getProfile(QuizSession session) {
+        final QuizProfile profile = session.getProfile();
+        return (profile != null) ? profile : getProfile();
+    }
+
+    /**
+     * 共有している問題のリストを返します。返されるリストは変更できません。
+     *
+     * @return 問題のリスト
+     */
+    public List<Question> getQuestions() {
+        return questions;
+    }
+}
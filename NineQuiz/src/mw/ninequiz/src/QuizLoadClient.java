@@ -0,0 +1,419 @@
+package mw.ninequiz.src;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link QuizServer}に負荷をかけるクライアントです。
+ * 指定した数の接続を保ち、入力欄の文言（既定は{@code "number>"}）を受け取るたびに、
+ * 直前に届いた問題の選択肢の範囲から無作為な解答をすぐに送ります。
+ * 選択肢の数は、行頭の番号が1から連続している行を数えて求めます。
+ * セッションが終わって接続が閉じられると、計測時間内であれば接続し直します。
+ *
+ * <p>接続は複数のスレッドに振り分けられ、各スレッドは1つの{@link Selector}で接続を処理します。
+ *
+ * @author Getaji
+ */
+public class QuizLoadClient {
+
+    private static final int READ_CAPACITY = 64 * 1024;
+
+    /**
+     * 負荷試験の結果です。このクラスは不変です。
+     */
+    public static final class LoadResult {
+        private final int connectionCount;
+        private final long sessionCount;
+        private final long answerCount;
+        private final long elapsedNanos;
+
+        private LoadResult(int connectionCount, long sessionCount, long answerCount,
+                           long elapsedNanos) {
+            this.connectionCount = connectionCount;
+            this.sessionCount = sessionCount;
+            this.answerCount = answerCount;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * 同時に保った接続の数を返します。
+         *
+         * @return 接続の数
+         */
+        public int getConnectionCount() {
+            return connectionCount;
+        }
+
+        /**
+         * 最後まで終えたセッションの数を返します。
+         *
+         * @return セッションの数
+         */
+        public long getSessionCount() {
+            return sessionCount;
+        }
+
+        /**
+         * 送った解答の数を返します。
+         *
+         * @return 解答の数
+         */
+        public long getAnswerCount() {
+            return answerCount;
+        }
+
+        /**
+         * 計測にかかった時間をナノ秒で返します。
+         *
+         * @return ナノ秒
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * 1秒あたりの解答数を返します。
+         *
+         * @return 1秒あたりの解答数
+         */
+        public double getAnswersPerSecond() {
+            return (elapsedNanos == 0) ? 0 : answerCount * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * 1秒あたりのセッション数を返します。
+         *
+         * @return 1秒あたりのセッション数
+         */
+        public double getSessionsPerSecond() {
+            return (elapsedNanos == 0) ? 0 : sessionCount * 1e9 / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "LoadResult{connections:%d sessions:%d answers:%d sessions/s:%.0f answers/s:%.0f}",
+                    connectionCount, sessionCount, answerCount,
+                    getSessionsPerSecond(), getAnswersPerSecond());
+        }
+    }
+
+    /**
+     * 負荷試験を実行します。
+     * 引数はホスト、ポート、接続数、秒数、スレッド数、入力欄の文言の順で、すべて省略できます。
+     *
+     * @param args 引数
+     * @throws IOException 接続に失敗した場合に送出
+     */
+    public static void main(String[] args) throws IOException {
+        final String host = (args.length > 0) ? args[0] : "127.0.0.1";
+        final int port = (args.length > 1) ? Integer.parseInt(args[1]) : 9999;
+        final int connections = (args.length > 2) ? Integer.parseInt(args[2]) : 100;
+        final long seconds = (args.length > 3) ? Long.parseLong(args[3]) : 10;
+        final int threads = (args.length > 4) ? Integer.parseInt(args[4]) : 1;
+        final String prompt = (args.length > 5) ? args[5] : QuizProfile.DEFAULT.getPromptText();
+
+        System.out.println(run(new InetSocketAddress(host, port), connections, threads,
+                seconds, TimeUnit.SECONDS, prompt));
+    }
+
+    /**
+     * 既定の入力欄の文言で負荷試験を実行し、終わるまで待ちます。
+     *
+     * @param address 接続先
+     * @param connectionCount 同時に保つ接続の数
+     * @param threadCount 接続を処理するスレッドの数
+     * @param duration 計測時間
+     * @param unit 計測時間の単位
+     * @throws NullPointerException 接続先か単位がnullの場合に送出
+     * @throws IllegalArgumentException 接続の数かスレッドの数が正でない場合に送出
+     * @throws IOException 接続に失敗した場合に送出
+     * @return 結果
+     * @see QuizProfile#getPromptText()
+     */
+    public static LoadResult run(InetSocketAddress address, int connectionCount, int threadCount,
+                                 long duration, TimeUnit unit) throws IOException {
+        return run(address, connectionCount, threadCount, duration, unit,
+                QuizProfile.DEFAULT.getPromptText());
+    }
+
+    /**
+     * 負荷試験を実行し、終わるまで待ちます。
+     *
+     * @param address 接続先
+     * @param connectionCount 同時に保つ接続の数
+     * @param threadCount 接続を処理するスレッドの数
+     * @param duration 計測時間
+     * @param unit 計測時間の単位
+     * @param prompt サーバーが送る入力欄の文言
+     * @throws NullPointerException パラメータがnullの場合に送出
+     * @throws IllegalArgumentException 接続の数かスレッドの数が正でない場合や、文言が空の場合に送出
+     * @throws IOException 接続に失敗した場合に送出
+     * @return 結果
+     */
+    public static LoadResult run(InetSocketAddress address, int connectionCount, int threadCount,
+                                 long duration, TimeUnit unit, String prompt) throws IOException {
+        if (address == null || unit == null || prompt == null) {
+            throw new NullPointerException("take parameter is null");
+        }
+
+        if (connectionCount <= 0 || threadCount <= 0) {
+            throw new IllegalArgumentException("take count is not positive");
+        }
+
+        if (prompt.isEmpty()) {
+            throw new IllegalArgumentException("take prompt is empty");
+        }
+
+        final QuizLoadClient client = new QuizLoadClient(address,
+                prompt.getBytes(StandardCharsets.UTF_8));
+        final long start = System.nanoTime();
+        final long deadline = start + unit.toNanos(duration);
+
+        final List<Thread> threads = new ArrayList<>();
+        final List<Worker> workers = new ArrayList<>();
+        try {
+            for (int i = 0; i < threadCount; ++i) {
+                final int connections = connectionCount / threadCount
+                        + ((i < connectionCount % threadCount) ? 1 : 0);
+                final Worker worker = client.new Worker(Selector.open(), i, deadline);
+                workers.add(worker);
+                for (int c = 0; c < connections; ++c) {
+                    worker.connect();
+                }
+            }
+        } catch (IOException e) {
+            for (Worker worker : workers) {
+                worker.closeAll();
+            }
+            throw e;
+        }
+
+        for (Worker worker : workers) {
+            final Thread thread = new Thread(worker, "quiz-load-client-" + threads.size());
+            threads.add(thread);
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        if (client.failure != null) {
+            throw client.failure;
+        }
+        return new LoadResult(connectionCount, client.sessions.sum(), client.answers.sum(),
+                System.nanoTime() - start);
+    }
+
+    private final InetSocketAddress address;
+    private final byte[] prompt;
+    private final LongAdder sessions = new LongAdder();
+    private final LongAdder answers = new LongAdder();
+    private volatile IOException failure;
+
+    private QuizLoadClient(InetSocketAddress address, byte[] prompt) {
+        this.address = address;
+        this.prompt = prompt;
+    }
+
+    /**
+     * 1つのSelectorで複数の接続を処理するワーカーです。
+     */
+    private final class Worker implements Runnable {
+        private final Selector selector;
+        private final SplittableRandom random;
+        private final long deadline;
+        private final ByteBuffer readBuffer = ByteBuffer.allocateDirect(READ_CAPACITY);
+
+        private Worker(Selector selector, long seed, long deadline) {
+            this.selector = selector;
+            this.random = new SplittableRandom(seed);
+            this.deadline = deadline;
+        }
+
+        private void connect() throws IOException {
+            final SocketChannel channel = SocketChannel.open();
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            final Connection connection = new Connection(channel, prompt);
+            if (channel.connect(address)) {
+                channel.register(selector, SelectionKey.OP_READ, connection);
+            } else {
+                channel.register(selector, SelectionKey.OP_CONNECT, connection);
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                long remaining;
+                while ((remaining = deadline - System.nanoTime()) > 0) {
+                    selector.select(Math.max(1, TimeUnit.NANOSECONDS.toMillis(remaining)));
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        handle(key);
+                    }
+                    selector.selectedKeys().clear();
+                }
+            } catch (IOException e) {
+                failure = e;
+            } finally {
+                closeAll();
+            }
+        }
+
+        private void handle(SelectionKey key) throws IOException {
+            final Connection connection = (Connection) key.attachment();
+            final SocketChannel channel = connection.channel;
+            if (key.isConnectable()) {
+                channel.finishConnect();
+                key.interestOps(SelectionKey.OP_READ);
+                return;
+            }
+
+            if (key.isWritable()) {
+                connection.flush(key);
+            }
+
+            if (key.isValid() && key.isReadable()) {
+                readBuffer.clear();
+                final int read;
+                try {
+                    read = channel.read(readBuffer);
+                } catch (IOException e) {
+                    key.cancel();
+                    channel.close();
+                    connect();
+                    return;
+                }
+
+                if (read < 0) {
+                    // サーバーは結果を送った後に接続を閉じる
+                    sessions.increment();
+                    key.cancel();
+                    channel.close();
+                    connect();
+                    return;
+                }
+
+                for (int i = 0; i < read; ++i) {
+                    if (connection.match(readBuffer.get(i))) {
+                        // 選択肢を数えられなかった場合は1を送る
+                        final int choices = Math.max(1, connection.choiceCount);
+                        connection.answer(key, 1 + random.nextInt(choices));
+                        answers.increment();
+                    }
+                }
+            }
+        }
+
+        private void closeAll() {
+            for (SelectionKey key : selector.keys()) {
+                try {
+                    key.channel().close();
+                } catch (IOException ignored) {
+                    // 閉じる際の失敗は無視する
+                }
+            }
+            try {
+                selector.close();
+            } catch (IOException ignored) {
+                // 閉じる際の失敗は無視する
+            }
+        }
+    }
+
+    /**
+     * 1つの接続です。所属するワーカーのスレッドからのみ操作されます。
+     */
+    private static final class Connection {
+        private final SocketChannel channel;
+        private final byte[] prompt;
+        private ByteBuffer output = ByteBuffer.allocate(64);
+        private int matched;
+        // 直前の問題の選択肢の数
+        private int choiceCount;
+        // 行頭の番号を読み取っている途中かどうかと、その値
+        private boolean lineHead = true;
+        private int lineNumber;
+
+        private Connection(SocketChannel channel, byte[] prompt) {
+            this.channel = channel;
+            this.prompt = prompt;
+        }
+
+        /**
+         * 受け取ったバイトで入力欄の表示が揃ったかどうかを返します。
+         * あわせて行頭の番号から選択肢の数を数えます。
+         */
+        private boolean match(byte b) {
+            countChoice(b);
+            if (b == prompt[matched]) {
+                if (++matched == prompt.length) {
+                    matched = 0;
+                    return true;
+                }
+            } else {
+                matched = (b == prompt[0]) ? 1 : 0;
+            }
+            return false;
+        }
+
+        private void countChoice(byte b) {
+            if (b == '\n') {
+                lineHead = true;
+                lineNumber = 0;
+            } else if (lineHead) {
+                if ('0' <= b && b <= '9' && lineNumber < 100_000) {
+                    lineNumber = lineNumber * 10 + (b - '0');
+                    return;
+                }
+
+                // 番号が1に戻れば次の問題の選択肢とみなす
+                if (lineNumber == 1) {
+                    choiceCount = 1;
+                } else if (lineNumber > 1 && lineNumber == choiceCount + 1) {
+                    choiceCount = lineNumber;
+                }
+                lineHead = false;
+            }
+        }
+
+        private void answer(SelectionKey key, int answer) throws IOException {
+            if (output.remaining() < 12) {
+                // 書き込めていない解答は捨てずに溜めておく
+                final ByteBuffer grown = ByteBuffer.allocate(output.capacity() * 2);
+                output.flip();
+                grown.put(output);
+                output = grown;
+            }
+            QuizLogicHelper.putAsciiInt(output, answer).put((byte) '\n');
+            flush(key);
+        }
+
+        private void flush(SelectionKey key) throws IOException {
+            output.flip();
+            channel.write(output);
+            output.compact();
+            key.interestOps((output.position() > 0)
+                    ? SelectionKey.OP_READ | SelectionKey.OP_WRITE
+                    : SelectionKey.OP_READ);
+        }
+    }
+}
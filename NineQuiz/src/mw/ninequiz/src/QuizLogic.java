@@ -1,12 +1,28 @@
 package mw.ninequiz.src;
 
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.CompletionException;
 
 /**
  * クイズを実行するロジッククラスです。
  * 問題を渡して{@link #start()}を呼ぶとクイズが開始され、標準入力から解答を受け取ります。
  * 正誤は即座に出力され、最後にすべての結果が表示されます。
  *
+ * <p>解答は{@link AnswerSource}から受け取ります。数値でない解答や選択肢の範囲外の解答は再入力を求めます。
+ * 入力元が終端に達した場合、残りの問題は打ち切られ結果が表示されます。
+ *
+ * <p>進行状態は{@link QuizSession}が保持します。
+ * 多数のプレイヤーを同時に扱う場合は{@link QuizEngine}を使用してください。
+ *
+ * <p>問題のコレクションに{@link AdaptiveDeck}を渡すと、正誤に応じて難易度を変えながら出題します。
+ *
+ * <p>問題のフレームはプロファイルごとのキャッシュに格納され、同じプロファイルと同じ問題のリストを使う
+ * インスタンスの間で共有されます。インスタンスを作るたびに問題を描画し直すことはありません。
+ *
  * @author Getaji
  */
 public class QuizLogic {
@@ -19,7 +35,7 @@ public class QuizLogic {
      * @return インスタンス
      */
     public static QuizLogic of(Collection<Question> questions) {
-        return new QuizLogic(questions, new QuizLogicData());
+        return of(questions, new QuizLogicData());
     }
 
     /**
@@ -30,21 +46,105 @@ public class QuizLogic {
      * @return インスタンス
      */
     public static QuizLogic of(Collection<Question> questions, QuizLogicData data) {
-        return new QuizLogic(questions, data);
+        return of(questions, data, System.in);
+    }
+
+    /**
+     * 問題のコレクションとロジックデータ、解答の入力元を受け取りインスタンスを生成します。
+     *
+     * @param questions 問題のコレクション
+     * @param data ロジックデータ
+     * @param input 解答の入力元
+     * @return インスタンス
+     */
+    public static QuizLogic of(Collection<Question> questions, QuizLogicData data,
+                               InputStream input) {
+        return of(questions, data, input, BufferedQuizOutput.ofSystemOut());
+    }
+
+    /**
+     * 問題のコレクションとロジックデータ、解答の入力元、出力先を受け取りインスタンスを生成します。
+     * 入力元が標準入力の場合、終了時に標準入力は閉じられません。
+     *
+     * @param questions 問題のコレクション
+     * @param data ロジックデータ
+     * @param input 解答の入力元
+     * @param output 出力先
+     * @throws NullPointerException 入力元がnullの場合に送出
+     * @return インスタンス
+     */
+    public static QuizLogic of(Collection<Question> questions, QuizLogicData data,
+                               InputStream input, QuizOutput output) {
+        return new QuizLogic(questions, data,
+                new StreamAnswerSource(input, input != System.in), output);
+    }
+
+    /**
+     * 問題のコレクションとロジックデータ、解答の入力元、出力先を受け取りインスタンスを生成します。
+     * 入力元は終了時に閉じられます。
+     *
+     * @param questions 問題のコレクション
+     * @param data ロジックデータ
+     * @param answerSource 解答の入力元
+     * @param output 出力先
+     * @return インスタンス
+     */
+    public static QuizLogic of(Collection<Question> questions, QuizLogicData data,
+                               AnswerSource answerSource, QuizOutput output) {
+        return new QuizLogic(questions, data, answerSource, output);
+    }
+
+    /**
+     * 問題のコレクションとプロファイル、解答の入力元、出力先を受け取りインスタンスを生成します。
+     * {@link #getData()}はプロファイルと同じ内容の新しいデータを返します。
+     *
+     * @param questions 問題のコレクション
+     * @param profile プロファイル
+     * @param answerSource 解答の入力元
+     * @param output 出力先
+     * @return インスタンス
+     */
+    public static QuizLogic of(Collection<Question> questions, QuizProfile profile,
+                               AnswerSource answerSource, QuizOutput output) {
+        final QuizLogic logic = new QuizLogic(questions, profile.toData(), answerSource, output);
+        logic.profile = profile;
+        return logic;
     }
 
     private final QuizLogicData data;
-    private final Scanner scanner = new Scanner(System.in);
-    private final Collection<Question> questions;
+    private final AnswerSource answerSource;
+    private final QuizOutput output;
+    private final List<Question> questions;
+    // フレームのキーに用いるリスト。インスタンスをまたいで同じリストを指すよう、渡されたリストを優先する
+    private final List<Question> frameList;
+    private AnswerListener listener = AnswerListener.NONE;
+    private QuizMetrics metrics;
+    private QuizProfile profile;
 
     /**
      * 初期化
      *
      * @param questions 問題
+     * @param data ロジックデータ
+     * @param answerSource 解答の入力元
+     * @param output 出力先
      */
-    private QuizLogic(Collection<Question> questions, QuizLogicData data) {
-        this.questions = questions;
+    private QuizLogic(Collection<Question> questions, QuizLogicData data,
+                      AnswerSource answerSource, QuizOutput output) {
+        if (answerSource == null) {
+            throw new NullPointerException("take answer source is null");
+        }
+
+        if (output == null) {
+            throw new NullPointerException("take output is null");
+        }
+
+        this.questions = QuizLogicHelper.toSharedList(questions);
+        this.frameList = (questions instanceof List && questions instanceof RandomAccess)
+                ? (List<Question>) questions : this.questions;
         this.data = data;
+        this.answerSource = answerSource;
+        this.output = output;
     }
 
     /**
@@ -55,12 +155,12 @@ public class QuizLogic {
     }
 
     /**
-     * クイズを開始します。受け取った問題を順に表示し、標準入力から回答を受け取ります。
+     * クイズを開始します。受け取った問題を順に表示し、入力元から回答を受け取ります。
      */
     public void start() {
         this.preProcess();
 
-        System.out.println(this.data.getStartMessage());
+        output.println(getProfile().getStartMessage());
 
         run();
     }
@@ -69,20 +169,71 @@ public class QuizLogic {
      * クイズを出題し解答を要求するロジック。
      */
     protected void run() {
-        final List<JudgeType> judgedList = new ArrayList<>(questions.size());
-        final Iterator<Question> questionIterator = questions.iterator();
+        final QuizSession session = new QuizSession(0, questions, listener);
+        if (metrics != null) {
+            metrics.sessionOpened();
+        }
 
-        for (int i = 0; questionIterator.hasNext(); ++i) {
-            Question question = questionIterator.next();
-            viewQuestion(i, question);
+        while (!session.isFinished()) {
+            final Question question = session.getCurrentQuestion();
+            final long renderStart = System.nanoTime();
+            viewQuestion(session.getCurrentIndex(), question);
+            if (metrics != null) {
+                metrics.recordRender(System.nanoTime() - renderStart);
+            }
 
-            System.out.print("number>");
+            session.markPresented(System.nanoTime());
 
-            final int answer = scanner.nextInt();
-            judgedList.add(judgeAndView(answer, question));
+            final int answer = readAnswer(session, question);
+            if (answer == AsciiIntParser.END) {
+                break;
+            }
+            final long judgeStart = System.nanoTime();
+            final JudgeType judge = judgeAndView(answer, question);
+            if (metrics != null) {
+                metrics.recordJudge(System.nanoTime() - judgeStart);
+            }
+            session.advance(judge, answer);
+        }
+        viewResult(session.getRecord());
+        answerSource.close();
+
+        if (metrics != null) {
+            metrics.sessionClosed();
+        }
+    }
+
+    /**
+     * 有効な解答が得られるまで解答を要求します。
+     *
+     * @param session セッション
+     * @param question 問題
+     * @throws UncheckedIOException 入力元の読み込みに失敗した場合に送出
+     * @return 解答。入力元が終端に達した場合は{@link AsciiIntParser#END}
+     */
+    protected int readAnswer(QuizSession session, Question question) {
+        while (true) {
+            output.print(getProfile().getPromptText());
+            output.flush();
+
+            final int answer;
+            try {
+                answer = answerSource.requestAnswer(session, question).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof EOFException) {
+                    return AsciiIntParser.END;
+                }
+                if (e.getCause() instanceof IOException) {
+                    throw new UncheckedIOException((IOException) e.getCause());
+                }
+                throw e;
+            }
+
+            if (answer == AnswerSource.NO_ANSWER || AnswerSource.isValidAnswer(question, answer)) {
+                return answer;
+            }
+            // 範囲外の解答は入力欄の文言を表示し直して受け付け直す
         }
-        viewResult(judgedList);
-        scanner.close();
     }
 
     /**
@@ -93,32 +244,20 @@ public class QuizLogic {
      * @return 判定結果
      */
     protected JudgeType judgeAndView(int userAnswer, Question question) {
-        final boolean isCorrect = userAnswer == question.getAnswerIndex();
-        final JudgeType judge = (isCorrect) ?
-                          JudgeType.CORRECT : JudgeType.INCORRECT;
-        final String stringJudge = judge.toString(data) + "\n";
-        System.out.println(stringJudge);
+        final JudgeType judge = JudgeType.judge(question, userAnswer);
+        output.println(judge.toString(getProfile())).println("");
         return judge;
     }
 
     /**
      * 問題を表示します。
+     * フレームは問題のリスト上のインデックスでキャッシュされるため、{@code question}はリストの{@code number}番目の問題です。
      *
-     * @param number 問題番号
+     * @param number 問題番号。0から始まる
      * @param question 問題
      */
     protected void viewQuestion(int number, Question question) {
-        final String formattedStateNum = QuizLogicHelper.formatStatementNumber(
-                number + 1, data.getQuestionNumberText());
-        System.out.println(formattedStateNum + question.getQuestionStatement());
-
-        Iterator<String> choiceIter = question.getQuestionChoices().iterator();
-
-        for (int i = 0; choiceIter.hasNext(); ++i) {
-            final String formattedChoiceNum = QuizLogicHelper.formatChoiceNumber(
-                    i + 1, data.getQuestionChoiceNumberText());
-            System.out.println(formattedChoiceNum + choiceIter.next());
-        }
+        output.write(getProfile().getFrameCache().getFrame(number + 1, frameList, number));
     }
 
     /**
@@ -127,8 +266,38 @@ public class QuizLogic {
      * @param judges 解答
      */
     protected void viewResult(Collection<JudgeType> judges) {
-        System.out.println("[結果発表]"); // TODO Modelに突っ込め
-        System.out.println(QuizLogicHelper.formatJudges(judges, data));
+        final QuizProfile current = getProfile();
+        output.println(current.getResultHeaderText());
+        output.println(QuizLogicHelper.formatJudges(judges, current));
+        output.flush();
+    }
+
+    /**
+     * 解答の通知先を追加します。{@link #start()}の前に呼び出してください。
+     *
+     * @param answerListener 通知先
+     * @throws NullPointerException パラメータがnullの場合に送出
+     */
+    public void addAnswerListener(AnswerListener answerListener) {
+        if (answerListener == null) {
+            throw new NullPointerException("take listener is null");
+        }
+        listener = AnswerListener.both(listener, answerListener);
+    }
+
+    /**
+     * 計測を開始します。{@link #start()}の前に呼び出してください。
+     * 計測値は解答の通知先としても登録されます。
+     *
+     * @param quizMetrics 計測値の記録先
+     * @throws NullPointerException パラメータがnullの場合に送出
+     */
+    public void enableMetrics(QuizMetrics quizMetrics) {
+        if (quizMetrics == null) {
+            throw new NullPointerException("take metrics is null");
+        }
+        addAnswerListener(quizMetrics);
+        metrics = quizMetrics;
     }
 
     /**
@@ -140,6 +309,26 @@ public class QuizLogic {
         return data;
     }
 
+    /**
+     * データの現在の内容に対応するプロファイルを返します。
+     * データが変更されていなければ前回と同じインスタンスを返します。
+     *
+     * @return プロファイル
+     */
+    public QuizProfile getProfile() {
+        profile = QuizProfile.refresh(profile, data);
+        return profile;
+    }
+
+    /**
+     * 出力先を返します。
+     *
+     * @return 出力先
+     */
+    public QuizOutput getOutput() {
+        return output;
+    }
+
     /**
      * 問題数を返します。
      *
@@ -24,4 +24,8 @@ public class QuizLogicData {
     private String simpleCorrectMessage = "○";
 
     private String simpleIncorrectMessage = "☓";
+
+    private String promptText = "number>";
+
+    private String resultHeaderText = "[結果発表]";
 }
@@ -2,10 +2,12 @@ package mw.ninequiz.src;
 
 import lombok.NonNull;
 
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
-import java.util.stream.Collectors;
-import java.util.stream.Stream;
+import java.util.RandomAccess;
 
 /**
  * クイズロジックのヘルパークラスです。
@@ -14,11 +16,15 @@ import java.util.stream.Stream;
  */
 public class QuizLogicHelper {
 
+    /** 出力に用いる改行文字。 */
+    public static final String LINE_SEPARATOR = System.lineSeparator();
+
     private QuizLogicHelper() {}
 
     /**
      * 問題番号をフォーマットして返します.<br />
      * <code>"{num}"</code>が問題番号に置換されます.
+     * 呼び出しごとに書式を解析するため、繰り返し使う場合は{@link NumberTemplate}を使用してください.
      * @param number 問題番号
      * @param unFormat 未フォーマット文字列
      * @return フォーマットされた文字列
@@ -31,6 +37,7 @@ public class QuizLogicHelper {
     /**
      * 選択肢番号をフォーマットして返します.<br />
      * <code>"{num}"</code>が選択肢番号に置換されます.
+     * 呼び出しごとに書式を解析するため、繰り返し使う場合は{@link NumberTemplate}を使用してください.
      * @param number 選択肢番号
      * @param unFormatted 未フォーマット文字列
      * @return フォーマットされた文字列
@@ -40,6 +47,60 @@ public class QuizLogicHelper {
         return unFormatted.replace("{num}", String.valueOf(number));
     }
 
+    /**
+     * 問題文と選択肢を書式に従ってビルダーに追加します.
+     * 各行の末尾には改行が追加されます.
+     *
+     * @param builder 追加先
+     * @param number 問題番号
+     * @param question 問題
+     * @param templates コンパイル済みの書式
+     * @return 渡されたビルダー
+     */
+    @NonNull
+    public static StringBuilder appendQuestion(StringBuilder builder, int number,
+                                               Question question, QuizTemplates templates) {
+        templates.getStatementNumber().appendTo(builder, number)
+                .append(question.getQuestionStatement())
+                .append(LINE_SEPARATOR);
+
+        final NumberTemplate choiceNumber = templates.getChoiceNumber();
+        final int choiceCount = question.getChoiceCount();
+        for (int i = 1; i <= choiceCount; ++i) {
+            choiceNumber.appendTo(builder, i)
+                    .append(question.getChoice(i))
+                    .append(LINE_SEPARATOR);
+        }
+        return builder;
+    }
+
+    /**
+     * 整数を10進数のASCII文字としてバッファに書き込みます.
+     * 文字列を生成しません.
+     *
+     * @param buffer 書き込み先
+     * @param value 整数
+     * @return 渡されたバッファ
+     */
+    @NonNull
+    public static ByteBuffer putAsciiInt(ByteBuffer buffer, int value) {
+        long rest = value;
+        if (rest < 0) {
+            buffer.put((byte) '-');
+            rest = -rest;
+        }
+
+        long divisor = 1;
+        while (divisor * 10 <= rest) {
+            divisor *= 10;
+        }
+        for (; divisor > 0; divisor /= 10) {
+            buffer.put((byte) ('0' + rest / divisor));
+            rest %= divisor;
+        }
+        return buffer;
+    }
+
     /**
      * characterで区切り結合したlistを文字列として返します.
      * @param character 区切り文字
@@ -71,9 +132,74 @@ public class QuizLogicHelper {
      */
     @NonNull
     public static String formatJudges(Collection<JudgeType> judges, QuizLogicData data) {
-        final Stream<JudgeType> unFormatted = judges.stream();
-        final Stream<String> formatted = unFormatted.map(judge -> judge.toShortString(data));
-        final List<String> answers = formatted.collect(Collectors.toList());
-        return join(", ", answers);
+        final StringBuilder builder = new StringBuilder(judges.size() * 3);
+        if (judges instanceof JudgeRecord) {
+            return ((JudgeRecord) judges).appendSummary(builder, data).toString();
+        }
+
+        boolean first = true;
+        for (JudgeType judge : judges) {
+            if (!first) {
+                builder.append(", ");
+            }
+            builder.append(judge.toShortString(data));
+            first = false;
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 判定のコレクションを文字列に整形します。
+     * 渡されたプロファイルの書式に変換しカンマで区切って返します。
+     *
+     * @param judges 判定のコレクション
+     * @param profile プロファイル
+     * @return 結果
+     * @see #formatJudges(Collection, QuizLogicData)
+     */
+    @NonNull
+    public static String formatJudges(Collection<JudgeType> judges, QuizProfile profile) {
+        final StringBuilder builder = new StringBuilder(judges.size() * 3);
+        if (judges instanceof JudgeRecord) {
+            return ((JudgeRecord) judges).appendSummary(builder, profile).toString();
+        }
+
+        boolean first = true;
+        for (JudgeType judge : judges) {
+            if (!first) {
+                builder.append(", ");
+            }
+            builder.append(judge.toShortString(profile));
+            first = false;
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 問題のコレクションを複数のセッションで共有できる変更不可のリストにして返します。
+     * ランダムアクセス可能なリストはコピーせずにそのまま包みます。
+     * それ以外のコレクションは一度だけコピーされます。
+     * {@link DeckListener}を実装するリストは、包むとセッションからの通知が届かなくなるためそのまま返します。
+     * {@link QuestionDeck}や{@link AdaptiveDeck}のように問題バンクから選んだリストも、
+     * 包むと問題バンク上のインデックスを引けなくなるためそのまま返します。これらは元から変更できません。
+     *
+     * @param questions 問題のコレクション
+     * @return 変更不可の問題のリスト
+     */
+    @NonNull
+    public static List<Question> toSharedList(Collection<Question> questions) {
+        if (questions == null) {
+            throw new NullPointerException("take questions is null");
+        }
+
+        if ((questions instanceof DeckListener || questions instanceof BankIndexedList)
+                && questions instanceof List) {
+            return (List<Question>) questions;
+        }
+
+        if (questions instanceof List && questions instanceof RandomAccess) {
+            return Collections.unmodifiableList((List<Question>) questions);
+        }
+        return Collections.unmodifiableList(new ArrayList<>(questions));
     }
 }
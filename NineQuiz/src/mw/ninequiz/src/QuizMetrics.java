@@ -0,0 +1,210 @@
+package mw.ninequiz.src;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * クイズの処理状況を計測するクラスです。
+ * カウンタは{@link LongAdder}、所要時間は{@link LatencyHistogram}で記録するため、
+ * 多数のスレッドから同時に記録しても競合しません。
+ *
+ * <p>{@link AnswerListener}として登録すると解答数、正解数、解答までの時間、問題ごとの正解率を記録します。
+ * 問題ごとの正解率は出題順ではなく問題バンク上のインデックスで集計するため、
+ * セッションごとに出題順の異なる{@link QuestionDeck}や{@link AdaptiveDeck}でも同じ問題の解答がまとまります。
+ * 問題の描画と判定にかかった時間、セッションの開始と終了は{@link QuizEngine}と{@link QuizLogic}が記録します。
+ * 記録した値は{@link #snapshot()}やJMXから参照できます。
+ *
+ * @author Getaji
+ */
+public class QuizMetrics implements AnswerListener, QuizMetricsMXBean {
+
+    /** 問題ごとの正解率を記録する問題数の既定の上限。 */
+    public static final int DEFAULT_TRACKED_QUESTIONS = 256;
+
+    private final LongAdder sessionsOpened = new LongAdder();
+    private final LongAdder sessionsClosed = new LongAdder();
+    private final LongAdder answers = new LongAdder();
+    private final LongAdder corrects = new LongAdder();
+    private final LatencyHistogram renderTime = new LatencyHistogram();
+    private final LatencyHistogram thinkTime = new LatencyHistogram();
+    private final LatencyHistogram judgeTime = new LatencyHistogram();
+
+    // 問題バンク上のインデックスごとの解答数と正解数。上限を超えた問題は最後の要素にまとめる
+    private final LongAdder[] questionAnswers;
+    private final LongAdder[] questionCorrects;
+
+    /**
+     * 最初の{@link #DEFAULT_TRACKED_QUESTIONS}問の正解率を記録するインスタンスを生成します。
+     */
+    public QuizMetrics() {
+        this(DEFAULT_TRACKED_QUESTIONS);
+    }
+
+    /**
+     * インスタンスを生成します。
+     * 上限を超えたインデックスの問題は、まとめて1つの問題として記録されます。
+     *
+     * @param trackedQuestions 問題ごとの正解率を記録する問題数の上限
+     * @throws IllegalArgumentException 上限が1未満の場合に送出
+     */
+    public QuizMetrics(int trackedQuestions) {
+        if (trackedQuestions < 1) {
+            throw new IllegalArgumentException("take tracked questions is less than 1");
+        }
+
+        this.questionAnswers = new LongAdder[trackedQuestions + 1];
+        this.questionCorrects = new LongAdder[trackedQuestions + 1];
+        for (int i = 0; i <= trackedQuestions; ++i) {
+            questionAnswers[i] = new LongAdder();
+            questionCorrects[i] = new LongAdder();
+        }
+    }
+
+    @Override
+    public void onAnswer(QuizSession session, int questionIndex, Question question,
+                         int userAnswer, JudgeType judge, long thinkNanos) {
+        final int slot = Math.min(session.getBankIndex(questionIndex), questionAnswers.length - 1);
+        answers.increment();
+        questionAnswers[slot].increment();
+        if (judge == JudgeType.CORRECT) {
+            corrects.increment();
+            questionCorrects[slot].increment();
+        }
+
+        if (thinkNanos >= 0) {
+            thinkTime.record(thinkNanos);
+        }
+    }
+
+    /**
+     * セッションの開始を記録します。
+     */
+    public void sessionOpened() {
+        sessionsOpened.increment();
+    }
+
+    /**
+     * セッションの終了を記録します。
+     */
+    public void sessionClosed() {
+        sessionsClosed.increment();
+    }
+
+    /**
+     * 問題の描画にかかった時間を記録します。
+     *
+     * @param nanos ナノ秒
+     */
+    public void recordRender(long nanos) {
+        renderTime.record(nanos);
+    }
+
+    /**
+     * 解答の判定にかかった時間を記録します。
+     *
+     * @param nanos ナノ秒
+     */
+    public void recordJudge(long nanos) {
+        judgeTime.record(nanos);
+    }
+
+    /**
+     * 問題ごとの正解率を返します。解答がない場合は{@link Double#NaN}を返します。
+     *
+     * @param bankIndex 問題バンク上のインデックス。0から始まる
+     * @return 正解率
+     */
+    public double getCorrectRate(int bankIndex) {
+        final int slot = Math.min(bankIndex, questionAnswers.length - 1);
+        final long answered = questionAnswers[slot].sum();
+        return (answered == 0) ? Double.NaN : (double) questionCorrects[slot].sum() / answered;
+    }
+
+    /**
+     * 現時点の値を返します。
+     *
+     * @return 値
+     */
+    public QuizMetricsSnapshot snapshot() {
+        final long[] perQuestionAnswers = new long[questionAnswers.length];
+        final long[] perQuestionCorrects = new long[questionAnswers.length];
+        for (int i = 0; i < questionAnswers.length; ++i) {
+            perQuestionAnswers[i] = questionAnswers[i].sum();
+            perQuestionCorrects[i] = questionCorrects[i].sum();
+        }
+
+        final long opened = sessionsOpened.sum();
+        return new QuizMetricsSnapshot(opened, opened - sessionsClosed.sum(),
+                answers.sum(), corrects.sum(),
+                renderTime.snapshot(), thinkTime.snapshot(), judgeTime.snapshot(),
+                perQuestionAnswers, perQuestionCorrects);
+    }
+
+    /**
+     * プラットフォームのMBeanサーバに登録します。
+     * オブジェクト名は{@code mw.ninequiz:type=QuizMetrics,name=<name>}です。
+     * 同じ名前ですでに登録されている場合は置き換えます。
+     *
+     * @param name 名前
+     * @throws IllegalStateException 登録に失敗した場合に送出
+     * @return 登録したオブジェクト名
+     */
+    public ObjectName registerMBean(String name) {
+        try {
+            final ObjectName objectName =
+                    new ObjectName("mw.ninequiz:type=QuizMetrics,name=" + ObjectName.quote(name));
+            try {
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            } catch (InstanceAlreadyExistsException e) {
+                ManagementFactory.getPlatformMBeanServer().unregisterMBean(objectName);
+                ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+            }
+            return objectName;
+        } catch (JMException e) {
+            throw new IllegalStateException("Failed to register metrics: " + name, e);
+        }
+    }
+
+    @Override
+    public long getSessionsInFlight() {
+        return sessionsOpened.sum() - sessionsClosed.sum();
+    }
+
+    @Override
+    public long getSessionsOpened() {
+        return sessionsOpened.sum();
+    }
+
+    @Override
+    public long getAnswerCount() {
+        return answers.sum();
+    }
+
+    @Override
+    public long getCorrectCount() {
+        return corrects.sum();
+    }
+
+    @Override
+    public long getRenderTimeP99() {
+        return renderTime.snapshot().getPercentile(99);
+    }
+
+    @Override
+    public long getThinkTimeP50() {
+        return thinkTime.snapshot().getPercentile(50);
+    }
+
+    @Override
+    public long getJudgeTimeP99() {
+        return judgeTime.snapshot().getPercentile(99);
+    }
+
+    @Override
+    public String getText() {
+        return snapshot().toText();
+    }
+}
@@ -0,0 +1,66 @@
+package mw.ninequiz.src;
+
+/**
+ * {@link QuizMetrics}をJMXで公開するためのインターフェースです。
+ * 時間はすべてナノ秒です。
+ *
+ * @author Getaji
+ */
+public interface QuizMetricsMXBean {
+
+    /**
+     * 進行中のセッション数を返します。
+     *
+     * @return セッション数
+     */
+    long getSessionsInFlight();
+
+    /**
+     * 開始されたセッションの累計を返します。
+     *
+     * @return セッション数
+     */
+    long getSessionsOpened();
+
+    /**
+     * 判定した解答の累計を返します。
+     *
+     * @return 解答数
+     */
+    long getAnswerCount();
+
+    /**
+     * 正解した解答の累計を返します。
+     *
+     * @return 正解数
+     */
+    long getCorrectCount();
+
+    /**
+     * 問題の描画にかかった時間の99パーセンタイルを返します。
+     *
+     * @return ナノ秒
+     */
+    long getRenderTimeP99();
+
+    /**
+     * 解答までの時間の中央値を返します。
+     *
+     * @return ナノ秒
+     */
+    long getThinkTimeP50();
+
+    /**
+     * 解答の判定にかかった時間の99パーセンタイルを返します。
+     *
+     * @return ナノ秒
+     */
+    long getJudgeTimeP99();
+
+    /**
+     * すべての値をテキスト形式で返します。
+     *
+     * @return テキスト
+     */
+    String getText();
+}
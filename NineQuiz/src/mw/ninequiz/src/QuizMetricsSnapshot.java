@@ -0,0 +1,143 @@
+package mw.ninequiz.src;
+
+/**
+ * ある時点の{@link QuizMetrics}の値を表すクラスです。このクラスは不変です。
+ * 時間はすべてナノ秒です。
+ *
+ * @author Getaji
+ */
+public final class QuizMetricsSnapshot {
+
+    private final long sessionsOpened;
+    private final long sessionsInFlight;
+    private final long answerCount;
+    private final long correctCount;
+    private final LatencyHistogram.Snapshot renderTime;
+    private final LatencyHistogram.Snapshot thinkTime;
+    private final LatencyHistogram.Snapshot judgeTime;
+    private final long[] questionAnswers;
+    private final long[] questionCorrects;
+
+    QuizMetricsSnapshot(long sessionsOpened, long sessionsInFlight,
+                        long answerCount, long correctCount,
+                        LatencyHistogram.Snapshot renderTime,
+                        LatencyHistogram.Snapshot thinkTime,
+                        LatencyHistogram.Snapshot judgeTime,
+                        long[] questionAnswers, long[] questionCorrects) {
+        this.sessionsOpened = sessionsOpened;
+        this.sessionsInFlight = sessionsInFlight;
+        this.answerCount = answerCount;
+        this.correctCount = correctCount;
+        this.renderTime = renderTime;
+        this.thinkTime = thinkTime;
+        this.judgeTime = judgeTime;
+        this.questionAnswers = questionAnswers;
+        this.questionCorrects = questionCorrects;
+    }
+
+    /**
+     * 値を1行に1つずつ{@code 名前 値}の形式で並べたテキストを返します。
+     * 解答のない問題の正解率は出力しません。
+     * 問題の番号は問題バンク上のインデックスに1を足したものです。
+     *
+     * <p>例：{@code "ninequiz_answers_total 42"}
+     *
+     * @return テキスト
+     */
+    public String toText() {
+        final StringBuilder builder = new StringBuilder();
+        appendLine(builder, "ninequiz_sessions_opened_total", sessionsOpened);
+        appendLine(builder, "ninequiz_sessions_in_flight", sessionsInFlight);
+        appendLine(builder, "ninequiz_answers_total", answerCount);
+        appendLine(builder, "ninequiz_correct_total", correctCount);
+        appendHistogram(builder, "ninequiz_render_nanos", renderTime);
+        appendHistogram(builder, "ninequiz_think_nanos", thinkTime);
+        appendHistogram(builder, "ninequiz_judge_nanos", judgeTime);
+
+        for (int i = 0; i < questionAnswers.length; ++i) {
+            if (questionAnswers[i] == 0) {
+                continue;
+            }
+            final String label = (i == questionAnswers.length - 1) ? "rest" : String.valueOf(i + 1);
+            builder.append("ninequiz_question_correct_rate{question=\"").append(label).append("\"} ")
+                    .append((double) questionCorrects[i] / questionAnswers[i])
+                    .append('\n');
+        }
+        return builder.toString();
+    }
+
+    private static void appendHistogram(StringBuilder builder, String name,
+                                        LatencyHistogram.Snapshot histogram) {
+        appendLine(builder, name + "_count", histogram.getCount());
+        appendLine(builder, name + "_p50", histogram.getPercentile(50));
+        appendLine(builder, name + "_p99", histogram.getPercentile(99));
+        appendLine(builder, name + "_max", histogram.getMax());
+    }
+
+    private static void appendLine(StringBuilder builder, String name, long value) {
+        builder.append(name).append(' ').append(value).append('\n');
+    }
+
+    /**
+     * 開始されたセッションの累計を返します。
+     *
+     * @return セッション数
+     */
+    public long getSessionsOpened() {
+        return sessionsOpened;
+    }
+
+    /**
+     * 進行中のセッション数を返します。
+     *
+     * @return セッション数
+     */
+    public long getSessionsInFlight() {
+        return sessionsInFlight;
+    }
+
+    /**
+     * 判定した解答の累計を返します。
+     *
+     * @return 解答数
+     */
+    public long getAnswerCount() {
+        return answerCount;
+    }
+
+    /**
+     * 正解した解答の累計を返します。
+     *
+     * @return 正解数
+     */
+    public long getCorrectCount() {
+        return correctCount;
+    }
+
+    /**
+     * 問題の描画にかかった時間の分布を返します。
+     *
+     * @return 分布
+     */
+    public LatencyHistogram.Snapshot getRenderTime() {
+        return renderTime;
+    }
+
+    /**
+     * 問題が表示されてから解答されるまでの時間の分布を返します。
+     *
+     * @return 分布
+     */
+    public LatencyHistogram.Snapshot getThinkTime() {
+        return thinkTime;
+    }
+
+    /**
+     * 解答の判定にかかった時間の分布を返します。
+     *
+     * @return 分布
+     */
+    public LatencyHistogram.Snapshot getJudgeTime() {
+        return judgeTime;
+    }
+}
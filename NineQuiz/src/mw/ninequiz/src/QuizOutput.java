@@ -0,0 +1,48 @@
+package mw.ninequiz.src;
+
+/**
+ * クイズの出力先を表すインターフェースです。
+ * {@link QuizLogic}はすべての出力をこのインターフェースを介して行います。
+ *
+ * <p>出力は{@link #flush()}が呼ばれるまで溜めておくことができます。
+ * {@link QuizLogic}は解答を要求する直前と結果の表示後に{@link #flush()}を呼び出します。
+ * 入出力で発生した例外は{@link java.io.UncheckedIOException}として送出されます。
+ *
+ * @author Getaji
+ */
+public interface QuizOutput {
+
+    /**
+     * 文字列を出力します。
+     *
+     * @param text 文字列
+     * @return this
+     */
+    QuizOutput print(CharSequence text);
+
+    /**
+     * 文字列と改行を出力します。
+     *
+     * @param text 文字列
+     * @return this
+     */
+    default QuizOutput println(CharSequence text) {
+        return print(text).print(QuizLogicHelper.LINE_SEPARATOR);
+    }
+
+    /**
+     * 書式化済みの問題を出力します。
+     * 実装によっては符号化済みのバイト列がそのまま使われます。
+     *
+     * @param frame 問題のフレーム
+     * @return this
+     */
+    default QuizOutput write(QuestionFrame frame) {
+        return print(frame.getText());
+    }
+
+    /**
+     * 溜めている出力を出力先へ書き出します。
+     */
+    void flush();
+}
@@ -0,0 +1,502 @@
+package mw.ninequiz.src;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * クイズで表示する文言をまとめたクラスです。このクラスは不変です。
+ *
+ * <p>{@link QuizLogicData}と異なり変更できないため、多数のセッションでコピーせずに共有できます。
+ * 生成時に書式のコンパイルと判定の文言の表引き、UTF-8への変換を済ませるため、
+ * {@link JudgeType#toString(QuizProfile)}などは配列を読むだけで終わります。
+ *
+ * <p>{@link Builder#build()}は同じ内容のインスタンスを使い回します。
+ * 使い回すプロファイルは破棄されないため、ビルダーは{@link MessageCatalog}のような決まった数の文言に用いてください。
+ * {@link #of(QuizLogicData)}と{@link #refresh(QuizProfile, QuizLogicData)}はデータが変わるたびに呼ばれるため使い回さず、
+ * 同じ内容のプロファイルがすでにある場合のみそれを返します。比較には{@link #equals(Object)}を使用してください。
+ *
+ * <p>文言は{@link QuizLogicData}と同様にnullを受け付け、{@code "null"}として表示されます。
+ * 問題番号と選択肢番号の書式はnullにできません。
+ *
+ * @author Getaji
+ */
+public final class QuizProfile {
+
+    private static final ConcurrentMap<Key, QuizProfile> INTERNED = new ConcurrentHashMap<>();
+
+    /** {@link QuizLogicData}の初期値と同じ内容のプロファイル。 */
+    public static final QuizProfile DEFAULT = builder().build();
+
+    /**
+     * ビルダーを返します。値は{@link #DEFAULT}と同じ内容で初期化されています。
+     *
+     * @return ビルダー
+     */
+    public static Builder builder() {
+        return new Builder(new QuizLogicData());
+    }
+
+    /**
+     * データの現在の内容からプロファイルを返します。
+     * 同じ内容のプロファイルが{@link Builder#build()}で作られていればそれを返し、なければ新たに生成します。
+     * 生成したプロファイルは使い回されません。
+     *
+     * @param data データ
+     * @throws NullPointerException データか、問題番号か選択肢番号の書式がnullの場合に送出
+     * @return プロファイル
+     */
+    public static QuizProfile of(QuizLogicData data) {
+        if (data == null) {
+            throw new NullPointerException("take data is null");
+        }
+
+        final Key key = new Builder(data).toKey();
+        final QuizProfile interned = INTERNED.get(key);
+        return (interned != null) ? interned : new QuizProfile(key);
+    }
+
+    /**
+     * 渡されたプロファイルがデータに対して有効であればそのまま、そうでなければ作り直して返します。
+     *
+     * @param profile プロファイル。nullの場合は新たに取得する
+     * @param data データ
+     * @return データに対して有効なプロファイル
+     */
+    public static QuizProfile refresh(QuizProfile profile, QuizLogicData data) {
+        if (profile != null && profile.isCreatedFrom(data)) {
+            return profile;
+        }
+        return of(data);
+    }
+
+    /**
+     * 同じ内容のプロファイルを探すためのキーです。
+     */
+    private static final class Key {
+        private final String[] texts;
+        private final int hash;
+
+        private Key(String[] texts) {
+            this.texts = texts;
+            this.hash = Arrays.hashCode(texts);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            return obj instanceof Key && Arrays.equals(texts, ((Key) obj).texts);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    // ================================================================
+    // Builder
+    // ================================================================
+
+    /**
+     * {@link QuizProfile}のビルダークラスです。
+     */
+    public static final class Builder {
+
+        private String startMessage;
+        private String questionNumberText;
+        private String questionChoiceNumberText;
+        private String correctMessage;
+        private String incorrectMessage;
+        private String simpleCorrectMessage;
+        private String simpleIncorrectMessage;
+        private String promptText;
+        private String resultHeaderText;
+
+        private Builder(QuizLogicData data) {
+            this.startMessage = data.getStartMessage();
+            this.questionNumberText = data.getQuestionNumberText();
+            this.questionChoiceNumberText = data.getQuestionChoiceNumberText();
+            this.correctMessage = data.getCorrectMessage();
+            this.incorrectMessage = data.getIncorrectMessage();
+            this.simpleCorrectMessage = data.getSimpleCorrectMessage();
+            this.simpleIncorrectMessage = data.getSimpleIncorrectMessage();
+            this.promptText = data.getPromptText();
+            this.resultHeaderText = data.getResultHeaderText();
+        }
+
+        /**
+         * 開始時の文言を設定します。
+         *
+         * @param text 文言
+         * @return このビルダー
+         */
+        public Builder startMessage(String text) {
+            this.startMessage = text;
+            return this;
+        }
+
+        /**
+         * 問題番号の書式を設定します。
+         *
+         * @param text 書式
+         * @return このビルダー
+         */
+        public Builder questionNumberText(String text) {
+            this.questionNumberText = text;
+            return this;
+        }
+
+        /**
+         * 選択肢番号の書式を設定します。
+         *
+         * @param text 書式
+         * @return このビルダー
+         */
+        public Builder questionChoiceNumberText(String text) {
+            this.questionChoiceNumberText = text;
+            return this;
+        }
+
+        /**
+         * 正解時の文言を設定します。
+         *
+         * @param text 文言
+         * @return このビルダー
+         */
+        public Builder correctMessage(String text) {
+            this.correctMessage = text;
+            return this;
+        }
+
+        /**
+         * 不正解時の文言を設定します。
+         *
+         * @param text 文言
+         * @return このビルダー
+         */
+        public Builder incorrectMessage(String text) {
+            this.incorrectMessage = text;
+            return this;
+        }
+
+        /**
+         * 正解の短い文言を設定します。
+         *
+         * @param text 文言
+         * @return このビルダー
+         */
+        public Builder simpleCorrectMessage(String text) {
+            this.simpleCorrectMessage = text;
+            return this;
+        }
+
+        /**
+         * 不正解の短い文言を設定します。
+         *
+         * @param text 文言
+         * @return このビルダー
+         */
+        public Builder simpleIncorrectMessage(String text) {
+            this.simpleIncorrectMessage = text;
+            return this;
+        }
+
+        /**
+         * 解答の入力欄の文言を設定します。
+         *
+         * @param text 文言
+         * @return このビルダー
+         */
+        public Builder promptText(String text) {
+            this.promptText = text;
+            return this;
+        }
+
+        /**
+         * 結果の見出しを設定します。
+         *
+         * @param text 見出し
+         * @return このビルダー
+         */
+        public Builder resultHeaderText(String text) {
+            this.resultHeaderText = text;
+            return this;
+        }
+
+        /**
+         * プロファイルを返します。同じ内容のプロファイルが既にあればそれを返します。
+         * 生成したプロファイルは以降の呼び出しのために保持され、破棄されません。
+         *
+         * @throws NullPointerException 問題番号か選択肢番号の書式がnullの場合に送出
+         * @return プロファイル
+         */
+        public QuizProfile build() {
+            final Key key = toKey();
+            final QuizProfile interned = INTERNED.get(key);
+            return (interned != null) ? interned : INTERNED.computeIfAbsent(key, QuizProfile::new);
+        }
+
+        private Key toKey() {
+            if (questionNumberText == null || questionChoiceNumberText == null) {
+                throw new NullPointerException("take number template is null");
+            }
+            return new Key(new String[] {
+                    startMessage, questionNumberText, questionChoiceNumberText,
+                    correctMessage, incorrectMessage, simpleCorrectMessage, simpleIncorrectMessage,
+                    promptText, resultHeaderText
+            });
+        }
+    }
+
+    // ================================================================
+    // QuizProfile
+    // ================================================================
+
+    private final Key key;
+    private final String startMessage;
+    private final String promptText;
+    private final String resultHeaderText;
+    private final byte[] encodedStartMessage;
+    private final byte[] encodedPrompt;
+    private final byte[] encodedResultHeader;
+    private final QuizTemplates templates;
+    private final String[] judgeMessages;
+    private final String[] shortJudgeMessages;
+    private final byte[][] encodedJudgeMessages;
+    private volatile QuestionFrameCache frameCache;
+
+    private QuizProfile(Key key) {
+        this.key = key;
+        // QuizLogicDataの値を出力していたときと同じく、nullは"null"と表示する
+        this.startMessage = String.valueOf(key.texts[0]);
+        this.promptText = String.valueOf(key.texts[7]);
+        this.resultHeaderText = String.valueOf(key.texts[8]);
+        this.encodedStartMessage = startMessage.getBytes(StandardCharsets.UTF_8);
+        this.encodedPrompt = promptText.getBytes(StandardCharsets.UTF_8);
+        this.encodedResultHeader = resultHeaderText.getBytes(StandardCharsets.UTF_8);
+
+        final QuizLogicData data = toData();
+        this.templates = QuizTemplates.compile(data);
+
+        final JudgeType[] judges = JudgeType.values();
+        this.judgeMessages = new String[judges.length];
+        this.shortJudgeMessages = new String[judges.length];
+        this.encodedJudgeMessages = new byte[judges.length][];
+        for (JudgeType judge : judges) {
+            judgeMessages[judge.ordinal()] = String.valueOf(judge.toString(data));
+            shortJudgeMessages[judge.ordinal()] = String.valueOf(judge.toShortString(data));
+            encodedJudgeMessages[judge.ordinal()] =
+                    judgeMessages[judge.ordinal()].getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    /**
+     * このプロファイルと同じ内容の新しいデータを返します。
+     *
+     * @return データ
+     */
+    public QuizLogicData toData() {
+        final QuizLogicData data = new QuizLogicData();
+        data.setStartMessage(key.texts[0]);
+        data.setQuestionNumberText(key.texts[1]);
+        data.setQuestionChoiceNumberText(key.texts[2]);
+        data.setCorrectMessage(key.texts[3]);
+        data.setIncorrectMessage(key.texts[4]);
+        data.setSimpleCorrectMessage(key.texts[5]);
+        data.setSimpleIncorrectMessage(key.texts[6]);
+        data.setPromptText(key.texts[7]);
+        data.setResultHeaderText(key.texts[8]);
+        return data;
+    }
+
+    /**
+     * このプロファイルがデータの現在の内容から作られたものかどうかを返します。
+     *
+     * @param data データ
+     * @return 現在の内容から作られていればtrue
+     */
+    public boolean isCreatedFrom(QuizLogicData data) {
+        // 使い回されたプロファイルは別の参照から作られていることがあるため内容で比べる。
+        // 参照が同じであればequalsはすぐに返る
+        final String[] texts = key.texts;
+        return Objects.equals(texts[0], data.getStartMessage())
+                && Objects.equals(texts[1], data.getQuestionNumberText())
+                && Objects.equals(texts[2], data.getQuestionChoiceNumberText())
+                && Objects.equals(texts[3], data.getCorrectMessage())
+                && Objects.equals(texts[4], data.getIncorrectMessage())
+                && Objects.equals(texts[5], data.getSimpleCorrectMessage())
+                && Objects.equals(texts[6], data.getSimpleIncorrectMessage())
+                && Objects.equals(texts[7], data.getPromptText())
+                && Objects.equals(texts[8], data.getResultHeaderText());
+    }
+
+    /**
+     * 開始時の文言を返します。
+     *
+     * @return 文言
+     */
+    public String getStartMessage() {
+        return startMessage;
+    }
+
+    /**
+     * 開始時の文言をUTF-8でバッファに書き込みます。
+     *
+     * @param buffer 書き込み先
+     * @return 渡されたバッファ
+     */
+    public ByteBuffer writeStartMessage(ByteBuffer buffer) {
+        return buffer.put(encodedStartMessage);
+    }
+
+    /**
+     * 開始時の文言をUTF-8で表したときのバイト数を返します。
+     *
+     * @return バイト数
+     */
+    public int getEncodedStartMessageLength() {
+        return encodedStartMessage.length;
+    }
+
+    /**
+     * 解答の入力欄の文言を返します。
+     *
+     * @return 文言
+     */
+    public String getPromptText() {
+        return promptText;
+    }
+
+    /**
+     * 解答の入力欄の文言をUTF-8でバッファに書き込みます。
+     *
+     * @param buffer 書き込み先
+     * @return 渡されたバッファ
+     */
+    public ByteBuffer writePrompt(ByteBuffer buffer) {
+        return buffer.put(encodedPrompt);
+    }
+
+    /**
+     * 解答の入力欄の文言をUTF-8で表したときのバイト数を返します。
+     *
+     * @return バイト数
+     */
+    public int getEncodedPromptLength() {
+        return encodedPrompt.length;
+    }
+
+    /**
+     * 結果の見出しを返します。
+     *
+     * @return 見出し
+     */
+    public String getResultHeaderText() {
+        return resultHeaderText;
+    }
+
+    /**
+     * 結果の見出しをUTF-8でバッファに書き込みます。
+     *
+     * @param buffer 書き込み先
+     * @return 渡されたバッファ
+     */
+    public ByteBuffer writeResultHeader(ByteBuffer buffer) {
+        return buffer.put(encodedResultHeader);
+    }
+
+    /**
+     * 結果の見出しをUTF-8で表したときのバイト数を返します。
+     *
+     * @return バイト数
+     */
+    public int getEncodedResultHeaderLength() {
+        return encodedResultHeader.length;
+    }
+
+    /**
+     * コンパイル済みの書式を返します。
+     *
+     * @return 書式
+     */
+    public QuizTemplates getTemplates() {
+        return templates;
+    }
+
+    /**
+     * このプロファイルで描画した問題のフレームのキャッシュを返します。
+     * キャッシュは初めて要求されたときに作られ、同じプロファイルを使う{@link QuizLogic}の間で共有されます。
+     * 使い回されるプロファイルのキャッシュは破棄されないため、保持するフレーム数は上限までに限られます。
+     *
+     * @return フレームのキャッシュ
+     */
+    QuestionFrameCache getFrameCache() {
+        QuestionFrameCache cache = frameCache;
+        if (cache == null) {
+            // 競合して複数回作られても、どれを使っても同じフレームになるので問題ない
+            cache = new QuestionFrameCache(toData());
+            frameCache = cache;
+        }
+        return cache;
+    }
+
+    /**
+     * 判定結果の文言を返します。
+     *
+     * @param judge 判定結果
+     * @return 文言
+     */
+    public String getJudgeMessage(JudgeType judge) {
+        return judgeMessages[judge.ordinal()];
+    }
+
+    /**
+     * 判定結果の短い文言を返します。
+     *
+     * @param judge 判定結果
+     * @return 短い文言
+     */
+    public String getShortJudgeMessage(JudgeType judge) {
+        return shortJudgeMessages[judge.ordinal()];
+    }
+
+    /**
+     * 判定結果の文言をUTF-8でバッファに書き込みます。
+     *
+     * @param buffer 書き込み先
+     * @param judge 判定結果
+     * @return 渡されたバッファ
+     */
+    public ByteBuffer writeJudgeMessage(ByteBuffer buffer, JudgeType judge) {
+        return buffer.put(encodedJudgeMessages[judge.ordinal()]);
+    }
+
+    /**
+     * 判定結果の文言をUTF-8で表したときのバイト数を返します。
+     *
+     * @param judge 判定結果
+     * @return バイト数
+     */
+    public int getEncodedJudgeMessageLength(JudgeType judge) {
+        return encodedJudgeMessages[judge.ordinal()].length;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        // 使い回したインスタンス同士であれば参照の比較で済む
+        return this == obj || (obj instanceof QuizProfile && key.equals(((QuizProfile) obj).key));
+    }
+
+    @Override
+    public int hashCode() {
+        return key.hash;
+    }
+
+    @Override
+    public String toString() {
+        return "QuizProfile" + Arrays.toString(key.texts);
+    }
+}
@@ -0,0 +1,590 @@
+package mw.ninequiz.src;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * {@link QuizEngine}のセッションを行単位のTCPプロトコルで公開するサーバーです。
+ * 接続ごとに1つのセッションが開始され、コンソール版の{@link QuizLogic}と同じ表示が送られます。
+ *
+ * <p>プロトコルはUTF-8のテキストです。
+ * サーバーは問題と入力欄の文言（既定は{@code "number>"}）を送り、クライアントは解答の番号を1行で送ります。
+ * 数値でない解答や選択肢の範囲外の解答には再度入力欄の文言を送ります。
+ * 文言はセッションの{@link QuizProfile}に従います。
+ * すべての問題に解答すると結果を送って接続を閉じます。
+ *
+ * <p>接続は複数のワーカースレッドに振り分けられ、各ワーカーは1つの{@link Selector}で接続を処理します。
+ * 1回の読み込みで届いた解答への判定と次の問題はまとめて1回で書き込まれます。
+ * 書き込みきれていないデータが{@link #getMaxPendingBytes()}を超えた接続からは、
+ * 送信が追いつくまで解答を読み込みません。
+ *
+ * <p>サーバーは{@link #close()}を呼ぶまでVMを終了させません。
+ *
+ * @author Getaji
+ */
+public class QuizServer implements Closeable {
+
+    /** 接続ごとに保留できる送信データの既定の上限。 */
+    public static final int DEFAULT_MAX_PENDING_BYTES = 64 * 1024;
+
+    private static final int LINE_CAPACITY = 1024;
+    private static final int OUTPUT_CAPACITY = 4096;
+    private static final long MAX_ACCEPT_BACKOFF_MILLIS = 1000;
+
+    /**
+     * サーバーを起動します。
+     *
+     * @param engine エンジン
+     * @param address 待ち受けるアドレス。ポートが0の場合は空いているポートが使われる
+     * @param workerCount ワーカースレッドの数
+     * @throws NullPointerException エンジンかアドレスがnullの場合に送出
+     * @throws IllegalArgumentException ワーカースレッドの数が正でない場合に送出
+     * @throws IOException 待ち受けに失敗した場合に送出
+     * @return サーバー
+     */
+    public static QuizServer start(QuizEngine engine, InetSocketAddress address,
+                                   int workerCount) throws IOException {
+        return start(engine, address, workerCount, DEFAULT_MAX_PENDING_BYTES);
+    }
+
+    /**
+     * 保留できる送信データの上限を指定してサーバーを起動します。
+     *
+     * @param engine エンジン
+     * @param address 待ち受けるアドレス。ポートが0の場合は空いているポートが使われる
+     * @param workerCount ワーカースレッドの数
+     * @param maxPendingBytes 接続ごとに保留できる送信データの上限
+     * @throws NullPointerException エンジンかアドレスがnullの場合に送出
+     * @throws IllegalArgumentException ワーカースレッドの数か上限が正でない場合に送出
+     * @throws IOException 待ち受けに失敗した場合に送出
+     * @return サーバー
+     */
+    public static QuizServer start(QuizEngine engine, InetSocketAddress address,
+                                   int workerCount, int maxPendingBytes) throws IOException {
+        if (engine == null) {
+            throw new NullPointerException("take engine is null");
+        }
+
+        if (address == null) {
+            throw new NullPointerException("take address is null");
+        }
+
+        if (workerCount <= 0) {
+            throw new IllegalArgumentException("take worker count is not positive");
+        }
+
+        if (maxPendingBytes <= 0) {
+            throw new IllegalArgumentException("take max pending bytes is not positive");
+        }
+
+        final QuizServer server = new QuizServer(engine, workerCount, maxPendingBytes);
+        server.bind(address);
+        return server;
+    }
+
+    /**
+     * サーバーを起動します。
+     * 引数は待ち受けるポート、ワーカースレッドの数、問題集ファイル、ロケールの順で、すべて省略できます。
+     * 問題集ファイルを省略した場合は{@link Main}と同じ問題が使われます。
+     * ロケールは{@code en}のような言語タグで、{@link MessageCatalog#getDefault()}の文言が使われます。
+     *
+     * @param args 引数
+     * @throws IOException 起動に失敗した場合に送出
+     */
+    public static void main(String[] args) throws IOException {
+        final int port = (args.length > 0) ? Integer.parseInt(args[0]) : 9999;
+        final int workers = (args.length > 1) ? Integer.parseInt(args[1])
+                : Runtime.getRuntime().availableProcessors();
+        final List<Question> questions = (args.length > 2)
+                ? QuestionBank.open(Paths.get(args[2])) : Main.sampleQuestions();
+
+        final Locale locale = (args.length > 3) ? Locale.forLanguageTag(args[3]) : null;
+
+        final QuizEngine engine = QuizEngine.of(questions, MessageCatalog.getDefault().get(locale));
+        engine.enableMetrics(new QuizMetrics());
+        final QuizServer server = start(engine, new InetSocketAddress(port), workers);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            server.close();
+            System.out.println(engine.getMetrics().snapshot().toText());
+        }));
+        System.out.println("NineQuiz server listening on " + server.getLocalAddress());
+    }
+
+    private final QuizEngine engine;
+    private final int maxPendingBytes;
+    private final Worker[] workers;
+    private final AtomicLong acceptedCount = new AtomicLong();
+    private final AtomicInteger connectionCount = new AtomicInteger();
+
+    // 接続ごとに変わらない送信データ
+    private final byte[] separatorBytes;
+
+    private ServerSocketChannel serverChannel;
+    private Thread acceptor;
+    private volatile boolean running = true;
+
+    private QuizServer(QuizEngine engine, int workerCount, int maxPendingBytes) {
+        this.engine = engine;
+        this.maxPendingBytes = maxPendingBytes;
+        this.workers = new Worker[workerCount];
+
+        this.separatorBytes = encode(QuizLogicHelper.LINE_SEPARATOR);
+    }
+
+    private void bind(InetSocketAddress address) throws IOException {
+        serverChannel = ServerSocketChannel.open();
+        try {
+            serverChannel.setOption(StandardSocketOptions.SO_REUSEADDR, true);
+            serverChannel.bind(address, 1024);
+            for (int i = 0; i < workers.length; ++i) {
+                workers[i] = new Worker(Selector.open());
+                final Thread thread = new Thread(workers[i], "quiz-server-worker-" + i);
+                thread.setDaemon(true);
+                workers[i].thread = thread;
+                thread.start();
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+
+        // 待ち受けのスレッドは閉じるまでVMを終了させない
+        acceptor = new Thread(this::acceptLoop, "quiz-server-acceptor");
+        acceptor.start();
+    }
+
+    private void acceptLoop() {
+        int next = 0;
+        long backoffMillis = 0;
+        while (running) {
+            final SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (ClosedChannelException e) {
+                return;
+            } catch (IOException e) {
+                // ファイル記述子が尽きた場合などはすぐに再試行しても失敗し続けるため、間隔を広げながら待つ
+                backoffMillis = Math.min(MAX_ACCEPT_BACKOFF_MILLIS, Math.max(1, backoffMillis * 2));
+                try {
+                    Thread.sleep(backoffMillis);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                continue;
+            }
+            backoffMillis = 0;
+
+            try {
+                channel.configureBlocking(false);
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            } catch (IOException e) {
+                // 1つの接続の失敗で待ち受けは止めない
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // 閉じる際の失敗は無視する
+                }
+                continue;
+            }
+
+            acceptedCount.incrementAndGet();
+            // 止まったワーカーには渡さず、次の動いているワーカーに渡す
+            boolean registered = false;
+            for (int i = 0; i < workers.length && !registered; ++i) {
+                registered = workers[next].register(channel);
+                next = (next + 1) % workers.length;
+            }
+            if (!registered) {
+                closeQuietly(channel);
+            }
+        }
+    }
+
+    /**
+     * 待ち受けを止め、すべての接続を閉じます。開始済みのセッションも閉じられます。
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            if (serverChannel != null) {
+                serverChannel.close();
+            }
+        } catch (IOException ignored) {
+            // 閉じる際の失敗は無視する
+        }
+
+        for (Worker worker : workers) {
+            if (worker != null) {
+                worker.selector.wakeup();
+                try {
+                    worker.thread.join();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 待ち受けているアドレスを返します。
+     *
+     * @return アドレス
+     * @throws IOException アドレスを取得できなかった場合に送出
+     */
+    public InetSocketAddress getLocalAddress() throws IOException {
+        return (InetSocketAddress) serverChannel.getLocalAddress();
+    }
+
+    /**
+     * これまでに受け付けた接続の数を返します。
+     *
+     * @return 接続の数
+     */
+    public long getAcceptedCount() {
+        return acceptedCount.get();
+    }
+
+    /**
+     * 現在の接続の数を返します。
+     *
+     * @return 接続の数
+     */
+    public int getConnectionCount() {
+        return connectionCount.get();
+    }
+
+    /**
+     * 接続ごとに保留できる送信データの上限を返します。
+     *
+     * @return 上限のバイト数
+     */
+    public int getMaxPendingBytes() {
+        return maxPendingBytes;
+    }
+
+    /**
+     * 使用しているエンジンを返します。
+     *
+     * @return エンジン
+     */
+    public QuizEngine getEngine() {
+        return engine;
+    }
+
+    private static byte[] encode(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 1つのSelectorで複数の接続を処理するワーカーです。
+     */
+    private final class Worker implements Runnable {
+        private final Selector selector;
+        private final Queue<SocketChannel> registrations = new ConcurrentLinkedQueue<>();
+        private Thread thread;
+        private volatile boolean stopped;
+
+        private Worker(Selector selector) {
+            this.selector = selector;
+        }
+
+        /**
+         * 接続をこのワーカーに渡します。
+         *
+         * @param channel 接続
+         * @return ワーカーが止まっていて受け取れなかった場合はfalse
+         */
+        private boolean register(SocketChannel channel) {
+            if (stopped) {
+                return false;
+            }
+
+            registrations.add(channel);
+            if (stopped && registrations.remove(channel)) {
+                // 追加と同時にワーカーが止まった場合は取り戻す。取り戻せなければワーカーが閉じている
+                return false;
+            }
+            selector.wakeup();
+            return true;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (running) {
+                    selector.select();
+                    SocketChannel channel;
+                    while ((channel = registrations.poll()) != null) {
+                        open(channel);
+                    }
+
+                    for (SelectionKey key : selector.selectedKeys()) {
+                        final Connection connection = (Connection) key.attachment();
+                        try {
+                            if (key.isReadable()) {
+                                connection.onReadable();
+                            }
+                            if (key.isValid() && key.isWritable()) {
+                                connection.onWritable();
+                            }
+                        } catch (IOException | RuntimeException e) {
+                            // 壊れた問題集などによる失敗はその接続だけを閉じ、ワーカーは止めない
+                            connection.close();
+                        }
+                    }
+                    selector.selectedKeys().clear();
+                }
+            } catch (IOException e) {
+                // Selectorが使えなくなった場合はこのワーカーの接続をすべて閉じる
+            } finally {
+                stopped = true;
+                for (SelectionKey key : selector.keys()) {
+                    ((Connection) key.attachment()).close();
+                }
+                SocketChannel channel;
+                while ((channel = registrations.poll()) != null) {
+                    closeQuietly(channel);
+                }
+                try {
+                    selector.close();
+                } catch (IOException ignored) {
+                    // 閉じる際の失敗は無視する
+                }
+            }
+        }
+
+        private void open(SocketChannel channel) {
+            final Connection connection = new Connection(channel);
+            try {
+                connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+                connectionCount.incrementAndGet();
+                connection.start();
+            } catch (IOException | RuntimeException e) {
+                connection.close();
+            }
+        }
+    }
+
+    /**
+     * 1つの接続とそのセッションです。所属するワーカーのスレッドからのみ操作されます。
+     */
+    private final class Connection {
+        private final SocketChannel channel;
+        private final ByteBuffer input = ByteBuffer.allocate(LINE_CAPACITY);
+        private ByteBuffer output = ByteBuffer.allocate(OUTPUT_CAPACITY);
+        private SelectionKey key;
+        private QuizSession session;
+        private QuizProfile profile;
+        private boolean finishing;
+        private boolean closed;
+
+        private Connection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        private void start() throws IOException {
+            session = engine.openSession();
+            profile = engine.getProfile(session);
+            ensureOutput(profile.getEncodedStartMessageLength());
+            profile.writeStartMessage(output);
+            append(separatorBytes);
+            appendTurn();
+            pump();
+        }
+
+        private void onReadable() throws IOException {
+            if (channel.read(input) < 0) {
+                close();
+                return;
+            }
+            pump();
+        }
+
+        private void onWritable() throws IOException {
+            pump();
+        }
+
+        /**
+         * 届いている解答を処理して送信します。送信が追いつく限り繰り返します。
+         */
+        private void pump() throws IOException {
+            boolean remaining;
+            do {
+                remaining = processLines();
+                flush();
+            } while (remaining && !closed && output.position() == 0);
+        }
+
+        /**
+         * 届いている行を順に処理します。
+         *
+         * @return 送信待ちが上限を超えたため処理していない行が残っている場合はtrue
+         */
+        private boolean processLines() {
+            int lineStart = 0;
+            int scan = 0;
+            final int end = input.position();
+            boolean stopped = false;
+            while (scan < end) {
+                if (finishing) {
+                    // 結果を送った後の入力は読み捨てる
+                    lineStart = end;
+                    break;
+                }
+
+                if (output.position() >= maxPendingBytes) {
+                    stopped = true;
+                    break;
+                }
+
+                if (input.get(scan++) == '\n') {
+                    onLine(AsciiIntParser.parse(input, lineStart, scan - 1));
+                    lineStart = scan;
+                }
+            }
+
+            if (!stopped && lineStart == 0 && !input.hasRemaining()) {
+                // 1行が長すぎる場合は不正な解答として捨てる
+                onLine(AsciiIntParser.INVALID);
+                lineStart = end;
+            }
+
+            input.flip();
+            input.position(lineStart);
+            input.compact();
+            return stopped;
+        }
+
+        private void onLine(int answer) {
+            if (answer == AsciiIntParser.END) {
+                return;
+            }
+
+            final Question question = session.getCurrentQuestion();
+            if (!AnswerSource.isValidAnswer(question, answer)) {
+                append(separatorBytes);
+                appendPrompt();
+                return;
+            }
+
+            final JudgeType judge = engine.judge(session, answer);
+            ensureOutput(profile.getEncodedJudgeMessageLength(judge));
+            profile.writeJudgeMessage(output, judge);
+            append(separatorBytes);
+            append(separatorBytes);
+            appendTurn();
+        }
+
+        /**
+         * 次の問題と入力欄、または結果を送信待ちに加えます。
+         */
+        private void appendTurn() {
+            if (session.isFinished()) {
+                ensureOutput(profile.getEncodedResultHeaderLength());
+                profile.writeResultHeader(output);
+                append(separatorBytes);
+                append(encode(QuizLogicHelper.formatJudges(session.getRecord(), profile)
+                        + QuizLogicHelper.LINE_SEPARATOR));
+                finishing = true;
+                return;
+            }
+
+            final ByteBuffer frame = engine.getCurrentFrame(session).asByteBuffer();
+            ensureOutput(frame.remaining());
+            output.put(frame);
+            appendPrompt();
+        }
+
+        private void appendPrompt() {
+            ensureOutput(profile.getEncodedPromptLength());
+            profile.writePrompt(output);
+        }
+
+        private void append(byte[] bytes) {
+            ensureOutput(bytes.length);
+            output.put(bytes);
+        }
+
+        private void ensureOutput(int length) {
+            if (output.remaining() < length) {
+                final int capacity = Math.max(output.capacity() * 2, output.position() + length);
+                final ByteBuffer grown = ByteBuffer.allocate(capacity);
+                output.flip();
+                grown.put(output);
+                output = grown;
+            }
+        }
+
+        /**
+         * 送信待ちのデータを書き込み、残りに応じて待つイベントを切り替えます。
+         */
+        private void flush() throws IOException {
+            if (closed) {
+                return;
+            }
+
+            if (output.position() > 0) {
+                output.flip();
+                channel.write(output);
+                output.compact();
+            }
+
+            if (output.position() > 0) {
+                // 送信が追いつかないクライアントからは上限を超えている間は読み込まない
+                key.interestOps((output.position() >= maxPendingBytes)
+                        ? SelectionKey.OP_WRITE
+                        : SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+            } else if (finishing) {
+                close();
+            } else {
+                key.interestOps(SelectionKey.OP_READ);
+                if (output.capacity() > OUTPUT_CAPACITY) {
+                    output = ByteBuffer.allocate(OUTPUT_CAPACITY);
+                }
+            }
+        }
+
+        private void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+
+            if (key != null) {
+                key.cancel();
+                connectionCount.decrementAndGet();
+            }
+            closeQuietly(channel);
+            if (session != null) {
+                engine.closeSession(session.getId());
+            }
+        }
+    }
+
+    private static void closeQuietly(SocketChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException ignored) {
+            // 閉じる際の失敗は無視する
+        }
+    }
+}
@@ -0,0 +1,254 @@
+package mw.ninequiz.src;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 1人のプレイヤーのクイズ進行状態を表すクラスです。
+ * 出題中の問題の位置と判定結果のみを保持し、問題のリストは他のセッションと共有します。
+ * 入出力は行わず、{@link #submitAnswer(int)}に解答を渡すことで進行します。
+ *
+ * <p>このクラスはスレッドセーフではありません。
+ * 同じセッションを複数のスレッドから同時に操作しないでください。
+ *
+ * @author Getaji
+ */
+public class QuizSession {
+
+    private final long id;
+    private final List<Question> questions;
+    private final JudgeRecord judgedList;
+    private final AnswerListener listener;
+    private final QuizProfile profile;
+
+    // 判定結果を受け取る出題順のリスト。そうでなければnull
+    private final DeckListener deckListener;
+    private int index;
+
+    // 出題中の問題を表示した時刻。未表示なら負の値
+    private long presentedAt = -1;
+
+    /**
+     * インスタンスを生成します。
+     * 問題のリストはコピーされずにそのまま参照されるため、不変である必要があります。
+     *
+     * @param id セッションID
+     * @param questions 共有する問題のリスト
+     * @throws NullPointerException 問題のリストがnullの場合に送出
+     */
+    public QuizSession(long id, List<Question> questions) {
+        this(id, questions, AnswerListener.NONE);
+    }
+
+    /**
+     * 解答の通知先を指定してインスタンスを生成します。
+     * 問題のリストはコピーされずにそのまま参照されるため、不変である必要があります。
+     *
+     * @param id セッションID
+     * @param questions 共有する問題のリスト
+     * @param listener 解答の通知先
+     * @throws NullPointerException 問題のリストか通知先がnullの場合に送出
+     */
+    public QuizSession(long id, List<Question> questions, AnswerListener listener) {
+        this(id, questions, listener, null);
+    }
+
+    /**
+     * 解答の通知先と表示に用いるプロファイルを指定してインスタンスを生成します。
+     * 問題のリストはコピーされずにそのまま参照されるため、不変である必要があります。
+     *
+     * @param id セッションID
+     * @param questions 共有する問題のリスト
+     * @param listener 解答の通知先
+     * @param profile 表示に用いるプロファイル。nullの場合はセッションを管理する側の既定に従う
+     * @throws NullPointerException 問題のリストか通知先がnullの場合に送出
+     */
+    public QuizSession(long id, List<Question> questions, AnswerListener listener,
+                       QuizProfile profile) {
+        if (questions == null) {
+            throw new NullPointerException("take questions is null");
+        }
+
+        if (listener == null) {
+            throw new NullPointerException("take listener is null");
+        }
+
+        this.id = id;
+        this.questions = questions;
+        this.judgedList = new JudgeRecord(questions.size(), true);
+        this.listener = listener;
+        this.profile = profile;
+        this.deckListener = (questions instanceof DeckListener) ? (DeckListener) questions : null;
+    }
+
+    /**
+     * 出題中の問題をプレイヤーに表示した時刻を記録します。
+     * 解答までの時間はこの時刻から計測されます。
+     *
+     * @param nanoTime {@link System#nanoTime()}で得た時刻
+     */
+    public void markPresented(long nanoTime) {
+        presentedAt = nanoTime;
+    }
+
+    /**
+     * 解答を判定し、次の問題へ進めます。
+     *
+     * @param userAnswer 解答
+     * @throws IllegalStateException すでにすべての問題に解答している場合に送出
+     * @return 判定結果
+     */
+    public JudgeType submitAnswer(int userAnswer) {
+        final JudgeType judge = JudgeType.judge(getCurrentQuestion(), userAnswer);
+        advance(judge, userAnswer);
+        return judge;
+    }
+
+    /**
+     * 判定結果を記録し、次の問題へ進めます。
+     * 判定を独自に行う{@link QuizLogic}から使用されます。
+     *
+     * @param judge 判定結果
+     * @param userAnswer 解答
+     */
+    void advance(JudgeType judge, int userAnswer) {
+        final Question question = questions.get(index);
+        final int answeredIndex = index;
+        judgedList.record(judge, userAnswer);
+        ++index;
+        if (deckListener != null) {
+            deckListener.onJudged(answeredIndex, judge);
+        }
+
+        if (listener != AnswerListener.NONE) {
+            final long thinkNanos = (presentedAt < 0) ? -1 : System.nanoTime() - presentedAt;
+            listener.onAnswer(this, answeredIndex, question, userAnswer, judge, thinkNanos);
+        }
+        presentedAt = -1;
+    }
+
+    /**
+     * 判定済みの結果を記録し、次の問題へ進めます。通知先には通知しません。
+     * 記録からセッションを復元する{@link SessionJournal}や、
+     * 他のエンジンからセッションを引き継ぐ{@link QuizEngine}から使用されます。
+     *
+     * @param judge 判定結果
+     * @param userAnswer 解答
+     */
+    void restore(JudgeType judge, int userAnswer) {
+        judgedList.record(judge, userAnswer);
+        if (deckListener != null) {
+            deckListener.onJudged(index, judge);
+        }
+        ++index;
+    }
+
+    /**
+     * 出題中の問題を返します。
+     *
+     * @throws IllegalStateException すでにすべての問題に解答している場合に送出
+     * @return 出題中の問題
+     */
+    public Question getCurrentQuestion() {
+        if (isFinished()) {
+            throw new IllegalStateException("Session is already finished");
+        }
+        return questions.get(index);
+    }
+
+    /**
+     * 出題中の問題のインデックスを返します。インデックスは0から始まります。
+     *
+     * @return 出題中の問題のインデックス
+     */
+    public int getCurrentIndex() {
+        return index;
+    }
+
+    /**
+     * すべての問題に解答したかどうかを返します。
+     *
+     * @return すべての問題に解答していればtrue
+     */
+    public boolean isFinished() {
+        return index >= questions.size();
+    }
+
+    /**
+     * これまでの判定結果を返します。返されるリストは変更できません。
+     *
+     * @return 判定結果のリスト
+     */
+    public List<JudgeType> getJudges() {
+        return Collections.unmodifiableList(judgedList);
+    }
+
+    /**
+     * 判定結果の記録を返します。
+     * 返される記録はセッションが使用しているものなので、変更しないでください。
+     *
+     * @return 判定結果の記録
+     */
+    public JudgeRecord getRecord() {
+        return judgedList;
+    }
+
+    /**
+     * セッションIDを返します。
+     *
+     * @return セッションID
+     */
+    public long getId() {
+        return id;
+    }
+
+    /**
+     * このセッションで出題する問題のリストを返します。
+     *
+     * @return 問題のリスト
+     */
+    public List<Question> getQuestions() {
+        return questions;
+    }
+
+    /**
+     * 問題を選んだ元の問題バンクを返します。
+     * {@link QuestionDeck}などの問題バンクから選んだリストでなければ、出題する問題のリストをそのまま返します。
+     *
+     * @return 問題バンク
+     */
+    List<Question> getBank() {
+        return (questions instanceof BankIndexedList) ?
+                ((BankIndexedList) questions).getBank() : questions;
+    }
+
+    /**
+     * 出題順のインデックスに対応する問題バンク上のインデックスを返します。
+     * {@link QuestionDeck}などの問題バンクから選んだリストでなければ、出題順のインデックスをそのまま返します。
+     *
+     * @param questionIndex 出題順のインデックス。0から始まる
+     * @return 問題バンク上のインデックス
+     */
+    int getBankIndex(int questionIndex) {
+        return (questions instanceof BankIndexedList) ?
+                ((BankIndexedList) questions).getBankIndex(questionIndex) : questionIndex;
+    }
+
+    /**
+     * 問題数を返します。
+     *
+     * @return 問題数
+     */
+    public int getQuestionCount() {
+        return questions.size();
+    }
+
+    /**
+     * 表示に用いるプロファイルを返します。
+     *
+     * @return プロファイル。指定されていない場合はnull
+     */
+    public QuizProfile getProfile() {
+        return profile;
+    }
+}
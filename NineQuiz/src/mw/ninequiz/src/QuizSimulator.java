@@ -0,0 +1,704 @@
+package mw.ninequiz.src;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.lang.reflect.Method;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 仮想のプレイヤーに{@link QuizLogic}を遊ばせ、処理能力を測るシミュレーターです。
+ * 標準入力の代わりに{@link AnswerSource}から解答を与え、出力は捨てるため、人手を介さずに実行できます。
+ *
+ * <p>プレイヤーはそれぞれ1つのスレッドで、決められたセッション数を使い切るまで順にセッションを遊びます。
+ * 解答は{@link AnswerModel}で選び、解答までの考慮時間は{@link ThinkTime}で決めます。
+ * {@link QuizLogic}は解答を待つ間スレッドを止めるため、考慮時間の間もプレイヤーのスレッドは止まります。
+ * 考慮時間なしで全コアを使い切る場合はプレイヤー数をコア数に、
+ * 考慮時間ありで多数の同時接続を模す場合はプレイヤー数を同時接続数にしてください。
+ *
+ * <p>応答時間は、解答を渡してから次の解答を要求されるまで、または結果が表示されるまでの時間です。
+ * 判定と判定結果の表示、次の問題の表示を含み、考慮時間は含みません。
+ * 割り当て量はプレイヤーのスレッドが割り当てたバイト数で、仮想のプレイヤー自身の割り当てを含みます。
+ * 問題のフレームはプロファイルごとに全セッションで共有されるため、描画の割り当ては最初に出題したセッションにだけ含まれます。
+ *
+ * <pre>{@code
+ * final SimulationResult result = QuizSimulator.builder(questions)
+ *         .setPlayerCount(8)
+ *         .setSessionCount(100000)
+ *         .setAnswerModel(AnswerModel.accuracy(0.7))
+ *         .build()
+ *         .run();
+ * }</pre>
+ *
+ * @author Getaji
+ */
+public class QuizSimulator {
+
+    /**
+     * 仮想のプレイヤーの解答の選び方を表すインターフェースです。
+     */
+    @FunctionalInterface
+    public interface AnswerModel {
+
+        /**
+         * 問題への解答を選びます。
+         * {@link AnswerSource#NO_ANSWER}を返すと、解答がなかったものとして不正解になります。
+         *
+         * @param question 問題
+         * @param random プレイヤーの乱数
+         * @return 解答。選択肢の範囲外の値は{@link QuizLogic}が再入力を求める
+         */
+        int answer(Question question, SplittableRandom random);
+
+        /**
+         * すべての選択肢から一様に選ぶモデルを返します。
+         *
+         * @return モデル
+         */
+        static AnswerModel uniform() {
+            return (question, random) -> 1 + random.nextInt(question.getChoiceCount());
+        }
+
+        /**
+         * 指定した確率で正解し、それ以外は不正解の選択肢から一様に選ぶモデルを返します。
+         *
+         * @param correctRate 正解する確率
+         * @throws IllegalArgumentException 確率が0から1の範囲外の場合に送出
+         * @return モデル
+         */
+        static AnswerModel accuracy(double correctRate) {
+            return accuracy(correctRate, 0);
+        }
+
+        /**
+         * 指定した確率で解答せず、残りは指定した確率で正解するモデルを返します。
+         * 不正解の場合は不正解の選択肢から一様に選びます。
+         *
+         * @param correctRate 解答した場合に正解する確率
+         * @param noAnswerRate 解答しない確率
+         * @throws IllegalArgumentException 確率が0から1の範囲外の場合に送出
+         * @return モデル
+         */
+        static AnswerModel accuracy(double correctRate, double noAnswerRate) {
+            if (!(0 <= correctRate && correctRate <= 1 && 0 <= noAnswerRate && noAnswerRate <= 1)) {
+                throw new IllegalArgumentException("take rate is out of range: "
+                        + correctRate + ", " + noAnswerRate);
+            }
+            return (question, random) -> {
+                if (noAnswerRate > 0 && random.nextDouble() < noAnswerRate) {
+                    return AnswerSource.NO_ANSWER;
+                }
+
+                final int correct = question.getAnswerIndex();
+                final int choiceCount = question.getChoiceCount();
+                if (choiceCount == 1 || random.nextDouble() < correctRate) {
+                    return correct;
+                }
+                final int wrong = 1 + random.nextInt(choiceCount - 1);
+                return (wrong < correct) ? wrong : wrong + 1;
+            };
+        }
+
+        /**
+         * 選択肢の位置ごとの重みに従って選ぶモデルを返します。
+         * 重みの数より選択肢が多い問題では、重みのない選択肢は選ばれません。
+         *
+         * @param weights 1番目の選択肢からの重み
+         * @throws IllegalArgumentException 重みが負か、すべて0の場合に送出
+         * @return モデル
+         */
+        static AnswerModel weighted(double... weights) {
+            final double[] cumulative = new double[weights.length];
+            double total = 0;
+            for (int i = 0; i < weights.length; ++i) {
+                if (!(weights[i] >= 0)) {
+                    throw new IllegalArgumentException("take weight is negative: " + weights[i]);
+                }
+                total += weights[i];
+                cumulative[i] = total;
+            }
+
+            if (total <= 0) {
+                throw new IllegalArgumentException("take weights are all zero");
+            }
+            return (question, random) -> {
+                final int choiceCount = Math.min(question.getChoiceCount(), cumulative.length);
+                final double point = random.nextDouble() * cumulative[choiceCount - 1];
+                for (int i = 0; i < choiceCount - 1; ++i) {
+                    if (point < cumulative[i]) {
+                        return i + 1;
+                    }
+                }
+                return choiceCount;
+            };
+        }
+    }
+
+    /**
+     * 仮想のプレイヤーの考慮時間の分布を表すインターフェースです。
+     */
+    @FunctionalInterface
+    public interface ThinkTime {
+
+        /** 考慮せずにすぐ解答する分布。 */
+        ThinkTime NONE = random -> 0;
+
+        /**
+         * 次の考慮時間を返します。
+         *
+         * @param random プレイヤーの乱数
+         * @return ナノ秒
+         */
+        long nextNanos(SplittableRandom random);
+
+        /**
+         * 常に同じ時間考慮する分布を返します。
+         *
+         * @param duration 時間
+         * @param unit 時間の単位
+         * @return 分布
+         */
+        static ThinkTime fixed(long duration, TimeUnit unit) {
+            final long nanos = unit.toNanos(duration);
+            return random -> nanos;
+        }
+
+        /**
+         * 範囲から一様に選んだ時間考慮する分布を返します。
+         *
+         * @param min 最短の時間
+         * @param max 最長の時間
+         * @param unit 時間の単位
+         * @throws IllegalArgumentException 範囲が正しくない場合に送出
+         * @return 分布
+         */
+        static ThinkTime uniform(long min, long max, TimeUnit unit) {
+            final long minNanos = unit.toNanos(min);
+            final long maxNanos = unit.toNanos(max);
+            if (minNanos < 0 || maxNanos < minNanos) {
+                throw new IllegalArgumentException("take range is invalid: " + min + "-" + max);
+            }
+            return random -> (minNanos == maxNanos) ? minNanos
+                    : random.nextLong(minNanos, maxNanos + 1);
+        }
+
+        /**
+         * 指定した平均の指数分布に従う時間考慮する分布を返します。
+         *
+         * @param mean 平均の時間
+         * @param unit 時間の単位
+         * @return 分布
+         */
+        static ThinkTime exponential(long mean, TimeUnit unit) {
+            final double meanNanos = unit.toNanos(mean);
+            return random -> (long) (-meanNanos * Math.log(1.0 - random.nextDouble()));
+        }
+    }
+
+    /**
+     * シミュレーションの結果です。このクラスは不変です。
+     */
+    public static final class SimulationResult {
+        private final int playerCount;
+        private final long sessionCount;
+        private final long answerCount;
+        private final long correctCount;
+        private final long elapsedNanos;
+        private final long allocatedBytes;
+        private final LatencyHistogram.Snapshot latency;
+
+        private SimulationResult(int playerCount, long sessionCount, long answerCount,
+                                 long correctCount, long elapsedNanos, long allocatedBytes,
+                                 LatencyHistogram.Snapshot latency) {
+            this.playerCount = playerCount;
+            this.sessionCount = sessionCount;
+            this.answerCount = answerCount;
+            this.correctCount = correctCount;
+            this.elapsedNanos = elapsedNanos;
+            this.allocatedBytes = allocatedBytes;
+            this.latency = latency;
+        }
+
+        /**
+         * プレイヤー数を返します。
+         *
+         * @return プレイヤー数
+         */
+        public int getPlayerCount() {
+            return playerCount;
+        }
+
+        /**
+         * 最後まで終えたセッションの数を返します。
+         *
+         * @return セッションの数
+         */
+        public long getSessionCount() {
+            return sessionCount;
+        }
+
+        /**
+         * 判定された解答の数を返します。
+         *
+         * @return 解答の数
+         */
+        public long getAnswerCount() {
+            return answerCount;
+        }
+
+        /**
+         * 正解の数を返します。
+         *
+         * @return 正解の数
+         */
+        public long getCorrectCount() {
+            return correctCount;
+        }
+
+        /**
+         * 実行にかかった時間をナノ秒で返します。
+         *
+         * @return ナノ秒
+         */
+        public long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        /**
+         * 1秒あたりのセッション数を返します。
+         *
+         * @return 1秒あたりのセッション数
+         */
+        public double getSessionsPerSecond() {
+            return (elapsedNanos == 0) ? 0 : sessionCount * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * 1秒あたりの解答数を返します。
+         *
+         * @return 1秒あたりの解答数
+         */
+        public double getAnswersPerSecond() {
+            return (elapsedNanos == 0) ? 0 : answerCount * 1e9 / elapsedNanos;
+        }
+
+        /**
+         * プレイヤーのスレッドが割り当てたバイト数の合計を返します。
+         *
+         * @return バイト数。JVMが計測に対応していない場合は-1
+         */
+        public long getAllocatedBytes() {
+            return allocatedBytes;
+        }
+
+        /**
+         * 1セッションあたりの割り当てバイト数を返します。
+         *
+         * @return バイト数。JVMが計測に対応していないかセッションがない場合は-1
+         */
+        public double getAllocatedBytesPerSession() {
+            return (allocatedBytes < 0 || sessionCount == 0) ? -1
+                    : (double) allocatedBytes / sessionCount;
+        }
+
+        /**
+         * 解答ごとの応答時間の分布をナノ秒で返します。
+         *
+         * @return 応答時間の分布
+         */
+        public LatencyHistogram.Snapshot getLatency() {
+            return latency;
+        }
+
+        /**
+         * 結果を1行に1項目の形式で返します。
+         *
+         * @return 結果
+         */
+        public String toText() {
+            return String.format("players %d%n"
+                            + "sessions %d%n"
+                            + "answers %d%n"
+                            + "correct %d%n"
+                            + "elapsed_ms %.1f%n"
+                            + "sessions_per_second %.0f%n"
+                            + "answers_per_second %.0f%n"
+                            + "latency_nanos_p50 %d%n"
+                            + "latency_nanos_p90 %d%n"
+                            + "latency_nanos_p99 %d%n"
+                            + "latency_nanos_p999 %d%n"
+                            + "latency_nanos_max %d%n"
+                            + "allocated_bytes_per_session %.0f%n",
+                    playerCount, sessionCount, answerCount, correctCount, elapsedNanos / 1e6,
+                    getSessionsPerSecond(), getAnswersPerSecond(),
+                    latency.getPercentile(50), latency.getPercentile(90),
+                    latency.getPercentile(99), latency.getPercentile(99.9), latency.getMax(),
+                    getAllocatedBytesPerSession());
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                    "SimulationResult{players:%d sessions:%d answers:%d sessions/s:%.0f answers/s:%.0f p99:%dns}",
+                    playerCount, sessionCount, answerCount, getSessionsPerSecond(),
+                    getAnswersPerSecond(), latency.getPercentile(99));
+        }
+    }
+
+    /**
+     * シミュレーターのビルダーです。
+     */
+    public static final class SimulatorBuilder {
+        private final Collection<Question> questions;
+        private QuizProfile profile = QuizProfile.DEFAULT;
+        private int playerCount = Runtime.getRuntime().availableProcessors();
+        private int sessionCount = 10000;
+        private AnswerModel answerModel = AnswerModel.uniform();
+        private ThinkTime thinkTime = ThinkTime.NONE;
+        private long seed = 1;
+        private QuizMetrics metrics;
+
+        private SimulatorBuilder(Collection<Question> questions) {
+            this.questions = questions;
+        }
+
+        /**
+         * 表示に用いるプロファイルを設定します。既定は{@link QuizProfile#DEFAULT}です。
+         *
+         * @param profile プロファイル
+         * @return this
+         */
+        public SimulatorBuilder setProfile(QuizProfile profile) {
+            this.profile = profile;
+            return this;
+        }
+
+        /**
+         * 同時に遊ぶプレイヤー数を設定します。既定は利用できるプロセッサ数です。
+         *
+         * @param playerCount プレイヤー数
+         * @return this
+         */
+        public SimulatorBuilder setPlayerCount(int playerCount) {
+            this.playerCount = playerCount;
+            return this;
+        }
+
+        /**
+         * すべてのプレイヤーで遊ぶセッション数の合計を設定します。既定は10000です。
+         *
+         * @param sessionCount セッション数
+         * @return this
+         */
+        public SimulatorBuilder setSessionCount(int sessionCount) {
+            this.sessionCount = sessionCount;
+            return this;
+        }
+
+        /**
+         * 解答の選び方を設定します。既定は{@link AnswerModel#uniform()}です。
+         *
+         * @param answerModel 解答の選び方
+         * @return this
+         */
+        public SimulatorBuilder setAnswerModel(AnswerModel answerModel) {
+            this.answerModel = answerModel;
+            return this;
+        }
+
+        /**
+         * 考慮時間の分布を設定します。既定は{@link ThinkTime#NONE}です。
+         *
+         * @param thinkTime 考慮時間の分布
+         * @return this
+         */
+        public SimulatorBuilder setThinkTime(ThinkTime thinkTime) {
+            this.thinkTime = thinkTime;
+            return this;
+        }
+
+        /**
+         * 乱数の種を設定します。プレイヤーの乱数はこの種から分けて作られます。
+         *
+         * @param seed 乱数の種
+         * @return this
+         */
+        public SimulatorBuilder setSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * 各セッションの計測値の記録先を設定します。既定では記録しません。
+         *
+         * @param metrics 記録先。記録しない場合はnull
+         * @return this
+         */
+        public SimulatorBuilder setMetrics(QuizMetrics metrics) {
+            this.metrics = metrics;
+            return this;
+        }
+
+        /**
+         * シミュレーターを生成します。
+         *
+         * @throws NullPointerException 問題、プロファイル、解答の選び方、考慮時間の分布のいずれかがnullの場合に送出
+         * @throws IllegalArgumentException 問題が空か、プレイヤー数が正でないか、セッション数が負の場合に送出
+         * @return シミュレーター
+         */
+        public QuizSimulator build() {
+            if (questions == null || profile == null || answerModel == null || thinkTime == null) {
+                throw new NullPointerException("take parameter is null");
+            }
+
+            if (questions.isEmpty()) {
+                throw new IllegalArgumentException("take questions is empty");
+            }
+
+            if (playerCount <= 0) {
+                throw new IllegalArgumentException("take player count is not positive: "
+                        + playerCount);
+            }
+
+            if (sessionCount < 0) {
+                throw new IllegalArgumentException("take session count is negative: "
+                        + sessionCount);
+            }
+            return new QuizSimulator(this);
+        }
+    }
+
+    /**
+     * 問題のコレクションからビルダーを生成します。
+     *
+     * @param questions 問題のコレクション
+     * @return ビルダー
+     */
+    public static SimulatorBuilder builder(Collection<Question> questions) {
+        return new SimulatorBuilder(questions);
+    }
+
+    /**
+     * シミュレーションを実行し、結果を表示します。
+     * 引数はプレイヤー数、セッション数、正解率、平均考慮時間（ミリ秒）、問題集ファイルの順で、すべて省略できます。
+     * 平均考慮時間を指定すると考慮時間は指数分布に従います。
+     * 問題集ファイルを省略した場合は{@link Main}と同じ問題が使われます。
+     *
+     * @param args 引数
+     * @throws IOException 問題集の読み込みに失敗した場合に送出
+     */
+    public static void main(String[] args) throws IOException {
+        final int players = (args.length > 0) ? Integer.parseInt(args[0])
+                : Runtime.getRuntime().availableProcessors();
+        final int sessions = (args.length > 1) ? Integer.parseInt(args[1]) : 100000;
+        final AnswerModel answerModel = (args.length > 2)
+                ? AnswerModel.accuracy(Double.parseDouble(args[2])) : AnswerModel.uniform();
+        final long thinkMillis = (args.length > 3) ? Long.parseLong(args[3]) : 0;
+        final List<Question> questions = (args.length > 4)
+                ? QuestionBank.open(Paths.get(args[4])) : Main.sampleQuestions();
+
+        final QuizSimulator simulator = builder(questions)
+                .setPlayerCount(players)
+                .setSessionCount(sessions)
+                .setAnswerModel(answerModel)
+                .setThinkTime((thinkMillis > 0)
+                        ? ThinkTime.exponential(thinkMillis, TimeUnit.MILLISECONDS) : ThinkTime.NONE)
+                .build();
+        // JITの最適化を済ませてから計測する
+        builder(questions).setPlayerCount(players).setSessionCount(Math.min(sessions, 20000))
+                .setAnswerModel(answerModel).build().run();
+        System.out.print(simulator.run().toText());
+    }
+
+    private static final ThreadMXBean THREADS = ManagementFactory.getThreadMXBean();
+
+    // スレッドごとの割り当て量を返すメソッド。計測できないVMではnull
+    private static final Method ALLOCATED_BYTES = findAllocatedBytesMethod();
+
+    private final Collection<Question> questions;
+    private final QuizProfile profile;
+    private final int playerCount;
+    private final int sessionCount;
+    private final AnswerModel answerModel;
+    private final ThinkTime thinkTime;
+    private final long seed;
+    private final QuizMetrics metrics;
+
+    private QuizSimulator(SimulatorBuilder builder) {
+        this.questions = QuizLogicHelper.toSharedList(builder.questions);
+        this.profile = builder.profile;
+        this.playerCount = builder.playerCount;
+        this.sessionCount = builder.sessionCount;
+        this.answerModel = builder.answerModel;
+        this.thinkTime = builder.thinkTime;
+        this.seed = builder.seed;
+        this.metrics = builder.metrics;
+    }
+
+    /**
+     * シミュレーションを実行し、すべてのセッションが終わるまで待ちます。
+     * 同じシミュレーターを複数回実行できます。
+     *
+     * @return 結果
+     */
+    public SimulationResult run() {
+        final AtomicInteger remaining = new AtomicInteger(sessionCount);
+        final LatencyHistogram latency = new LatencyHistogram();
+        final LongAdder sessions = new LongAdder();
+        final LongAdder answers = new LongAdder();
+        final LongAdder corrects = new LongAdder();
+        final LongAdder allocated = new LongAdder();
+        final boolean measureAllocation = ALLOCATED_BYTES != null;
+
+        final SplittableRandom random = new SplittableRandom(seed);
+        final List<Thread> threads = new ArrayList<>(playerCount);
+        for (int i = 0; i < playerCount; ++i) {
+            final Player player = new Player(random.split(), remaining, latency, sessions,
+                    answers, corrects);
+            threads.add(new Thread(() -> {
+                final long before = measureAllocation ? allocatedBytes() : 0;
+                player.play();
+                if (measureAllocation) {
+                    allocated.add(allocatedBytes() - before);
+                }
+            }, "quiz-simulator-" + i));
+        }
+
+        final long start = System.nanoTime();
+        for (Thread thread : threads) {
+            thread.start();
+        }
+
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return new SimulationResult(playerCount, sessions.sum(), answers.sum(), corrects.sum(),
+                System.nanoTime() - start, measureAllocation ? allocated.sum() : -1,
+                latency.snapshot());
+    }
+
+    /**
+     * 割り当て量を計測するメソッドを探して返します。
+     * {@code com.sun.management.ThreadMXBean}はすべてのVMにあるとは限らないため、直接参照せずにリフレクションで引きます。
+     *
+     * @return メソッド。計測できない場合はnull
+     */
+    private static Method findAllocatedBytesMethod() {
+        try {
+            final Class<?> type = Class.forName("com.sun.management.ThreadMXBean");
+            if (!type.isInstance(THREADS)) {
+                return null;
+            }
+
+            final boolean supported = (Boolean) type.getMethod("isThreadAllocatedMemorySupported")
+                    .invoke(THREADS);
+            final boolean enabled = (Boolean) type.getMethod("isThreadAllocatedMemoryEnabled")
+                    .invoke(THREADS);
+            return (supported && enabled) ? type.getMethod("getThreadAllocatedBytes", long.class)
+                    : null;
+        } catch (ReflectiveOperationException | LinkageError | SecurityException
+                | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    private static long allocatedBytes() {
+        try {
+            return (Long) ALLOCATED_BYTES.invoke(THREADS, Thread.currentThread().getId());
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Failed to measure allocated bytes", e);
+        }
+    }
+
+    /**
+     * 仮想のプレイヤーです。1つのスレッドから使用され、セッションごとに入力元として使い回されます。
+     */
+    private final class Player implements AnswerSource {
+        private final SplittableRandom random;
+        private final AtomicInteger remaining;
+        private final LatencyHistogram latency;
+        private final LongAdder sessions;
+        private final LongAdder answers;
+        private final LongAdder corrects;
+        private final QuizOutput output = MemoryQuizOutput.discarding();
+        private final AnswerListener listener;
+
+        // 最後に解答を渡した時刻。解答を渡していない場合は0
+        private long answeredAt;
+
+        private Player(SplittableRandom random, AtomicInteger remaining, LatencyHistogram latency,
+                       LongAdder sessions, LongAdder answers, LongAdder corrects) {
+            this.random = random;
+            this.remaining = remaining;
+            this.latency = latency;
+            this.sessions = sessions;
+            this.answers = answers;
+            this.corrects = corrects;
+            this.listener = (session, questionIndex, question, userAnswer, judge, thinkNanos) -> {
+                answers.increment();
+                if (judge == JudgeType.CORRECT) {
+                    corrects.increment();
+                }
+            };
+        }
+
+        private void play() {
+            while (remaining.getAndDecrement() > 0) {
+                final QuizLogic logic = QuizLogic.of(questions, profile, this, output);
+                logic.addAnswerListener(listener);
+                if (metrics != null) {
+                    logic.enableMetrics(metrics);
+                }
+                answeredAt = 0;
+                logic.start();
+                sessions.increment();
+            }
+        }
+
+        @Override
+        public CompletableFuture<Integer> requestAnswer(QuizSession session, Question question) {
+            recordLatency();
+            final long thinkNanos = thinkTime.nextNanos(random);
+            if (thinkNanos > 0) {
+                final long deadline = System.nanoTime() + thinkNanos;
+                long left;
+                while ((left = deadline - System.nanoTime()) > 0) {
+                    LockSupport.parkNanos(left);
+                }
+            }
+
+            final int answer = answerModel.answer(question, random);
+            answeredAt = System.nanoTime();
+            return CompletableFuture.completedFuture(answer);
+        }
+
+        /**
+         * セッションの終わりに{@link QuizLogic}から呼ばれ、最後の解答の応答時間を記録します。
+         */
+        @Override
+        public void close() {
+            recordLatency();
+        }
+
+        private void recordLatency() {
+            if (answeredAt != 0) {
+                latency.record(System.nanoTime() - answeredAt);
+                answeredAt = 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package mw.ninequiz.src;
+
+/**
+ * {@link QuizLogicData}の書式をコンパイルしてまとめたクラスです。このクラスは不変です。
+ *
+ * <p>{@link QuizLogicData}は変更可能なため、
+ * 使用前に{@link #isCompiledFrom(QuizLogicData)}で書式が変わっていないか確認してください。
+ * 確認は参照の比較だけで行われます。
+ *
+ * @author Getaji
+ */
+public final class QuizTemplates {
+
+    /**
+     * データの書式をコンパイルして返します。
+     *
+     * @param data データ
+     * @return コンパイルされた書式
+     */
+    public static QuizTemplates compile(QuizLogicData data) {
+        return new QuizTemplates(
+                NumberTemplate.compile(data.getQuestionNumberText()),
+                NumberTemplate.compile(data.getQuestionChoiceNumberText()));
+    }
+
+    /**
+     * 渡された書式がデータに対して有効であればそのまま、そうでなければコンパイルし直して返します。
+     *
+     * @param templates コンパイル済みの書式。nullの場合は新たにコンパイルする
+     * @param data データ
+     * @return データに対して有効な書式
+     */
+    public static QuizTemplates refresh(QuizTemplates templates, QuizLogicData data) {
+        if (templates != null && templates.isCompiledFrom(data)) {
+            return templates;
+        }
+        return compile(data);
+    }
+
+    private final NumberTemplate statementNumber;
+    private final NumberTemplate choiceNumber;
+
+    private QuizTemplates(NumberTemplate statementNumber, NumberTemplate choiceNumber) {
+        this.statementNumber = statementNumber;
+        this.choiceNumber = choiceNumber;
+    }
+
+    /**
+     * この書式がデータの現在の書式からコンパイルされたものかどうかを返します。
+     *
+     * @param data データ
+     * @return 現在の書式からコンパイルされていればtrue
+     */
+    public boolean isCompiledFrom(QuizLogicData data) {
+        // 書式の文字列は不変なので参照が同じなら内容も同じ
+        return statementNumber.getSource() == data.getQuestionNumberText()
+                && choiceNumber.getSource() == data.getQuestionChoiceNumberText();
+    }
+
+    /**
+     * 問題番号の書式を返します。
+     *
+     * @return 問題番号の書式
+     */
+    public NumberTemplate getStatementNumber() {
+        return statementNumber;
+    }
+
+    /**
+     * 選択肢番号の書式を返します。
+     *
+     * @return 選択肢番号の書式
+     */
+    public NumberTemplate getChoiceNumber() {
+        return choiceNumber;
+    }
+}
@@ -0,0 +1,111 @@
+package mw.ninequiz.src;
+
+/**
+ * {@link BroadcastQuiz}の1ラウンドの結果を表すクラスです。このクラスは不変です。
+ *
+ * @author Getaji
+ */
+public final class RoundResult {
+
+    private final int round;
+    private final Question question;
+    private final int answerCount;
+    private final int correctCount;
+    private final int[] choiceCounts;
+    private final long judgeNanos;
+    private final BroadcastLeaderboard leaderboard;
+
+    RoundResult(int round, Question question, int answerCount, int correctCount,
+                int[] choiceCounts, long judgeNanos, BroadcastLeaderboard leaderboard) {
+        this.round = round;
+        this.question = question;
+        this.answerCount = answerCount;
+        this.correctCount = correctCount;
+        this.choiceCounts = choiceCounts;
+        this.judgeNanos = judgeNanos;
+        this.leaderboard = leaderboard;
+    }
+
+    /**
+     * ラウンドのインデックスを返します。
+     *
+     * @return インデックス。0から始まる
+     */
+    public int getRound() {
+        return round;
+    }
+
+    /**
+     * 出題した問題を返します。
+     *
+     * @return 問題
+     */
+    public Question getQuestion() {
+        return question;
+    }
+
+    /**
+     * 締め切りまでに受け付けた解答の数を返します。
+     *
+     * @return 解答数
+     */
+    public int getAnswerCount() {
+        return answerCount;
+    }
+
+    /**
+     * 正解数を返します。
+     *
+     * @return 正解数
+     */
+    public int getCorrectCount() {
+        return correctCount;
+    }
+
+    /**
+     * 正解率を返します。解答がない場合は{@link Double#NaN}を返します。
+     *
+     * @return 正解率
+     */
+    public double getCorrectRate() {
+        return (answerCount == 0) ? Double.NaN : (double) correctCount / answerCount;
+    }
+
+    /**
+     * 選択肢を選んだ参加者の数を返します。
+     *
+     * @param number 選択肢の番号。1から始まる
+     * @throws IndexOutOfBoundsException 番号が範囲外の場合に送出
+     * @return 参加者の数
+     */
+    public int getChoiceCount(int number) {
+        if (number < 1 || choiceCounts.length <= number) {
+            throw new IndexOutOfBoundsException("Choice number is out of bounds: " + number);
+        }
+        return choiceCounts[number];
+    }
+
+    /**
+     * すべての解答の判定にかかった時間をナノ秒で返します。
+     *
+     * @return ナノ秒
+     */
+    public long getJudgeNanos() {
+        return judgeNanos;
+    }
+
+    /**
+     * このラウンドを終えた時点の順位表を返します。
+     *
+     * @return 順位表
+     */
+    public BroadcastLeaderboard getLeaderboard() {
+        return leaderboard;
+    }
+
+    @Override
+    public String toString() {
+        return "RoundResult{round:" + round + " answers:" + answerCount
+                + " correct:" + correctCount + "}";
+    }
+}
@@ -0,0 +1,181 @@
+package mw.ninequiz.src;
+
+/**
+ * 大きな範囲のうち少数の位置だけに印を付けるビット集合です。
+ * {@link AdaptiveDeck}が出題済みの問題を記録するのに使用します。
+ *
+ * <p>範囲は4096ビットのブロックに分けられ、ブロックは初めて印を付けたときに確保されます。
+ * そのため使用するメモリは範囲の大きさの1/512程度と、印を付けたブロックの数に比例する分だけで済みます。
+ * すべて印が付いたブロックは数えておき、印のない位置を探すときは読み飛ばします。
+ *
+ * <p>このクラスはスレッドセーフではありません。
+ *
+ * @author Getaji
+ */
+public final class SeenBitmap {
+
+    private static final int BLOCK_SHIFT = 12;
+    private static final int BLOCK_BITS = 1 << BLOCK_SHIFT;
+    private static final int BLOCK_WORDS = BLOCK_BITS >>> 6;
+
+    private final int size;
+    private final long[][] blocks;
+    private final short[] blockCounts;
+    private int cardinality;
+
+    /**
+     * 大きさを指定してインスタンスを生成します。
+     *
+     * @param size 範囲の大きさ
+     * @throws IllegalArgumentException 大きさが負の場合に送出
+     */
+    public SeenBitmap(int size) {
+        if (size < 0) {
+            throw new IllegalArgumentException("take size is negative");
+        }
+
+        final int blockCount = (int) (((long) size + BLOCK_BITS - 1) >>> BLOCK_SHIFT);
+        this.size = size;
+        this.blocks = new long[blockCount][];
+        this.blockCounts = new short[blockCount];
+    }
+
+    /**
+     * 位置に印を付けます。
+     *
+     * @param index 位置
+     * @throws IndexOutOfBoundsException 位置が範囲外の場合に送出
+     * @return 新たに印を付けた場合はtrue
+     */
+    public boolean set(int index) {
+        checkIndex(index);
+        final int block = index >>> BLOCK_SHIFT;
+        long[] words = blocks[block];
+        if (words == null) {
+            words = new long[BLOCK_WORDS];
+            blocks[block] = words;
+        }
+
+        final int word = (index >>> 6) & (BLOCK_WORDS - 1);
+        final long mask = 1L << index;
+        if ((words[word] & mask) != 0) {
+            return false;
+        }
+        words[word] |= mask;
+        ++blockCounts[block];
+        ++cardinality;
+        return true;
+    }
+
+    /**
+     * 位置に印が付いているかどうかを返します。
+     *
+     * @param index 位置
+     * @throws IndexOutOfBoundsException 位置が範囲外の場合に送出
+     * @return 印が付いていればtrue
+     */
+    public boolean get(int index) {
+        checkIndex(index);
+        final long[] words = blocks[index >>> BLOCK_SHIFT];
+        return words != null && (words[(index >>> 6) & (BLOCK_WORDS - 1)] & (1L << index)) != 0;
+    }
+
+    /**
+     * 指定した位置以降で最初の印のない位置を返します。
+     *
+     * @param from 探し始める位置。この位置を含む
+     * @param to 探し終える位置。この位置を含まない
+     * @return 印のない位置。見つからない場合は-1
+     */
+    public int nextClear(int from, int to) {
+        final int end = Math.min(to, size);
+        int index = Math.max(from, 0);
+        while (index < end) {
+            final int block = index >>> BLOCK_SHIFT;
+            final long[] words = blocks[block];
+            if (words == null) {
+                return index;
+            }
+
+            final int blockEnd = (block + 1) << BLOCK_SHIFT;
+            if (blockCounts[block] != (short) BLOCK_BITS) {
+                int word = (index >>> 6) & (BLOCK_WORDS - 1);
+                long clear = ~words[word] & (-1L << index);
+                while (true) {
+                    if (clear != 0) {
+                        final int found = (block << BLOCK_SHIFT) + (word << 6)
+                                + Long.numberOfTrailingZeros(clear);
+                        return (found < end) ? found : -1;
+                    }
+                    if (++word == BLOCK_WORDS) {
+                        break;
+                    }
+                    clear = ~words[word];
+                }
+            }
+            index = blockEnd;
+        }
+        return -1;
+    }
+
+    /**
+     * 指定した位置以前で最後の印のない位置を返します。
+     *
+     * @param from 探し始める位置。この位置を含む
+     * @param to 探し終える位置。この位置を含む
+     * @return 印のない位置。見つからない場合は-1
+     */
+    public int previousClear(int from, int to) {
+        final int end = Math.max(to, 0);
+        int index = Math.min(from, size - 1);
+        while (index >= end) {
+            final int block = index >>> BLOCK_SHIFT;
+            final long[] words = blocks[block];
+            if (words == null) {
+                return index;
+            }
+
+            if (blockCounts[block] != (short) BLOCK_BITS) {
+                int word = (index >>> 6) & (BLOCK_WORDS - 1);
+                long clear = ~words[word] & (-1L >>> (63 - (index & 63)));
+                while (true) {
+                    if (clear != 0) {
+                        final int found = (block << BLOCK_SHIFT) + (word << 6)
+                                + 63 - Long.numberOfLeadingZeros(clear);
+                        return (found >= end) ? found : -1;
+                    }
+                    if (--word < 0) {
+                        break;
+                    }
+                    clear = ~words[word];
+                }
+            }
+            index = (block << BLOCK_SHIFT) - 1;
+        }
+        return -1;
+    }
+
+    /**
+     * 印の付いた位置の数を返します。
+     *
+     * @return 印の数
+     */
+    public int cardinality() {
+        return cardinality;
+    }
+
+    /**
+     * 範囲の大きさを返します。
+     *
+     * @return 大きさ
+     */
+    public int size() {
+        return size;
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || size <= index) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+    }
+}
@@ -0,0 +1,602 @@
+package mw.ninequiz.src;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+
+/**
+ * {@link QuizEngine}のセッションをディスクに記録し、VMが落ちても復元できるようにするクラスです。
+ *
+ * <p>セッションの開始と終了、解答は追記専用の記録ファイルに固定長のレコードとして書き込まれます。
+ * 書き込みは専用のスレッドがまとめて行い、ディスクへの同期は{@link FsyncPolicy}に従います。
+ * {@link #checkpoint()}は新しい記録ファイルに切り替えてから全セッションのスナップショットを書き、
+ * 不要になった古いファイルを削除します。
+ *
+ * <p>{@link #open(Path, QuizEngine, FsyncPolicy)}は最新のスナップショットを読み込み、
+ * それ以降の記録を再生してセッションをエンジンに復元してから記録を開始します。
+ * 解答のレコードは問題のインデックスを持つため、スナップショットと重複した記録は無視されます。
+ * 解答とともに判定結果も記録され、復元時は判定し直さずに記録した判定結果を用います。
+ *
+ * <p>記録されるのはエンジンが共有する問題のリストと既定のプロファイルで出題するセッションのみです。
+ * 記録中のエンジンは{@link QuestionDeck}などの独自の出題順やプロファイルを持つセッションを開始できず、
+ * {@link IllegalStateException}を送出します。
+ * エンジンに属さない{@link QuizLogic}のセッションは記録されません。
+ *
+ * @author Getaji
+ */
+public class SessionJournal implements AnswerListener, Closeable {
+
+    /** {@link FsyncPolicy#INTERVAL}の既定の同期間隔のミリ秒。 */
+    public static final long DEFAULT_SYNC_INTERVAL_MILLIS = 100;
+
+    private static final String LOG_PREFIX = "answers-";
+    private static final String LOG_SUFFIX = ".log";
+    private static final String SNAPSHOT_PREFIX = "snapshot-";
+    private static final String SNAPSHOT_SUFFIX = ".bin";
+    private static final int SNAPSHOT_BUFFER_CAPACITY = 1 << 20;
+
+    /**
+     * 記録を復元して記録を開始します。同期間隔は{@value #DEFAULT_SYNC_INTERVAL_MILLIS}ミリ秒です。
+     *
+     * @param directory 記録を置くディレクトリ。存在しない場合は作成される
+     * @param engine 記録するエンジン。セッションを開始する前である必要がある
+     * @param policy 同期の方針
+     * @throws IOException 記録の読み書きに失敗した場合に送出
+     * @return インスタンス
+     */
+    public static SessionJournal open(Path directory, QuizEngine engine,
+                                      FsyncPolicy policy) throws IOException {
+        return open(directory, engine, policy, DEFAULT_SYNC_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 記録を復元して記録を開始します。
+     *
+     * @param directory 記録を置くディレクトリ。存在しない場合は作成される
+     * @param engine 記録するエンジン。セッションを開始する前である必要がある
+     * @param policy 同期の方針
+     * @param syncInterval {@link FsyncPolicy#INTERVAL}の場合の同期の間隔
+     * @param unit 間隔の単位
+     * @throws NullPointerException パラメータがnullの場合に送出
+     * @throws IllegalStateException エンジンにセッションがあるか、すでに記録されている場合に送出
+     * @throws IOException 記録の読み書きに失敗した場合に送出
+     * @return インスタンス
+     */
+    public static SessionJournal open(Path directory, QuizEngine engine, FsyncPolicy policy,
+                                      long syncInterval, TimeUnit unit) throws IOException {
+        if (directory == null || engine == null || policy == null || unit == null) {
+            throw new NullPointerException("take parameter is null");
+        }
+
+        if (engine.getSessionCount() > 0) {
+            throw new IllegalStateException("Engine already has sessions");
+        }
+
+        Files.createDirectories(directory);
+        final SessionJournal journal = new SessionJournal(directory, engine);
+        final long seq = journal.recover();
+        journal.writeSnapshot(seq);
+        journal.writer = new AnswerLogWriter(journal.createSegment(seq), policy, syncInterval, unit);
+        journal.segmentSeq = seq;
+        journal.deleteBefore(seq);
+        engine.attachJournal(journal);
+        return journal;
+    }
+
+    /**
+     * 復元中の1セッション分の解答です。
+     */
+    private static final class RecoveredSession {
+        private static final RecoveredSession CLOSED = new RecoveredSession();
+
+        private int[] answers;
+        private JudgeType[] judges;
+        private int count;
+
+        private RecoveredSession() {
+            this(8);
+        }
+
+        private RecoveredSession(int capacity) {
+            answers = new int[capacity];
+            judges = new JudgeType[capacity];
+        }
+
+        private void add(int questionIndex, int answer, JudgeType judge) {
+            // スナップショットと重複した解答や、抜けのある解答は無視する
+            if (this == CLOSED || questionIndex != count) {
+                return;
+            }
+
+            if (count == answers.length) {
+                answers = Arrays.copyOf(answers, count * 2);
+                judges = Arrays.copyOf(judges, count * 2);
+            }
+            answers[count] = answer;
+            judges[count++] = judge;
+        }
+    }
+
+    private final Path directory;
+    private final QuizEngine engine;
+    private final Object checkpointLock = new Object();
+    private AnswerLogWriter writer;
+    private long segmentSeq;
+    private JournalRecovery recovery;
+
+    private SessionJournal(Path directory, QuizEngine engine) {
+        this.directory = directory;
+        this.engine = engine;
+    }
+
+    @Override
+    public void onAnswer(QuizSession session, int questionIndex, Question question,
+                         int userAnswer, JudgeType judge, long thinkNanos) {
+        if (!canRecord(session.getQuestions(), session.getProfile())) {
+            return;
+        }
+        writer.append(JournalFormat.TYPE_ANSWER, session.getId(), questionIndex, userAnswer,
+                (byte) judge.ordinal());
+    }
+
+    /**
+     * セッションを記録できるかどうかを返します。
+     * エンジンが共有する問題のリストと既定のプロファイルで出題するセッションのみ記録できます。
+     *
+     * @param deck セッションで出題する問題のリスト
+     * @param profile セッションのプロファイル
+     * @return 記録できる場合はtrue
+     */
+    boolean canRecord(List<Question> deck, QuizProfile profile) {
+        return deck == engine.getQuestions() && profile == null;
+    }
+
+    /**
+     * セッションの開始を記録します。
+     *
+     * @param session セッション
+     */
+    void sessionOpened(QuizSession session) {
+        writer.append(JournalFormat.TYPE_OPEN, session.getId(), 0, 0, (byte) 0);
+    }
+
+    /**
+     * 他のエンジンから引き継いだセッションの開始と、それまでの解答を記録します。
+     *
+     * @param session セッション
+     */
+    void sessionAdopted(QuizSession session) {
+        writer.append(JournalFormat.TYPE_OPEN, session.getId(), 0, 0, (byte) 0);
+        final JudgeRecord record = session.getRecord();
+        for (int i = 0; i < record.size(); ++i) {
+            writer.append(JournalFormat.TYPE_ANSWER, session.getId(), i, record.getAnswer(i),
+                    (byte) record.get(i).ordinal());
+        }
+    }
+
+    /**
+     * セッションの終了を記録します。
+     *
+     * @param session セッション
+     */
+    void sessionClosed(QuizSession session) {
+        writer.append(JournalFormat.TYPE_CLOSE, session.getId(), 0, 0, (byte) 0);
+    }
+
+    /**
+     * 新しい記録ファイルに切り替え、全セッションのスナップショットを書き込みます。
+     * スナップショットの書き込み後、不要になった古いファイルは削除されます。
+     * この間もセッションの進行は止まりません。
+     *
+     * @throws IOException 書き込みに失敗した場合に送出
+     */
+    public void checkpoint() throws IOException {
+        synchronized (checkpointLock) {
+            final long seq = segmentSeq + 1;
+            final FileChannel next = createSegment(seq);
+            try {
+                writer.rotate(next).join();
+            } catch (CompletionException e) {
+                if (e.getCause() instanceof IOException) {
+                    throw (IOException) e.getCause();
+                }
+                throw e;
+            }
+            segmentSeq = seq;
+
+            writeSnapshot(seq);
+            deleteBefore(seq);
+        }
+    }
+
+    /**
+     * 一定間隔で{@link #checkpoint()}を行います。
+     * 失敗した場合、以降のチェックポイントは行われず、
+     * 返されたFutureは{@link UncheckedIOException}で完了します。
+     *
+     * @param scheduler スケジューラ
+     * @param period 間隔
+     * @param unit 間隔の単位
+     * @return 定期実行のFuture
+     */
+    public ScheduledFuture<?> scheduleCheckpoints(ScheduledExecutorService scheduler,
+                                                  long period, TimeUnit unit) {
+        return scheduler.scheduleWithFixedDelay(() -> {
+            try {
+                checkpoint();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, period, period, unit);
+    }
+
+    /**
+     * 残りの記録を書き込んで同期し、記録を終了します。
+     * 以降のセッションの変化は記録されません。
+     *
+     * @throws IOException 書き込みに失敗していた場合に送出
+     */
+    @Override
+    public void close() throws IOException {
+        synchronized (checkpointLock) {
+            writer.close();
+        }
+    }
+
+    /**
+     * 開始時の復元の結果を返します。
+     *
+     * @return 復元の結果
+     */
+    public JournalRecovery getRecovery() {
+        return recovery;
+    }
+
+    /**
+     * 現在の記録ファイルの通し番号を返します。
+     *
+     * @return 通し番号
+     */
+    public long getSegmentSeq() {
+        synchronized (checkpointLock) {
+            return segmentSeq;
+        }
+    }
+
+    // ================================================================
+    // 復元
+    // ================================================================
+
+    /**
+     * スナップショットと記録ファイルからセッションをエンジンに復元します。
+     *
+     * @return 次に使う通し番号
+     */
+    private long recover() throws IOException {
+        final long start = System.nanoTime();
+        final List<Long> logSeqs = listSeqs(LOG_PREFIX, LOG_SUFFIX);
+        final List<Long> snapshotSeqs = listSeqs(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+
+        final Map<Long, RecoveredSession> states = new HashMap<>();
+        final long[] lastSessionId = new long[1];
+        long snapshotSeq = -1;
+        for (int i = snapshotSeqs.size() - 1; i >= 0 && snapshotSeq < 0; --i) {
+            // 壊れたスナップショットは無視して1つ前のものを使う
+            if (readSnapshot(snapshotSeqs.get(i), states, lastSessionId)) {
+                snapshotSeq = snapshotSeqs.get(i);
+            } else {
+                states.clear();
+            }
+        }
+        final int snapshotSessions = states.size();
+
+        long replayed = 0;
+        long discarded = 0;
+        long maxSeq = Math.max(0, snapshotSeq);
+        for (long seq : logSeqs) {
+            maxSeq = Math.max(maxSeq, seq);
+            if (seq < snapshotSeq) {
+                continue;
+            }
+            final long[] counts = replaySegment(seq, states);
+            replayed += counts[0];
+            discarded += counts[1];
+        }
+
+        engine.reserveSessionId(lastSessionId[0]);
+        int restored = 0;
+        for (Map.Entry<Long, RecoveredSession> entry : states.entrySet()) {
+            engine.reserveSessionId(entry.getKey());
+            final RecoveredSession state = entry.getValue();
+            if (state != RecoveredSession.CLOSED) {
+                engine.restoreSession(entry.getKey(), state.answers, state.judges, state.count);
+                ++restored;
+            }
+        }
+
+        recovery = new JournalRecovery(snapshotSessions, replayed, discarded, restored,
+                System.nanoTime() - start);
+        return maxSeq + 1;
+    }
+
+    private boolean readSnapshot(long seq, Map<Long, RecoveredSession> states,
+                                 long[] lastSessionId) throws IOException {
+        final Path path = directory.resolve(JournalFormat.snapshotFileName(seq));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < JournalFormat.HEADER_SIZE + JournalFormat.TRAILER_SIZE
+                    || size > Integer.MAX_VALUE) {
+                return false;
+            }
+
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            final int trailer = (int) size - JournalFormat.TRAILER_SIZE;
+            final CRC32 crc = new CRC32();
+            final ByteBuffer content = buffer.duplicate();
+            content.limit(trailer + 12);
+            crc.update(content);
+            if ((int) crc.getValue() != buffer.getInt(trailer + 12)
+                    || buffer.getInt(0) != JournalFormat.SNAPSHOT_MAGIC
+                    || buffer.getInt(4) != JournalFormat.VERSION) {
+                return false;
+            }
+
+            lastSessionId[0] = buffer.getLong(trailer);
+            final int sessionCount = buffer.getInt(trailer + 8);
+            buffer.position(JournalFormat.HEADER_SIZE);
+            for (int i = 0; i < sessionCount; ++i) {
+                final long sessionId = buffer.getLong();
+                final int count = buffer.getInt();
+                if (count < 0 || buffer.remaining() / (Integer.BYTES + 1) < count) {
+                    return false;
+                }
+
+                final RecoveredSession state = new RecoveredSession(Math.max(8, count));
+                for (int j = 0; j < count; ++j) {
+                    final int answer = buffer.getInt();
+                    final JudgeType judge = toJudge(buffer.get());
+                    if (judge == null) {
+                        return false;
+                    }
+                    state.add(j, answer, judge);
+                }
+                states.put(sessionId, state);
+            }
+            return buffer.position() == trailer;
+        }
+    }
+
+    /**
+     * 記録ファイルを再生します。
+     *
+     * @return 再生したレコードの数と、捨てたバイト数
+     */
+    private long[] replaySegment(long seq, Map<Long, RecoveredSession> states) throws IOException {
+        final Path path = directory.resolve(JournalFormat.logFileName(seq));
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            final long size = channel.size();
+            if (size < JournalFormat.HEADER_SIZE) {
+                return new long[] {0, size};
+            }
+
+            long replayed = 0;
+            long position = JournalFormat.HEADER_SIZE;
+            while (position < size) {
+                final long length = Math.min(Integer.MAX_VALUE / JournalFormat.RECORD_SIZE
+                        * JournalFormat.RECORD_SIZE, size - position);
+                final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+                        position, length);
+                while (buffer.remaining() >= JournalFormat.RECORD_SIZE) {
+                    final long sessionId = buffer.getLong();
+                    final int questionIndex = buffer.getInt();
+                    final int answer = buffer.getInt();
+                    final byte type = buffer.get();
+                    final byte judge = buffer.get();
+                    buffer.getShort();
+                    final int check = buffer.getInt();
+                    if (check != JournalFormat.check(sessionId, questionIndex, answer, type, judge)) {
+                        // 途中で途切れたレコード。以降は信用しない
+                        return new long[] {replayed, size - position - buffer.position()
+                                + JournalFormat.RECORD_SIZE};
+                    }
+
+                    apply(states, type, sessionId, questionIndex, answer, judge);
+                    ++replayed;
+                }
+                if (buffer.hasRemaining()) {
+                    return new long[] {replayed, size - position - buffer.position()};
+                }
+                position += length;
+            }
+            return new long[] {replayed, 0};
+        }
+    }
+
+    private static void apply(Map<Long, RecoveredSession> states, byte type, long sessionId,
+                              int questionIndex, int answer, byte judge) {
+        switch (type) {
+            case JournalFormat.TYPE_OPEN:
+                states.putIfAbsent(sessionId, new RecoveredSession());
+                break;
+            case JournalFormat.TYPE_ANSWER:
+                final JudgeType judgeType = toJudge(judge);
+                if (judgeType != null) {
+                    states.computeIfAbsent(sessionId, id -> new RecoveredSession())
+                            .add(questionIndex, answer, judgeType);
+                }
+                break;
+            case JournalFormat.TYPE_CLOSE:
+                // 終了後に届いた解答で作り直されないよう印を残す
+                states.put(sessionId, RecoveredSession.CLOSED);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static JudgeType toJudge(int ordinal) {
+        final JudgeType[] values = JudgeType.values();
+        return (0 <= ordinal && ordinal < values.length) ? values[ordinal] : null;
+    }
+
+    // ================================================================
+    // ファイル
+    // ================================================================
+
+    private FileChannel createSegment(long seq) throws IOException {
+        final Path path = directory.resolve(JournalFormat.logFileName(seq));
+        final FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        final ByteBuffer header = ByteBuffer.allocate(JournalFormat.HEADER_SIZE);
+        header.putInt(JournalFormat.LOG_MAGIC).putInt(JournalFormat.VERSION).putLong(seq).flip();
+        try {
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            channel.force(true);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        syncDirectory();
+        return channel;
+    }
+
+    /**
+     * 記録しているすべてのセッションのスナップショットを書き込みます。
+     * 一時ファイルに書き込んで同期してから名前を変えるため、途中で落ちても古いスナップショットは残ります。
+     */
+    private void writeSnapshot(long seq) throws IOException {
+        final Path path = directory.resolve(JournalFormat.snapshotFileName(seq));
+        final Path temp = directory.resolve(JournalFormat.snapshotFileName(seq) + ".tmp");
+        final CRC32 crc = new CRC32();
+        final ByteBuffer buffer = ByteBuffer.allocateDirect(SNAPSHOT_BUFFER_CAPACITY);
+        int sessionCount = 0;
+        // 走査中に開始されたセッションのIDは次の記録ファイルに残る
+        final long lastSessionId = engine.getLastSessionId();
+
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            buffer.putInt(JournalFormat.SNAPSHOT_MAGIC).putInt(JournalFormat.VERSION).putLong(seq);
+
+            int[] answers = new int[0];
+            byte[] judges = new byte[0];
+            for (QuizSession session : engine.getSessions()) {
+                if (!canRecord(session.getQuestions(), session.getProfile())) {
+                    continue;
+                }
+
+                final int count;
+                synchronized (session) {
+                    count = session.getCurrentIndex();
+                    if (answers.length < count) {
+                        answers = new int[count];
+                        judges = new byte[count];
+                    }
+                    final JudgeRecord record = session.getRecord();
+                    for (int i = 0; i < count; ++i) {
+                        answers[i] = record.getAnswer(i);
+                        judges[i] = (byte) record.get(i).ordinal();
+                    }
+                }
+
+                ensureSnapshotSpace(channel, buffer, crc, 12);
+                buffer.putLong(session.getId()).putInt(count);
+                for (int i = 0; i < count; ++i) {
+                    ensureSnapshotSpace(channel, buffer, crc, Integer.BYTES + 1);
+                    buffer.putInt(answers[i]).put(judges[i]);
+                }
+                ++sessionCount;
+            }
+
+            ensureSnapshotSpace(channel, buffer, crc, 12);
+            buffer.putLong(lastSessionId).putInt(sessionCount);
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            writeFully(channel, buffer);
+
+            final ByteBuffer checksum = ByteBuffer.allocate(4);
+            checksum.putInt((int) crc.getValue()).flip();
+            writeFully(channel, checksum);
+            channel.force(true);
+        }
+
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory();
+    }
+
+    private static void ensureSnapshotSpace(FileChannel channel, ByteBuffer buffer, CRC32 crc,
+                                            int length) throws IOException {
+        if (buffer.remaining() < length) {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            writeFully(channel, buffer);
+            buffer.clear();
+        }
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * 通し番号が指定した番号より小さいファイルを削除します。
+     */
+    private void deleteBefore(long seq) throws IOException {
+        for (long old : listSeqs(LOG_PREFIX, LOG_SUFFIX)) {
+            if (old < seq) {
+                Files.deleteIfExists(directory.resolve(JournalFormat.logFileName(old)));
+            }
+        }
+        for (long old : listSeqs(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+            if (old < seq) {
+                Files.deleteIfExists(directory.resolve(JournalFormat.snapshotFileName(old)));
+            }
+        }
+    }
+
+    private List<Long> listSeqs(String prefix, String suffix) throws IOException {
+        final List<Long> seqs = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+            for (Path path : stream) {
+                final long seq = JournalFormat.parseSeq(path.getFileName().toString(),
+                        prefix, suffix);
+                if (seq >= 0) {
+                    seqs.add(seq);
+                }
+            }
+        }
+        Collections.sort(seqs);
+        return seqs;
+    }
+
+    private void syncDirectory() {
+        // ディレクトリの同期はOSによっては行えないため、失敗しても続ける
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+            // 同期できないOSでは名前の変更の永続性はOSに任せる
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package mw.ninequiz.src;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * バイトストリームから1行に1つの解答を読み取る入力元です。
+ * 読み取りは専用のデーモンスレッドで行われるため、{@link #requestAnswer(QuizSession, Question)}はブロックしません。
+ * 各行は{@link AsciiIntParser}で読み取られ、空行は無視されます。
+ *
+ * <p>ストリームは解答を待っている間だけ1バイトずつ読まれ、行末より先は読まれません。
+ * そのため{@link System#in}のように閉じないストリームは、閉じた後に別の入力元や{@link java.util.Scanner}で続けて読めます。
+ * ただし閉じた時点で読み取り中だった行は、この入力元が読み捨てます。
+ *
+ * <p>要求が取り消された場合、読み取り中の行は次の要求に使われます。
+ *
+ * @author Getaji
+ */
+public class StreamAnswerSource implements AnswerSource {
+
+    private static final int LINE_CAPACITY = 256;
+
+    private final InputStream input;
+    private final boolean closeInput;
+    private final Queue<Integer> arrived = new ArrayDeque<>();
+    private CompletableFuture<Integer> waiting;
+    private Thread reader;
+    private boolean ended;
+
+    /**
+     * 入力ストリームを受け取りインスタンスを生成します。
+     *
+     * @param input 入力ストリーム
+     * @param closeInput 閉じるときに入力ストリームも閉じる場合はtrue。標準入力ではfalseにする
+     * @throws NullPointerException 入力ストリームがnullの場合に送出
+     */
+    public StreamAnswerSource(InputStream input, boolean closeInput) {
+        if (input == null) {
+            throw new NullPointerException("take input is null");
+        }
+
+        // 閉じるストリームは他から読まれないため、先読みしても構わない
+        this.input = closeInput ? new BufferedInputStream(input) : input;
+        this.closeInput = closeInput;
+    }
+
+    @Override
+    public synchronized CompletableFuture<Integer> requestAnswer(QuizSession session,
+                                                                 Question question) {
+        if (reader == null) {
+            reader = new Thread(this::readLoop, "answer-reader");
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        final CompletableFuture<Integer> future = new CompletableFuture<>();
+        final Integer answer = arrived.poll();
+        if (answer != null) {
+            future.complete(answer);
+        } else if (ended) {
+            future.completeExceptionally(new EOFException("Answer input is ended"));
+        } else {
+            waiting = future;
+            notifyAll();
+        }
+        return future;
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            ended = true;
+            notifyAll();
+        }
+
+        if (closeInput) {
+            try {
+                input.close();
+            } catch (IOException ignored) {
+                // 閉じる際の失敗は解答に影響しない
+            }
+        }
+    }
+
+    private void readLoop() {
+        final ByteBuffer line = ByteBuffer.allocate(LINE_CAPACITY);
+        boolean overflowed = false;
+
+        try {
+            while (awaitRequest()) {
+                final int b = input.read();
+                if (b < 0) {
+                    // 改行のない最終行
+                    if (line.position() > 0 || overflowed) {
+                        deliver(overflowed ? AsciiIntParser.INVALID
+                                : AsciiIntParser.parse(line, 0, line.position()));
+                    }
+                    break;
+                }
+
+                if (b != '\n') {
+                    if (line.hasRemaining()) {
+                        line.put((byte) b);
+                    } else {
+                        overflowed = true;
+                    }
+                    continue;
+                }
+
+                deliver(overflowed ? AsciiIntParser.INVALID
+                        : AsciiIntParser.parse(line, 0, line.position()));
+                line.clear();
+                overflowed = false;
+            }
+        } catch (IOException | InterruptedException e) {
+            // 読み取れなくなった時点で終端とする
+        }
+        end();
+    }
+
+    /**
+     * 解答を待つ要求が来るまで待ちます。
+     *
+     * @return 要求があればtrue、閉じられた場合はfalse
+     */
+    private synchronized boolean awaitRequest() throws InterruptedException {
+        while (!ended && (waiting == null || waiting.isDone())) {
+            wait();
+        }
+        return !ended;
+    }
+
+    private synchronized void deliver(int answer) {
+        if (answer == AsciiIntParser.END) {
+            return;
+        }
+
+        if (waiting != null) {
+            final CompletableFuture<Integer> future = waiting;
+            waiting = null;
+            if (future.complete(answer)) {
+                return;
+            }
+        }
+        arrived.add(answer);
+    }
+
+    private synchronized void end() {
+        ended = true;
+        if (waiting != null) {
+            waiting.completeExceptionally(new EOFException("Answer input is ended"));
+            waiting = null;
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package mw.ninequiz.src;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 問題ごとに制限時間を設ける入力元です。
+ * 制限時間内に解答がなければ{@link AnswerSource#NO_ANSWER}で完了し、元の要求は取り消されます。
+ *
+ * @author Getaji
+ */
+public class TimeoutAnswerSource implements AnswerSource {
+
+    private final AnswerSource source;
+    private final ScheduledExecutorService scheduler;
+    private final long timeoutNanos;
+
+    /**
+     * インスタンスを生成します。
+     *
+     * @param source 元の入力元
+     * @param scheduler 制限時間の計測に用いるスケジューラ
+     * @param timeout 1問あたりの制限時間
+     * @param unit 制限時間の単位
+     * @throws NullPointerException パラメータがnullの場合に送出
+     * @throws IllegalArgumentException 制限時間が正でない場合に送出
+     */
+    public TimeoutAnswerSource(AnswerSource source, ScheduledExecutorService scheduler,
+                               long timeout, TimeUnit unit) {
+        if (source == null || scheduler == null || unit == null) {
+            throw new NullPointerException("take parameter is null");
+        }
+
+        if (timeout <= 0) {
+            throw new IllegalArgumentException("take timeout is not positive");
+        }
+
+        this.source = source;
+        this.scheduler = scheduler;
+        this.timeoutNanos = unit.toNanos(timeout);
+    }
+
+    @Override
+    public CompletableFuture<Integer> requestAnswer(QuizSession session, Question question) {
+        final CompletableFuture<Integer> request = source.requestAnswer(session, question);
+        if (request.isDone()) {
+            return request;
+        }
+
+        final CompletableFuture<Integer> result = new CompletableFuture<>();
+        final ScheduledFuture<?> timer = scheduler.schedule(() -> {
+            if (result.complete(NO_ANSWER)) {
+                request.cancel(false);
+            }
+        }, timeoutNanos, TimeUnit.NANOSECONDS);
+
+        request.whenComplete((answer, error) -> {
+            timer.cancel(false);
+            if (error != null) {
+                result.completeExceptionally(error);
+            } else {
+                result.complete(answer);
+            }
+        });
+        return result;
+    }
+
+    @Override
+    public void close() {
+        source.close();
+    }
+}
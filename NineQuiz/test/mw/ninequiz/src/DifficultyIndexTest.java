@@ -0,0 +1,89 @@
+package mw.ninequiz.src;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link DifficultyIndex}と{@link AdaptiveDeck}のテストです。
+ *
+ * @author Getaji
+ */
+class DifficultyIndexTest {
+
+    private static final Question QUESTION = Question.builder()
+            .setStatement("問題")
+            .addChoiceAll("A", "B", "C")
+            .setAnswerIndex(1)
+            .build();
+
+    @Test
+    void anyTagPicksNearestUnseenAcrossManyTags() {
+        final int size = 20_000;
+        final SplittableRandom random = new SplittableRandom(3);
+        final double[] difficulties = random.doubles(size).toArray();
+        final int[] tagOf = random.ints(size, 0, 500).toArray();
+        final DifficultyIndex index = DifficultyIndex.build(Collections.nCopies(size, QUESTION),
+                i -> difficulties[i], i -> tagOf[i]);
+
+        final SeenBitmap seen = new SeenBitmap(index.size());
+        for (int pick = 0; pick < 2_000; ++pick) {
+            // 同じ付近に集中させて出題済みの問題を読み飛ばさせる
+            final double target = (pick % 10 == 0) ? random.nextDouble() : 0.5;
+            final int position = index.nearest(target, DifficultyIndex.ANY_TAG, seen);
+            assertTrue(position >= 0);
+            assertFalse(seen.get(position));
+
+            final int level = DifficultyIndex.toLevel(target);
+            assertEquals(bruteForceDistance(index, level, seen),
+                    Math.abs(DifficultyIndex.toLevel(index.getDifficulty(position)) - level));
+            seen.set(position);
+        }
+    }
+
+    @Test
+    void anyTagExhaustsAllQuestions() {
+        final DifficultyIndex index = DifficultyIndex.build(Collections.nCopies(50, QUESTION),
+                i -> i / 50.0, i -> i % 7);
+        final SeenBitmap seen = new SeenBitmap(index.size());
+        for (int i = 0; i < 50; ++i) {
+            seen.set(index.nearest(0.9, DifficultyIndex.ANY_TAG, seen));
+        }
+        assertEquals(-1, index.nearest(0.9, DifficultyIndex.ANY_TAG, seen));
+        assertEquals(-1, DifficultyIndex.build(Collections.emptyList(), i -> 0, i -> 0)
+                .nearest(0.5, DifficultyIndex.ANY_TAG, new SeenBitmap(0)));
+    }
+
+    @Test
+    void sessionNotifiesDeckThroughSharedList() {
+        final DifficultyIndex index = DifficultyIndex.build(Collections.nCopies(100, QUESTION),
+                i -> i / 100.0, i -> i % 3);
+        final AdaptiveDeck deck = AdaptiveDeck.of(index, 5);
+        final List<Question> shared = QuizLogicHelper.toSharedList(deck);
+        final QuizSession session = new QuizSession(0, shared);
+
+        final double start = deck.getTargetDifficulty();
+        session.submitAnswer(QUESTION.getAnswerIndex());
+        assertTrue(deck.getTargetDifficulty() > start);
+
+        final double afterCorrect = deck.getTargetDifficulty();
+        session.submitAnswer(QUESTION.getAnswerIndex() + 1);
+        assertTrue(deck.getTargetDifficulty() < afterCorrect);
+    }
+
+    private static int bruteForceDistance(DifficultyIndex index, int level, SeenBitmap seen) {
+        int best = Integer.MAX_VALUE;
+        for (int position = 0; position < index.size(); ++position) {
+            if (!seen.get(position)) {
+                final int distance = Math.abs(
+                        DifficultyIndex.toLevel(index.getDifficulty(position)) - level);
+                best = Math.min(best, distance);
+            }
+        }
+        return best;
+    }
+}
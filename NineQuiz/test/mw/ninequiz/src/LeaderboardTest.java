@@ -0,0 +1,103 @@
+package mw.ninequiz.src;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link Leaderboard}のテストです。
+ *
+ * @author Getaji
+ */
+class LeaderboardTest {
+
+    /**
+     * 比較用に全員を並べ直す順位表です。
+     */
+    private static final class BruteForce {
+        private final Map<Long, long[]> players = new HashMap<>();
+
+        private void add(long playerId, int score, long timeNanos) {
+            final long[] player = players.computeIfAbsent(playerId, id -> new long[2]);
+            player[0] += score;
+            player[1] += Math.max(0, timeNanos);
+        }
+
+        private List<Long> sorted() {
+            final List<Long> ids = new ArrayList<>(players.keySet());
+            ids.sort(Comparator.<Long>comparingLong(id -> -players.get(id)[0])
+                    .thenComparingLong(id -> players.get(id)[1])
+                    .thenComparingLong(id -> id));
+            return ids;
+        }
+    }
+
+    @Test
+    void rankAndTopMatchBruteForce() {
+        final Leaderboard leaderboard = new Leaderboard(8);
+        final BruteForce expected = new BruteForce();
+        final SplittableRandom random = new SplittableRandom(11);
+
+        for (int step = 1; step <= 30_000; ++step) {
+            // 連番に近いIDと負のIDを混ぜ、同点と同時間も多く作る
+            final long playerId = random.nextInt(2_000) - 100;
+            final int operation = random.nextInt(20);
+            if (operation == 0) {
+                assertEquals(expected.players.remove(playerId) != null,
+                        leaderboard.remove(playerId));
+            } else if (operation == 1) {
+                final long[] removed = expected.players.remove(playerId);
+                final LeaderboardEntry taken = leaderboard.take(playerId);
+                if (removed == null) {
+                    assertNull(taken);
+                } else {
+                    assertEquals(removed[0], taken.getScore());
+                    assertEquals(removed[1], taken.getTimeNanos());
+                }
+            } else {
+                final int score = random.nextInt(3);
+                final long timeNanos = random.nextInt(4) - 1;
+                leaderboard.add(playerId, score, timeNanos);
+                expected.add(playerId, score, timeNanos);
+            }
+
+            if (step % 1_000 == 0) {
+                assertMatches(expected, leaderboard);
+            }
+        }
+
+        leaderboard.clear();
+        expected.players.clear();
+        assertMatches(expected, leaderboard);
+        leaderboard.add(5, 1, 0);
+        assertEquals(1, leaderboard.getRank(5));
+    }
+
+    private static void assertMatches(BruteForce expected, Leaderboard leaderboard) {
+        final List<Long> sorted = expected.sorted();
+        assertEquals(sorted.size(), leaderboard.size());
+
+        for (int i = 0; i < sorted.size(); ++i) {
+            final long playerId = sorted.get(i);
+            final LeaderboardEntry entry = leaderboard.getEntry(playerId);
+            assertEquals(i + 1, entry.getRank(), "rank of " + playerId);
+            assertEquals(expected.players.get(playerId)[0], entry.getScore());
+            assertEquals(expected.players.get(playerId)[1], entry.getTimeNanos());
+        }
+        assertEquals(-1, leaderboard.getRank(1_000_000));
+
+        final List<LeaderboardEntry> top = leaderboard.top(50);
+        assertEquals(Math.min(50, sorted.size()), top.size());
+        for (int i = 0; i < top.size(); ++i) {
+            assertEquals((long) sorted.get(i), top.get(i).getPlayerId());
+            assertEquals(i + 1, top.get(i).getRank());
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package mw.ninequiz.src;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link QuestionAnalytics}のテストです。
+ *
+ * @author Getaji
+ */
+class QuestionAnalyticsTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void questionsFromBankShareStatsByIndex() throws IOException {
+        final Path path = directory.resolve("bank.nqb");
+        try (QuestionBankWriter writer = QuestionBankWriter.create(path)) {
+            for (int i = 0; i < 3; ++i) {
+                writer.write(Question.builder()
+                        .setStatement("問題" + i)
+                        .addChoiceAll("A", "B", "C")
+                        .setAnswerIndex(i + 1)
+                        .build());
+            }
+        }
+
+        try (QuestionBank bank = QuestionBank.open(path)) {
+            final QuizEngine engine = QuizEngine.of(bank, new QuizLogicData());
+            final QuestionAnalytics analytics = new QuestionAnalytics();
+            engine.addAnswerListener(analytics);
+
+            for (int s = 0; s < 100; ++s) {
+                final QuizSession session = engine.openSession();
+                engine.judge(session, 1);
+                engine.judge(session, 2);
+            }
+
+            // 選択肢を並べ替えたデッキの解答は元の問題と元の選択肢の番号で集計される
+            final QuestionDeck deck = QuestionDeck.shuffle(bank, 7).withShuffledChoices();
+            final QuizSession shuffled = engine.openSession(deck);
+            final int bankIndex = deck.getBankIndex(0);
+            engine.judge(shuffled, deck.get(0).getAnswerIndex());
+
+            assertEquals(bankIndex == 2 ? 3 : 2, analytics.getQuestionCount());
+            final QuestionStatsSnapshot first = analytics.getStats(0);
+            assertEquals(bankIndex == 0 ? 101 : 100, first.getAnswerCount());
+            assertEquals(bankIndex == 0 ? 101 : 100, first.getCorrectCount());
+
+            final QuestionStatsSnapshot second = analytics.getStats(1);
+            assertEquals(100, second.getChoiceCount(2) - (bankIndex == 1 ? 1 : 0));
+            assertEquals(bankIndex + 1, analytics.getStats(bankIndex).getQuestion().getAnswerIndex());
+            assertNull(analytics.getStats(-1));
+
+            final DifficultyIndex index = DifficultyIndex.build(bank, analytics);
+            for (int position = 0; position < index.size(); ++position) {
+                // 解答のない問題だけが既定の難易度になる
+                final boolean answered = index.getBankIndex(position) != 2 || bankIndex == 2;
+                assertEquals(answered ? 0.0 : DifficultyIndex.DEFAULT_DIFFICULTY,
+                        index.getDifficulty(position), 1e-9);
+            }
+        }
+    }
+
+    @Test
+    void quizLogicWithDeckRecordsBankQuestions() {
+        final List<Question> bank = new ArrayList<>();
+        for (int i = 0; i < 100; ++i) {
+            bank.add(Question.builder()
+                    .setStatement("問題" + i)
+                    .addChoiceAll("A", "B", "C")
+                    .setAnswerIndex(1 + i % 3)
+                    .build());
+        }
+
+        // 常に正解する入力元
+        final AnswerSource correct = new AnswerSource() {
+            @Override
+            public CompletableFuture<Integer> requestAnswer(QuizSession session, Question question) {
+                return CompletableFuture.completedFuture(question.getAnswerIndex());
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        final QuestionAnalytics analytics = new QuestionAnalytics();
+        final int[] expected = new int[bank.size()];
+        for (int seed = 0; seed < 5; ++seed) {
+            final QuestionDeck deck = QuestionDeck.sample(bank, 3, seed);
+            for (int i = 0; i < deck.size(); ++i) {
+                ++expected[deck.getBankIndex(i)];
+            }
+
+            // QuizLogicに渡したデッキも包まれず、問題バンク上のインデックスで集計される
+            final QuizLogic logic = QuizLogic.of(deck, QuizProfile.DEFAULT, correct,
+                    MemoryQuizOutput.discarding());
+            logic.addAnswerListener(analytics);
+            logic.start();
+        }
+
+        for (int i = 0; i < bank.size(); ++i) {
+            final QuestionStatsSnapshot stats = analytics.getStats(i);
+            assertEquals(expected[i], (stats == null) ? 0 : stats.getAnswerCount(), "question " + i);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package mw.ninequiz.src;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link QuestionBankWriter}と{@link QuestionBank}のテストです。
+ *
+ * @author Getaji
+ */
+class QuestionBankTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void roundTripAcrossBufferBoundaries() throws IOException {
+        final Path path = directory.resolve("bank.nqb");
+        final List<Question> questions = new ArrayList<>();
+        for (int i = 0; i < 20000; ++i) {
+            // ときどき書き込みバッファより長い文字列を混ぜる
+            final String statement = i % 997 == 0
+                    ? repeat("長い問題文" + i, 20000)
+                    : "問題" + i;
+            questions.add(Question.builder()
+                    .setStatement(statement)
+                    .addChoiceAll("選択肢A" + i, "選択肢B" + i, "選択肢C" + i)
+                    .setAnswerIndex(i % 3 + 1)
+                    .build());
+        }
+
+        try (QuestionBankWriter writer = QuestionBankWriter.create(path)) {
+            for (Question question : questions) {
+                writer.write(question);
+            }
+        }
+
+        try (QuestionBank bank = QuestionBank.open(path)) {
+            assertEquals(questions.size(), bank.size());
+            for (int i = 0; i < questions.size(); ++i) {
+                final Question expected = questions.get(i);
+                final Question actual = bank.get(i);
+                assertEquals(expected.getQuestionStatement(), actual.getQuestionStatement(), "statement " + i);
+                assertEquals(expected.getChoiceList(), actual.getChoiceList(), "choices " + i);
+                assertEquals(expected.getAnswerIndex(), actual.getAnswerIndex(), "answer " + i);
+                assertEquals(expected.getQuestionStatement(), bank.getStatement(i));
+                assertEquals(expected.getAnswerIndex(), bank.getAnswerIndex(i));
+                assertEquals(3, bank.getChoiceCount(i));
+            }
+        }
+    }
+
+    @Test
+    void brokenStringLengthIsReported() throws IOException {
+        final Path path = directory.resolve("broken.nqb");
+        try (QuestionBankWriter writer = QuestionBankWriter.create(path)) {
+            writer.write(Question.builder()
+                    .setStatement("問題")
+                    .addChoiceAll("A", "B")
+                    .setAnswerIndex(1)
+                    .build());
+        }
+
+        // 問題文の長さを壊す
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            final ByteBuffer length = ByteBuffer.allocate(Integer.BYTES).putInt(Integer.MAX_VALUE);
+            length.flip();
+            channel.write(length, QuestionBankFormat.HEADER_SIZE + Integer.BYTES * 2);
+        }
+
+        try (QuestionBank bank = QuestionBank.open(path)) {
+            final UncheckedIOException e = assertThrows(UncheckedIOException.class, () -> bank.get(0));
+            assertNotNull(e.getCause());
+            assertThrows(UncheckedIOException.class, () -> bank.getStatement(0));
+        }
+    }
+
+    @Test
+    void brokenIndexOffsetIsReported() throws IOException {
+        final Path path = directory.resolve("offset.nqb");
+        final long indexOffset;
+        try (QuestionBankWriter writer = QuestionBankWriter.create(path)) {
+            writer.write(Question.builder()
+                    .setStatement("問題")
+                    .addChoiceAll("A", "B")
+                    .setAnswerIndex(2)
+                    .build());
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            final ByteBuffer header = ByteBuffer.allocate(Long.BYTES);
+            channel.read(header, QuestionBankFormat.INDEX_OFFSET_POSITION);
+            header.flip();
+            indexOffset = header.getLong();
+
+            final ByteBuffer offset = ByteBuffer.allocate(Long.BYTES).putLong(1L << 40);
+            offset.flip();
+            channel.write(offset, indexOffset);
+        }
+
+        try (QuestionBank bank = QuestionBank.open(path)) {
+            assertThrows(UncheckedIOException.class, () -> bank.get(0));
+            assertThrows(UncheckedIOException.class, () -> bank.getAnswerIndex(0));
+            assertThrows(IndexOutOfBoundsException.class, () -> bank.get(1));
+        }
+    }
+
+    private static String repeat(String value, int length) {
+        final StringBuilder builder = new StringBuilder(length + value.length());
+        while (builder.length() < length) {
+            builder.append(value);
+        }
+        return builder.toString();
+    }
+
+    @Test
+    void brokenCountsAndChoicesAreReported() throws IOException {
+        // レコードは正解のインデックス、選択肢の数、問題文、選択肢"A"、"B"の順に並ぶ
+        final int record = QuestionBankFormat.HEADER_SIZE;
+        final int secondChoice = record + Integer.BYTES * 3 + "問題".getBytes(StandardCharsets.UTF_8).length
+                + Integer.BYTES + 1 + Integer.BYTES;
+        final ByteBuffer[] patches = {
+                ByteBuffer.allocate(Integer.BYTES).putInt(0, 3),
+                ByteBuffer.allocate(Integer.BYTES).putInt(0, -1),
+                ByteBuffer.allocate(Integer.BYTES).putInt(0, 0),
+                ByteBuffer.wrap(new byte[] {'A'}),
+        };
+        final int[] positions = {record, record, record + Integer.BYTES, secondChoice};
+
+        for (int i = 0; i < patches.length; ++i) {
+            final Path path = directory.resolve("counts" + i + ".nqb");
+            writeSample(path);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                channel.write(patches[i], positions[i]);
+            }
+
+            try (QuestionBank bank = QuestionBank.open(path)) {
+                final UncheckedIOException e = assertThrows(UncheckedIOException.class,
+                        () -> bank.get(0), "patch " + i);
+                assertInstanceOf(IOException.class, e.getCause());
+                if (i < 3) {
+                    assertThrows(UncheckedIOException.class, () -> bank.getAnswerIndex(0));
+                    assertThrows(UncheckedIOException.class, () -> bank.getChoiceCount(0));
+                }
+            }
+        }
+    }
+
+    @Test
+    void indexOffsetInsideHeaderIsRejected() throws IOException {
+        for (long indexOffset : new long[] {-8, 0, QuestionBankFormat.HEADER_SIZE - 1}) {
+            final Path path = directory.resolve("header" + (indexOffset + 8) + ".nqb");
+            writeSample(path);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                final ByteBuffer offset = ByteBuffer.allocate(Long.BYTES).putLong(0, indexOffset);
+                channel.write(offset, QuestionBankFormat.INDEX_OFFSET_POSITION);
+            }
+            assertThrows(IOException.class, () -> QuestionBank.open(path));
+        }
+    }
+
+    private static void writeSample(Path path) throws IOException {
+        try (QuestionBankWriter writer = QuestionBankWriter.create(path)) {
+            writer.write(Question.builder()
+                    .setStatement("問題")
+                    .addChoiceAll("A", "B")
+                    .setAnswerIndex(2)
+                    .build());
+        }
+    }
+}
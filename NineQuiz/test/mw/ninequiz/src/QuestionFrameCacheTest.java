@@ -0,0 +1,110 @@
+package mw.ninequiz.src;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link QuestionFrameCache}のテストです。
+ *
+ * @author Getaji
+ */
+class QuestionFrameCacheTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void framesFromBankAreShared() throws IOException {
+        final Path path = directory.resolve("bank.nqb");
+        try (QuestionBankWriter writer = QuestionBankWriter.create(path)) {
+            for (int i = 0; i < 4; ++i) {
+                writer.write(Question.builder()
+                        .setStatement("問題" + i)
+                        .addChoiceAll("A", "B")
+                        .setAnswerIndex(1)
+                        .build());
+            }
+        }
+
+        try (QuestionBank bank = QuestionBank.open(path)) {
+            final QuizEngine engine = QuizEngine.of(bank, new QuizLogicData());
+            final QuestionFrame first = engine.getCurrentFrame(engine.openSession());
+            final QuestionFrame second = engine.getCurrentFrame(engine.openSession());
+            assertSame(first, second);
+            assertEquals(1, engine.getFrameCache().size());
+
+            // 同じ問題を同じ位置で出題するデッキは同じフレームを使う
+            final QuestionDeck deck = QuestionDeck.sample(bank, 4, 3);
+            final QuizSession session = engine.openSession(deck);
+            assertSame(engine.getCurrentFrame(session), engine.getCurrentFrame(session));
+            assertTrue(engine.getCurrentFrame(session).getText().contains(deck.get(0).getQuestionStatement()));
+
+            final QuestionFrame shuffled = engine.getCurrentFrame(engine.openSession(deck.withShuffledChoices()));
+            assertFalse(shuffled.asByteBuffer().isDirect());
+            assertEquals(shuffled.length(), shuffled.asByteBuffer().remaining());
+        }
+    }
+
+    /**
+     * 問題を取り出した回数を数えるリストです。
+     */
+    private static final class CountingList extends AbstractList<Question> implements RandomAccess {
+        private int gets;
+
+        @Override
+        public Question get(int index) {
+            ++gets;
+            return Question.builder()
+                    .setStatement("問題" + index)
+                    .addChoiceAll("A", "B")
+                    .setAnswerIndex(1)
+                    .build();
+        }
+
+        @Override
+        public int size() {
+            return 3;
+        }
+    }
+
+    @Test
+    void quizLogicSharesFramesAcrossInstances() {
+        final CountingList questions = new CountingList();
+        final QuizProfile profile = QuizProfile.builder()
+                .startMessage("framesAreShared")
+                .build();
+        final AnswerSource firstChoice = new AnswerSource() {
+            @Override
+            public CompletableFuture<Integer> requestAnswer(QuizSession session, Question question) {
+                return CompletableFuture.completedFuture(1);
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        final MemoryQuizOutput[] outputs = {new MemoryQuizOutput(), new MemoryQuizOutput()};
+        for (MemoryQuizOutput output : outputs) {
+            QuizLogic.of(questions, profile, firstChoice, output).start();
+        }
+        assertEquals(outputs[0].getText(), outputs[1].getText());
+
+        // 2つのインスタンスが同じキャッシュに、渡されたリストをキーとしてフレームを格納している
+        final QuestionFrameCache cache = profile.getFrameCache();
+        assertEquals(questions.size(), cache.size());
+        final int gets = questions.gets;
+        for (int i = 0; i < questions.size(); ++i) {
+            assertTrue(cache.getFrame(i + 1, questions, i).getText().contains("問題" + i));
+        }
+        assertEquals(gets, questions.gets);
+    }
+}
@@ -0,0 +1,112 @@
+package mw.ninequiz.src;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link QuestionImporter}のテストです。
+ *
+ * @author Getaji
+ */
+class QuestionImporterTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void invalidRowsAreReportedWithLineNumbers() throws IOException {
+        final String csv = "\uFEFF# コメント\n"
+                + "首都はどこ？,2,大阪,東京,京都\n"
+                + "\n"
+                + "正解が範囲外,4,A,B,C\n"
+                + "正解が数字でない,x,A,B\n"
+                + "選択肢が重複,1,A,A\n"
+                + "列が足りない,1\n"
+                + "\"引用,された\",1,\"a\"\"b\",c\n";
+
+        final ImportResult result = QuestionImporter.importQuestions(
+                new StringReader(csv), ImportFormat.CSV);
+
+        assertEquals(2, result.getImportedCount());
+        assertEquals("首都はどこ？", result.getQuestions().get(0).getQuestionStatement());
+        assertEquals("東京", result.getQuestions().get(0).getAnswerText());
+        assertEquals("引用,された", result.getQuestions().get(1).getQuestionStatement());
+        assertEquals("a\"b", result.getQuestions().get(1).getAnswerText());
+
+        final List<ImportError> errors = result.getErrors();
+        assertFalse(result.isSuccessful());
+        assertEquals(4, errors.size());
+        final long[] lines = {4, 5, 6, 7};
+        for (int i = 0; i < lines.length; ++i) {
+            assertEquals(lines[i], errors.get(i).getLineNumber());
+            assertNotNull(errors.get(i).getMessage());
+            assertFalse(errors.get(i).getMessage().isEmpty());
+        }
+    }
+
+    @Test
+    void invalidJsonLinesAreReported() throws IOException {
+        final String jsonLines = "{\"statement\":\"弦楽器は？\",\"answer\":1,\"choices\":[\"チェロ\",\"ピアノ\"]}\n"
+                + "{\"statement\":\"閉じていない\n"
+                + "{\"answer\":1,\"choices\":[\"A\"]}\n"
+                + "{\"statement\":\"\\u30c6\",\"answer\":1,\"choices\":[\"A\"],\"extra\":true}\n";
+
+        final ImportResult result = QuestionImporter.importQuestions(
+                new StringReader(jsonLines), ImportFormat.JSON_LINES);
+
+        assertEquals(2, result.getImportedCount());
+        assertEquals("テ", result.getQuestions().get(1).getQuestionStatement());
+        assertEquals(2, result.getErrors().size());
+        assertEquals(2, result.getErrors().get(0).getLineNumber());
+        assertEquals(3, result.getErrors().get(1).getLineNumber());
+        for (ImportError error : result.getErrors()) {
+            assertNotNull(error.getMessage());
+        }
+    }
+
+    @Test
+    void importToBankKeepsOrderAcrossChunks() throws IOException {
+        final Path csv = directory.resolve("questions.csv");
+        final Path bankPath = directory.resolve("questions.nqb");
+        final List<String> rows = new ArrayList<>();
+        final int rowCount = 40000;
+        for (int i = 0; i < rowCount; ++i) {
+            rows.add(i % 1000 == 999 ? "壊れた行" + i : "問題" + i + "," + (i % 3 + 1) + ",A" + i + ",B" + i + ",C" + i);
+        }
+        Files.write(csv, rows, StandardCharsets.UTF_8);
+
+        final ImportResult result;
+        try (QuestionBankWriter writer = QuestionBankWriter.create(bankPath)) {
+            result = QuestionImporter.importToBank(csv, ImportFormat.CSV, writer);
+        }
+
+        assertEquals(rowCount - rowCount / 1000, result.getImportedCount());
+        assertEquals(rowCount / 1000, result.getErrors().size());
+        assertEquals(1000, result.getErrors().get(0).getLineNumber());
+        assertEquals(rowCount, result.getErrors().get(result.getErrors().size() - 1).getLineNumber());
+
+        try (QuestionBank bank = QuestionBank.open(bankPath)) {
+            assertEquals(result.getImportedCount(), bank.size());
+            int questionId = 0;
+            for (int i = 0; i < rowCount; ++i) {
+                if (i % 1000 == 999) {
+                    continue;
+                }
+                final Question question = bank.get(questionId++);
+                assertEquals("問題" + i, question.getQuestionStatement());
+                assertEquals(i % 3 + 1, question.getAnswerIndex());
+                assertEquals("C" + i, question.getChoice(3));
+            }
+        }
+    }
+}
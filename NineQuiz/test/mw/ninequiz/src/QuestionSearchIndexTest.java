@@ -0,0 +1,170 @@
+package mw.ninequiz.src;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link QuestionSearchIndex}のテストです。
+ *
+ * @author Getaji
+ */
+class QuestionSearchIndexTest {
+
+    /** 区間を複数に分けるため、区間の問題数より多くします。 */
+    private static final int BANK_SIZE = 20_000;
+
+    private static final String ALPHABET = "犬猫鳥魚馬牛羊山川海空雨雪花木草石火水土";
+
+    private static String randomText(SplittableRandom random, int minLength, int maxLength) {
+        final int length = minLength + random.nextInt(maxLength - minLength + 1);
+        final StringBuilder builder = new StringBuilder(length);
+        for (int i = 0; i < length; ++i) {
+            builder.append(ALPHABET.charAt(random.nextInt(ALPHABET.length())));
+        }
+        return builder.toString();
+    }
+
+    private static List<Question> randomBank(SplittableRandom random, int size) {
+        final List<Question> bank = new ArrayList<>(size);
+        for (int i = 0; i < size; ++i) {
+            bank.add(Question.builder()
+                    .setStatement(randomText(random, 3, 8))
+                    .addChoice("選" + i)
+                    .addChoice(randomText(random, 1, 1))
+                    .addChoice(randomText(random, 2, 3))
+                    .setAnswerIndex(1)
+                    .build());
+        }
+        return bank;
+    }
+
+    @Test
+    void searchMatchesBruteForce() {
+        final SplittableRandom random = new SplittableRandom(5);
+        final List<Question> bank = randomBank(random, BANK_SIZE);
+        final QuestionSearchIndex index = QuestionSearchIndex.build(bank);
+        assertEquals(BANK_SIZE, index.size());
+
+        for (int q = 0; q < 60; ++q) {
+            // 1文字の問い合わせも、その文字を含むすべての問題に当たる
+            final String text = randomText(random, 1, 3);
+            final int[] found = index.search(text);
+            assertArrayEquals(bruteForceSearch(bank, text), found, text);
+            for (int id = 0; id < bank.size(); ++id) {
+                if (contains(bank.get(id), text)) {
+                    assertTrue(Arrays.binarySearch(found, id) >= 0, text + " in " + id);
+                }
+            }
+        }
+        assertTrue(index.search("犬").length > BANK_SIZE / 10);
+        assertEquals(0, index.search(" ").length);
+    }
+
+    @Test
+    void findSimilarMatchesBruteForce() {
+        final SplittableRandom random = new SplittableRandom(9);
+        final List<Question> bank = randomBank(random, BANK_SIZE);
+        final QuestionSearchIndex index = QuestionSearchIndex.build(bank);
+
+        for (int q = 0; q < 20; ++q) {
+            final double threshold = 0.2 + random.nextInt(5) / 10.0;
+            final int id = random.nextInt(bank.size());
+            assertMatches(bruteForceSimilar(bank, QuestionSearchIndex.gramsOf(bank.get(id)), id,
+                    threshold), index.findSimilar(id, threshold, Integer.MAX_VALUE));
+
+            final String text = randomText(random, 3, 8);
+            assertMatches(bruteForceSimilar(bank, QuestionSearchIndex.gramsOf(text), -1, threshold),
+                    index.findSimilar(text, threshold, Integer.MAX_VALUE));
+        }
+    }
+
+    @Test
+    void refreshIndexesAddedQuestions() {
+        final SplittableRandom random = new SplittableRandom(13);
+        final List<Question> bank = randomBank(random, BANK_SIZE);
+        final QuestionSearchIndex index = QuestionSearchIndex.build(bank);
+        bank.addAll(randomBank(random, 100));
+        assertEquals(100, index.refresh());
+        assertEquals(BANK_SIZE + 100, index.size());
+
+        for (int q = 0; q < 20; ++q) {
+            final String text = randomText(random, 1, 2);
+            assertArrayEquals(bruteForceSearch(bank, text), index.search(text), text);
+        }
+    }
+
+    /**
+     * 問い合わせのn-gramをすべて含む問題を、問題を1つずつ調べて求めます。
+     */
+    private static int[] bruteForceSearch(List<Question> bank, String text) {
+        final int[] query = QuestionSearchIndex.searchGramsOf(text);
+        final List<Integer> ids = new ArrayList<>();
+        for (int id = 0; id < bank.size(); ++id) {
+            final Question question = bank.get(id);
+            final int[] grams = QuestionSearchIndex.gramsOf(question);
+            final int[] unigrams = QuestionSearchIndex.unigramsOf(question);
+            boolean all = true;
+            for (int gram : query) {
+                if (Arrays.binarySearch(grams, gram) < 0 && Arrays.binarySearch(unigrams, gram) < 0) {
+                    all = false;
+                    break;
+                }
+            }
+            if (all) {
+                ids.add(id);
+            }
+        }
+        return ids.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    private static boolean contains(Question question, String text) {
+        if (question.getQuestionStatement().contains(text)) {
+            return true;
+        }
+        for (String choice : question.getChoiceList()) {
+            if (choice.contains(text)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * すべての問題とのJaccard係数を求め、索引と同じ順に並べます。
+     */
+    private static List<QuestionMatch> bruteForceSimilar(List<Question> bank, int[] query,
+                                                         int sourceId, double threshold) {
+        final List<QuestionMatch> matches = new ArrayList<>();
+        for (int id = 0; id < bank.size(); ++id) {
+            if (id == sourceId) {
+                continue;
+            }
+            final int[] grams = QuestionSearchIndex.gramsOf(bank.get(id));
+            final int shared = (int) Arrays.stream(grams)
+                    .filter(gram -> Arrays.binarySearch(query, gram) >= 0)
+                    .count();
+            final double similarity = (double) shared / (query.length + grams.length - shared);
+            if (shared > 0 && similarity >= threshold) {
+                matches.add(new QuestionMatch(sourceId, id, similarity));
+            }
+        }
+        matches.sort(Comparator.comparingDouble(QuestionMatch::getSimilarity).reversed()
+                .thenComparingInt(QuestionMatch::getQuestionId));
+        return matches;
+    }
+
+    private static void assertMatches(List<QuestionMatch> expected, List<QuestionMatch> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            assertEquals(expected.get(i).getQuestionId(), actual.get(i).getQuestionId());
+            assertEquals(expected.get(i).getSimilarity(), actual.get(i).getSimilarity(), 1e-12);
+        }
+    }
+}
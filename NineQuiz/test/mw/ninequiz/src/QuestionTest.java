@@ -0,0 +1,38 @@
+package mw.ninequiz.src;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link Question}のテストです。
+ *
+ * @author Getaji
+ */
+class QuestionTest {
+
+    @Test
+    void answerIndexCanBeSetBeforeLastChoice() {
+        final Question question = Question.builder()
+                .setStatement("問題")
+                .addChoice("a")
+                .setAnswerIndex(2)
+                .addChoice("b")
+                .build();
+        assertEquals(2, question.getAnswerIndex());
+        assertEquals("b", question.getChoice(2));
+    }
+
+    @Test
+    void answerIndexOutOfChoicesIsRejected() {
+        assertThrows(IndexOutOfBoundsException.class,
+                () -> Question.builder().addChoice("a").setAnswerIndex(3));
+
+        // 追加予定の選択肢を指したまま構築すると契約違反になる
+        final Question.QuestionBuilder builder = Question.builder()
+                .setStatement("問題")
+                .addChoice("a")
+                .setAnswerIndex(2);
+        assertThrows(IllegalStateException.class, builder::build);
+    }
+}
@@ -0,0 +1,171 @@
+package mw.ninequiz.src;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link QuizCluster}のテストです。
+ *
+ * @author Getaji
+ */
+class QuizClusterTest {
+
+    private static final int QUESTION_COUNT = 10;
+
+    private static List<Question> questions() {
+        final List<Question> questions = new ArrayList<>();
+        for (int i = 0; i < QUESTION_COUNT; ++i) {
+            questions.add(Question.builder()
+                    .setStatement("問題" + i)
+                    .addChoiceAll("A", "B", "C")
+                    .setAnswerIndex(1 + i % 3)
+                    .build());
+        }
+        return questions;
+    }
+
+    @Test
+    void answersSurviveConcurrentHandoff() throws InterruptedException {
+        final QuizCluster cluster = QuizCluster.of(questions(), QuizProfile.DEFAULT);
+        for (int i = 0; i < 3; ++i) {
+            cluster.addNode("node-" + i);
+        }
+
+        final int sessionCount = 6_000;
+        final long[] ids = new long[sessionCount];
+        for (int i = 0; i < sessionCount; ++i) {
+            ids[i] = cluster.openSession().getId();
+        }
+
+        // ノードを1つ加えては最も古いノードを取り除き、担当を動かし続ける
+        final AtomicBoolean answering = new AtomicBoolean(true);
+        final AtomicReference<Throwable> failure = new AtomicReference<>();
+        final int[] rebalances = new int[1];
+        final Thread rebalancer = new Thread(() -> {
+            try {
+                int next = 3;
+                while (answering.get() || rebalances[0] < 10) {
+                    cluster.addNode("node-" + next);
+                    cluster.removeNode("node-" + (next - 3));
+                    ++next;
+                    ++rebalances[0];
+                }
+            } catch (Throwable e) {
+                failure.compareAndSet(null, e);
+            }
+        });
+        rebalancer.start();
+
+        final int threadCount = 3;
+        final int[] expectedScores = new int[sessionCount];
+        final Thread[] players = new Thread[threadCount];
+        for (int t = 0; t < threadCount; ++t) {
+            final int first = t;
+            players[t] = new Thread(() -> {
+                try {
+                    final SplittableRandom random = new SplittableRandom(first);
+                    for (int q = 0; q < QUESTION_COUNT; ++q) {
+                        for (int i = first; i < sessionCount; i += threadCount) {
+                            if (cluster.judge(ids[i], 1 + random.nextInt(3)) == JudgeType.CORRECT) {
+                                ++expectedScores[i];
+                            }
+                        }
+                    }
+                } catch (Throwable e) {
+                    failure.compareAndSet(null, e);
+                }
+            });
+            players[t].start();
+        }
+
+        for (Thread player : players) {
+            player.join();
+        }
+        answering.set(false);
+        rebalancer.join();
+        assertNull(failure.get());
+        assertTrue(cluster.getHandoffCount() > 0);
+        assertEquals(3, cluster.getNodeIds().size());
+
+        assertEquals(sessionCount, cluster.getSessionCount());
+        assertEquals(sessionCount, cluster.getPlayerCount());
+        for (int i = 0; i < sessionCount; ++i) {
+            // 引き継ぎの前後で解答が失われず、担当のノードだけが持っている
+            final QuizSession session = cluster.getSession(ids[i]);
+            assertNotNull(session, "session " + ids[i]);
+            assertTrue(session.isFinished());
+            assertEquals(expectedScores[i], session.getRecord().getCorrectCount());
+            assertSame(session, cluster.getEngine(cluster.getNodeOf(ids[i])).getSession(ids[i]));
+            assertEquals(expectedScores[i], cluster.getEntry(ids[i]).getScore());
+        }
+        assertMergedRanks(cluster, ids, expectedScores);
+    }
+
+    @Test
+    void removedNodeHandsOverSessionsAndScores() {
+        final QuizCluster cluster = QuizCluster.of(questions(), QuizProfile.DEFAULT);
+        cluster.addNode("a");
+        final long[] ids = new long[200];
+        final int[] scores = new int[ids.length];
+        for (int i = 0; i < ids.length; ++i) {
+            ids[i] = cluster.openSession().getId();
+            for (int q = 0; q < i % 4; ++q) {
+                if (cluster.judge(ids[i], 1) == JudgeType.CORRECT) {
+                    ++scores[i];
+                }
+            }
+        }
+
+        final int movedToB = cluster.addNode("b");
+        assertTrue(movedToB > 0);
+        assertEquals(ids.length - movedToB, cluster.removeNode("a"));
+        assertEquals(ids.length, cluster.getSessionCount("b"));
+        assertThrows(IllegalStateException.class, () -> cluster.removeNode("b"));
+
+        for (int i = 0; i < ids.length; ++i) {
+            assertEquals("b", cluster.getNodeOf(ids[i]));
+            assertEquals(i % 4, cluster.getSession(ids[i]).getCurrentIndex());
+        }
+
+        // 解答したセッションだけが順位表に載る
+        int answered = 0;
+        for (int i = 0; i < ids.length; ++i) {
+            if (i % 4 != 0) {
+                ++answered;
+                assertEquals(scores[i], cluster.getEntry(ids[i]).getScore());
+            }
+        }
+        assertEquals(answered, cluster.getPlayerCount("b"));
+    }
+
+    /**
+     * 併合した順位を、全セッションを並べ直した順位と比べます。
+     * 表示時刻を記録していないため時間はすべて0で、得点とセッションIDで順位が決まります。
+     */
+    private static void assertMergedRanks(QuizCluster cluster, long[] ids, int[] scores) {
+        final List<Integer> order = new ArrayList<>();
+        for (int i = 0; i < ids.length; ++i) {
+            order.add(i);
+        }
+        order.sort(Comparator.<Integer>comparingInt(i -> -scores[i]).thenComparingLong(i -> ids[i]));
+
+        for (int rank = 0; rank < order.size(); ++rank) {
+            final long id = ids[order.get(rank)];
+            assertEquals(rank + 1, cluster.getEntry(id).getRank(), "rank of " + id);
+        }
+
+        final List<LeaderboardEntry> top = cluster.top(20);
+        for (int rank = 0; rank < top.size(); ++rank) {
+            assertEquals(ids[order.get(rank)], top.get(rank).getPlayerId());
+            assertEquals(rank + 1, top.get(rank).getRank());
+        }
+    }
+}
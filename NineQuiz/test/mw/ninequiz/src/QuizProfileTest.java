@@ -0,0 +1,59 @@
+package mw.ninequiz.src;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link QuizProfile}のテストです。
+ *
+ * @author Getaji
+ */
+class QuizProfileTest {
+
+    @Test
+    void builderProfilesAreInterned() {
+        assertSame(QuizProfile.DEFAULT, QuizProfile.builder().build());
+        assertSame(QuizProfile.DEFAULT, QuizProfile.of(new QuizLogicData()));
+
+        final QuizProfile custom = QuizProfile.builder().correctMessage("せいかい").build();
+        assertSame(custom, QuizProfile.builder().correctMessage("せいかい").build());
+    }
+
+    @Test
+    void profilesFromDataAreNotRetained() {
+        final QuizLogicData data = new QuizLogicData();
+        data.setCorrectMessage("一度きりの文言" + System.nanoTime());
+
+        final QuizProfile first = QuizProfile.of(data);
+        final QuizProfile second = QuizProfile.of(data);
+        assertNotSame(first, second);
+        assertEquals(first, second);
+        assertEquals(first.hashCode(), second.hashCode());
+        assertSame(first, QuizProfile.refresh(first, data));
+
+        data.setCorrectMessage("変更後");
+        final QuizProfile refreshed = QuizProfile.refresh(first, data);
+        assertNotEquals(first, refreshed);
+        assertEquals("変更後", refreshed.getJudgeMessage(JudgeType.CORRECT));
+    }
+
+    @Test
+    void nullMessagesAreAccepted() {
+        final QuizLogicData data = new QuizLogicData();
+        data.setStartMessage(null);
+        data.setCorrectMessage(null);
+        data.setPromptText(null);
+
+        final QuizProfile profile = QuizProfile.of(data);
+        assertTrue(profile.isCreatedFrom(data));
+        assertEquals("null", profile.getStartMessage());
+        assertEquals("null", profile.getJudgeMessage(JudgeType.CORRECT));
+        assertEquals("null", profile.getPromptText());
+        assertNull(profile.toData().getCorrectMessage());
+
+        data.setQuestionNumberText(null);
+        assertFalse(profile.isCreatedFrom(data));
+        assertThrows(NullPointerException.class, () -> QuizProfile.of(data));
+    }
+}
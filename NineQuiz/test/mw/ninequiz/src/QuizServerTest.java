@@ -0,0 +1,113 @@
+package mw.ninequiz.src;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link QuizServer}のテストです。
+ *
+ * @author Getaji
+ */
+class QuizServerTest {
+
+    private static final Question QUESTION = Question.builder()
+            .setStatement("問題")
+            .addChoiceAll("A", "B", "C")
+            .setAnswerIndex(1)
+            .build();
+
+    /**
+     * 2問目だけが壊れている問題集の代わりです。
+     */
+    private static final class BrokenQuestions extends AbstractList<Question> implements RandomAccess {
+        @Override
+        public Question get(int index) {
+            if (index == 1) {
+                throw new UncheckedIOException(new IOException("broken question"));
+            }
+            return QUESTION;
+        }
+
+        @Override
+        public int size() {
+            return 3;
+        }
+    }
+
+    @Test
+    void brokenQuestionClosesOnlyItsConnection() throws IOException {
+        final QuizEngine engine = QuizEngine.of(new BrokenQuestions(), QuizProfile.DEFAULT);
+        try (QuizServer server = QuizServer.start(engine,
+                new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1)) {
+            try (Socket waiting = connect(server); Socket broken = connect(server)) {
+                readUntil(waiting, "number>");
+                readUntil(broken, "number>");
+
+                // 2問目を表示しようとして失敗した接続だけが閉じられる
+                send(broken, "1");
+                assertFalse(readToEnd(broken).contains("number>"));
+
+                send(waiting, "9");
+                readUntil(waiting, "number>");
+            }
+
+            // ワーカーは止まらず、新しい接続も受け付ける
+            try (Socket next = connect(server)) {
+                assertTrue(readUntil(next, "number>").contains("問題"));
+            }
+        }
+        assertEquals(0, engine.getSessionCount());
+    }
+
+    private static Socket connect(QuizServer server) throws IOException {
+        final Socket socket = new Socket();
+        socket.connect(server.getLocalAddress(), 5_000);
+        socket.setSoTimeout(5_000);
+        return socket;
+    }
+
+    private static void send(Socket socket, String line) throws IOException {
+        final OutputStream output = socket.getOutputStream();
+        output.write((line + "\n").getBytes(StandardCharsets.UTF_8));
+        output.flush();
+    }
+
+    private static String readUntil(Socket socket, String suffix) throws IOException {
+        final InputStream input = socket.getInputStream();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        while (true) {
+            final int b = input.read();
+            if (b < 0) {
+                fail("closed before " + suffix + ": " + bytes.toString("UTF-8"));
+            }
+            bytes.write(b);
+            final String text = bytes.toString("UTF-8");
+            if (text.endsWith(suffix)) {
+                return text;
+            }
+        }
+    }
+
+    private static String readToEnd(Socket socket) throws IOException {
+        final InputStream input = socket.getInputStream();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        int b;
+        while ((b = input.read()) >= 0) {
+            bytes.write(b);
+        }
+        return bytes.toString("UTF-8");
+    }
+}
@@ -0,0 +1,138 @@
+package mw.ninequiz.src;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link SessionJournal}のテストです。
+ *
+ * @author Getaji
+ */
+class SessionJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void recoversSessionsAfterCrash() throws IOException {
+        final List<Question> questions = createQuestions();
+
+        final long openId;
+        final long closedId;
+        final long checkpointedId;
+        final long segmentSeq;
+        {
+            final QuizEngine engine = QuizEngine.of(questions, new QuizLogicData());
+            final SessionJournal journal = SessionJournal.open(directory, engine, FsyncPolicy.ALWAYS);
+
+            final QuizSession checkpointed = engine.openSession();
+            engine.judge(checkpointed, 300);
+            engine.judge(checkpointed, 1);
+            journal.checkpoint();
+
+            final QuizSession open = engine.openSession();
+            closedId = engine.openSession().getId();
+            engine.judge(checkpointed, 2);
+            engine.judge(open, 300);
+            engine.judge(open, 2);
+            engine.judge(engine.getSession(closedId), 300);
+            engine.closeSession(closedId);
+
+            // セッションを閉じずに記録だけ書き切り、落ちたことにする
+            segmentSeq = journal.getSegmentSeq();
+            journal.close();
+            openId = open.getId();
+            checkpointedId = checkpointed.getId();
+        }
+
+        // 書き込みの途中で途切れたレコードを残す
+        final Path log = directory.resolve(JournalFormat.logFileName(segmentSeq));
+        try (FileChannel channel = FileChannel.open(log, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] {1, 2, 3, 4, 5, 6, 7}));
+        }
+
+        final QuizEngine engine = QuizEngine.of(questions, new QuizLogicData());
+        try (SessionJournal journal = SessionJournal.open(directory, engine, FsyncPolicy.NEVER)) {
+            final JournalRecovery recovery = journal.getRecovery();
+            assertEquals(1, recovery.getSnapshotSessionCount());
+            assertEquals(7, recovery.getDiscardedBytes());
+            assertEquals(2, recovery.getRestoredSessionCount());
+            assertNull(engine.getSession(closedId));
+
+            // 255を超える正解の解答も正解として復元される
+            final QuizSession checkpointed = engine.getSession(checkpointedId);
+            assertEquals(3, checkpointed.getCurrentIndex());
+            assertEquals(JudgeType.CORRECT, checkpointed.getRecord().get(0));
+            assertEquals(JudgeType.INCORRECT, checkpointed.getRecord().get(1));
+            assertEquals(JudgeType.CORRECT, checkpointed.getRecord().get(2));
+
+            final QuizSession open = engine.getSession(openId);
+            assertEquals(2, open.getCurrentIndex());
+            assertEquals(2, open.getRecord().getCorrectCount());
+
+            // 復元後に開始するセッションのIDは使い回されない
+            assertTrue(engine.openSession().getId() > Math.max(closedId, openId));
+        }
+    }
+
+    @Test
+    void recoversFromSnapshotWrittenAtCheckpoint() throws IOException {
+        final List<Question> questions = createQuestions();
+        final long sessionId;
+        {
+            final QuizEngine engine = QuizEngine.of(questions, new QuizLogicData());
+            final SessionJournal journal = SessionJournal.open(directory, engine, FsyncPolicy.NEVER);
+            final QuizSession session = engine.openSession();
+            engine.judge(session, 300);
+            engine.judge(session, 2);
+            journal.checkpoint();
+            journal.checkpoint();
+            journal.close();
+            sessionId = session.getId();
+        }
+
+        final QuizEngine engine = QuizEngine.of(questions, new QuizLogicData());
+        try (SessionJournal journal = SessionJournal.open(directory, engine, FsyncPolicy.NEVER)) {
+            assertEquals(0, journal.getRecovery().getReplayedRecordCount());
+            final QuizSession session = engine.getSession(sessionId);
+            assertEquals(2, session.getCurrentIndex());
+            assertEquals(JudgeType.CORRECT, session.getRecord().get(0));
+            assertEquals(JudgeType.CORRECT, session.getRecord().get(1));
+        }
+    }
+
+    @Test
+    void rejectsSessionsThatCannotBeRecorded() throws IOException {
+        final List<Question> questions = createQuestions();
+        final QuizEngine engine = QuizEngine.of(questions, new QuizLogicData());
+        try (SessionJournal journal = SessionJournal.open(directory, engine, FsyncPolicy.NEVER)) {
+            final List<Question> deck = new ArrayList<>(questions);
+            assertThrows(IllegalStateException.class, () -> engine.openSession(deck));
+            assertThrows(IllegalStateException.class, () -> engine.openSession(QuizProfile.DEFAULT));
+            assertEquals(0, engine.getSessionCount());
+            assertNotNull(engine.openSession());
+        }
+    }
+
+    private static List<Question> createQuestions() {
+        final List<Question> questions = new ArrayList<>();
+        final Question.QuestionBuilder wide = Question.builder().setStatement("選択肢の多い問題");
+        for (int i = 1; i <= 300; ++i) {
+            wide.addChoice("選択肢" + i);
+        }
+        questions.add(wide.setAnswerIndex(300).build());
+        questions.add(Question.builder().setStatement("問題2").addChoiceAll("A", "B").setAnswerIndex(2).build());
+        questions.add(Question.builder().setStatement("問題3").addChoiceAll("A", "B").setAnswerIndex(2).build());
+        return questions;
+    }
+}
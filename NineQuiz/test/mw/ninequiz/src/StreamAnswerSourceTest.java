@@ -0,0 +1,72 @@
+package mw.ninequiz.src;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * {@link StreamAnswerSource}と{@link QuizLogic}の解答の読み取りのテストです。
+ *
+ * @author Getaji
+ */
+class StreamAnswerSourceTest {
+
+    @Test
+    void sharedStreamIsNotReadAhead() {
+        final InputStream input = new ByteArrayInputStream(
+                "0\n2\n1\n".getBytes(StandardCharsets.US_ASCII));
+        final List<Question> questions = Collections.singletonList(Question.builder()
+                .setStatement("問題")
+                .addChoiceAll("A", "B")
+                .setAnswerIndex(2)
+                .build());
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final QuizLogic logic = QuizLogic.of(questions, new QuizLogicData(),
+                new StreamAnswerSource(input, false),
+                new BufferedQuizOutput(out, StandardCharsets.UTF_8));
+
+        final List<Integer> answers = new ArrayList<>();
+        final List<JudgeType> judges = new ArrayList<>();
+        logic.addAnswerListener((session, questionIndex, question, userAnswer, judge, thinkNanos) -> {
+            answers.add(userAnswer);
+            judges.add(judge);
+        });
+        logic.start();
+
+        // 入力された0は解答なしではなく範囲外として入力し直しになる
+        assertEquals(Collections.singletonList(2), answers);
+        assertEquals(Collections.singletonList(JudgeType.CORRECT), judges);
+
+        final String text = new String(out.toByteArray(), StandardCharsets.UTF_8);
+        final String prompt = new QuizLogicData().getPromptText();
+        assertEquals(2, text.split(prompt, -1).length - 1, text);
+
+        // 閉じた入力元は残りの行を読んでいない
+        final StreamAnswerSource next = new StreamAnswerSource(input, false);
+        assertEquals(1, next.requestAnswer(null, questions.get(0)).join().intValue());
+        next.close();
+    }
+
+    @Test
+    void noAnswerCannotBeTyped() {
+        assertEquals(AsciiIntParser.INVALID, parse(String.valueOf(AnswerSource.NO_ANSWER)));
+        assertEquals(AsciiIntParser.INVALID, parse(String.valueOf(AsciiIntParser.END)));
+        assertEquals(AsciiIntParser.RESERVED_MAX + 1, parse(String.valueOf(AsciiIntParser.RESERVED_MAX + 1)));
+        assertEquals(0, parse("0"));
+        assertNotEquals(0, AnswerSource.NO_ANSWER);
+    }
+
+    private static int parse(String text) {
+        final ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.US_ASCII));
+        return AsciiIntParser.parse(buffer, 0, buffer.limit());
+    }
+}